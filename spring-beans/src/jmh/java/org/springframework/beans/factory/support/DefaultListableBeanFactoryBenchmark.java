@@ -0,0 +1,156 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.support;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import org.springframework.beans.factory.ObjectFactory;
+import org.springframework.beans.factory.config.BeanDefinition;
+
+/**
+ * Benchmarks for {@link DefaultListableBeanFactory#getBean(String)} covering
+ * singleton, prototype and custom-scoped bean definitions, with reflective
+ * as well as {@link CglibFastClassInstantiationStrategy generated} instantiation.
+ *
+ * <p>Typically run with {@code "./gradlew :spring-beans:jmh"}.
+ *
+ * @author agent
+ */
+@BenchmarkMode(Mode.Throughput)
+public class DefaultListableBeanFactoryBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class BenchmarkState {
+
+		@Param({"reflective", "generated"})
+		public String instantiation;
+
+		public DefaultListableBeanFactory beanFactory;
+
+		public MapScope scope;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			this.beanFactory = new DefaultListableBeanFactory();
+			if ("generated".equals(this.instantiation)) {
+				this.beanFactory.setInstantiationStrategy(new CglibFastClassInstantiationStrategy());
+			}
+			this.scope = new MapScope();
+			this.beanFactory.registerScope("benchmark", this.scope);
+
+			RootBeanDefinition singleton = new RootBeanDefinition(TestBean.class);
+			this.beanFactory.registerBeanDefinition("singleton", singleton);
+
+			RootBeanDefinition prototype = new RootBeanDefinition(TestBean.class);
+			prototype.setScope(BeanDefinition.SCOPE_PROTOTYPE);
+			prototype.getPropertyValues().add("name", "prototype");
+			this.beanFactory.registerBeanDefinition("prototype", prototype);
+
+			RootBeanDefinition scoped = new RootBeanDefinition(TestBean.class);
+			scoped.setScope("benchmark");
+			scoped.getPropertyValues().add("name", "scoped");
+			this.beanFactory.registerBeanDefinition("scoped", scoped);
+
+			this.beanFactory.preInstantiateSingletons();
+		}
+	}
+
+
+	@Benchmark
+	public Object singleton(BenchmarkState state) {
+		return state.beanFactory.getBean("singleton");
+	}
+
+	@Benchmark
+	public Object prototype(BenchmarkState state) {
+		return state.beanFactory.getBean("prototype");
+	}
+
+	@Benchmark
+	public Object scopedCached(BenchmarkState state) {
+		return state.beanFactory.getBean("scoped");
+	}
+
+	@Benchmark
+	public Object scopedCreation(BenchmarkState state) {
+		state.scope.reset();
+		return state.beanFactory.getBean("scoped");
+	}
+
+
+	/**
+	 * Simple {@link org.springframework.beans.factory.config.Scope} that mimics
+	 * a request scope: instances are cached until the scope is reset.
+	 */
+	public static class MapScope implements org.springframework.beans.factory.config.Scope {
+
+		private final Map<String, Object> objects = new HashMap<>();
+
+		public void reset() {
+			this.objects.clear();
+		}
+
+		@Override
+		public Object get(String name, ObjectFactory<?> objectFactory) {
+			return this.objects.computeIfAbsent(name, key -> objectFactory.getObject());
+		}
+
+		@Override
+		public Object remove(String name) {
+			return this.objects.remove(name);
+		}
+
+		@Override
+		public void registerDestructionCallback(String name, Runnable callback) {
+		}
+
+		@Override
+		public Object resolveContextualObject(String key) {
+			return null;
+		}
+
+		@Override
+		public String getConversationId() {
+			return null;
+		}
+	}
+
+
+	public static class TestBean {
+
+		private String name;
+
+		public String getName() {
+			return this.name;
+		}
+
+		public void setName(String name) {
+			this.name = name;
+		}
+	}
+
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.support;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+
+/**
+ * Contention benchmarks for {@link DefaultSingletonBeanRegistry}: concurrent
+ * lookups of initialized singletons, concurrent prototype creation with
+ * dependent bean registration, and concurrent creation of lazy singletons,
+ * with and without {@link DefaultSingletonBeanRegistry#setSingletonLockPerBean
+ * per-bean singleton locks}.
+ *
+ * <p>Typically run with {@code "./gradlew :spring-beans:jmh"}.
+ *
+ * @author agent
+ */
+@BenchmarkMode(Mode.Throughput)
+@Threads(8)
+public class DefaultSingletonBeanRegistryBenchmark {
+
+	private static final int SINGLETON_COUNT = 64;
+
+
+	@State(Scope.Benchmark)
+	public static class BeanFactoryData {
+
+		@Param({"false", "true"})
+		public boolean singletonLockPerBean;
+
+		public DefaultListableBeanFactory beanFactory;
+
+		public final AtomicInteger counter = new AtomicInteger();
+
+		@Setup(Level.Iteration)
+		public void setup() {
+			this.beanFactory = new DefaultListableBeanFactory();
+			this.beanFactory.setSingletonLockPerBean(this.singletonLockPerBean);
+			for (int i = 0; i < SINGLETON_COUNT; i++) {
+				this.beanFactory.registerBeanDefinition("singleton" + i, new RootBeanDefinition(TestBean.class));
+			}
+			RootBeanDefinition prototype = new RootBeanDefinition(TestBean.class);
+			prototype.setScope(BeanDefinition.SCOPE_PROTOTYPE);
+			prototype.getPropertyValues().add("spouse", new RuntimeBeanReference("singleton0"));
+			this.beanFactory.registerBeanDefinition("prototype", prototype);
+			this.beanFactory.preInstantiateSingletons();
+			// Lazy singletons, created on first access by the benchmark threads
+			for (int i = 0; i < 100_000; i++) {
+				RootBeanDefinition lazy = new RootBeanDefinition(TestBean.class);
+				lazy.setLazyInit(true);
+				this.beanFactory.registerBeanDefinition("lazy" + i, lazy);
+			}
+			this.counter.set(0);
+		}
+	}
+
+
+	@Benchmark
+	public Object getInitializedSingleton(BeanFactoryData data) {
+		return data.beanFactory.getSingleton("singleton" + (data.counter.incrementAndGet() % SINGLETON_COUNT));
+	}
+
+	@Benchmark
+	public Object createPrototypeWithDependency(BeanFactoryData data) {
+		return data.beanFactory.getBean("prototype");
+	}
+
+	@Benchmark
+	public Object createLazySingleton(BeanFactoryData data) {
+		return data.beanFactory.getBean("lazy" + (data.counter.incrementAndGet() % 100_000));
+	}
+
+
+	public static class TestBean {
+
+		private TestBean spouse;
+
+		public TestBean getSpouse() {
+			return this.spouse;
+		}
+
+		public void setSpouse(TestBean spouse) {
+			this.spouse = spouse;
+		}
+	}
+
+}
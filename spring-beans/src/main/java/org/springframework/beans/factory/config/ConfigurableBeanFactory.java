@@ -27,6 +27,7 @@ import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.HierarchicalBeanFactory;
 import org.springframework.beans.factory.NoSuchBeanDefinitionException;
 import org.springframework.core.convert.ConversionService;
+import org.springframework.core.metrics.ApplicationStartup;
 import org.springframework.lang.Nullable;
 import org.springframework.util.StringValueResolver;
 
@@ -302,6 +303,28 @@ public interface ConfigurableBeanFactory extends HierarchicalBeanFactory, Single
 	//返回Bean后处理器的数量
 	int getBeanPostProcessorCount();
 
+	/**
+	 * Set the {@code ApplicationStartup} for this bean factory.
+	 * <p>This allows the application context to record metrics during application startup.
+	 * <p>The default implementation ignores the given instance: bean factories
+	 * supporting startup metrics need to override this method along with
+	 * {@link #getApplicationStartup()}.
+	 * @param applicationStartup the new application startup
+	 * @since 5.1.20
+	 */
+	default void setApplicationStartup(ApplicationStartup applicationStartup) {
+	}
+
+	/**
+	 * Return the {@code ApplicationStartup} for this bean factory.
+	 * <p>The default implementation returns the no-op
+	 * {@link ApplicationStartup#DEFAULT}.
+	 * @since 5.1.20
+	 */
+	default ApplicationStartup getApplicationStartup() {
+		return ApplicationStartup.DEFAULT;
+	}
+
 	/**
 	 * Register the given scope, backed by the given Scope implementation.
 	 * @param scopeName the scope identifier
@@ -76,6 +76,8 @@ import org.springframework.core.NamedThreadLocal;
 import org.springframework.core.ParameterNameDiscoverer;
 import org.springframework.core.PriorityOrdered;
 import org.springframework.core.ResolvableType;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
 import org.springframework.util.ClassUtils;
@@ -408,9 +410,22 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 	public Object applyBeanPostProcessorsBeforeInitialization(Object existingBean, String beanName)
 			throws BeansException {
 
+		// Only record post-processing steps when actually recording startup metrics
+		ApplicationStartup applicationStartup = getApplicationStartup();
+		boolean recording = (applicationStartup != ApplicationStartup.DEFAULT);
 		Object result = existingBean;
 		for (BeanPostProcessor processor : getBeanPostProcessors()) {
-			Object current = processor.postProcessBeforeInitialization(result, beanName);
+			StartupStep postProcessing = (recording ?
+					startPostProcessingStep(applicationStartup, processor, beanName, "before-initialization") : null);
+			Object current;
+			try {
+				current = processor.postProcessBeforeInitialization(result, beanName);
+			}
+			finally {
+				if (postProcessing != null) {
+					postProcessing.end();
+				}
+			}
 			if (current == null) {
 				return result;
 			}
@@ -423,11 +438,23 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 	public Object applyBeanPostProcessorsAfterInitialization(Object existingBean, String beanName)
 			throws BeansException {
 
+		ApplicationStartup applicationStartup = getApplicationStartup();
+		boolean recording = (applicationStartup != ApplicationStartup.DEFAULT);
 		Object result = existingBean;
 		for (BeanPostProcessor processor : getBeanPostProcessors()) {
 			// 当processor的实现类是AbstractAutoProxyCreator时将会调用
 			// AbstractAutoProxyCreator对postProcessAfterInitialization方法的实现
-			Object current = processor.postProcessAfterInitialization(result, beanName);
+			StartupStep postProcessing = (recording ?
+					startPostProcessingStep(applicationStartup, processor, beanName, "after-initialization") : null);
+			Object current;
+			try {
+				current = processor.postProcessAfterInitialization(result, beanName);
+			}
+			finally {
+				if (postProcessing != null) {
+					postProcessing.end();
+				}
+			}
 			if (current == null) {
 				return result;
 			}
@@ -436,6 +463,15 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 		return result;
 	}
 
+	private static StartupStep startPostProcessingStep(ApplicationStartup applicationStartup,
+			BeanPostProcessor processor, String beanName, String phase) {
+
+		return applicationStartup.start("spring.beans.post-process")
+				.tag("beanName", beanName)
+				.tag("postProcessor", processor.getClass().getName())
+				.tag("phase", phase);
+	}
+
 	@Override
 	public void destroyBean(Object existingBean) {
 		new DisposableBeanAdapter(existingBean, getBeanPostProcessors(), getAccessControlContext()).destroy();
@@ -987,7 +1023,7 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 	 */
 	@Nullable
 	private FactoryBean<?> getSingletonFactoryBeanForTypeCheck(String beanName, RootBeanDefinition mbd) {
-		synchronized (getSingletonMutex()) {
+		return doWithSingletonLock(beanName, () -> {
 			BeanWrapper bw = this.factoryBeanInstanceCache.get(beanName);
 			if (bw != null) {
 				return (FactoryBean<?>) bw.getWrappedInstance();
@@ -1034,7 +1070,7 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 				this.factoryBeanInstanceCache.put(beanName, bw);
 			}
 			return fb;
-		}
+		});
 	}
 
 	/**
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.support;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.Set;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.BeanInstantiationException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.cglib.reflect.FastClass;
+import org.springframework.cglib.reflect.FastConstructor;
+import org.springframework.core.KotlinDetector;
+import org.springframework.lang.Nullable;
+import org.springframework.util.ConcurrentReferenceHashMap;
+import org.springframework.util.StringUtils;
+
+/**
+ * Object instantiation strategy that invokes bean constructors through
+ * CGLIB-generated {@link FastClass} accessors instead of through reflection.
+ *
+ * <p>The generated accessor calls the resolved constructor directly and is
+ * cached on the {@link RootBeanDefinition}, so that repeated creation of
+ * prototype and custom-scoped (e.g. request-scoped) beans comes down to a
+ * plain constructor call. Singleton definitions are only instantiated once
+ * and keep going through {@link CglibSubclassingInstantiationStrategy}, as
+ * do beans with method overrides, factory-method beans, non-public classes
+ * and constructors, and Kotlin classes.
+ *
+ * <p>This strategy is opt-in and can be activated through
+ * {@link AbstractAutowireCapableBeanFactory#setInstantiationStrategy}.
+ *
+ * @author agent
+ * @since 5.1.20
+ * @see FastClass
+ */
+public class CglibFastClassInstantiationStrategy extends CglibSubclassingInstantiationStrategy {
+
+	private static final Log logger = LogFactory.getLog(CglibFastClassInstantiationStrategy.class);
+
+	/** Constructors that a FastClass could not be generated for. */
+	private final Set<Constructor<?>> unsupportedConstructors =
+			Collections.newSetFromMap(new ConcurrentReferenceHashMap<>(16));
+
+
+	@Override
+	public Object instantiate(RootBeanDefinition bd, @Nullable String beanName, BeanFactory owner) {
+		if (bd.isSingleton() || bd.hasMethodOverrides()) {
+			return super.instantiate(bd, beanName, owner);
+		}
+		FastConstructor accessor = (FastConstructor) bd.resolvedConstructorAccessor;
+		if (accessor == null || accessor.getJavaConstructor().getParameterCount() != 0) {
+			Constructor<?> constructorToUse;
+			synchronized (bd.constructorArgumentLock) {
+				constructorToUse = (Constructor<?>) bd.resolvedConstructorOrFactoryMethod;
+			}
+			if (constructorToUse == null) {
+				// Let the superclass resolve the default constructor on first instantiation.
+				return super.instantiate(bd, beanName, owner);
+			}
+			accessor = obtainConstructorAccessor(bd, constructorToUse);
+			if (accessor == null) {
+				return super.instantiate(bd, beanName, owner);
+			}
+		}
+		return instantiate(accessor);
+	}
+
+	@Override
+	public Object instantiate(RootBeanDefinition bd, @Nullable String beanName, BeanFactory owner,
+			final Constructor<?> ctor, Object... args) {
+
+		if (bd.isSingleton() || bd.hasMethodOverrides()) {
+			return super.instantiate(bd, beanName, owner, ctor, args);
+		}
+		FastConstructor accessor = obtainConstructorAccessor(bd, ctor);
+		if (accessor == null) {
+			return super.instantiate(bd, beanName, owner, ctor, args);
+		}
+		return instantiate(accessor, args);
+	}
+
+	/**
+	 * Return the generated accessor for the given constructor, creating and
+	 * caching it on the bean definition if necessary.
+	 * @param bd the bean definition
+	 * @param ctor the constructor to invoke
+	 * @return the accessor, or {@code null} if the constructor needs to be
+	 * invoked reflectively
+	 */
+	@Nullable
+	private FastConstructor obtainConstructorAccessor(RootBeanDefinition bd, Constructor<?> ctor) {
+		FastConstructor accessor = (FastConstructor) bd.resolvedConstructorAccessor;
+		if (accessor != null) {
+			Constructor<?> cachedCtor = accessor.getJavaConstructor();
+			if (cachedCtor == ctor || cachedCtor.equals(ctor)) {
+				return accessor;
+			}
+		}
+		if (!isCandidateConstructor(ctor) || this.unsupportedConstructors.contains(ctor)) {
+			return null;
+		}
+		try {
+			FastClass fastClass = FastClass.create(ctor.getDeclaringClass());
+			if (fastClass.getIndex(ctor.getParameterTypes()) < 0) {
+				this.unsupportedConstructors.add(ctor);
+				return null;
+			}
+			accessor = fastClass.getConstructor(ctor);
+		}
+		catch (Throwable ex) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Failed to generate FastClass for [" + ctor.getDeclaringClass().getName() +
+						"] - falling back to reflective instantiation", ex);
+			}
+			this.unsupportedConstructors.add(ctor);
+			return null;
+		}
+		bd.resolvedConstructorAccessor = accessor;
+		return accessor;
+	}
+
+	/**
+	 * Determine whether the given constructor can be invoked through a
+	 * generated accessor, i.e. whether a class in the same package and
+	 * class loader is able to call it directly.
+	 */
+	private boolean isCandidateConstructor(Constructor<?> ctor) {
+		Class<?> clazz = ctor.getDeclaringClass();
+		return (System.getSecurityManager() == null && clazz.getClassLoader() != null &&
+				Modifier.isPublic(ctor.getModifiers()) && Modifier.isPublic(clazz.getModifiers()) &&
+				!Modifier.isAbstract(clazz.getModifiers()) &&
+				!(KotlinDetector.isKotlinReflectPresent() && KotlinDetector.isKotlinType(clazz)));
+	}
+
+	private Object instantiate(FastConstructor accessor, Object... args) {
+		try {
+			return accessor.newInstance(args);
+		}
+		catch (InvocationTargetException ex) {
+			throw new BeanInstantiationException(accessor.getJavaConstructor(),
+					"Constructor threw exception", ex.getTargetException());
+		}
+		catch (IllegalArgumentException | ClassCastException ex) {
+			throw new BeanInstantiationException(accessor.getJavaConstructor(),
+					"Illegal arguments for constructor; args: " + StringUtils.arrayToCommaDelimitedString(args), ex);
+		}
+	}
+
+}
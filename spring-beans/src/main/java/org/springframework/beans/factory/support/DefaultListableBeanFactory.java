@@ -27,10 +27,15 @@ import java.lang.ref.WeakReference;
 import java.lang.reflect.Method;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
+import java.time.Duration;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
@@ -39,7 +44,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
@@ -48,6 +57,7 @@ import javax.inject.Provider;
 
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.BeansException;
+import org.springframework.beans.PropertyValue;
 import org.springframework.beans.TypeConverter;
 import org.springframework.beans.factory.BeanCreationException;
 import org.springframework.beans.factory.BeanCurrentlyInCreationException;
@@ -71,8 +81,11 @@ import org.springframework.beans.factory.config.BeanDefinitionHolder;
 import org.springframework.beans.factory.config.BeanPostProcessor;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.config.ConstructorArgumentValues;
 import org.springframework.beans.factory.config.DependencyDescriptor;
 import org.springframework.beans.factory.config.NamedBeanHolder;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+import org.springframework.core.NamedThreadLocal;
 import org.springframework.core.OrderComparator;
 import org.springframework.core.ResolvableType;
 import org.springframework.core.annotation.AnnotationUtils;
@@ -81,6 +94,7 @@ import org.springframework.util.Assert;
 import org.springframework.util.ClassUtils;
 import org.springframework.util.CompositeIterator;
 import org.springframework.util.ObjectUtils;
+import org.springframework.util.ReflectionUtils;
 import org.springframework.util.StringUtils;
 
 /**
@@ -201,6 +215,24 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 	// 是否可以缓存所有bean的bean定义元数据
 	private volatile boolean configurationFrozen;
 
+	/** Number of threads to pre-instantiate singletons with. */
+	// 预实例化单例时使用的线程数
+	private int preInstantiationParallelism = 1;
+
+	/** Exclusive creation times of pre-instantiated singletons in nanoseconds, in creation order. */
+	// 预实例化单例的创建耗时(不含嵌套创建的单例)
+	private final Map<String, Long> singletonCreationTimes = Collections.synchronizedMap(new LinkedHashMap<>(16));
+
+	/** Whether to record singleton creation times on sequential pre-instantiation as well. */
+	private boolean recordSingletonCreationTimes = false;
+
+	/** Whether singleton creation times are currently being recorded. */
+	private volatile boolean recordingSingletonCreationTimes;
+
+	/** Start time and nested creation time of the singletons currently in creation on this thread. */
+	private final ThreadLocal<Deque<long[]>> singletonCreationTimers =
+			new NamedThreadLocal<>("Singleton creation timers");
+
 
 	/**
 	 * Create a new DefaultListableBeanFactory.
@@ -332,6 +364,87 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 		return this.autowireCandidateResolver;
 	}
 
+	/**
+	 * Set the number of threads to use for pre-instantiating non-lazy singletons
+	 * in {@link #preInstantiateSingletons()}.
+	 * <p>Default is 1: all singletons get created one after the other on the
+	 * calling thread. A higher value splits the singletons into groups that do not
+	 * refer to each other through their bean definitions (bean references,
+	 * depends-on, factory beans and dependencies registered so far) and creates
+	 * those groups concurrently on a dedicated pool of the given size. Autowired
+	 * dependencies are only known once resolved; a bean requested from several
+	 * groups gets created once, with the other threads waiting for it.
+	 * <p>Setting a value higher than 1 switches on
+	 * {@link #setSingletonLockPerBean per-bean singleton locking}, so this needs
+	 * to be set before any singletons get registered as well. The worker threads
+	 * use the context ClassLoader of the thread calling
+	 * {@link #preInstantiateSingletons()}, and the
+	 * {@link SmartInitializingSingleton} callbacks are always invoked on the
+	 * calling thread, once all singletons have been created.
+	 * @since 5.1.20
+	 * @throws IllegalStateException if singletons have been registered already
+	 * @see #getSingletonCreationTimes()
+	 */
+	public void setPreInstantiationParallelism(int preInstantiationParallelism) {
+		Assert.isTrue(preInstantiationParallelism > 0, "Pre-instantiation parallelism must be greater than 0");
+		Assert.state(preInstantiationParallelism == 1 || isSingletonLockPerBean() || getSingletonCount() == 0,
+				"Pre-instantiation parallelism needs to be set before any singletons get registered");
+		this.preInstantiationParallelism = preInstantiationParallelism;
+		if (preInstantiationParallelism > 1) {
+			setSingletonLockPerBean(true);
+		}
+	}
+
+	/**
+	 * Return the number of threads to use for pre-instantiating singletons.
+	 * @since 5.1.20
+	 */
+	public int getPreInstantiationParallelism() {
+		return this.preInstantiationParallelism;
+	}
+
+	/**
+	 * Set whether to record the creation time of each singleton during
+	 * {@link #preInstantiateSingletons()} when pre-instantiating them one after
+	 * the other as well.
+	 * <p>Default is "false": creation times are only recorded with a
+	 * {@link #setPreInstantiationParallelism pre-instantiation parallelism}
+	 * higher than 1.
+	 * @since 5.1.20
+	 * @see #getSingletonCreationTimes()
+	 */
+	public void setRecordSingletonCreationTimes(boolean recordSingletonCreationTimes) {
+		this.recordSingletonCreationTimes = recordSingletonCreationTimes;
+	}
+
+	/**
+	 * Return whether to record singleton creation times on sequential
+	 * pre-instantiation as well.
+	 * @since 5.1.20
+	 */
+	public boolean isRecordSingletonCreationTimes() {
+		return this.recordSingletonCreationTimes;
+	}
+
+	/**
+	 * Return the time it took to create each singleton during
+	 * {@link #preInstantiateSingletons()}, in creation order, if
+	 * {@link #setRecordSingletonCreationTimes recorded}.
+	 * <p>The times are exclusive: the creation of other singletons triggered
+	 * on the same thread, e.g. for resolving dependencies, does not count
+	 * towards the requesting bean.
+	 * @return an unmodifiable map from bean name to creation time
+	 * (empty before pre-instantiation or if not recorded)
+	 * @since 5.1.20
+	 */
+	public Map<String, Duration> getSingletonCreationTimes() {
+		Map<String, Duration> creationTimes = new LinkedHashMap<>(this.singletonCreationTimes.size());
+		synchronized (this.singletonCreationTimes) {
+			this.singletonCreationTimes.forEach((beanName, nanos) -> creationTimes.put(beanName, Duration.ofNanos(nanos)));
+		}
+		return Collections.unmodifiableMap(creationTimes);
+	}
+
 	//复制其他配置信息
 	@Override
 	public void copyConfigurationFrom(ConfigurableBeanFactory otherFactory) {
@@ -903,46 +1016,24 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 		// Trigger initialization of all non-lazy singleton beans...
 		// 遍历beanNames
 		// 2.遍历beanNames，触发所有非懒加载单例bean的初始化
-		for (String beanName : beanNames) {
-			// 3.获取beanName对应的MergedBeanDefinition, 合并BeanDefinition
-			RootBeanDefinition bd = getMergedLocalBeanDefinition(beanName);
-			// 不是抽象的，并且是单例且没有懒加载
-			// 4.bd对应的Bean实例：不是抽象类 && 是单例 && 不是懒加载
-			if (!bd.isAbstract() && bd.isSingleton() && !bd.isLazyInit()) {
-				//FactoryBean的情况，加&获取
-				// 5.判断beanName对应的bean是否为FactoryBean
-				if (isFactoryBean(beanName)) {
-					// 5.1 通过beanName获取FactoryBean实例
-					// 通过getBean(&beanName)拿到的是FactoryBean本身；
-					// 通过getBean(beanName)拿到的是FactoryBean创建的Bean实例
-					Object bean = getBean(FACTORY_BEAN_PREFIX + beanName);
-					if (bean instanceof FactoryBean) {
-						FactoryBean<?> factory = (FactoryBean<?>) bean;
-						// 5.2 判断这个FactoryBean是否希望急切的初始化
-						boolean isEagerInit;
-						if (System.getSecurityManager() != null && factory instanceof SmartFactoryBean) {
-							isEagerInit = AccessController.doPrivileged(
-									(PrivilegedAction<Boolean>) ((SmartFactoryBean<?>) factory)::isEagerInit,
-									getAccessControlContext());
-						}
-						else {
-							isEagerInit = (factory instanceof SmartFactoryBean &&
-									((SmartFactoryBean<?>) factory).isEagerInit());
-						}
-						if (isEagerInit) {
-							// 不是FactoryBean直接获取
-							// 5.3 如果希望急切的初始化，则通过beanName获取bean实例
-							getBean(beanName);
-						}
-					}
-				}
-				else {
-					// 6.如果beanName对应的bean不是FactoryBean，
-					// 只是普通Bean，通过beanName获取bean实例
-					getBean(beanName);
+		boolean recording = (this.recordSingletonCreationTimes || this.preInstantiationParallelism > 1);
+		this.recordingSingletonCreationTimes = recording;
+		try {
+			if (this.preInstantiationParallelism > 1) {
+				preInstantiateSingletonsInParallel(beanNames);
+			}
+			else {
+				for (String beanName : beanNames) {
+					preInstantiateSingleton(beanName);
 				}
 			}
 		}
+		finally {
+			this.recordingSingletonCreationTimes = false;
+		}
+		if (recording && logger.isDebugEnabled()) {
+			logSlowestSingletons();
+		}
 
 		// Trigger post-initialization callback for all applicable beans...
 		// 获取单例bean后，如果是SmartInitializingSingleton类型，
@@ -969,6 +1060,260 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 	}
 
 
+	/**
+	 * Trigger the initialization of the given singleton bean,
+	 * if it is a non-abstract, non-lazy singleton.
+	 * @param beanName the name of the bean
+	 */
+	private void preInstantiateSingleton(String beanName) {
+		// 3.获取beanName对应的MergedBeanDefinition, 合并BeanDefinition
+		RootBeanDefinition bd = getMergedLocalBeanDefinition(beanName);
+		// 不是抽象的，并且是单例且没有懒加载
+		// 4.bd对应的Bean实例：不是抽象类 && 是单例 && 不是懒加载
+		if (!bd.isAbstract() && bd.isSingleton() && !bd.isLazyInit()) {
+			//FactoryBean的情况，加&获取
+			// 5.判断beanName对应的bean是否为FactoryBean
+			if (isFactoryBean(beanName)) {
+				// 5.1 通过beanName获取FactoryBean实例
+				// 通过getBean(&beanName)拿到的是FactoryBean本身；
+				// 通过getBean(beanName)拿到的是FactoryBean创建的Bean实例
+				Object bean = getBean(FACTORY_BEAN_PREFIX + beanName);
+				if (bean instanceof FactoryBean) {
+					FactoryBean<?> factory = (FactoryBean<?>) bean;
+					// 5.2 判断这个FactoryBean是否希望急切的初始化
+					boolean isEagerInit;
+					if (System.getSecurityManager() != null && factory instanceof SmartFactoryBean) {
+						isEagerInit = AccessController.doPrivileged(
+								(PrivilegedAction<Boolean>) ((SmartFactoryBean<?>) factory)::isEagerInit,
+								getAccessControlContext());
+					}
+					else {
+						isEagerInit = (factory instanceof SmartFactoryBean &&
+								((SmartFactoryBean<?>) factory).isEagerInit());
+					}
+					if (isEagerInit) {
+						// 不是FactoryBean直接获取
+						// 5.3 如果希望急切的初始化，则通过beanName获取bean实例
+						getBean(beanName);
+					}
+				}
+			}
+			else {
+				// 6.如果beanName对应的bean不是FactoryBean，
+				// 只是普通Bean，通过beanName获取bean实例
+				getBean(beanName);
+			}
+		}
+	}
+
+	/**
+	 * Trigger the initialization of the given singleton beans on a pool of
+	 * {@link #setPreInstantiationParallelism} threads, creating each group
+	 * of beans that refer to each other on a single thread.
+	 * @param beanNames the names of all beans in registration order
+	 */
+	private void preInstantiateSingletonsInParallel(List<String> beanNames) {
+		List<List<String>> groups = groupSingletonsByReferences(beanNames);
+		if (groups.size() < 2) {
+			groups.forEach(group -> group.forEach(this::preInstantiateSingleton));
+			return;
+		}
+		int parallelism = Math.min(this.preInstantiationParallelism, groups.size());
+		ForkJoinPool pool = new ForkJoinPool(parallelism, pooled -> {
+			ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pooled);
+			thread.setName("singleton-preinstantiation-" + thread.getPoolIndex());
+			return thread;
+		}, null, false);
+		ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+		try {
+			List<CompletableFuture<Void>> futures = new ArrayList<>(groups.size());
+			for (List<String> group : groups) {
+				futures.add(CompletableFuture.runAsync(() -> {
+					Thread currentThread = Thread.currentThread();
+					ClassLoader previousClassLoader = currentThread.getContextClassLoader();
+					currentThread.setContextClassLoader(contextClassLoader);
+					try {
+						for (String beanName : group) {
+							if (failure.get() != null) {
+								return;
+							}
+							try {
+								preInstantiateSingleton(beanName);
+							}
+							catch (Throwable ex) {
+								failure.compareAndSet(null, ex);
+							}
+						}
+					}
+					finally {
+						currentThread.setContextClassLoader(previousClassLoader);
+					}
+				}, pool));
+			}
+			CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+		}
+		finally {
+			pool.shutdown();
+		}
+		Throwable ex = failure.get();
+		if (ex != null) {
+			ReflectionUtils.rethrowRuntimeException(ex);
+		}
+	}
+
+	/**
+	 * Split the non-abstract, non-lazy singletons among the given beans into
+	 * groups of beans that are connected through references between their
+	 * bean definitions or through dependencies registered so far.
+	 * @param beanNames the names of all beans in registration order
+	 * @return the groups, each in registration order
+	 */
+	private List<List<String>> groupSingletonsByReferences(List<String> beanNames) {
+		Map<String, String> parents = new HashMap<>(beanNames.size());
+		Set<String> references = new LinkedHashSet<>();
+		for (String beanName : beanNames) {
+			RootBeanDefinition bd = getMergedLocalBeanDefinition(beanName);
+			collectBeanReferences(bd, references);
+			references.addAll(Arrays.asList(getDependenciesForBean(beanName)));
+			for (String reference : references) {
+				String parent = findGroup(parents, beanName);
+				String otherParent = findGroup(parents, transformedBeanName(reference));
+				if (!parent.equals(otherParent)) {
+					parents.put(otherParent, parent);
+				}
+			}
+			references.clear();
+		}
+		Map<String, List<String>> groups = new LinkedHashMap<>();
+		for (String beanName : beanNames) {
+			RootBeanDefinition bd = getMergedLocalBeanDefinition(beanName);
+			if (!bd.isAbstract() && bd.isSingleton() && !bd.isLazyInit()) {
+				groups.computeIfAbsent(findGroup(parents, beanName), key -> new ArrayList<>()).add(beanName);
+			}
+		}
+		return new ArrayList<>(groups.values());
+	}
+
+	private static String findGroup(Map<String, String> parents, String beanName) {
+		String root = beanName;
+		String parent;
+		while ((parent = parents.get(root)) != null) {
+			root = parent;
+		}
+		// Path compression, pointing every bean on the way straight to the root...
+		String current = beanName;
+		while (!current.equals(root)) {
+			String next = parents.get(current);
+			parents.put(current, root);
+			current = next;
+		}
+		return root;
+	}
+
+	/**
+	 * Collect the names of all beans that the given value refers to,
+	 * including references held by inner bean definitions.
+	 * @param value a bean definition or property value
+	 * @param references the set to add the bean names to
+	 */
+	private static void collectBeanReferences(@Nullable Object value, Set<String> references) {
+		if (value instanceof RuntimeBeanReference) {
+			references.add(((RuntimeBeanReference) value).getBeanName());
+		}
+		else if (value instanceof BeanDefinitionHolder) {
+			collectBeanReferences(((BeanDefinitionHolder) value).getBeanDefinition(), references);
+		}
+		else if (value instanceof BeanDefinition) {
+			BeanDefinition bd = (BeanDefinition) value;
+			if (bd.getDependsOn() != null) {
+				references.addAll(Arrays.asList(bd.getDependsOn()));
+			}
+			if (bd.getFactoryBeanName() != null) {
+				references.add(bd.getFactoryBeanName());
+			}
+			for (PropertyValue pv : bd.getPropertyValues().getPropertyValueList()) {
+				collectBeanReferences(pv.getValue(), references);
+			}
+			ConstructorArgumentValues cargs = bd.getConstructorArgumentValues();
+			for (ConstructorArgumentValues.ValueHolder valueHolder : cargs.getIndexedArgumentValues().values()) {
+				collectBeanReferences(valueHolder.getValue(), references);
+			}
+			for (ConstructorArgumentValues.ValueHolder valueHolder : cargs.getGenericArgumentValues()) {
+				collectBeanReferences(valueHolder.getValue(), references);
+			}
+		}
+		else if (value instanceof Collection) {
+			for (Object element : (Collection<?>) value) {
+				collectBeanReferences(element, references);
+			}
+		}
+		else if (value instanceof Map) {
+			for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+				collectBeanReferences(entry.getKey(), references);
+				collectBeanReferences(entry.getValue(), references);
+			}
+		}
+		else if (value instanceof Object[]) {
+			for (Object element : (Object[]) value) {
+				collectBeanReferences(element, references);
+			}
+		}
+	}
+
+	private void logSlowestSingletons() {
+		List<Map.Entry<String, Duration>> creationTimes = new ArrayList<>(getSingletonCreationTimes().entrySet());
+		if (creationTimes.isEmpty()) {
+			return;
+		}
+		creationTimes.sort(Map.Entry.<String, Duration>comparingByValue().reversed());
+		StringBuilder sb = new StringBuilder("Slowest singletons to create in ").append(this).append(": ");
+		for (int i = 0; i < Math.min(creationTimes.size(), 10); i++) {
+			Map.Entry<String, Duration> entry = creationTimes.get(i);
+			sb.append(i > 0 ? ", " : "").append(entry.getKey()).append(" (")
+					.append(entry.getValue().toMillis()).append(" ms)");
+		}
+		logger.debug(sb.toString());
+	}
+
+	/**
+	 * Records the exclusive creation time of singletons while
+	 * {@link #preInstantiateSingletons() pre-instantiating} them.
+	 * @see #getSingletonCreationTimes()
+	 */
+	@Override
+	protected Object createBean(String beanName, RootBeanDefinition mbd, @Nullable Object[] args)
+			throws BeanCreationException {
+
+		if (!this.recordingSingletonCreationTimes || !mbd.isSingleton()) {
+			return super.createBean(beanName, mbd, args);
+		}
+		Deque<long[]> timers = this.singletonCreationTimers.get();
+		if (timers == null) {
+			timers = new ArrayDeque<>();
+			this.singletonCreationTimers.set(timers);
+		}
+		// Start time and time spent creating nested singletons on this thread
+		long[] timer = new long[] {System.nanoTime(), 0};
+		timers.push(timer);
+		try {
+			return super.createBean(beanName, mbd, args);
+		}
+		finally {
+			timers.pop();
+			long elapsed = System.nanoTime() - timer[0];
+			this.singletonCreationTimes.put(beanName, elapsed - timer[1]);
+			long[] outer = timers.peek();
+			if (outer != null) {
+				outer[1] += elapsed;
+			}
+			else {
+				this.singletonCreationTimers.remove();
+			}
+		}
+	}
+
+
 	//---------------------------------------------------------------------
 	// Implementation of BeanDefinitionRegistry interface
 	//---------------------------------------------------------------------
@@ -1159,6 +1504,7 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 		super.destroySingletons();
 		updateManualSingletonNames(Set::clear, set -> !set.isEmpty());
 		clearByTypeCache();
+		this.singletonCreationTimes.clear();
 	}
 
 	//销毁所有bean，还要移除manualSingletonNames的所有bean
@@ -16,15 +16,22 @@
 
 package org.springframework.beans.factory.support;
 
+import java.util.AbstractSet;
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
 
 import org.springframework.beans.factory.BeanCreationException;
 import org.springframework.beans.factory.BeanCreationNotAllowedException;
@@ -32,6 +39,7 @@ import org.springframework.beans.factory.BeanCurrentlyInCreationException;
 import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.ObjectFactory;
 import org.springframework.beans.factory.config.SingletonBeanRegistry;
+import org.springframework.core.NamedThreadLocal;
 import org.springframework.core.SimpleAliasRegistry;
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
@@ -82,6 +90,9 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	/** Maximum number of suppressed exceptions to preserve. */
 	private static final int SUPPRESSED_EXCEPTIONS_LIMIT = 100;
 
+	/** Interval in milliseconds for re-checking a pending per-bean lock for deadlocks. */
+	private static final long SINGLETON_LOCK_CHECK_INTERVAL = 100;
+
 
 	/** Cache of singleton objects: bean name to bean instance. */
 	//是存放singleton对象的缓存
@@ -95,7 +106,7 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	/** Cache of singleton factories: bean name to ObjectFactory. */
 	// 是存放制造singleton的工厂对象的缓存
 	//二级缓存，主要存放ObjectFactory类型的工厂对象
-	private final Map<String, ObjectFactory<?>> singletonFactories = new HashMap<>(16);
+	private final Map<String, ObjectFactory<?>> singletonFactories = new ConcurrentHashMap<>(16);
 
 	/** Cache of early singleton objects: bean name to bean instance. */
 	//是存放singletonFactory 制造出来的 singleton 的缓存早期单例对象缓存
@@ -118,37 +129,100 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 			Collections.newSetFromMap(new ConcurrentHashMap<>(16));
 
 	/** Collection of suppressed Exceptions, available for associating related causes. */
-	@Nullable
 	//存放异常出现的相关的原因的集合
-	private Set<Exception> suppressedExceptions;
+	private final ThreadLocal<Set<Exception>> suppressedExceptions =
+			new NamedThreadLocal<>("Suppressed exceptions of singleton creation");
 
 	/** Flag that indicates whether we're currently within destroySingletons. */
 	//标志，指示我们目前是否在销毁单例中
-	private boolean singletonsCurrentlyInDestruction = false;
+	private volatile boolean singletonsCurrentlyInDestruction = false;
+
+	/** Whether singleton creation locks per bean name instead of on the singleton mutex. */
+	private volatile boolean singletonLockPerBean = false;
+
+	/** Monitor for modifications of the singleton caches in per-bean locking mode. */
+	private final Object singletonCacheMonitor = new Object();
+
+	/** Per-bean creation locks: bean name to lock. */
+	private final Map<String, SingletonLock> singletonLocks = new ConcurrentHashMap<>(16);
+
+	/** Threads currently creating a singleton in per-bean locking mode: bean name to thread. */
+	private final Map<String, Thread> singletonCreationThreads = new ConcurrentHashMap<>(16);
+
+	/** Threads waiting for a per-bean creation lock: thread to bean name. */
+	private final Map<Thread, String> singletonLockWaiters = new ConcurrentHashMap<>(16);
 
 	/** Disposable bean instances: bean name to disposable instance. */
 	//存放一次性bean的缓存
 	private final Map<String, Object> disposableBeans = new LinkedHashMap<>();
 
-	/** Map between containing bean names: bean name to Set of bean names that the bean contains. */
+	/**
+	 * Map between containing bean names: bean name to Set of bean names that the bean contains.
+	 * <p>The Sets are only modified within the compute methods of this Map,
+	 * and may be read concurrently.
+	 */
 	//外部bean与被包含在外部bean的所有内部bean集合包含关系的缓存
 	private final Map<String, Set<String>> containedBeanMap = new ConcurrentHashMap<>(16);
 
-	/** Map between dependent bean names: bean name to Set of dependent bean names. */
+	/**
+	 * Map between dependent bean names: bean name to Set of dependent bean names.
+	 * <p>The Sets are only modified within the compute methods of this Map,
+	 * and may be read concurrently.
+	 */
 	//指定bean与依赖指定bean的所有bean的依赖关系的缓存
 	private final Map<String, Set<String>> dependentBeanMap = new ConcurrentHashMap<>(64);
 
-	/** Map between depending bean names: bean name to Set of bean names for the bean's dependencies. */
+	/**
+	 * Map between depending bean names: bean name to Set of bean names for the bean's dependencies.
+	 * <p>The Sets are only modified within the compute methods of this Map,
+	 * and may be read concurrently.
+	 */
 	//指定bean与创建这个bean所需要依赖的所有bean的依赖关系的缓存
 	private final Map<String, Set<String>> dependenciesForBeanMap = new ConcurrentHashMap<>(64);
 
 
+	/**
+	 * Set whether singleton creation should lock per bean name rather than on
+	 * the shared {@link #getSingletonMutex() singleton mutex}.
+	 * <p>Default is "false": every singleton creation holds the singleton mutex,
+	 * serializing the creation of all singletons in this registry. Switch this
+	 * to "true" for concurrent creation of independent singletons, e.g. lazy-init
+	 * singletons requested from several threads at once. A thread asking for a
+	 * singleton that another thread is currently creating waits for the fully
+	 * initialized instance; a circular reference between the beans that two
+	 * threads are creating gets resolved through an early singleton reference
+	 * where available.
+	 * <p>Note that with this flag on, code synchronizing on the singleton mutex
+	 * does not exclude concurrent singleton creation anymore. This flag cannot
+	 * be changed once singletons have been registered.
+	 * @since 5.1.20
+	 * @throws IllegalStateException if singletons have been registered already
+	 */
+	public void setSingletonLockPerBean(boolean singletonLockPerBean) {
+		synchronized (this.singletonObjects) {
+			if (singletonLockPerBean != this.singletonLockPerBean) {
+				Assert.state(this.singletonObjects.isEmpty() && this.singletonsCurrentlyInCreation.isEmpty(),
+						"Cannot change singleton locking mode once singletons have been registered");
+				this.singletonLockPerBean = singletonLockPerBean;
+			}
+		}
+	}
+
+	/**
+	 * Return whether singleton creation locks per bean name.
+	 * @since 5.1.20
+	 */
+	public boolean isSingletonLockPerBean() {
+		return this.singletonLockPerBean;
+	}
+
+
 	// SingletonBeanRegistry接口的registerSingleton方法的实现
 	@Override
 	public void registerSingleton(String beanName, Object singletonObject) throws IllegalStateException {
 		Assert.notNull(beanName, "Bean name must not be null");
 		Assert.notNull(singletonObject, "Singleton object must not be null");
-		synchronized (this.singletonObjects) {
+		synchronized (getSingletonCacheMonitor()) {
 			Object oldObject = this.singletonObjects.get(beanName);
 			//如果singletonObjects缓存找到有指定名称为beanName的对象，则表示该名称已被占用
 			if (oldObject != null) {
@@ -167,7 +241,7 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	 * @param singletonObject the singleton object
 	 */
 	protected void addSingleton(String beanName, Object singletonObject) {
-		synchronized (this.singletonObjects) {
+		synchronized (getSingletonCacheMonitor()) {
 			// 因为singletonObjects类型是ConcurrentHashMap,
 			// 并发Map不支持空值作为标志值，所以用NULL_OBJECT来代替
 			this.singletonObjects.put(beanName, singletonObject);
@@ -194,7 +268,7 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	protected void addSingletonFactory(String beanName, ObjectFactory<?> singletonFactory) {
 		Assert.notNull(singletonFactory, "Singleton factory must not be null");
 		//singletonObjects一级map
-		synchronized (this.singletonObjects) {
+		synchronized (getSingletonCacheMonitor()) {
 			// 判断singletonObjects内名字为beanName是否被占用，若没有，进行注册操作
 			//如果单例池不存在，才会注册add
 			//为循环依赖服务
@@ -234,11 +308,19 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 		Object singletonObject = this.singletonObjects.get(beanName);
 		// 2.如果singletonObjects指定beanName的对象是不存在的，并且该beanName对应的单例bean正在创建中
 		if (singletonObject == null && isSingletonCurrentlyInCreation(beanName)) {
+			if (this.singletonLockPerBean && this.singletonCreationThreads.get(beanName) != Thread.currentThread()) {
+				// Currently created by another thread: let the caller wait for the fully
+				// initialized instance rather than exposing an early reference to it.
+				return null;
+			}
 			// 3.从早期单例对象缓存中获取单例对象（之所称成为早期单例对象，是因为earlySingletonObjects里
 			// 的对象的都是通过提前曝光的ObjectFactory创建出来的，还未进行属性填充等操作）
 			singletonObject = this.earlySingletonObjects.get(beanName);
 			// 4.如果在早期单例对象缓存中也没有，并且允许创建早期单例对象引用
 			if (singletonObject == null && allowEarlyReference) {
+				if (this.singletonLockPerBean) {
+					return getEarlySingletonReference(beanName);
+				}
 				synchronized (this.singletonObjects) {
 					// Consistent creation of early reference within full singleton lock
 					//加锁再来一遍
@@ -282,64 +364,267 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	 */
 	public Object getSingleton(String beanName, ObjectFactory<?> singletonFactory) {
 		Assert.notNull(beanName, "Bean name must not be null");
-		synchronized (this.singletonObjects) {
+		if (this.singletonLockPerBean) {
 			Object singletonObject = this.singletonObjects.get(beanName);
-			// 如果singetonObjects缓存不存在名称为beanName的对象
-			if (singletonObject == null) {
-				// 如果目前在销毁singellton
-				if (this.singletonsCurrentlyInDestruction) {
-					throw new BeanCreationNotAllowedException(beanName,
-							"Singleton bean creation not allowed while singletons of this factory are in destruction " +
-							"(Do not request a bean from a BeanFactory in a destroy method implementation!)");
+			if (singletonObject != null) {
+				return singletonObject;
+			}
+			SingletonLock lock = acquireSingletonLock(beanName);
+			if (lock == null) {
+				// Circular reference between singletons created by different threads.
+				singletonObject = getEarlySingletonReference(beanName);
+				if (singletonObject != null) {
+					return singletonObject;
 				}
-				if (logger.isDebugEnabled()) {
-					logger.debug("Creating shared instance of singleton bean '" + beanName + "'");
+				throw new BeanCurrentlyInCreationException(beanName,
+						"Requested bean is currently in creation in another thread which in turn " +
+						"waits for a bean that is currently in creation in this thread: " +
+						"Is there an unresolvable circular reference?");
+			}
+			try {
+				return createSingletonIfNecessary(beanName, singletonFactory);
+			}
+			finally {
+				releaseSingletonLock(beanName, lock);
+			}
+		}
+		synchronized (this.singletonObjects) {
+			return createSingletonIfNecessary(beanName, singletonFactory);
+		}
+	}
+
+	/**
+	 * Return the singleton object registered under the given name, creating
+	 * it through the given factory if necessary. To be called within the
+	 * appropriate singleton creation lock.
+	 */
+	private Object createSingletonIfNecessary(String beanName, ObjectFactory<?> singletonFactory) {
+		Object singletonObject = this.singletonObjects.get(beanName);
+		// 如果singetonObjects缓存不存在名称为beanName的对象
+		if (singletonObject == null) {
+			// 如果目前在销毁singellton
+			if (this.singletonsCurrentlyInDestruction) {
+				throw new BeanCreationNotAllowedException(beanName,
+						"Singleton bean creation not allowed while singletons of this factory are in destruction " +
+						"(Do not request a bean from a BeanFactory in a destroy method implementation!)");
+			}
+			if (logger.isDebugEnabled()) {
+				logger.debug("Creating shared instance of singleton bean '" + beanName + "'");
+			}
+			boolean trackCreationThread = this.singletonLockPerBean;
+			if (trackCreationThread) {
+				this.singletonCreationThreads.put(beanName, Thread.currentThread());
+			}
+			// 单例对象创建前的回调,默认实现注册正在创建的单例
+			beforeSingletonCreation(beanName);
+			boolean newSingleton = false;
+			// 判断存储异常相关原因的集合是否已存在
+			Set<Exception> suppressedExceptions = this.suppressedExceptions.get();
+			boolean recordSuppressedExceptions = (suppressedExceptions == null);
+			// 若没有，刚创建异常集合的实例
+			if (recordSuppressedExceptions) {
+				suppressedExceptions = new LinkedHashSet<>();
+				this.suppressedExceptions.set(suppressedExceptions);
+			}
+			try {
+				// 由参数给定的singletonFactory创建singleton对象,
+				// getObject方法的具体实现由ObjectFactory的子类决定
+				singletonObject = singletonFactory.getObject();
+				newSingleton = true;
+			}
+			catch (IllegalStateException ex) {
+				// Has the singleton object implicitly appeared in the meantime ->
+				// if yes, proceed with it since the exception indicates that state.
+				singletonObject = this.singletonObjects.get(beanName);
+				if (singletonObject == null) {
+					throw ex;
 				}
-				// 单例对象创建前的回调,默认实现注册正在创建的单例
-				beforeSingletonCreation(beanName);
-				boolean newSingleton = false;
-				// 判断存储异常相关原因的集合是否已存在
-				boolean recordSuppressedExceptions = (this.suppressedExceptions == null);
-				// 若没有，刚创建异常集合的实例
+			}
+			catch (BeanCreationException ex) {
+				// 如果异常被抓取，在这里将出现异常的原因抛出
 				if (recordSuppressedExceptions) {
-					this.suppressedExceptions = new LinkedHashSet<>();
+					for (Exception suppressedException : suppressedExceptions) {
+						ex.addRelatedCause(suppressedException);
+					}
 				}
-				try {
-					// 由参数给定的singletonFactory创建singleton对象,
-					// getObject方法的具体实现由ObjectFactory的子类决定
-					singletonObject = singletonFactory.getObject();
-					newSingleton = true;
+				throw ex;
+			}
+			finally {
+				// 结束前，将异常集合销毁掉
+				if (recordSuppressedExceptions) {
+					this.suppressedExceptions.remove();
 				}
-				catch (IllegalStateException ex) {
-					// Has the singleton object implicitly appeared in the meantime ->
-					// if yes, proceed with it since the exception indicates that state.
-					singletonObject = this.singletonObjects.get(beanName);
-					if (singletonObject == null) {
-						throw ex;
-					}
+				// 单例创建之后的回调,默认的实现标志单例不要在创建了。
+				afterSingletonCreation(beanName);
+				if (trackCreationThread) {
+					this.singletonCreationThreads.remove(beanName);
 				}
-				catch (BeanCreationException ex) {
-					// 如果异常被抓取，在这里将出现异常的原因抛出
-					if (recordSuppressedExceptions) {
-						for (Exception suppressedException : this.suppressedExceptions) {
-							ex.addRelatedCause(suppressedException);
-						}
-					}
-					throw ex;
+			}
+			if (newSingleton) {
+				// 注册创建后的单例
+				addSingleton(beanName, singletonObject);
+			}
+		}
+		return singletonObject;
+	}
+
+	/**
+	 * Execute the given action within the creation lock of the given singleton:
+	 * its per-bean lock in {@link #setSingletonLockPerBean per-bean locking mode},
+	 * the singleton mutex otherwise.
+	 * <p>In per-bean locking mode, the action is executed without the lock in
+	 * case of a circular wait between threads, just like a nested invocation
+	 * within a single thread would reenter the lock.
+	 * @param beanName the name of the singleton
+	 * @param action the action to execute
+	 * @return the result of the action
+	 * @since 5.1.20
+	 */
+	protected <T> T doWithSingletonLock(String beanName, Supplier<T> action) {
+		if (!this.singletonLockPerBean) {
+			synchronized (this.singletonObjects) {
+				return action.get();
+			}
+		}
+		SingletonLock lock = acquireSingletonLock(beanName);
+		try {
+			return action.get();
+		}
+		finally {
+			if (lock != null) {
+				releaseSingletonLock(beanName, lock);
+			}
+		}
+	}
+
+	/**
+	 * Acquire the per-bean creation lock of the given singleton, registering
+	 * a new lock if none is currently held for the bean name.
+	 * @param beanName the name of the singleton
+	 * @return the acquired lock, or {@code null} on a circular wait for the lock
+	 * @see #releaseSingletonLock
+	 */
+	@Nullable
+	private SingletonLock acquireSingletonLock(String beanName) {
+		for (;;) {
+			SingletonLock lock = this.singletonLocks.computeIfAbsent(beanName, key -> new SingletonLock());
+			if (!acquireSingletonLock(beanName, lock)) {
+				return null;
+			}
+			if (this.singletonLocks.get(beanName) == lock) {
+				return lock;
+			}
+			// Deregistered by its previous owner in the meantime: retry with a current lock
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Release the given per-bean creation lock, deregistering it when released
+	 * by its outermost holder, so that locks do not accumulate for bean names
+	 * that are not being created anymore.
+	 * @param beanName the name of the singleton
+	 * @param lock the per-bean creation lock held by the current thread
+	 */
+	private void releaseSingletonLock(String beanName, SingletonLock lock) {
+		if (lock.getHoldCount() == 1) {
+			this.singletonLocks.remove(beanName, lock);
+		}
+		lock.unlock();
+	}
+
+	/**
+	 * Acquire the per-bean creation lock of the given singleton, checking for
+	 * a deadlock between threads creating singletons that refer to each other.
+	 * @param beanName the name of the singleton
+	 * @param lock the per-bean creation lock
+	 * @return {@code true} if the lock has been acquired, {@code false} on a
+	 * circular wait for the lock
+	 */
+	private boolean acquireSingletonLock(String beanName, SingletonLock lock) {
+		if (lock.tryLock()) {
+			return true;
+		}
+		Thread currentThread = Thread.currentThread();
+		this.singletonLockWaiters.put(currentThread, beanName);
+		try {
+			while (!lock.tryLock(SINGLETON_LOCK_CHECK_INTERVAL, TimeUnit.MILLISECONDS)) {
+				List<String> circularWait = getCircularSingletonWait(beanName, currentThread);
+				// Break a circular wait in the thread that can continue with an early reference,
+				// or in every thread if there is none: see getSingleton(String, ObjectFactory).
+				if (circularWait != null && (hasEarlySingletonReference(beanName) ||
+						circularWait.stream().noneMatch(this::hasEarlySingletonReference))) {
+					return false;
 				}
-				finally {
-					// 结束前，将异常集合销毁掉
-					if (recordSuppressedExceptions) {
-						this.suppressedExceptions = null;
+			}
+			return true;
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new BeanCreationException(beanName, "Interrupted while waiting for singleton creation", ex);
+		}
+		finally {
+			this.singletonLockWaiters.remove(currentThread);
+		}
+	}
+
+	/**
+	 * Determine whether the thread holding the lock of the given singleton is
+	 * (transitively) waiting for a singleton lock that the given thread holds.
+	 * @return the names of the singletons waited for along the cycle, starting
+	 * with the given singleton, or {@code null} if there is no circular wait
+	 */
+	@Nullable
+	private List<String> getCircularSingletonWait(String beanName, Thread currentThread) {
+		List<String> waitedFor = new ArrayList<>(4);
+		Set<Thread> seen = new HashSet<>();
+		String nameToCheck = beanName;
+		while (nameToCheck != null) {
+			SingletonLock lock = this.singletonLocks.get(nameToCheck);
+			Thread owner = (lock != null ? lock.getOwnerThread() : null);
+			if (owner == null || !seen.add(owner)) {
+				return null;
+			}
+			waitedFor.add(nameToCheck);
+			if (owner == currentThread) {
+				return waitedFor;
+			}
+			nameToCheck = this.singletonLockWaiters.get(owner);
+		}
+		return null;
+	}
+
+	private boolean hasEarlySingletonReference(String beanName) {
+		return (this.singletonObjects.containsKey(beanName) || this.earlySingletonObjects.containsKey(beanName) ||
+				this.singletonFactories.containsKey(beanName));
+	}
+
+	/**
+	 * Obtain an early reference to the given singleton in per-bean locking mode,
+	 * calling its registered singleton factory at most once.
+	 * @param beanName the name of the singleton
+	 * @return the early singleton reference, or {@code null} if none available
+	 */
+	@Nullable
+	private Object getEarlySingletonReference(String beanName) {
+		ObjectFactory<?> singletonFactory = this.singletonFactories.get(beanName);
+		if (singletonFactory == null) {
+			Object singletonObject = this.singletonObjects.get(beanName);
+			return (singletonObject != null ? singletonObject : this.earlySingletonObjects.get(beanName));
+		}
+		synchronized (singletonFactory) {
+			Object singletonObject = this.earlySingletonObjects.get(beanName);
+			if (singletonObject == null && this.singletonFactories.get(beanName) == singletonFactory) {
+				singletonObject = singletonFactory.getObject();
+				synchronized (getSingletonCacheMonitor()) {
+					if (this.singletonFactories.remove(beanName, singletonFactory)) {
+						this.earlySingletonObjects.put(beanName, singletonObject);
 					}
-					// 单例创建之后的回调,默认的实现标志单例不要在创建了。
-					afterSingletonCreation(beanName);
-				}
-				if (newSingleton) {
-					// 注册创建后的单例
-					addSingleton(beanName, singletonObject);
 				}
 			}
+			if (singletonObject == null) {
+				singletonObject = this.singletonObjects.get(beanName);
+			}
 			return singletonObject;
 		}
 	}
@@ -355,10 +640,9 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	 */
 	//注册 发生在singeton bean 实例创建之间发生的异常
 	protected void onSuppressedException(Exception ex) {
-		synchronized (this.singletonObjects) {
-			if (this.suppressedExceptions != null && this.suppressedExceptions.size() < SUPPRESSED_EXCEPTIONS_LIMIT) {
-				this.suppressedExceptions.add(ex);
-			}
+		Set<Exception> suppressedExceptions = this.suppressedExceptions.get();
+		if (suppressedExceptions != null && suppressedExceptions.size() < SUPPRESSED_EXCEPTIONS_LIMIT) {
+			suppressedExceptions.add(ex);
 		}
 	}
 
@@ -374,7 +658,7 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	 * ,registeredSingletons
 	 */
 	protected void removeSingleton(String beanName) {
-		synchronized (this.singletonObjects) {
+		synchronized (getSingletonCacheMonitor()) {
 			this.singletonObjects.remove(beanName);
 			this.singletonFactories.remove(beanName);
 			this.earlySingletonObjects.remove(beanName);
@@ -392,7 +676,7 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	@Override
 	public String[] getSingletonNames() {
 		// 对singletonObjects加锁，可能是为了防止registeredSingletons和singletonObjects出现不一致的问题
-		synchronized (this.singletonObjects) {
+		synchronized (getSingletonCacheMonitor()) {
 			return StringUtils.toStringArray(this.registeredSingletons);
 		}
 	}
@@ -400,7 +684,7 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	// singletonBeanRegistry接口的getSingletonCount方法实现
 	@Override
 	public int getSingletonCount() {
-		synchronized (this.singletonObjects) {
+		synchronized (getSingletonCacheMonitor()) {
 			return this.registeredSingletons.size();
 		}
 	}
@@ -416,9 +700,26 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 		}
 	}
 
+	/**
+	 * Return whether the specified bean is currently in creation.
+	 * <p>In {@link #setSingletonLockPerBean per-bean locking mode}, a singleton
+	 * that another thread is creating does not count as in creation here:
+	 * a {@code getBean} call for it waits for the fully initialized instance
+	 * instead of running into a circular reference, unless that other thread
+	 * in turn waits for a singleton that this thread is creating.
+	 */
 	public boolean isCurrentlyInCreation(String beanName) {
 		Assert.notNull(beanName, "Bean name must not be null");
-		return (!this.inCreationCheckExclusions.contains(beanName) && isActuallyInCreation(beanName));
+		if (this.inCreationCheckExclusions.contains(beanName)) {
+			return false;
+		}
+		if (this.singletonLockPerBean) {
+			Thread creationThread = this.singletonCreationThreads.get(beanName);
+			if (creationThread != null && creationThread != Thread.currentThread()) {
+				return (getCircularSingletonWait(beanName, Thread.currentThread()) != null);
+			}
+		}
+		return isActuallyInCreation(beanName);
 	}
 
 	protected boolean isActuallyInCreation(String beanName) {
@@ -492,24 +793,13 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	 */
 	//注册两个bean之间的控制关系,例如内部bean和包含其的外部bean之间
 	public void registerContainedBean(String containedBeanName, String containingBeanName) {
-		synchronized (this.containedBeanMap) {
-			// 从containedBeanMap缓存中查找外部bean名为containingBeanName的内部bean集合
-
-			Set<String> containedBeans =
-					this.containedBeanMap.computeIfAbsent(containingBeanName, k -> new LinkedHashSet<>(8));
-
-			// 如果没有，刚新建一个存放内部bean的集合，并且存放在containedBeanMap缓存中
-			//上述操作拆分为下面步骤
-			/*if (containedBeans == null) {
-				containedBeans = new LinkedHashSet<String>(8);
-				this.containedBeanMap.put(containingBeanName, containedBeans);
-			}*/
-
-			// 将名为containedBeanName的内部bean存放到内部bean集合
-			if (!containedBeans.add(containedBeanName)) {
-				return;
-			}
+		// 从containedBeanMap缓存中查找外部bean名为containingBeanName的内部bean集合
+		Set<String> containedBeans = this.containedBeanMap.get(containingBeanName);
+		if (containedBeans != null && containedBeans.contains(containedBeanName)) {
+			return;
 		}
+		// 将名为containedBeanName的内部bean存放到内部bean集合
+		this.containedBeanMap.compute(containingBeanName, (key, names) -> addName(names, containedBeanName));
 		// 紧接着调用注册内部bean和外部bean的依赖关系的方法
 		registerDependentBean(containedBeanName, containingBeanName);
 	}
@@ -526,23 +816,35 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 		// 这方法是将参数beanName当做别名寻找到注册名，并依此递归
 		String canonicalName = canonicalName(beanName);
 
-		synchronized (this.dependentBeanMap) {
-			// 从dependentBeanMap缓存中找到依赖名为canonicalName这个bean的 依赖bean集合
-			// 如果为空，则新建一个依赖bean集合，并且存放到dependentBeanMap缓存中
-			Set<String> dependentBeans =
-					this.dependentBeanMap.computeIfAbsent(canonicalName, k -> new LinkedHashSet<>(8));
-			// 依赖bean集合添加参数2指定的dependentBeanName
-			if (!dependentBeans.add(dependentBeanName)) {
-				return;
-			}
+		// 从dependentBeanMap缓存中找到依赖名为canonicalName这个bean的 依赖bean集合,
+		// 已经注册过的依赖关系无需任何同步即可识别
+		Set<String> dependentBeans = this.dependentBeanMap.get(canonicalName);
+		if (dependentBeans != null && dependentBeans.contains(dependentBeanName)) {
+			return;
 		}
+		this.dependentBeanMap.compute(canonicalName, (key, names) -> addName(names, dependentBeanName));
 
 		// 从dependenciesForBeanMap缓存中找到dependentBeanName要依赖的所有bean集合
-		synchronized (this.dependenciesForBeanMap) {
-			Set<String> dependenciesForBean =
-					this.dependenciesForBeanMap.computeIfAbsent(dependentBeanName, k -> new LinkedHashSet<>(8));
-			dependenciesForBean.add(canonicalName);
-		}
+		this.dependenciesForBeanMap.compute(dependentBeanName, (key, names) -> addName(names, canonicalName));
+	}
+
+	/**
+	 * Add the given name to the given name Set, creating the Set if necessary.
+	 */
+	private static Set<String> addName(@Nullable Set<String> names, String name) {
+		Set<String> result = (names != null ? names : new NameSet());
+		result.add(name);
+		return result;
+	}
+
+	/**
+	 * Remove the given name from the given name Set,
+	 * returning {@code null} if the Set is empty then.
+	 */
+	@Nullable
+	private static Set<String> removeName(Set<String> names, String name) {
+		names.remove(name);
+		return (names.isEmpty() ? null : names);
 	}
 
 	/**
@@ -553,9 +855,7 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	 * @since 4.0
 	 */
 	protected boolean isDependent(String beanName, String dependentBeanName) {
-		synchronized (this.dependentBeanMap) {
-			return isDependent(beanName, dependentBeanName, null);
-		}
+		return isDependent(beanName, dependentBeanName, null);
 	}
 
 	private boolean isDependent(String beanName, String dependentBeanName, @Nullable Set<String> alreadySeen) {
@@ -602,9 +902,7 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 		if (dependentBeans == null) {
 			return new String[0];
 		}
-		synchronized (this.dependentBeanMap) {
-			return StringUtils.toStringArray(dependentBeans);
-		}
+		return StringUtils.toStringArray(dependentBeans);
 	}
 
 	/**
@@ -620,9 +918,7 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 		if (dependenciesForBean == null) {
 			return new String[0];
 		}
-		synchronized (this.dependenciesForBeanMap) {
-			return StringUtils.toStringArray(dependenciesForBean);
-		}
+		return StringUtils.toStringArray(dependenciesForBean);
 	}
 
 	// 销毁单例
@@ -631,7 +927,7 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 			logger.trace("Destroying singletons in " + this);
 		}
 		// 单例目前销毁标志开始
-		synchronized (this.singletonObjects) {
+		synchronized (getSingletonCacheMonitor()) {
 			this.singletonsCurrentlyInDestruction = true;
 		}
 
@@ -662,7 +958,7 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	//// singeltonObjects缓存清空，singletonFactories缓存清空，
 	// earlySingletonObjects缓存清空，registeredSingletons缓存清空
 	protected void clearSingletonCache() {
-		synchronized (this.singletonObjects) {
+		synchronized (getSingletonCacheMonitor()) {
 			this.singletonObjects.clear();
 			this.singletonFactories.clear();
 			this.earlySingletonObjects.clear();
@@ -699,11 +995,8 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	protected void destroyBean(String beanName, @Nullable DisposableBean bean) {
 		// Trigger destruction of dependent beans first...
 		// 这段代码告诉我们先移除要销毁依赖bean
-		Set<String> dependencies;
-		synchronized (this.dependentBeanMap) {
-			// Within full synchronization in order to guarantee a disconnected Set
-			dependencies = this.dependentBeanMap.remove(beanName);
-		}
+		// Sets are only modified through the Map: the removed Set is guaranteed to be disconnected
+		Set<String> dependencies = this.dependentBeanMap.remove(beanName);
 		if (dependencies != null) {
 			if (logger.isTraceEnabled()) {
 				logger.trace("Retrieved dependent beans for bean '" + beanName + "': " + dependencies);
@@ -728,11 +1021,7 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 
 		// Trigger destruction of contained beans...
 		// 从containedBeanMap缓存中移除要销毁的bean，递归移除它的包含内部bean集合
-		Set<String> containedBeans;
-		synchronized (this.containedBeanMap) {
-			// Within full synchronization in order to guarantee a disconnected Set
-			containedBeans = this.containedBeanMap.remove(beanName);
-		}
+		Set<String> containedBeans = this.containedBeanMap.remove(beanName);
 		if (containedBeans != null) {
 			for (String containedBeanName : containedBeans) {
 				destroySingleton(containedBeanName);
@@ -741,15 +1030,8 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 
 		// Remove destroyed bean from other beans' dependencies.
 		// 从其它bean的依赖bean集合中移除要销毁的bean
-		synchronized (this.dependentBeanMap) {
-			for (Iterator<Map.Entry<String, Set<String>>> it = this.dependentBeanMap.entrySet().iterator(); it.hasNext();) {
-				Map.Entry<String, Set<String>> entry = it.next();
-				Set<String> dependenciesToClean = entry.getValue();
-				dependenciesToClean.remove(beanName);
-				if (dependenciesToClean.isEmpty()) {
-					it.remove();
-				}
-			}
+		for (String dependencyName : this.dependentBeanMap.keySet()) {
+			this.dependentBeanMap.computeIfPresent(dependencyName, (key, names) -> removeName(names, beanName));
 		}
 
 		// Remove destroyed bean's prepared dependency information.
@@ -769,4 +1051,73 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 		return this.singletonObjects;
 	}
 
+	/**
+	 * Return the monitor guarding modifications of the singleton caches:
+	 * the singleton mutex by default, or a dedicated monitor in per-bean
+	 * locking mode (never held while calling out to other code).
+	 * @see #setSingletonLockPerBean
+	 */
+	private Object getSingletonCacheMonitor() {
+		return (this.singletonLockPerBean ? this.singletonCacheMonitor : this.singletonObjects);
+	}
+
+
+	/**
+	 * Insertion-ordered Set of bean names that may be read and iterated while
+	 * being modified. Modifications must not be concurrent with each other,
+	 * which the compute methods of the containing Map guarantee.
+	 */
+	private static final class NameSet extends AbstractSet<String> {
+
+		private final Set<String> index = ConcurrentHashMap.newKeySet(8);
+
+		private final Queue<String> names = new ConcurrentLinkedQueue<>();
+
+		@Override
+		public boolean add(String name) {
+			if (!this.index.add(name)) {
+				return false;
+			}
+			this.names.add(name);
+			return true;
+		}
+
+		@Override
+		public boolean remove(Object name) {
+			if (!this.index.remove(name)) {
+				return false;
+			}
+			this.names.remove(name);
+			return true;
+		}
+
+		@Override
+		public boolean contains(Object name) {
+			return this.index.contains(name);
+		}
+
+		@Override
+		public Iterator<String> iterator() {
+			return Collections.unmodifiableCollection(this.names).iterator();
+		}
+
+		@Override
+		public int size() {
+			return this.index.size();
+		}
+	}
+
+
+	/**
+	 * Per-bean creation lock, exposing its owner for deadlock detection.
+	 */
+	@SuppressWarnings("serial")
+	private static class SingletonLock extends ReentrantLock {
+
+		@Nullable
+		Thread getOwnerThread() {
+			return getOwner();
+		}
+	}
+
 }
@@ -113,7 +113,7 @@ public abstract class FactoryBeanRegistrySupport extends DefaultSingletonBeanReg
 	protected Object getObjectFromFactoryBean(FactoryBean<?> factory, String beanName, boolean shouldPostProcess) {
 		//先就是简单的判断,是否是单例和包含该单例bean
 		if (factory.isSingleton() && containsSingleton(beanName)) {
-			synchronized (getSingletonMutex()) {
+			return doWithSingletonLock(beanName, () -> {
 				//先从缓存中去拿
 				Object object = this.factoryBeanObjectCache.get(beanName);
 				if (object == null) {
@@ -157,7 +157,7 @@ public abstract class FactoryBeanRegistrySupport extends DefaultSingletonBeanReg
 				}
 				//返回从FactoryBean拿到的bean
 				return object;
-			}
+			});
 		}
 		//这里说明是factory不是单例且beanName在缓存中找不到
 		else {
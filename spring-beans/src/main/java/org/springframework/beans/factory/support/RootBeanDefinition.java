@@ -106,6 +106,10 @@ public class RootBeanDefinition extends AbstractBeanDefinition {
 	@Nullable
 	Object[] preparedConstructorArguments;
 
+	/** Package-visible field for caching a generated accessor for the resolved constructor. */
+	@Nullable
+	volatile Object resolvedConstructorAccessor;
+
 	/** Common lock for the two post-processing fields below. */
 	final Object postProcessingLock = new Object();
 
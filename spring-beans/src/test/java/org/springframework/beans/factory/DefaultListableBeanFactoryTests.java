@@ -20,12 +20,16 @@ import java.io.Closeable;
 import java.io.Serializable;
 import java.lang.reflect.Field;
 import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
 import java.security.AccessControlContext;
 import java.security.AccessController;
 import java.security.Principal;
 import java.security.PrivilegedAction;
 import java.text.NumberFormat;
 import java.text.ParseException;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -2906,6 +2910,113 @@ public class DefaultListableBeanFactoryTests {
 		assertEquals(NonPublicEnum.VALUE_1, holder.getNonPublicEnum());
 	}
 
+	@Test
+	public void testParallelPreInstantiation() {
+		lbf.setPreInstantiationParallelism(4);
+		assertTrue(lbf.isSingletonLockPerBean());
+		for (int i = 0; i < 8; i++) {
+			lbf.registerBeanDefinition("slow" + i, new RootBeanDefinition(SlowInitBean.class));
+		}
+		RootBeanDefinition tb1 = new RootBeanDefinition(TestBean.class);
+		tb1.getPropertyValues().add("spouse", new RuntimeBeanReference("tb2"));
+		lbf.registerBeanDefinition("tb1", tb1);
+		RootBeanDefinition tb2 = new RootBeanDefinition(TestBean.class);
+		tb2.getPropertyValues().add("spouse", new RuntimeBeanReference("tb1"));
+		lbf.registerBeanDefinition("tb2", tb2);
+		RootBeanDefinition lazy = new RootBeanDefinition(SlowInitBean.class);
+		lazy.setLazyInit(true);
+		lbf.registerBeanDefinition("lazy", lazy);
+		lbf.preInstantiateSingletons();
+
+		Set<Thread> threads = new HashSet<>();
+		for (int i = 0; i < 8; i++) {
+			assertTrue(lbf.containsSingleton("slow" + i));
+			threads.add(lbf.getBean("slow" + i, SlowInitBean.class).creationThread);
+		}
+		assertTrue(threads.size() > 1);
+		assertFalse(threads.contains(Thread.currentThread()));
+		TestBean spouse = (TestBean) lbf.getBean("tb1", TestBean.class).getSpouse();
+		assertSame(lbf.getBean("tb2"), spouse);
+		assertSame(lbf.getBean("tb1"), spouse.getSpouse());
+		assertFalse(lbf.containsSingleton("lazy"));
+		assertEquals(10, lbf.getSingletonCreationTimes().size());
+	}
+
+	@Test
+	public void testParallelPreInstantiationWithFailure() {
+		lbf.setPreInstantiationParallelism(2);
+		lbf.registerBeanDefinition("tb", new RootBeanDefinition(TestBean.class));
+		RootBeanDefinition bd = new RootBeanDefinition(TestBean.class);
+		bd.getPropertyValues().add("age", "not a number");
+		lbf.registerBeanDefinition("failing", bd);
+		try {
+			lbf.preInstantiateSingletons();
+			fail("Should have thrown BeanCreationException");
+		}
+		catch (BeanCreationException ex) {
+			assertEquals("failing", ex.getBeanName());
+		}
+	}
+
+	@Test
+	public void testParallelPreInstantiationUsesCallerContextClassLoader() {
+		lbf.setPreInstantiationParallelism(2);
+		lbf.registerBeanDefinition("cl1", new RootBeanDefinition(ContextClassLoaderBean.class));
+		lbf.registerBeanDefinition("cl2", new RootBeanDefinition(ContextClassLoaderBean.class));
+		ClassLoader contextClassLoader = new URLClassLoader(new URL[0], getClass().getClassLoader());
+		ClassLoader previousClassLoader = Thread.currentThread().getContextClassLoader();
+		Thread.currentThread().setContextClassLoader(contextClassLoader);
+		try {
+			lbf.preInstantiateSingletons();
+		}
+		finally {
+			Thread.currentThread().setContextClassLoader(previousClassLoader);
+		}
+		assertSame(contextClassLoader, lbf.getBean("cl1", ContextClassLoaderBean.class).contextClassLoader);
+		assertSame(contextClassLoader, lbf.getBean("cl2", ContextClassLoaderBean.class).contextClassLoader);
+	}
+
+	@Test
+	public void testParallelPreInstantiationAfterSingletonRegistration() {
+		lbf.registerSingleton("tb", new TestBean());
+		try {
+			lbf.setPreInstantiationParallelism(2);
+			fail("Should have thrown IllegalStateException");
+		}
+		catch (IllegalStateException ex) {
+			// expected
+		}
+		assertEquals(1, lbf.getPreInstantiationParallelism());
+		assertFalse(lbf.isSingletonLockPerBean());
+	}
+
+	@Test
+	public void testSingletonCreationTimesNotRecordedByDefault() {
+		lbf.registerBeanDefinition("tb", new RootBeanDefinition(TestBean.class));
+		lbf.preInstantiateSingletons();
+		assertTrue(lbf.containsSingleton("tb"));
+		assertTrue(lbf.getSingletonCreationTimes().isEmpty());
+	}
+
+	@Test
+	public void testSingletonCreationTimesAreExclusive() {
+		lbf.setRecordSingletonCreationTimes(true);
+		RootBeanDefinition bd = new RootBeanDefinition(TestBean.class);
+		bd.getPropertyValues().add("spouse", new RuntimeBeanReference("slow"));
+		lbf.registerBeanDefinition("tb", bd);
+		lbf.registerBeanDefinition("slow", new RootBeanDefinition(SlowInitBean.class));
+		assertTrue(lbf.getSingletonCreationTimes().isEmpty());
+		lbf.preInstantiateSingletons();
+
+		Map<String, Duration> creationTimes = lbf.getSingletonCreationTimes();
+		assertEquals(Arrays.asList("slow", "tb"), new ArrayList<>(creationTimes.keySet()));
+		assertTrue(creationTimes.get("slow").toMillis() >= 50);
+		assertTrue(creationTimes.get("tb").compareTo(creationTimes.get("slow")) < 0);
+
+		lbf.destroySingletons();
+		assertTrue(lbf.getSingletonCreationTimes().isEmpty());
+	}
+
 	/**
 	 * Test that by-type bean lookup caching is working effectively by searching for a
 	 * bean of type B 10K times within a container having 1K additional beans of type A.
@@ -3475,4 +3586,20 @@ public class DefaultListableBeanFactoryTests {
 		}
 	}
 
+
+	public static class ContextClassLoaderBean {
+
+		final ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+	}
+
+
+	public static class SlowInitBean extends TestBean {
+
+		final Thread creationThread = Thread.currentThread();
+
+		public SlowInitBean() throws InterruptedException {
+			Thread.sleep(50);
+		}
+	}
+
 }
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.support;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.beans.BeanInstantiationException;
+import org.springframework.beans.factory.BeanCreationException;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.tests.sample.beans.TestBean;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link CglibFastClassInstantiationStrategy}.
+ *
+ * @author agent
+ */
+public class CglibFastClassInstantiationStrategyTests {
+
+	private DefaultListableBeanFactory beanFactory;
+
+
+	@Before
+	public void setUp() {
+		this.beanFactory = new DefaultListableBeanFactory();
+		this.beanFactory.setInstantiationStrategy(new CglibFastClassInstantiationStrategy());
+	}
+
+
+	@Test
+	public void prototypeWithDefaultConstructor() {
+		RootBeanDefinition bd = new RootBeanDefinition(TestBean.class);
+		bd.setScope(BeanDefinition.SCOPE_PROTOTYPE);
+		bd.getPropertyValues().add("name", "juergen");
+		this.beanFactory.registerBeanDefinition("tb", bd);
+
+		for (int i = 0; i < 3; i++) {
+			TestBean tb = (TestBean) this.beanFactory.getBean("tb");
+			assertEquals("juergen", tb.getName());
+		}
+		assertNotNull(getConstructorAccessor("tb"));
+		assertNotSame(this.beanFactory.getBean("tb"), this.beanFactory.getBean("tb"));
+	}
+
+	@Test
+	public void prototypeWithConstructorArguments() {
+		RootBeanDefinition bd = new RootBeanDefinition(TestBean.class);
+		bd.setScope(BeanDefinition.SCOPE_PROTOTYPE);
+		bd.getConstructorArgumentValues().addGenericArgumentValue("juergen");
+		bd.getConstructorArgumentValues().addGenericArgumentValue("42");
+		this.beanFactory.registerBeanDefinition("tb", bd);
+
+		for (int i = 0; i < 3; i++) {
+			TestBean tb = (TestBean) this.beanFactory.getBean("tb");
+			assertEquals("juergen", tb.getName());
+			assertEquals(42, tb.getAge());
+		}
+		assertNotNull(getConstructorAccessor("tb"));
+	}
+
+	@Test
+	public void prototypeWithExplicitArguments() {
+		RootBeanDefinition bd = new RootBeanDefinition(TestBean.class);
+		bd.setScope(BeanDefinition.SCOPE_PROTOTYPE);
+		this.beanFactory.registerBeanDefinition("tb", bd);
+
+		TestBean tb = (TestBean) this.beanFactory.getBean("tb", "juergen", 42);
+		assertEquals("juergen", tb.getName());
+		assertEquals(42, tb.getAge());
+		tb = (TestBean) this.beanFactory.getBean("tb", "sam", 43);
+		assertEquals("sam", tb.getName());
+		assertEquals(43, tb.getAge());
+	}
+
+	@Test
+	public void singletonNotGenerated() {
+		this.beanFactory.registerBeanDefinition("tb", new RootBeanDefinition(TestBean.class));
+
+		assertNotNull(this.beanFactory.getBean("tb"));
+		assertNull(getConstructorAccessor("tb"));
+	}
+
+	@Test
+	public void nonPublicClassFallsBackToReflection() {
+		RootBeanDefinition bd = new RootBeanDefinition(PackagePrivateBean.class);
+		bd.setScope(BeanDefinition.SCOPE_PROTOTYPE);
+		this.beanFactory.registerBeanDefinition("bean", bd);
+
+		assertNotNull(this.beanFactory.getBean("bean"));
+		assertNotNull(this.beanFactory.getBean("bean"));
+		assertNull(getConstructorAccessor("bean"));
+	}
+
+	@Test
+	public void constructorExceptionExposedAsBeanInstantiationException() {
+		RootBeanDefinition bd = new RootBeanDefinition(FailingBean.class);
+		bd.setScope(BeanDefinition.SCOPE_PROTOTYPE);
+		this.beanFactory.registerBeanDefinition("bean", bd);
+		FailingBean.fail = false;
+		this.beanFactory.getBean("bean");
+
+		FailingBean.fail = true;
+		try {
+			this.beanFactory.getBean("bean");
+			fail("Should have thrown BeanCreationException");
+		}
+		catch (BeanCreationException ex) {
+			assertTrue(ex.getCause() instanceof BeanInstantiationException);
+			assertTrue(ex.getCause().getCause() instanceof IllegalStateException);
+		}
+		finally {
+			FailingBean.fail = false;
+		}
+	}
+
+	private Object getConstructorAccessor(String beanName) {
+		return this.beanFactory.getMergedLocalBeanDefinition(beanName).resolvedConstructorAccessor;
+	}
+
+
+	static class PackagePrivateBean {
+	}
+
+
+	public static class FailingBean {
+
+		static boolean fail;
+
+		public FailingBean() {
+			if (fail) {
+				throw new IllegalStateException("Constructor failure");
+			}
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2014 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,9 +16,15 @@
 
 package org.springframework.beans.factory.support;
 
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
 import org.junit.Test;
 
 import org.springframework.beans.BeansException;
+import org.springframework.beans.DirectFieldAccessor;
 import org.springframework.beans.factory.ObjectFactory;
 import org.springframework.tests.sample.beans.DerivedTestBean;
 import org.springframework.tests.sample.beans.TestBean;
@@ -101,4 +107,165 @@ public class DefaultSingletonBeanRegistryTests {
 		assertTrue(beanRegistry.isDependent("c", "c"));
 	}
 
+	@Test
+	public void testDependentRegistrationRemovedOnDestroy() {
+		DefaultSingletonBeanRegistry beanRegistry = new DefaultSingletonBeanRegistry();
+		beanRegistry.registerSingleton("a", new TestBean());
+		beanRegistry.registerSingleton("b", new TestBean());
+		beanRegistry.registerSingleton("c", new TestBean());
+
+		beanRegistry.registerDependentBean("a", "b");
+		beanRegistry.registerDependentBean("a", "c");
+		beanRegistry.registerDependentBean("a", "b");
+		assertArrayEquals(new String[] {"b", "c"}, beanRegistry.getDependentBeans("a"));
+		assertArrayEquals(new String[] {"a"}, beanRegistry.getDependenciesForBean("b"));
+
+		beanRegistry.destroySingleton("c");
+		assertArrayEquals(new String[] {"b"}, beanRegistry.getDependentBeans("a"));
+		assertEquals(0, beanRegistry.getDependenciesForBean("c").length);
+
+		beanRegistry.destroySingleton("a");
+		assertEquals(0, beanRegistry.getDependentBeans("a").length);
+		assertFalse(beanRegistry.containsSingleton("b"));
+	}
+
+	@Test
+	public void testDependentRegistrationKeepsRegistrationOrder() {
+		DefaultSingletonBeanRegistry beanRegistry = new DefaultSingletonBeanRegistry();
+		for (int i = 0; i < 1000; i++) {
+			beanRegistry.registerDependentBean("a", "b" + i);
+			String[] dependentBeans = beanRegistry.getDependentBeans("a");
+			assertEquals(i + 1, dependentBeans.length);
+			assertEquals("b" + i, dependentBeans[i]);
+		}
+		beanRegistry.registerSingleton("b0", new TestBean());
+		beanRegistry.destroySingleton("b0");
+		beanRegistry.registerDependentBean("a", "b0");
+		String[] dependentBeans = beanRegistry.getDependentBeans("a");
+		assertEquals(1000, dependentBeans.length);
+		assertEquals("b1", dependentBeans[0]);
+		assertEquals("b0", dependentBeans[999]);
+	}
+
+	@Test
+	public void testSingletonLockPerBeanWithConcurrentCreation() throws Exception {
+		DefaultSingletonBeanRegistry beanRegistry = new DefaultSingletonBeanRegistry();
+		beanRegistry.setSingletonLockPerBean(true);
+		CountDownLatch bothInCreation = new CountDownLatch(2);
+		ObjectFactory<Object> factory = () -> {
+			bothInCreation.countDown();
+			try {
+				return bothInCreation.await(5, TimeUnit.SECONDS);
+			}
+			catch (InterruptedException ex) {
+				throw new IllegalStateException(ex);
+			}
+		};
+
+		CompletableFuture<Object> a = CompletableFuture.supplyAsync(() -> beanRegistry.getSingleton("a", factory));
+		CompletableFuture<Object> b = CompletableFuture.supplyAsync(() -> beanRegistry.getSingleton("b", factory));
+		assertEquals(Boolean.TRUE, a.get(10, TimeUnit.SECONDS));
+		assertEquals(Boolean.TRUE, b.get(10, TimeUnit.SECONDS));
+		assertEquals(2, beanRegistry.getSingletonCount());
+	}
+
+	@Test
+	public void testSingletonLockPerBeanWaitsForFullyInitializedInstance() throws Exception {
+		DefaultSingletonBeanRegistry beanRegistry = new DefaultSingletonBeanRegistry();
+		beanRegistry.setSingletonLockPerBean(true);
+		TestBean tb = new TestBean();
+		CountDownLatch inCreation = new CountDownLatch(1);
+		CountDownLatch proceed = new CountDownLatch(1);
+
+		CompletableFuture<Object> creator = CompletableFuture.supplyAsync(() ->
+				beanRegistry.getSingleton("tb", () -> {
+					beanRegistry.addSingletonFactory("tb", () -> tb);
+					inCreation.countDown();
+					try {
+						proceed.await(5, TimeUnit.SECONDS);
+					}
+					catch (InterruptedException ex) {
+						throw new IllegalStateException(ex);
+					}
+					tb.setName("initialized");
+					return tb;
+				}));
+
+		assertTrue(inCreation.await(5, TimeUnit.SECONDS));
+		assertNull("No early reference for other threads", beanRegistry.getSingleton("tb"));
+		CompletableFuture<Object> waiter = CompletableFuture.supplyAsync(() ->
+				beanRegistry.getSingleton("tb", TestBean::new));
+		proceed.countDown();
+
+		assertSame(tb, creator.get(10, TimeUnit.SECONDS));
+		assertSame(tb, waiter.get(10, TimeUnit.SECONDS));
+		assertEquals("initialized", tb.getName());
+		assertTrue(getSingletonLocks(beanRegistry).isEmpty());
+	}
+
+	@Test
+	public void testSingletonLockPerBeanReleasedAfterCreation() {
+		DefaultSingletonBeanRegistry beanRegistry = new DefaultSingletonBeanRegistry();
+		beanRegistry.setSingletonLockPerBean(true);
+
+		Object result = beanRegistry.doWithSingletonLock("prototype", () -> {
+			assertEquals(1, getSingletonLocks(beanRegistry).size());
+			return beanRegistry.getSingleton("prototype", () -> beanRegistry.doWithSingletonLock("prototype", () -> {
+				assertEquals(1, getSingletonLocks(beanRegistry).size());
+				return new TestBean();
+			}));
+		});
+		assertNotNull(result);
+		assertTrue(getSingletonLocks(beanRegistry).isEmpty());
+
+		for (int i = 0; i < 10; i++) {
+			beanRegistry.getSingleton("tb" + i, TestBean::new);
+		}
+		assertEquals(11, beanRegistry.getSingletonCount());
+		assertTrue(getSingletonLocks(beanRegistry).isEmpty());
+	}
+
+	@Test
+	public void testSingletonLockPerBeanWithCircularReferenceAcrossThreads() throws Exception {
+		DefaultSingletonBeanRegistry beanRegistry = new DefaultSingletonBeanRegistry();
+		beanRegistry.setSingletonLockPerBean(true);
+		TestBean a = new TestBean("a");
+		TestBean b = new TestBean("b");
+		CountDownLatch bothInCreation = new CountDownLatch(2);
+
+		CompletableFuture<Object> creatorA = CompletableFuture.supplyAsync(() ->
+				beanRegistry.getSingleton("a", () -> {
+					beanRegistry.addSingletonFactory("a", () -> a);
+					awaitQuietly(bothInCreation);
+					a.setSpouse((TestBean) beanRegistry.getSingleton("b", () -> new TestBean("other")));
+					return a;
+				}));
+		CompletableFuture<Object> creatorB = CompletableFuture.supplyAsync(() ->
+				beanRegistry.getSingleton("b", () -> {
+					beanRegistry.addSingletonFactory("b", () -> b);
+					awaitQuietly(bothInCreation);
+					b.setSpouse((TestBean) beanRegistry.getSingleton("a", () -> new TestBean("other")));
+					return b;
+				}));
+
+		assertSame(a, creatorA.get(10, TimeUnit.SECONDS));
+		assertSame(b, creatorB.get(10, TimeUnit.SECONDS));
+		assertSame(b, a.getSpouse());
+		assertSame(a, b.getSpouse());
+	}
+
+	private static Map<?, ?> getSingletonLocks(DefaultSingletonBeanRegistry beanRegistry) {
+		return (Map<?, ?>) new DirectFieldAccessor(beanRegistry).getPropertyValue("singletonLocks");
+	}
+
+	private static void awaitQuietly(CountDownLatch latch) {
+		latch.countDown();
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		}
+		catch (InterruptedException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
 }
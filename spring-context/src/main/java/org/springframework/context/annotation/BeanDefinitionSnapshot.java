@@ -0,0 +1,1254 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.annotation;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.JarFile;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.BeanMetadataAttribute;
+import org.springframework.beans.MutablePropertyValues;
+import org.springframework.beans.PropertyValue;
+import org.springframework.beans.factory.BeanDefinitionStoreException;
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinitionHolder;
+import org.springframework.beans.factory.config.ConstructorArgumentValues;
+import org.springframework.beans.factory.config.RuntimeBeanNameReference;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+import org.springframework.beans.factory.config.TypedStringValue;
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
+import org.springframework.beans.factory.support.AutowireCandidateQualifier;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.GenericBeanDefinition;
+import org.springframework.beans.factory.support.ManagedArray;
+import org.springframework.beans.factory.support.ManagedList;
+import org.springframework.beans.factory.support.ManagedMap;
+import org.springframework.beans.factory.support.ManagedProperties;
+import org.springframework.beans.factory.support.ManagedSet;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.AttributeAccessor;
+import org.springframework.core.SpringVersion;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PropertySourceFactory;
+import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.core.type.MethodMetadata;
+import org.springframework.core.type.StandardAnnotationMetadata;
+import org.springframework.core.type.StandardMethodMetadata;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.ResourceUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * Writes and restores a binary snapshot of the bean definitions that
+ * {@link ConfigurationClassPostProcessor} derives from configuration classes,
+ * {@code @Import} declarations, component scanning and {@code @Conditional}
+ * evaluation, so that this work can be done once at build time instead of
+ * on every startup.
+ *
+ * <p>A snapshot is typically generated against the deployed classpath via
+ * {@link #main}, e.g. from a Gradle {@code JavaExec} task:
+ * <pre class="code">
+ * java -cp ... org.springframework.context.annotation.BeanDefinitionSnapshot
+ *     build/spring-beans.snapshot com.example.AppConfig</pre>
+ * and restored into a fresh {@link GenericApplicationContext} before refresh:
+ * <pre class="code">
+ * GenericApplicationContext context = new GenericApplicationContext();
+ * if (!BeanDefinitionSnapshot.load(context, new FileSystemResource("spring-beans.snapshot"))) {
+ *     new AnnotatedBeanDefinitionReader(context).register(AppConfig.class);
+ * }
+ * context.refresh();</pre>
+ *
+ * <p>Each snapshot carries a fingerprint of the classpath roots reachable from
+ * the context's ClassLoader, of the active and default profiles and of the
+ * Spring version. Directories contribute a content digest of every file, and
+ * archives contribute the sizes and CRC-32 checksums of all their entries,
+ * so recompiled classes are detected even if their size does not change.
+ * Roots are taken from {@code URLClassLoader} URLs, from {@code java.class.path}
+ * and from the directories and manifests that the ClassLoader exposes as
+ * resources, covering e.g. {@code WEB-INF/classes} and {@code WEB-INF/lib}
+ * of a web application as well as archives nested in an executable jar
+ * (through their outermost archive). Timestamps and absolute locations are
+ * left out since image builds and deployment copies routinely change them.
+ * {@link #load} refuses a snapshot whose fingerprint does not match the current
+ * runtime, or that cannot be verified because a classpath root is not
+ * file-based, in which case the caller is expected to fall back to regular
+ * registration.
+ * Note that conditions depending on other environment properties are
+ * evaluated against the build-time environment, and that the locations of
+ * {@code @PropertySource} declarations are resolved at build time as well:
+ * they are recorded in the snapshot, and the corresponding property sources
+ * are added to the environment again when restoring it.
+ *
+ * <p>Restored configuration classes are still enhanced and {@code ImportAware}
+ * callbacks are still applied; other {@code BeanDefinitionRegistryPostProcessors}
+ * and all {@code BeanFactoryPostProcessors} run at startup as usual, and
+ * restored definitions of annotated classes and {@code @Bean} methods expose
+ * the same {@link AnnotatedBeanDefinition} metadata, introspected on first
+ * access. Only bean
+ * definitions with externally representable state can be captured: String,
+ * primitive wrapper, Class and enum values, bean references, inner beans and
+ * managed collections thereof. Instance suppliers, method overrides and any
+ * other value types are rejected when writing the snapshot.
+ *
+ * @author agent
+ * @since 5.1.20
+ * @see ConfigurationClassPostProcessor
+ */
+public abstract class BeanDefinitionSnapshot {
+
+	private static final int MAGIC = 0x53424453;
+
+	private static final int VERSION = 3;
+
+	private static final Log logger = LogFactory.getLog(BeanDefinitionSnapshot.class);
+
+
+	/**
+	 * Process the configuration classes registered with the given context
+	 * (without refreshing it) and write the resulting bean definitions as a
+	 * snapshot to the given stream.
+	 * @param context the context holding the configuration classes, not refreshed yet
+	 * @param out the stream to write the snapshot to (not closed by this method)
+	 * @throws IOException in case of I/O errors
+	 * @throws BeanDefinitionStoreException if a bean definition cannot be
+	 * represented in a snapshot
+	 */
+	public static void write(GenericApplicationContext context, OutputStream out) throws IOException {
+		write(context, out, null);
+	}
+
+	private static void write(GenericApplicationContext context, OutputStream out, @Nullable File target)
+			throws IOException {
+
+		DefaultListableBeanFactory beanFactory = context.getDefaultListableBeanFactory();
+		ConfigurationClassPostProcessor postProcessor = new ConfigurationClassPostProcessor();
+		postProcessor.setEnvironment(context.getEnvironment());
+		postProcessor.setResourceLoader(context);
+		if (context.getClassLoader() != null) {
+			postProcessor.setBeanClassLoader(context.getClassLoader());
+		}
+		postProcessor.processConfigBeanDefinitions(beanFactory);
+
+		GZIPOutputStream gzip = new GZIPOutputStream(out);
+		DataOutputStream data = new DataOutputStream(new BufferedOutputStream(gzip));
+		data.writeInt(MAGIC);
+		data.writeInt(VERSION);
+		data.writeUTF(fingerprint(context.getEnvironment(), context.getClassLoader(), target));
+		SnapshotWriter writer = new SnapshotWriter(data);
+		writer.writePropertySources(postProcessor.getPropertySourceDescriptors());
+		writer.writeRegistry(beanFactory);
+		data.flush();
+		gzip.finish();
+	}
+
+	/**
+	 * Restore the bean definitions from the given snapshot into the given
+	 * context, provided that the snapshot matches the current classpath,
+	 * profiles and Spring version.
+	 * <p>Bean definitions already present in the context, e.g. annotation
+	 * config processors, are left as they are. Property sources declared
+	 * through {@code @PropertySource} on the restored configuration classes
+	 * are added to the context's environment.
+	 * @param context the context to register the bean definitions with, not refreshed yet
+	 * @param snapshot the snapshot resource
+	 * @return {@code true} if the snapshot has been restored; {@code false} if
+	 * it does not exist, does not match the current runtime or cannot be read,
+	 * in which case no bean definitions have been registered
+	 */
+	public static boolean load(GenericApplicationContext context, Resource snapshot) {
+		if (!snapshot.exists()) {
+			return false;
+		}
+		ClassLoader classLoader = context.getClassLoader();
+		SnapshotReader reader;
+		try (InputStream in = snapshot.getInputStream()) {
+			DataInputStream data = new DataInputStream(new BufferedInputStream(new GZIPInputStream(in)));
+			if (data.readInt() != MAGIC || data.readInt() != VERSION) {
+				logger.info("Ignoring bean definition snapshot " + snapshot.getDescription() +
+						": unsupported snapshot format");
+				return false;
+			}
+			String fingerprint = data.readUTF();
+			if (!fingerprint.equals(fingerprint(context.getEnvironment(), classLoader, getFile(snapshot)))) {
+				logger.info("Ignoring bean definition snapshot " + snapshot.getDescription() +
+						": classpath, profiles or Spring version differ from build time");
+				return false;
+			}
+			reader = new SnapshotReader(data, classLoader);
+			reader.readPropertySources();
+			reader.readRegistry();
+			PropertySourceRegistry propertySourceRegistry = new PropertySourceRegistry(context.getEnvironment(), context);
+			for (PropertySourceDescriptor descriptor : reader.propertySources) {
+				propertySourceRegistry.processPropertySource(descriptor);
+			}
+		}
+		catch (IOException | ClassNotFoundException | RuntimeException ex) {
+			logger.warn("Ignoring bean definition snapshot " + snapshot.getDescription() + ": " + ex);
+			return false;
+		}
+
+		DefaultListableBeanFactory beanFactory = context.getDefaultListableBeanFactory();
+		Set<String> restoredBeanNames = new LinkedHashSet<>();
+		for (BeanDefinitionHolder holder : reader.holders) {
+			String beanName = holder.getBeanName();
+			if (beanFactory.containsBeanDefinition(beanName)) {
+				continue;
+			}
+			beanFactory.registerBeanDefinition(beanName, holder.getBeanDefinition());
+			if (holder.getAliases() != null) {
+				for (String alias : holder.getAliases()) {
+					beanFactory.registerAlias(beanName, alias);
+				}
+			}
+			restoredBeanNames.add(beanName);
+		}
+		beanFactory.registerSingleton(ConfigurationClassPostProcessor.IMPORT_REGISTRY_BEAN_NAME,
+				new SnapshotImportRegistry(restoredBeanNames, reader.imports, classLoader));
+		if (logger.isDebugEnabled()) {
+			logger.debug("Restored " + restoredBeanNames.size() + " bean definitions from snapshot " +
+					snapshot.getDescription());
+		}
+		return true;
+	}
+
+	/**
+	 * Command-line entry point for build tools: writes a snapshot for the
+	 * given component classes to the given file.
+	 * <p>Active profiles can be specified through the common
+	 * {@code spring.profiles.active} system property.
+	 * @param args the target file, followed by the fully qualified names of
+	 * the component classes to register
+	 */
+	public static void main(String[] args) throws Exception {
+		Assert.isTrue(args.length >= 2, "Usage: BeanDefinitionSnapshot <snapshot file> <component class>...");
+		File target = new File(args[0]);
+		AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+		for (int i = 1; i < args.length; i++) {
+			context.register(ClassUtils.forName(args[i], context.getClassLoader()));
+		}
+		try (OutputStream out = new FileOutputStream(target)) {
+			write(context, out, target);
+		}
+		logger.info("Wrote " + context.getBeanDefinitionCount() + " bean definitions to snapshot " + target);
+	}
+
+
+	/**
+	 * Introspect the given annotated class for the metadata of a restored
+	 * bean definition.
+	 */
+	private static AnnotationMetadata introspect(String className, @Nullable ClassLoader classLoader) {
+		try {
+			return new StandardAnnotationMetadata(ClassUtils.forName(className, classLoader), true);
+		}
+		catch (ClassNotFoundException ex) {
+			throw new IllegalStateException("Cannot load annotated class [" + className + "]", ex);
+		}
+	}
+
+	@Nullable
+	private static File getFile(Resource resource) {
+		try {
+			return (resource.isFile() ? resource.getFile() : null);
+		}
+		catch (IOException ex) {
+			return null;
+		}
+	}
+
+	/**
+	 * Compute a fingerprint of everything that a snapshot was derived from.
+	 * @param environment the environment to take the profiles from
+	 * @param classLoader the ClassLoader that the configuration classes are
+	 * loaded with, determining the classpath roots to include
+	 * @param exclude the snapshot file itself, not to be included in case of
+	 * being located within a classpath directory
+	 * @throws IOException if a classpath root cannot be read or is not
+	 * file-based, in which case it cannot be verified
+	 */
+	static String fingerprint(Environment environment, @Nullable ClassLoader classLoader, @Nullable File exclude)
+			throws IOException {
+
+		StringBuilder sb = new StringBuilder(SpringVersion.getVersion() + ";");
+		sb.append(Arrays.toString(environment.getActiveProfiles()));
+		sb.append(Arrays.toString(environment.getDefaultProfiles()));
+		File excludeFile = (exclude != null ? exclude.getCanonicalFile() : null);
+		for (File root : getClassPathRoots(classLoader)) {
+			sb.append(';').append(root.getName());
+			if (root.exists()) {
+				appendFingerprint(sb, root, excludeFile);
+			}
+		}
+		return DigestUtils.md5DigestAsHex(sb.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Determine the classpath directories and archives that the given
+	 * ClassLoader and its parents load classes from: the URLs of any
+	 * {@code URLClassLoader}, the {@code java.class.path} entries if the
+	 * system ClassLoader is involved, as well as the roots of all directories
+	 * and manifest-bearing archives that the ClassLoader exposes as resources.
+	 * Nested archives are represented by their outermost archive file.
+	 */
+	private static Set<File> getClassPathRoots(@Nullable ClassLoader classLoader) throws IOException {
+		Set<File> roots = new LinkedHashSet<>();
+		ClassLoader systemClassLoader = ClassLoader.getSystemClassLoader();
+		boolean includeSystemClassPath = (classLoader == null);
+		for (ClassLoader current = classLoader; current != null; current = current.getParent()) {
+			if (current instanceof URLClassLoader) {
+				for (URL url : ((URLClassLoader) current).getURLs()) {
+					roots.add(getClassPathRoot(url));
+				}
+			}
+			if (current == systemClassLoader) {
+				includeSystemClassPath = true;
+			}
+		}
+		if (includeSystemClassPath) {
+			String classPath = System.getProperty("java.class.path", "");
+			for (String entry : StringUtils.tokenizeToStringArray(classPath, File.pathSeparator)) {
+				roots.add(new File(entry).getCanonicalFile());
+			}
+		}
+		if (classLoader != null) {
+			for (URL url : Collections.list(classLoader.getResources(""))) {
+				roots.add(getClassPathRoot(url));
+			}
+			for (URL url : Collections.list(classLoader.getResources(JarFile.MANIFEST_NAME))) {
+				roots.add(getClassPathRoot(url));
+			}
+		}
+		return roots;
+	}
+
+	private static File getClassPathRoot(URL url) throws IOException {
+		URL rootUrl = (ResourceUtils.isJarURL(url) ? ResourceUtils.extractArchiveURL(url) : url);
+		if (!ResourceUtils.isFileURL(rootUrl)) {
+			throw new IOException("Cannot verify classpath root [" + url + "]: not file-based");
+		}
+		return ResourceUtils.getFile(rootUrl).getCanonicalFile();
+	}
+
+	private static void appendFingerprint(StringBuilder sb, File file, @Nullable File exclude) throws IOException {
+		if (file.equals(exclude)) {
+			return;
+		}
+		if (file.isDirectory()) {
+			String[] names = file.list();
+			if (names != null) {
+				Arrays.sort(names);
+				for (String name : names) {
+					sb.append('/').append(name);
+					appendFingerprint(sb, new File(file, name), exclude);
+				}
+			}
+		}
+		else if (isArchive(file)) {
+			sb.append(':').append(archiveDigest(file));
+		}
+		else {
+			try (InputStream in = new FileInputStream(file)) {
+				sb.append(':').append(DigestUtils.md5DigestAsHex(in));
+			}
+		}
+	}
+
+	private static boolean isArchive(File file) {
+		String name = file.getName().toLowerCase();
+		return (name.endsWith(".jar") || name.endsWith(".war") || name.endsWith(".zip"));
+	}
+
+	/**
+	 * Digest the name, size and CRC-32 of every entry in the given archive,
+	 * as recorded in its central directory. Nested archives are covered by
+	 * the CRC of their entry.
+	 */
+	private static String archiveDigest(File file) throws IOException {
+		StringBuilder sb = new StringBuilder();
+		try (ZipFile zipFile = new ZipFile(file)) {
+			Enumeration<? extends ZipEntry> entries = zipFile.entries();
+			while (entries.hasMoreElements()) {
+				ZipEntry entry = entries.nextElement();
+				sb.append(entry.getName()).append(':').append(entry.getSize()).append(':')
+						.append(Long.toHexString(entry.getCrc())).append(';');
+			}
+		}
+		return DigestUtils.md5DigestAsHex(sb.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+
+	/**
+	 * Writes bean definitions and the import registry of a bean factory.
+	 */
+	private static class SnapshotWriter {
+
+		private static final byte NULL = 0;
+		private static final byte STRING = 1;
+		private static final byte TYPED_STRING = 2;
+		private static final byte BEAN_REFERENCE = 3;
+		private static final byte BEAN_NAME_REFERENCE = 4;
+		private static final byte BEAN_DEFINITION_HOLDER = 5;
+		private static final byte BEAN_DEFINITION = 6;
+		private static final byte MANAGED_LIST = 7;
+		private static final byte MANAGED_ARRAY = 8;
+		private static final byte MANAGED_SET = 9;
+		private static final byte MANAGED_MAP = 10;
+		private static final byte MANAGED_PROPERTIES = 11;
+		private static final byte LIST = 12;
+		private static final byte SET = 13;
+		private static final byte MAP = 14;
+		private static final byte STRING_ARRAY = 15;
+		private static final byte BOOLEAN = 16;
+		private static final byte INTEGER = 17;
+		private static final byte LONG = 18;
+		private static final byte CLASS = 19;
+		private static final byte ENUM = 20;
+
+		private static final byte GENERIC_DEFINITION = 0;
+		private static final byte ROOT_DEFINITION = 1;
+		private static final byte BEAN_METHOD_DEFINITION = 2;
+
+		private final DataOutputStream out;
+
+		private String currentBeanName = "";
+
+		SnapshotWriter(DataOutputStream out) {
+			this.out = out;
+		}
+
+		void writePropertySources(List<PropertySourceDescriptor> descriptors) throws IOException {
+			this.out.writeInt(descriptors.size());
+			for (PropertySourceDescriptor descriptor : descriptors) {
+				writeStringArray(StringUtils.toStringArray(descriptor.getLocations()));
+				this.out.writeBoolean(descriptor.isIgnoreResourceNotFound());
+				writeNullableString(descriptor.getName());
+				Class<?> factoryClass = descriptor.getPropertySourceFactory();
+				writeNullableString(factoryClass != null ? factoryClass.getName() : null);
+				writeNullableString(descriptor.getEncoding());
+			}
+		}
+
+		void writeRegistry(DefaultListableBeanFactory beanFactory) throws IOException {
+			String[] beanNames = beanFactory.getBeanDefinitionNames();
+			this.out.writeInt(beanNames.length);
+			for (String beanName : beanNames) {
+				this.currentBeanName = beanName;
+				writeHolder(new BeanDefinitionHolder(
+						beanFactory.getBeanDefinition(beanName), beanName, beanFactory.getAliases(beanName)));
+			}
+
+			Map<String, String> imports = new LinkedHashMap<>();
+			Object importRegistry = beanFactory.getSingleton(ConfigurationClassPostProcessor.IMPORT_REGISTRY_BEAN_NAME);
+			if (importRegistry instanceof ImportRegistry) {
+				for (String beanName : beanNames) {
+					String className = beanFactory.getBeanDefinition(beanName).getBeanClassName();
+					if (className != null && !imports.containsKey(className)) {
+						AnnotationMetadata importing = ((ImportRegistry) importRegistry).getImportingClassFor(className);
+						if (importing != null) {
+							imports.put(className, importing.getClassName());
+						}
+					}
+				}
+			}
+			this.out.writeInt(imports.size());
+			for (Map.Entry<String, String> entry : imports.entrySet()) {
+				this.out.writeUTF(entry.getKey());
+				this.out.writeUTF(entry.getValue());
+			}
+		}
+
+		private void writeHolder(BeanDefinitionHolder holder) throws IOException {
+			this.out.writeUTF(holder.getBeanName());
+			String[] aliases = holder.getAliases();
+			writeStringArray(aliases != null ? aliases : new String[0]);
+			writeDefinition(holder.getBeanDefinition());
+		}
+
+		private void writeDefinition(BeanDefinition bd) throws IOException {
+			if (!(bd instanceof AbstractBeanDefinition)) {
+				throw unsupported("bean definition type [" + bd.getClass().getName() + "]");
+			}
+			AbstractBeanDefinition abd = (AbstractBeanDefinition) bd;
+			if (abd.getInstanceSupplier() != null) {
+				throw unsupported("instance supplier");
+			}
+			if (!abd.getMethodOverrides().isEmpty()) {
+				throw unsupported("method overrides");
+			}
+
+			AnnotatedBeanDefinition annotated = (bd instanceof AnnotatedBeanDefinition ?
+					(AnnotatedBeanDefinition) bd : null);
+			RootBeanDefinition rbd = null;
+			if (bd instanceof RootBeanDefinition) {
+				rbd = (RootBeanDefinition) bd;
+				MethodMetadata factoryMethodMetadata = (annotated != null ? annotated.getFactoryMethodMetadata() : null);
+				if (factoryMethodMetadata != null) {
+					this.out.writeByte(BEAN_METHOD_DEFINITION);
+					this.out.writeUTF(annotated.getMetadata().getClassName());
+					this.out.writeUTF(factoryMethodMetadata.getDeclaringClassName());
+				}
+				else if (annotated != null) {
+					throw unsupported("annotated root bean definition type [" + bd.getClass().getName() + "]");
+				}
+				else {
+					this.out.writeByte(ROOT_DEFINITION);
+				}
+			}
+			else {
+				this.out.writeByte(GENERIC_DEFINITION);
+				writeNullableString(abd.getParentName());
+				writeNullableString(annotated != null ? annotated.getMetadata().getClassName() : null);
+			}
+
+			writeNullableString(abd.getBeanClassName());
+			writeNullableString(abd.getScope());
+			this.out.writeBoolean(abd.isAbstract());
+			this.out.writeBoolean(abd.isLazyInit());
+			this.out.writeInt(abd.getAutowireMode());
+			this.out.writeInt(abd.getDependencyCheck());
+			String[] dependsOn = abd.getDependsOn();
+			writeStringArray(dependsOn != null ? dependsOn : new String[0]);
+			this.out.writeBoolean(abd.isAutowireCandidate());
+			this.out.writeBoolean(abd.isPrimary());
+			this.out.writeBoolean(abd.isNonPublicAccessAllowed());
+			this.out.writeBoolean(abd.isLenientConstructorResolution());
+			writeNullableString(abd.getFactoryBeanName());
+			writeNullableString(abd.getFactoryMethodName());
+			writeNullableString(abd.getInitMethodName());
+			this.out.writeBoolean(abd.isEnforceInitMethod());
+			writeNullableString(abd.getDestroyMethodName());
+			this.out.writeBoolean(abd.isEnforceDestroyMethod());
+			this.out.writeBoolean(abd.isSynthetic());
+			this.out.writeInt(abd.getRole());
+			writeNullableString(abd.getDescription());
+			writeNullableString(abd.getResourceDescription());
+
+			Set<AutowireCandidateQualifier> qualifiers = abd.getQualifiers();
+			this.out.writeInt(qualifiers.size());
+			for (AutowireCandidateQualifier qualifier : qualifiers) {
+				this.out.writeUTF(qualifier.getTypeName());
+				writeAttributes(qualifier.attributeNames(), qualifier);
+			}
+
+			ConstructorArgumentValues cargs = abd.getConstructorArgumentValues();
+			this.out.writeInt(cargs.getIndexedArgumentValues().size());
+			for (Map.Entry<Integer, ConstructorArgumentValues.ValueHolder> entry :
+					cargs.getIndexedArgumentValues().entrySet()) {
+				this.out.writeInt(entry.getKey());
+				writeValueHolder(entry.getValue());
+			}
+			List<ConstructorArgumentValues.ValueHolder> genericArgs = cargs.getGenericArgumentValues();
+			this.out.writeInt(genericArgs.size());
+			for (ConstructorArgumentValues.ValueHolder valueHolder : genericArgs) {
+				writeValueHolder(valueHolder);
+			}
+
+			List<PropertyValue> pvs = abd.getPropertyValues().getPropertyValueList();
+			this.out.writeInt(pvs.size());
+			for (PropertyValue pv : pvs) {
+				this.out.writeUTF(pv.getName());
+				this.out.writeBoolean(pv.isOptional());
+				writeValue(pv.getValue());
+			}
+
+			writeAttributes(abd.attributeNames(), abd);
+
+			if (rbd != null) {
+				BeanDefinitionHolder decorated = rbd.getDecoratedDefinition();
+				this.out.writeBoolean(decorated != null);
+				if (decorated != null) {
+					writeHolder(decorated);
+				}
+				Class<?> targetType = rbd.getTargetType();
+				writeNullableString(targetType != null ? targetType.getName() : null);
+			}
+		}
+
+		private void writeValueHolder(ConstructorArgumentValues.ValueHolder valueHolder) throws IOException {
+			writeValue(valueHolder.getValue());
+			writeNullableString(valueHolder.getType());
+			writeNullableString(valueHolder.getName());
+		}
+
+		private void writeAttributes(String[] names, AttributeAccessor accessor) throws IOException {
+			this.out.writeInt(names.length);
+			for (String name : names) {
+				this.out.writeUTF(name);
+				writeValue(accessor.getAttribute(name));
+			}
+		}
+
+		private void writeValue(@Nullable Object value) throws IOException {
+			if (value == null) {
+				this.out.writeByte(NULL);
+			}
+			else if (value instanceof String) {
+				this.out.writeByte(STRING);
+				this.out.writeUTF((String) value);
+			}
+			else if (value instanceof TypedStringValue) {
+				TypedStringValue typedValue = (TypedStringValue) value;
+				this.out.writeByte(TYPED_STRING);
+				writeNullableString(typedValue.getValue());
+				writeNullableString(typedValue.getTargetTypeName());
+			}
+			else if (value instanceof RuntimeBeanReference) {
+				RuntimeBeanReference reference = (RuntimeBeanReference) value;
+				this.out.writeByte(BEAN_REFERENCE);
+				this.out.writeUTF(reference.getBeanName());
+				this.out.writeBoolean(reference.isToParent());
+			}
+			else if (value instanceof RuntimeBeanNameReference) {
+				this.out.writeByte(BEAN_NAME_REFERENCE);
+				this.out.writeUTF(((RuntimeBeanNameReference) value).getBeanName());
+			}
+			else if (value instanceof BeanDefinitionHolder) {
+				this.out.writeByte(BEAN_DEFINITION_HOLDER);
+				writeHolder((BeanDefinitionHolder) value);
+			}
+			else if (value instanceof BeanDefinition) {
+				this.out.writeByte(BEAN_DEFINITION);
+				writeDefinition((BeanDefinition) value);
+			}
+			else if (value instanceof ManagedArray) {
+				ManagedArray array = (ManagedArray) value;
+				this.out.writeByte(MANAGED_ARRAY);
+				this.out.writeUTF(String.valueOf(array.getElementTypeName()));
+				this.out.writeBoolean(array.isMergeEnabled());
+				writeValues(array);
+			}
+			else if (value instanceof ManagedList) {
+				ManagedList<?> list = (ManagedList<?>) value;
+				this.out.writeByte(MANAGED_LIST);
+				writeNullableString(list.getElementTypeName());
+				this.out.writeBoolean(list.isMergeEnabled());
+				writeValues(list);
+			}
+			else if (value instanceof ManagedSet) {
+				ManagedSet<?> set = (ManagedSet<?>) value;
+				this.out.writeByte(MANAGED_SET);
+				writeNullableString(set.getElementTypeName());
+				this.out.writeBoolean(set.isMergeEnabled());
+				writeValues(set);
+			}
+			else if (value instanceof ManagedMap) {
+				ManagedMap<?, ?> map = (ManagedMap<?, ?>) value;
+				this.out.writeByte(MANAGED_MAP);
+				writeNullableString(map.getKeyTypeName());
+				writeNullableString(map.getValueTypeName());
+				this.out.writeBoolean(map.isMergeEnabled());
+				writeEntries(map);
+			}
+			else if (value instanceof ManagedProperties) {
+				ManagedProperties props = (ManagedProperties) value;
+				this.out.writeByte(MANAGED_PROPERTIES);
+				this.out.writeBoolean(props.isMergeEnabled());
+				writeEntries(props);
+			}
+			else if (value instanceof List) {
+				this.out.writeByte(LIST);
+				writeValues((List<?>) value);
+			}
+			else if (value instanceof Set) {
+				this.out.writeByte(SET);
+				writeValues((Set<?>) value);
+			}
+			else if (value instanceof Map) {
+				this.out.writeByte(MAP);
+				writeEntries((Map<?, ?>) value);
+			}
+			else if (value instanceof String[]) {
+				this.out.writeByte(STRING_ARRAY);
+				writeStringArray((String[]) value);
+			}
+			else if (value instanceof Boolean) {
+				this.out.writeByte(BOOLEAN);
+				this.out.writeBoolean((Boolean) value);
+			}
+			else if (value instanceof Integer) {
+				this.out.writeByte(INTEGER);
+				this.out.writeInt((Integer) value);
+			}
+			else if (value instanceof Long) {
+				this.out.writeByte(LONG);
+				this.out.writeLong((Long) value);
+			}
+			else if (value instanceof Class) {
+				this.out.writeByte(CLASS);
+				this.out.writeUTF(((Class<?>) value).getName());
+			}
+			else if (value instanceof Enum) {
+				Enum<?> enumValue = (Enum<?>) value;
+				this.out.writeByte(ENUM);
+				this.out.writeUTF(enumValue.getDeclaringClass().getName());
+				this.out.writeUTF(enumValue.name());
+			}
+			else {
+				throw unsupported("value of type [" + value.getClass().getName() + "]");
+			}
+		}
+
+		private void writeValues(Collection<?> values) throws IOException {
+			this.out.writeInt(values.size());
+			for (Object element : values) {
+				writeValue(element);
+			}
+		}
+
+		private void writeEntries(Map<?, ?> map) throws IOException {
+			this.out.writeInt(map.size());
+			for (Map.Entry<?, ?> entry : map.entrySet()) {
+				writeValue(entry.getKey());
+				writeValue(entry.getValue());
+			}
+		}
+
+		private void writeStringArray(String[] values) throws IOException {
+			this.out.writeInt(values.length);
+			for (String value : values) {
+				this.out.writeUTF(value);
+			}
+		}
+
+		private void writeNullableString(@Nullable String value) throws IOException {
+			this.out.writeBoolean(value != null);
+			if (value != null) {
+				this.out.writeUTF(value);
+			}
+		}
+
+		private BeanDefinitionStoreException unsupported(String what) {
+			return new BeanDefinitionStoreException("Cannot write bean definition '" + this.currentBeanName +
+					"' to snapshot: unsupported " + what);
+		}
+	}
+
+
+	/**
+	 * Reads bean definitions and the import registry written by {@link SnapshotWriter}.
+	 */
+	private static class SnapshotReader {
+
+		private final DataInputStream in;
+
+		@Nullable
+		private final ClassLoader classLoader;
+
+		final List<BeanDefinitionHolder> holders = new ArrayList<>();
+
+		final Map<String, String> imports = new LinkedHashMap<>();
+
+		final List<PropertySourceDescriptor> propertySources = new ArrayList<>();
+
+		SnapshotReader(DataInputStream in, @Nullable ClassLoader classLoader) {
+			this.in = in;
+			this.classLoader = classLoader;
+		}
+
+		void readPropertySources() throws IOException, ClassNotFoundException {
+			int count = this.in.readInt();
+			for (int i = 0; i < count; i++) {
+				List<String> locations = Arrays.asList(readStringArray());
+				boolean ignoreResourceNotFound = this.in.readBoolean();
+				String name = readNullableString();
+				String factoryClassName = readNullableString();
+				Class<? extends PropertySourceFactory> factoryClass = (factoryClassName != null ?
+						ClassUtils.forName(factoryClassName, this.classLoader).asSubclass(PropertySourceFactory.class) :
+						null);
+				this.propertySources.add(new PropertySourceDescriptor(
+						locations, ignoreResourceNotFound, name, factoryClass, readNullableString()));
+			}
+		}
+
+		void readRegistry() throws IOException, ClassNotFoundException {
+			int count = this.in.readInt();
+			for (int i = 0; i < count; i++) {
+				this.holders.add(readHolder());
+			}
+			int importCount = this.in.readInt();
+			for (int i = 0; i < importCount; i++) {
+				this.imports.put(this.in.readUTF(), this.in.readUTF());
+			}
+		}
+
+		private BeanDefinitionHolder readHolder() throws IOException, ClassNotFoundException {
+			String beanName = this.in.readUTF();
+			String[] aliases = readStringArray();
+			return new BeanDefinitionHolder(readDefinition(), beanName, aliases);
+		}
+
+		private AbstractBeanDefinition readDefinition() throws IOException, ClassNotFoundException {
+			byte kind = this.in.readByte();
+			AbstractBeanDefinition abd;
+			if (kind == SnapshotWriter.GENERIC_DEFINITION) {
+				String parentName = readNullableString();
+				String annotatedClassName = readNullableString();
+				abd = (annotatedClassName != null ?
+						new AnnotatedClassDefinition(annotatedClassName, this.classLoader) : new GenericBeanDefinition());
+				abd.setParentName(parentName);
+			}
+			else if (kind == SnapshotWriter.ROOT_DEFINITION) {
+				abd = new RootBeanDefinition();
+			}
+			else if (kind == SnapshotWriter.BEAN_METHOD_DEFINITION) {
+				String configClassName = this.in.readUTF();
+				abd = new BeanMethodDefinition(configClassName, this.in.readUTF(), this.classLoader);
+			}
+			else {
+				throw new IOException("Unknown bean definition kind " + kind);
+			}
+
+			abd.setBeanClassName(readNullableString());
+			abd.setScope(readNullableString());
+			abd.setAbstract(this.in.readBoolean());
+			abd.setLazyInit(this.in.readBoolean());
+			abd.setAutowireMode(this.in.readInt());
+			abd.setDependencyCheck(this.in.readInt());
+			String[] dependsOn = readStringArray();
+			abd.setDependsOn(dependsOn.length > 0 ? dependsOn : null);
+			abd.setAutowireCandidate(this.in.readBoolean());
+			abd.setPrimary(this.in.readBoolean());
+			abd.setNonPublicAccessAllowed(this.in.readBoolean());
+			abd.setLenientConstructorResolution(this.in.readBoolean());
+			abd.setFactoryBeanName(readNullableString());
+			abd.setFactoryMethodName(readNullableString());
+			abd.setInitMethodName(readNullableString());
+			abd.setEnforceInitMethod(this.in.readBoolean());
+			abd.setDestroyMethodName(readNullableString());
+			abd.setEnforceDestroyMethod(this.in.readBoolean());
+			abd.setSynthetic(this.in.readBoolean());
+			abd.setRole(this.in.readInt());
+			abd.setDescription(readNullableString());
+			abd.setResourceDescription(readNullableString());
+
+			int qualifierCount = this.in.readInt();
+			for (int i = 0; i < qualifierCount; i++) {
+				AutowireCandidateQualifier qualifier = new AutowireCandidateQualifier(this.in.readUTF());
+				int attributeCount = this.in.readInt();
+				for (int j = 0; j < attributeCount; j++) {
+					String name = this.in.readUTF();
+					qualifier.addMetadataAttribute(new BeanMetadataAttribute(name, readValue()));
+				}
+				abd.addQualifier(qualifier);
+			}
+
+			ConstructorArgumentValues cargs = abd.getConstructorArgumentValues();
+			int indexedCount = this.in.readInt();
+			for (int i = 0; i < indexedCount; i++) {
+				int index = this.in.readInt();
+				cargs.addIndexedArgumentValue(index, readValueHolder());
+			}
+			int genericCount = this.in.readInt();
+			for (int i = 0; i < genericCount; i++) {
+				cargs.addGenericArgumentValue(readValueHolder());
+			}
+
+			MutablePropertyValues pvs = abd.getPropertyValues();
+			int propertyCount = this.in.readInt();
+			for (int i = 0; i < propertyCount; i++) {
+				String name = this.in.readUTF();
+				boolean optional = this.in.readBoolean();
+				PropertyValue pv = new PropertyValue(name, readValue());
+				pv.setOptional(optional);
+				pvs.addPropertyValue(pv);
+			}
+
+			int attributeCount = this.in.readInt();
+			for (int i = 0; i < attributeCount; i++) {
+				String name = this.in.readUTF();
+				abd.setAttribute(name, readValue());
+			}
+
+			if (abd instanceof RootBeanDefinition) {
+				RootBeanDefinition rbd = (RootBeanDefinition) abd;
+				if (this.in.readBoolean()) {
+					rbd.setDecoratedDefinition(readHolder());
+				}
+				String targetType = readNullableString();
+				if (targetType != null) {
+					rbd.setTargetType(ClassUtils.forName(targetType, this.classLoader));
+				}
+			}
+			return abd;
+		}
+
+		private ConstructorArgumentValues.ValueHolder readValueHolder() throws IOException, ClassNotFoundException {
+			Object value = readValue();
+			return new ConstructorArgumentValues.ValueHolder(value, readNullableString(), readNullableString());
+		}
+
+		@Nullable
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		private Object readValue() throws IOException, ClassNotFoundException {
+			byte type = this.in.readByte();
+			switch (type) {
+				case SnapshotWriter.NULL:
+					return null;
+				case SnapshotWriter.STRING:
+					return this.in.readUTF();
+				case SnapshotWriter.TYPED_STRING: {
+					TypedStringValue typedValue = new TypedStringValue(readNullableString());
+					typedValue.setTargetTypeName(readNullableString());
+					return typedValue;
+				}
+				case SnapshotWriter.BEAN_REFERENCE:
+					return new RuntimeBeanReference(this.in.readUTF(), this.in.readBoolean());
+				case SnapshotWriter.BEAN_NAME_REFERENCE:
+					return new RuntimeBeanNameReference(this.in.readUTF());
+				case SnapshotWriter.BEAN_DEFINITION_HOLDER:
+					return readHolder();
+				case SnapshotWriter.BEAN_DEFINITION:
+					return readDefinition();
+				case SnapshotWriter.MANAGED_ARRAY: {
+					String elementTypeName = this.in.readUTF();
+					boolean mergeEnabled = this.in.readBoolean();
+					int size = this.in.readInt();
+					ManagedArray array = new ManagedArray(elementTypeName, size);
+					array.setMergeEnabled(mergeEnabled);
+					readValues(array, size);
+					return array;
+				}
+				case SnapshotWriter.MANAGED_LIST: {
+					ManagedList<Object> list = new ManagedList<>();
+					list.setElementTypeName(readNullableString());
+					list.setMergeEnabled(this.in.readBoolean());
+					readValues(list, this.in.readInt());
+					return list;
+				}
+				case SnapshotWriter.MANAGED_SET: {
+					ManagedSet<Object> set = new ManagedSet<>();
+					set.setElementTypeName(readNullableString());
+					set.setMergeEnabled(this.in.readBoolean());
+					readValues(set, this.in.readInt());
+					return set;
+				}
+				case SnapshotWriter.MANAGED_MAP: {
+					ManagedMap<Object, Object> map = new ManagedMap<>();
+					map.setKeyTypeName(readNullableString());
+					map.setValueTypeName(readNullableString());
+					map.setMergeEnabled(this.in.readBoolean());
+					readEntries(map);
+					return map;
+				}
+				case SnapshotWriter.MANAGED_PROPERTIES: {
+					ManagedProperties props = new ManagedProperties();
+					props.setMergeEnabled(this.in.readBoolean());
+					readEntries(props);
+					return props;
+				}
+				case SnapshotWriter.LIST: {
+					int size = this.in.readInt();
+					List<Object> list = new ArrayList<>(size);
+					readValues(list, size);
+					return list;
+				}
+				case SnapshotWriter.SET: {
+					int size = this.in.readInt();
+					Set<Object> set = new LinkedHashSet<>(size);
+					readValues(set, size);
+					return set;
+				}
+				case SnapshotWriter.MAP: {
+					Map<Object, Object> map = new LinkedHashMap<>();
+					readEntries(map);
+					return map;
+				}
+				case SnapshotWriter.STRING_ARRAY:
+					return readStringArray();
+				case SnapshotWriter.BOOLEAN:
+					return this.in.readBoolean();
+				case SnapshotWriter.INTEGER:
+					return this.in.readInt();
+				case SnapshotWriter.LONG:
+					return this.in.readLong();
+				case SnapshotWriter.CLASS:
+					return ClassUtils.forName(this.in.readUTF(), this.classLoader);
+				case SnapshotWriter.ENUM: {
+					Class<?> enumType = ClassUtils.forName(this.in.readUTF(), this.classLoader);
+					return Enum.valueOf((Class<Enum>) enumType, this.in.readUTF());
+				}
+				default:
+					throw new IOException("Unknown value type " + type);
+			}
+		}
+
+		private void readValues(Collection<Object> target, int size) throws IOException, ClassNotFoundException {
+			for (int i = 0; i < size; i++) {
+				target.add(readValue());
+			}
+		}
+
+		private void readEntries(Map<Object, Object> target) throws IOException, ClassNotFoundException {
+			int size = this.in.readInt();
+			for (int i = 0; i < size; i++) {
+				Object key = readValue();
+				target.put(key, readValue());
+			}
+		}
+
+		private String[] readStringArray() throws IOException {
+			String[] values = new String[this.in.readInt()];
+			for (int i = 0; i < values.length; i++) {
+				values[i] = this.in.readUTF();
+			}
+			return values;
+		}
+
+		@Nullable
+		private String readNullableString() throws IOException {
+			return (this.in.readBoolean() ? this.in.readUTF() : null);
+		}
+	}
+
+
+	/**
+	 * Restored definition of an annotated class, e.g. a scanned component
+	 * or an imported configuration class, introspecting the class when its
+	 * metadata is first requested.
+	 */
+	@SuppressWarnings("serial")
+	private static class AnnotatedClassDefinition extends GenericBeanDefinition implements AnnotatedBeanDefinition {
+
+		private final String annotatedClassName;
+
+		@Nullable
+		private final transient ClassLoader classLoader;
+
+		@Nullable
+		private transient volatile AnnotationMetadata metadata;
+
+		AnnotatedClassDefinition(String annotatedClassName, @Nullable ClassLoader classLoader) {
+			this.annotatedClassName = annotatedClassName;
+			this.classLoader = classLoader;
+		}
+
+		AnnotatedClassDefinition(AnnotatedClassDefinition original) {
+			super(original);
+			this.annotatedClassName = original.annotatedClassName;
+			this.classLoader = original.classLoader;
+			this.metadata = original.metadata;
+		}
+
+		@Override
+		public AnnotationMetadata getMetadata() {
+			AnnotationMetadata metadata = this.metadata;
+			if (metadata == null) {
+				metadata = introspect(this.annotatedClassName, this.classLoader);
+				this.metadata = metadata;
+			}
+			return metadata;
+		}
+
+		@Override
+		@Nullable
+		public MethodMetadata getFactoryMethodMetadata() {
+			return null;
+		}
+
+		@Override
+		public AnnotatedClassDefinition cloneBeanDefinition() {
+			return new AnnotatedClassDefinition(this);
+		}
+	}
+
+
+	/**
+	 * Restored definition of a {@code @Bean} method, only considering
+	 * {@code @Bean}-annotated methods as factory method candidates,
+	 * just like the original definition derived from the configuration class,
+	 * and introspecting the configuration class and the {@code @Bean} method
+	 * when their metadata is first requested.
+	 */
+	@SuppressWarnings("serial")
+	private static class BeanMethodDefinition extends RootBeanDefinition implements AnnotatedBeanDefinition {
+
+		private final String configClassName;
+
+		private final String declaringClassName;
+
+		@Nullable
+		private final transient ClassLoader classLoader;
+
+		@Nullable
+		private transient volatile AnnotationMetadata metadata;
+
+		@Nullable
+		private transient volatile MethodMetadata factoryMethodMetadata;
+
+		BeanMethodDefinition(String configClassName, String declaringClassName, @Nullable ClassLoader classLoader) {
+			this.configClassName = configClassName;
+			this.declaringClassName = declaringClassName;
+			this.classLoader = classLoader;
+		}
+
+		BeanMethodDefinition(BeanMethodDefinition original) {
+			super(original);
+			this.configClassName = original.configClassName;
+			this.declaringClassName = original.declaringClassName;
+			this.classLoader = original.classLoader;
+			this.metadata = original.metadata;
+			this.factoryMethodMetadata = original.factoryMethodMetadata;
+		}
+
+		@Override
+		public AnnotationMetadata getMetadata() {
+			AnnotationMetadata metadata = this.metadata;
+			if (metadata == null) {
+				metadata = introspect(this.configClassName, this.classLoader);
+				this.metadata = metadata;
+			}
+			return metadata;
+		}
+
+		@Override
+		public MethodMetadata getFactoryMethodMetadata() {
+			MethodMetadata factoryMethodMetadata = this.factoryMethodMetadata;
+			if (factoryMethodMetadata == null) {
+				factoryMethodMetadata = new StandardMethodMetadata(getBeanMethod(), true);
+				this.factoryMethodMetadata = factoryMethodMetadata;
+			}
+			return factoryMethodMetadata;
+		}
+
+		private Method getBeanMethod() {
+			Method resolved = getResolvedFactoryMethod();
+			if (resolved != null && resolved.getDeclaringClass().getName().equals(this.declaringClassName)) {
+				return resolved;
+			}
+			try {
+				Class<?> declaringClass = ClassUtils.forName(this.declaringClassName, this.classLoader);
+				for (Method candidate : declaringClass.getDeclaredMethods()) {
+					if (candidate.getName().equals(getFactoryMethodName()) &&
+							BeanAnnotationHelper.isBeanAnnotated(candidate)) {
+						return candidate;
+					}
+				}
+			}
+			catch (ClassNotFoundException ex) {
+				throw new IllegalStateException("Cannot load configuration class [" + this.declaringClassName + "]", ex);
+			}
+			throw new IllegalStateException("No @Bean method '" + getFactoryMethodName() + "' found in class [" +
+					this.declaringClassName + "]");
+		}
+
+		@Override
+		public boolean isFactoryMethod(Method candidate) {
+			return (super.isFactoryMethod(candidate) && BeanAnnotationHelper.isBeanAnnotated(candidate));
+		}
+
+		@Override
+		public BeanMethodDefinition cloneBeanDefinition() {
+			return new BeanMethodDefinition(this);
+		}
+	}
+
+
+	/**
+	 * {@link ImportRegistry} restored from a snapshot, also keeping track of
+	 * the restored bean names in order for {@link ConfigurationClassPostProcessor}
+	 * to skip them.
+	 */
+	static class SnapshotImportRegistry implements ImportRegistry {
+
+		private final Set<String> beanNames;
+
+		private final Map<String, String> imports;
+
+		@Nullable
+		private final ClassLoader classLoader;
+
+		@Nullable
+		private volatile ImportRegistry fallback;
+
+		SnapshotImportRegistry(Set<String> beanNames, Map<String, String> imports, @Nullable ClassLoader classLoader) {
+			this.beanNames = Collections.unmodifiableSet(beanNames);
+			this.imports = Collections.synchronizedMap(new LinkedHashMap<>(imports));
+			this.classLoader = classLoader;
+		}
+
+		/**
+		 * Return the names of the bean definitions restored from the snapshot.
+		 */
+		public Set<String> getBeanNames() {
+			return this.beanNames;
+		}
+
+		/**
+		 * Set an import registry to consult for classes that have not been
+		 * restored from the snapshot but have been parsed at startup.
+		 */
+		public void setFallback(ImportRegistry fallback) {
+			this.fallback = fallback;
+		}
+
+		@Override
+		@Nullable
+		public AnnotationMetadata getImportingClassFor(String importedClass) {
+			String importingClass = this.imports.get(importedClass);
+			if (importingClass != null) {
+				return introspect(importingClass, this.classLoader);
+			}
+			ImportRegistry fallback = this.fallback;
+			return (fallback != null ? fallback.getImportingClassFor(importedClass) : null);
+		}
+
+		@Override
+		public void removeImportingClass(String importingClass) {
+			this.imports.values().removeIf(importingClass::equals);
+			ImportRegistry fallback = this.fallback;
+			if (fallback != null) {
+				fallback.removeImportingClass(importingClass);
+			}
+		}
+	}
+
+}
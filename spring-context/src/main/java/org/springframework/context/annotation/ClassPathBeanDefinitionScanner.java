@@ -31,6 +31,8 @@ import org.springframework.core.env.Environment;
 import org.springframework.core.env.EnvironmentCapable;
 import org.springframework.core.env.StandardEnvironment;
 import org.springframework.core.io.ResourceLoader;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
 import org.springframework.util.PatternMatchUtils;
@@ -292,7 +294,10 @@ public class ClassPathBeanDefinitionScanner extends ClassPathScanningCandidateCo
 		 * 扫描basePackage路径下的java文件
 		 * 先全部转为Resource,然后再判断拿出符合条件的bd
 		 */
+		ApplicationStartup applicationStartup = AnnotationConfigUtils.getApplicationStartup(this.registry);
 		for (String basePackage : basePackages) {
+			StartupStep scanPackage = applicationStartup.start("spring.context.base-package.scan")
+					.tag("package", basePackage);
 			// 调用findCandidateComponents扫描包组装BeanDefinition集合
 			//findCandidateComponents方法为父类方法,根据@Component @Name 等。。
 			Set<BeanDefinition> candidates = findCandidateComponents(basePackage);
@@ -327,6 +332,7 @@ public class ClassPathBeanDefinitionScanner extends ClassPathScanningCandidateCo
 					registerBeanDefinition(definitionHolder, this.registry);
 				}
 			}
+			scanPackage.tag("candidateCount", () -> String.valueOf(candidates.size())).end();
 		}
 		return beanDefinitions;
 	}
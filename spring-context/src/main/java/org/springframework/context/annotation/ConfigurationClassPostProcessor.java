@@ -56,6 +56,7 @@ import org.springframework.core.env.Environment;
 import org.springframework.core.env.StandardEnvironment;
 import org.springframework.core.io.DefaultResourceLoader;
 import org.springframework.core.io.ResourceLoader;
+import org.springframework.core.metrics.StartupStep;
 import org.springframework.core.type.AnnotationMetadata;
 import org.springframework.core.type.classreading.CachingMetadataReaderFactory;
 import org.springframework.core.type.classreading.MetadataReaderFactory;
@@ -86,7 +87,7 @@ import static org.springframework.context.annotation.AnnotationConfigUtils.CONFI
 public class ConfigurationClassPostProcessor implements BeanDefinitionRegistryPostProcessor,
 		PriorityOrdered, ResourceLoaderAware, BeanClassLoaderAware, EnvironmentAware {
 
-	private static final String IMPORT_REGISTRY_BEAN_NAME =
+	static final String IMPORT_REGISTRY_BEAN_NAME =
 			ConfigurationClassPostProcessor.class.getName() + ".importRegistry";
 
 
@@ -115,6 +116,8 @@ public class ConfigurationClassPostProcessor implements BeanDefinitionRegistryPo
 	@Nullable
 	private ConfigurationClassBeanDefinitionReader reader;
 
+	private final List<PropertySourceDescriptor> propertySourceDescriptors = new ArrayList<>();
+
 	private boolean localBeanNameGeneratorSet = false;
 
 	/* Using short class names as default bean names */
@@ -270,6 +273,13 @@ public class ConfigurationClassPostProcessor implements BeanDefinitionRegistryPo
 		 * 获取注册的所有beanName
 		 */
 		String[] candidateNames = registry.getBeanDefinitionNames();
+		BeanDefinitionSnapshot.SnapshotImportRegistry snapshotImportRegistry = null;
+		if (registry instanceof SingletonBeanRegistry) {
+			Object importRegistry = ((SingletonBeanRegistry) registry).getSingleton(IMPORT_REGISTRY_BEAN_NAME);
+			if (importRegistry instanceof BeanDefinitionSnapshot.SnapshotImportRegistry) {
+				snapshotImportRegistry = (BeanDefinitionSnapshot.SnapshotImportRegistry) importRegistry;
+			}
+		}
 		/**
 		 * 循环处理所有BeanDefinition，找到配置类
 		 *      比如下面配置类，找到后spring就知道从哪里扫描啦
@@ -294,6 +304,11 @@ public class ConfigurationClassPostProcessor implements BeanDefinitionRegistryPo
 					logger.debug("Bean definition has already been processed as a configuration class: " + beanDef);
 				}
 			}
+			else if (snapshotImportRegistry != null && snapshotImportRegistry.getBeanNames().contains(beanName)) {
+				if (logger.isTraceEnabled()) {
+					logger.trace("Bean definition has been restored from a snapshot: " + beanDef);
+				}
+			}
 			// checkConfigurationClassCandidate()会判断一个是否是一个配置类,并为BeanDefinition设置属性为lite或者full。
 			// 在这儿为BeanDefinition设置lite和full属性值是为了后面在使用
 			// 如果加了@Configuration，那么对应的BeanDefinition为full;
@@ -373,6 +388,8 @@ public class ConfigurationClassPostProcessor implements BeanDefinitionRegistryPo
 			// 通过其他注解(例如@Import、@Bean)的方式，在parse()方法这一步并不会将其解析为BeanDefinition
 			// 放入到BeanDefinitionMap中，而是先解析成ConfigurationClass类
 			// 真正放入到map中是在下面的this.reader.loadBeanDefinitions()方法中实现的
+			StartupStep processConfig = AnnotationConfigUtils.getApplicationStartup(registry)
+					.start("spring.context.config-classes.parse");
 			parser.parse(candidates);
 
 			//将解析完的@Configuration配置类进行校验，主要包括两方面的校验：
@@ -403,6 +420,7 @@ public class ConfigurationClassPostProcessor implements BeanDefinitionRegistryPo
 			// 因此需要执行一次loadBeanDefinition()，这样就会执行ImportBeanDefinitionRegistrar或者ImportSelector接口的方法或者@Bean注释的方法
 			this.reader.loadBeanDefinitions(configClasses);
 			alreadyParsed.addAll(configClasses);
+			processConfig.tag("classCount", () -> String.valueOf(configClasses.size())).end();
 
 			candidates.clear();
 
@@ -434,10 +452,15 @@ public class ConfigurationClassPostProcessor implements BeanDefinitionRegistryPo
 		}
 		while (!candidates.isEmpty());
 
+		this.propertySourceDescriptors.addAll(parser.getPropertySourceDescriptors());
+
 		// Register the ImportRegistry as a bean in order to support ImportAware @Configuration classes
 		if (sbr != null && !sbr.containsSingleton(IMPORT_REGISTRY_BEAN_NAME)) {
 			sbr.registerSingleton(IMPORT_REGISTRY_BEAN_NAME, parser.getImportRegistry());
 		}
+		else if (snapshotImportRegistry != null) {
+			snapshotImportRegistry.setFallback(parser.getImportRegistry());
+		}
 
 		if (this.metadataReaderFactory instanceof CachingMetadataReaderFactory) {
 			// Clear cache in externally provided MetadataReaderFactory; this is a no-op
@@ -446,6 +469,14 @@ public class ConfigurationClassPostProcessor implements BeanDefinitionRegistryPo
 		}
 	}
 
+	/**
+	 * Return the descriptors of the {@code @PropertySource} declarations that
+	 * have been added to the environment by {@link #processConfigBeanDefinitions}.
+	 */
+	List<PropertySourceDescriptor> getPropertySourceDescriptors() {
+		return this.propertySourceDescriptors;
+	}
+
 	/**
 	 * Post-processes a BeanFactory in search of Configuration class BeanDefinitions;
 	 * any candidates are then enhanced by a {@link ConfigurationClassEnhancer}.
@@ -477,6 +508,7 @@ public class ConfigurationClassPostProcessor implements BeanDefinitionRegistryPo
 			return;
 		}
 
+		StartupStep enhanceConfigClasses = beanFactory.getApplicationStartup().start("spring.context.config-classes.enhance");
 		ConfigurationClassEnhancer enhancer = new ConfigurationClassEnhancer();
 		for (Map.Entry<String, AbstractBeanDefinition> entry : configBeanDefs.entrySet()) {
 			AbstractBeanDefinition beanDef = entry.getValue();
@@ -500,6 +532,7 @@ public class ConfigurationClassPostProcessor implements BeanDefinitionRegistryPo
 				throw new IllegalStateException("Cannot load configuration class: " + beanDef.getBeanClassName(), ex);
 			}
 		}
+		enhanceConfigClasses.tag("classCount", () -> String.valueOf(configBeanDefs.size())).end();
 	}
 
 
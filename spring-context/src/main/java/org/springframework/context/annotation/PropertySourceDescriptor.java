@@ -0,0 +1,98 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.annotation;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.core.io.support.PropertySourceFactory;
+import org.springframework.lang.Nullable;
+
+/**
+ * Describes a {@link PropertySource @PropertySource} declaration with its
+ * locations already resolved against the {@code Environment}, so that the
+ * property sources can be added again without parsing the declaring class.
+ *
+ * @author agent
+ * @since 5.1.20
+ * @see PropertySourceRegistry
+ */
+final class PropertySourceDescriptor {
+
+	private final List<String> locations;
+
+	private final boolean ignoreResourceNotFound;
+
+	@Nullable
+	private final String name;
+
+	@Nullable
+	private final Class<? extends PropertySourceFactory> propertySourceFactory;
+
+	@Nullable
+	private final String encoding;
+
+
+	/**
+	 * Create a new {@code PropertySourceDescriptor}.
+	 * @param locations the resolved resource locations
+	 * @param ignoreResourceNotFound whether a missing resource should be ignored
+	 * @param name the name of the property source, or {@code null} to derive one
+	 * @param propertySourceFactory the factory to use, or {@code null} for the default
+	 * @param encoding the encoding of the resources, or {@code null} for the default
+	 */
+	PropertySourceDescriptor(List<String> locations, boolean ignoreResourceNotFound, @Nullable String name,
+			@Nullable Class<? extends PropertySourceFactory> propertySourceFactory, @Nullable String encoding) {
+
+		this.locations = Collections.unmodifiableList(locations);
+		this.ignoreResourceNotFound = ignoreResourceNotFound;
+		this.name = name;
+		this.propertySourceFactory = propertySourceFactory;
+		this.encoding = encoding;
+	}
+
+
+	public List<String> getLocations() {
+		return this.locations;
+	}
+
+	public boolean isIgnoreResourceNotFound() {
+		return this.ignoreResourceNotFound;
+	}
+
+	@Nullable
+	public String getName() {
+		return this.name;
+	}
+
+	@Nullable
+	public Class<? extends PropertySourceFactory> getPropertySourceFactory() {
+		return this.propertySourceFactory;
+	}
+
+	@Nullable
+	public String getEncoding() {
+		return this.encoding;
+	}
+
+	@Override
+	public String toString() {
+		return "PropertySourceDescriptor: locations=" + this.locations +
+				", name=" + this.name;
+	}
+
+}
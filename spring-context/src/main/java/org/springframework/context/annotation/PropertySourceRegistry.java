@@ -0,0 +1,199 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.annotation;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.SocketException;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.core.annotation.AnnotationAttributes;
+import org.springframework.core.env.CompositePropertySource;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MutablePropertySources;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.core.io.support.DefaultPropertySourceFactory;
+import org.springframework.core.io.support.EncodedResource;
+import org.springframework.core.io.support.PropertySourceFactory;
+import org.springframework.core.io.support.ResourcePropertySource;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+/**
+ * Adds the property sources declared through {@link PropertySource @PropertySource}
+ * to a {@link ConfigurableEnvironment}, keeping a {@link PropertySourceDescriptor}
+ * of every declaration processed so far.
+ *
+ * <p>Used by {@link ConfigurationClassParser}, and by {@link BeanDefinitionSnapshot}
+ * to add the property sources recorded at build time when restoring a snapshot.
+ *
+ * @author agent
+ * @since 5.1.20
+ */
+class PropertySourceRegistry {
+
+	private static final PropertySourceFactory DEFAULT_PROPERTY_SOURCE_FACTORY = new DefaultPropertySourceFactory();
+
+
+	private final Log logger = LogFactory.getLog(getClass());
+
+	private final ConfigurableEnvironment environment;
+
+	private final ResourceLoader resourceLoader;
+
+	private final List<String> propertySourceNames = new ArrayList<>();
+
+	private final List<PropertySourceDescriptor> descriptors = new ArrayList<>();
+
+
+	PropertySourceRegistry(ConfigurableEnvironment environment, ResourceLoader resourceLoader) {
+		this.environment = environment;
+		this.resourceLoader = resourceLoader;
+	}
+
+
+	/**
+	 * Process the given <code>@PropertySource</code> annotation metadata,
+	 * resolving placeholders in its locations against the environment.
+	 * @param propertySource metadata for the <code>@PropertySource</code> annotation found
+	 * @throws IOException if loading a property source failed
+	 */
+	public void processPropertySource(AnnotationAttributes propertySource) throws IOException {
+		String name = propertySource.getString("name");
+		if (!StringUtils.hasLength(name)) {
+			name = null;
+		}
+		String encoding = propertySource.getString("encoding");
+		if (!StringUtils.hasLength(encoding)) {
+			encoding = null;
+		}
+		String[] locations = propertySource.getStringArray("value");
+		Assert.isTrue(locations.length > 0, "At least one @PropertySource(value) location is required");
+		boolean ignoreResourceNotFound = propertySource.getBoolean("ignoreResourceNotFound");
+
+		Class<? extends PropertySourceFactory> factoryClass = propertySource.getClass("factory");
+		if (factoryClass == PropertySourceFactory.class) {
+			factoryClass = null;
+		}
+
+		List<String> resolvedLocations = new ArrayList<>(locations.length);
+		for (String location : locations) {
+			try {
+				resolvedLocations.add(this.environment.resolveRequiredPlaceholders(location));
+			}
+			catch (IllegalArgumentException ex) {
+				// Placeholders not resolvable
+				if (ignoreResourceNotFound) {
+					if (logger.isInfoEnabled()) {
+						logger.info("Properties location [" + location + "] not resolvable: " + ex.getMessage());
+					}
+				}
+				else {
+					throw ex;
+				}
+			}
+		}
+		processPropertySource(new PropertySourceDescriptor(
+				resolvedLocations, ignoreResourceNotFound, name, factoryClass, encoding));
+	}
+
+	/**
+	 * Add the property sources for the given descriptor, whose locations
+	 * have been resolved already.
+	 * @param descriptor the descriptor of the property sources to add
+	 * @throws IOException if loading a property source failed
+	 */
+	public void processPropertySource(PropertySourceDescriptor descriptor) throws IOException {
+		Class<? extends PropertySourceFactory> factoryClass = descriptor.getPropertySourceFactory();
+		PropertySourceFactory factory = (factoryClass != null ?
+				BeanUtils.instantiateClass(factoryClass) : DEFAULT_PROPERTY_SOURCE_FACTORY);
+
+		this.descriptors.add(descriptor);
+		for (String location : descriptor.getLocations()) {
+			try {
+				Resource resource = this.resourceLoader.getResource(location);
+				addPropertySource(factory.createPropertySource(
+						descriptor.getName(), new EncodedResource(resource, descriptor.getEncoding())));
+			}
+			catch (IllegalArgumentException | FileNotFoundException | UnknownHostException | SocketException ex) {
+				// Resource not found when trying to open it
+				if (descriptor.isIgnoreResourceNotFound()) {
+					if (logger.isInfoEnabled()) {
+						logger.info("Properties location [" + location + "] not resolvable: " + ex.getMessage());
+					}
+				}
+				else {
+					throw ex;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Return the descriptors of all property source declarations processed
+	 * so far, in processing order.
+	 */
+	public List<PropertySourceDescriptor> getDescriptors() {
+		return Collections.unmodifiableList(this.descriptors);
+	}
+
+	private void addPropertySource(PropertySource<?> propertySource) {
+		String name = propertySource.getName();
+		MutablePropertySources propertySources = this.environment.getPropertySources();
+
+		if (this.propertySourceNames.contains(name)) {
+			// We've already added a version, we need to extend it
+			PropertySource<?> existing = propertySources.get(name);
+			if (existing != null) {
+				PropertySource<?> newSource = (propertySource instanceof ResourcePropertySource ?
+						((ResourcePropertySource) propertySource).withResourceName() : propertySource);
+				if (existing instanceof CompositePropertySource) {
+					((CompositePropertySource) existing).addFirstPropertySource(newSource);
+				}
+				else {
+					if (existing instanceof ResourcePropertySource) {
+						existing = ((ResourcePropertySource) existing).withResourceName();
+					}
+					CompositePropertySource composite = new CompositePropertySource(name);
+					composite.addPropertySource(newSource);
+					composite.addPropertySource(existing);
+					propertySources.replace(name, composite);
+				}
+				return;
+			}
+		}
+
+		if (this.propertySourceNames.isEmpty()) {
+			propertySources.addLast(propertySource);
+		}
+		else {
+			String firstProcessed = this.propertySourceNames.get(this.propertySourceNames.size() - 1);
+			propertySources.addBefore(firstProcessed, propertySource);
+		}
+		this.propertySourceNames.add(name);
+	}
+
+}
@@ -77,6 +77,9 @@ import org.springframework.core.io.Resource;
 import org.springframework.core.io.ResourceLoader;
 import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
 import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.expression.spel.standard.SpelExpressionCache;
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
 import org.springframework.util.CollectionUtils;
@@ -221,6 +224,10 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 	@Nullable
 	private Set<ApplicationEvent> earlyApplicationEvents;
 
+	/** Application startup metrics. */
+	// 记录启动过程中各步骤耗时的ApplicationStartup
+	private ApplicationStartup applicationStartup = ApplicationStartup.DEFAULT;
+
 
 	/**
 	 * Create a new AbstractApplicationContext with no parent.
@@ -482,6 +489,17 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 		}
 	}
 
+	@Override
+	public void setApplicationStartup(ApplicationStartup applicationStartup) {
+		Assert.notNull(applicationStartup, "applicationStartup should not be null");
+		this.applicationStartup = applicationStartup;
+	}
+
+	@Override
+	public ApplicationStartup getApplicationStartup() {
+		return this.applicationStartup;
+	}
+
 	@Override
 	public void addBeanFactoryPostProcessor(BeanFactoryPostProcessor postProcessor) {
 		Assert.notNull(postProcessor, "BeanFactoryPostProcessor must not be null");
@@ -515,6 +533,8 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 	@Override
 	public void refresh() throws BeansException, IllegalStateException {
 		synchronized (this.startupShutdownMonitor) {
+			StartupStep contextRefresh = this.applicationStartup.start("spring.context.refresh");
+
 			// Prepare this context for refinvokeBeanFactoryPostProcessorsreshing.
 			//刷新前的预处理
 			// 做一些准备工作，记录容器的启动时间、标记“已启动”状态、检查环境变量等
@@ -553,7 +573,10 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 				//spring是先调用内置的BeanFactoryPostProcessor
 				// 再调用程序员自定义的BeanFactoryPostProcessor
 				//先执行postProcessBeanDefinitionRegistry，再执行postProcessBeanFactory
+				StartupStep beanFactoryPostProcessorsInvocation =
+						this.applicationStartup.start("spring.context.bean-factory-post-processors.invoke");
 				invokeBeanFactoryPostProcessors(beanFactory);
+				beanFactoryPostProcessorsInvocation.end();
 
 				//BeanFactoryPostProcessor后置处理器干预了BeanDefinition的生成，
 				// 而BeanPostProcessors 干预了bean的实例化
@@ -562,7 +585,10 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 				//注册BeanPostProcessor（Bean的后置处理器），在创建bean的前后等执行
 
 				// 扩展点,注册 BeanPostProcessor 的实现类，注意不是BeanFactoryPostProcessor
+				StartupStep beanPostProcessorsRegistration =
+						this.applicationStartup.start("spring.context.bean-post-processors.register");
 				registerBeanPostProcessors(beanFactory);
+				beanPostProcessorsRegistration.end();
 
 				// Initialize message source for this context.
 				//初始化MessageSource组件（做国际化功能；消息绑定，消息解析）；
@@ -586,7 +612,9 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 				// Instantiate all remaining (non-lazy-init) singletons.
 				//开始实例化单例的bean
 				//初始化所有剩下的非懒加载的单例bean
+				StartupStep singletonsInstantiation = this.applicationStartup.start("spring.context.singletons.instantiate");
 				finishBeanFactoryInitialization(beanFactory);
+				singletonsInstantiation.end();
 
 				// Last step: publish corresponding event.
 				//完成context的刷新。主要是调用LifecycleProcessor的onRefresh()方法，
@@ -617,6 +645,7 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 				// might not ever need metadata for singleton beans anymore...
 				// 清除缓存
 				resetCommonCaches();
+				contextRefresh.end();
 			}
 		}
 	}
@@ -691,6 +720,7 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 		// Tell the internal bean factory to use the context's class loader etc.
 		//设置BeanFactory的类加载器
 		beanFactory.setBeanClassLoader(getClassLoader());
+		beanFactory.setApplicationStartup(getApplicationStartup());
 		//设置支持表达式解析器
 		beanFactory.setBeanExpressionResolver(new StandardBeanExpressionResolver(beanFactory.getBeanClassLoader()));
 		beanFactory.addPropertyEditorRegistrar(new ResourceEditorRegistrar(this, getEnvironment()));
@@ -1121,6 +1151,9 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 			// Let subclasses do some final clean-up if they wish...
 			onClose();
 
+			// Release shared SpEL expressions that refer to this context's classes.
+			SpelExpressionCache.getSharedInstance().clearClassLoader(getClassLoader());
+
 			// Reset local application listeners to pre-refresh state.
 			if (this.earlyApplicationListeners != null) {
 				this.applicationListeners.clear();
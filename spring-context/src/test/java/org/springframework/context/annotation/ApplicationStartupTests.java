@@ -0,0 +1,97 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.annotation;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import org.springframework.context.annotation.componentscan.simple.SimpleComponent;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.core.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.core.metrics.buffering.StartupTimeline.TimelineEntry;
+import org.springframework.tests.sample.beans.TestBean;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link ApplicationStartup} instrumentation of an
+ * {@link AnnotationConfigApplicationContext} refresh.
+ *
+ * @author agent
+ */
+public class ApplicationStartupTests {
+
+	@Test
+	public void recordRefreshSteps() {
+		BufferingApplicationStartup startup = new BufferingApplicationStartup(1000);
+		AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+		context.setApplicationStartup(startup);
+		assertSame(startup, context.getBeanFactory().getApplicationStartup());
+		context.register(StartupConfig.class);
+		context.refresh();
+
+		List<TimelineEntry> events = startup.getTimeline().getEvents();
+		Map<Long, StartupStep> steps = events.stream().map(TimelineEntry::getStartupStep)
+				.collect(Collectors.toMap(StartupStep::getId, Function.identity()));
+		StartupStep refresh = findStep(events, "spring.context.refresh", null);
+		assertNull(refresh.getParentId());
+		for (String phase : new String[] {"spring.context.bean-factory-post-processors.invoke",
+				"spring.context.bean-post-processors.register", "spring.context.singletons.instantiate"}) {
+			assertEquals(Long.valueOf(refresh.getId()), findStep(events, phase, null).getParentId());
+		}
+
+		StartupStep parse = findStep(events, "spring.context.config-classes.parse", null);
+		assertEquals("spring.context.beandef-registry.post-process", steps.get(parse.getParentId()).getName());
+		StartupStep scan = findStep(events, "spring.context.base-package.scan", SimpleComponent.class.getPackage().getName());
+		assertEquals(Long.valueOf(parse.getId()), scan.getParentId());
+		findStep(events, "spring.context.config-classes.enhance", null);
+
+		StartupStep testBean = findStep(events, "spring.beans.instantiate", "testBean");
+		StartupStep postProcess = findStep(events, "spring.beans.post-process", "testBean");
+		assertEquals(Long.valueOf(testBean.getId()), postProcess.getParentId());
+		assertTrue(context.getBean(SimpleComponent.class) != null);
+		context.close();
+	}
+
+	private static StartupStep findStep(List<TimelineEntry> events, String name, String firstTagValue) {
+		for (TimelineEntry event : events) {
+			StartupStep step = event.getStartupStep();
+			if (step.getName().equals(name) && (firstTagValue == null ||
+					firstTagValue.equals(step.getTags().iterator().next().getValue()))) {
+				return step;
+			}
+		}
+		throw new AssertionError("No step '" + name + "' recorded");
+	}
+
+
+	@Configuration
+	@ComponentScan(basePackageClasses = SimpleComponent.class)
+	static class StartupConfig {
+
+		@Bean
+		public TestBean testBean() {
+			return new TestBean();
+		}
+	}
+
+}
@@ -0,0 +1,305 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.annotation;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import org.junit.Test;
+
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.BeanDefinitionStoreException;
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
+import org.springframework.beans.factory.support.ManagedList;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.tests.sample.beans.ITestBean;
+import org.springframework.tests.sample.beans.TestBean;
+import org.springframework.util.FileSystemUtils;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link BeanDefinitionSnapshot}.
+ *
+ * @author agent
+ */
+public class BeanDefinitionSnapshotTests {
+
+	@Test
+	public void writeAndLoad() throws IOException {
+		AnnotationConfigApplicationContext buildContext = new AnnotationConfigApplicationContext();
+		buildContext.register(SnapshotConfig.class);
+		byte[] snapshot = writeSnapshot(buildContext);
+
+		GenericApplicationContext context = new GenericApplicationContext();
+		assertTrue(BeanDefinitionSnapshot.load(context, new ByteArrayResource(snapshot)));
+		assertEquals(buildContext.getBeanDefinitionCount(), context.getBeanDefinitionCount());
+		context.refresh();
+
+		SnapshotConfig config = context.getBean(SnapshotConfig.class);
+		assertNotSame(SnapshotConfig.class, config.getClass());
+		TestBean testBean = context.getBean("testBean", TestBean.class);
+		assertSame(testBean, config.testBean());
+		assertSame(testBean, context.getBean("aliasedTestBean"));
+		assertEquals("juergen", testBean.getName());
+		assertSame(testBean, context.getBean("spouseHolder", TestBean.class).getSpouse());
+
+		ImportedConfig importedConfig = context.getBean(ImportedConfig.class);
+		assertNotNull(importedConfig.importMetadata);
+		assertEquals(SnapshotConfig.class.getName(), importedConfig.importMetadata.getClassName());
+
+		ITestBean scopedBean = context.getBean(ScopedBean.class.getName(), ITestBean.class);
+		assertTrue(AopUtils.isAopProxy(scopedBean));
+		assertEquals("scoped", scopedBean.getName());
+		context.close();
+	}
+
+	@Test
+	public void loadPreservesAnnotationMetadata() throws IOException {
+		AnnotationConfigApplicationContext buildContext = new AnnotationConfigApplicationContext();
+		buildContext.register(SnapshotConfig.class);
+		byte[] snapshot = writeSnapshot(buildContext);
+
+		GenericApplicationContext context = new GenericApplicationContext();
+		assertTrue(BeanDefinitionSnapshot.load(context, new ByteArrayResource(snapshot)));
+
+		BeanDefinition configDefinition = context.getBeanDefinition(ImportedConfig.class.getName());
+		assertTrue(configDefinition instanceof AnnotatedBeanDefinition);
+		AnnotationMetadata configMetadata = ((AnnotatedBeanDefinition) configDefinition).getMetadata();
+		assertEquals(ImportedConfig.class.getName(), configMetadata.getClassName());
+		assertTrue(configMetadata.hasAnnotation(Configuration.class.getName()));
+		assertNull(((AnnotatedBeanDefinition) configDefinition).getFactoryMethodMetadata());
+
+		BeanDefinition beanMethodDefinition = context.getBeanDefinition("testBean");
+		assertTrue(beanMethodDefinition instanceof AnnotatedBeanDefinition);
+		AnnotatedBeanDefinition annotated = (AnnotatedBeanDefinition) beanMethodDefinition;
+		assertEquals(SnapshotConfig.class.getName(), annotated.getMetadata().getClassName());
+		assertEquals("testBean", annotated.getFactoryMethodMetadata().getMethodName());
+		assertTrue(annotated.getFactoryMethodMetadata().isAnnotated(Bean.class.getName()));
+		assertTrue(((AbstractBeanDefinition) beanMethodDefinition).cloneBeanDefinition() instanceof AnnotatedBeanDefinition);
+	}
+
+	@Test
+	public void writeAndLoadWithPropertySource() throws IOException {
+		AnnotationConfigApplicationContext buildContext = new AnnotationConfigApplicationContext();
+		buildContext.register(PropertySourceConfig.class);
+		byte[] snapshot = writeSnapshot(buildContext);
+
+		AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+		assertTrue(BeanDefinitionSnapshot.load(context, new ByteArrayResource(snapshot)));
+		assertTrue(context.getEnvironment().getPropertySources().contains("p1"));
+		context.refresh();
+		assertEquals("p1TestBean", context.getBean("testBean", TestBean.class).getName());
+		context.close();
+	}
+
+	@Test
+	public void fingerprintIgnoresTimestampsAndLocations() throws IOException {
+		File root = Files.createTempDirectory("snapshot").toFile();
+		try {
+			File first = new File(root, "first/classes");
+			File second = new File(root, "second/classes");
+			assertTrue(first.mkdirs() && second.mkdirs());
+			Files.write(new File(first, "Foo.class").toPath(), new byte[] {1, 2, 3});
+			Files.write(new File(second, "Foo.class").toPath(), new byte[] {1, 2, 3});
+			assertTrue(new File(second, "Foo.class").setLastModified(0));
+
+			StandardEnvironment environment = new StandardEnvironment();
+			String fingerprint = fingerprint(environment, first);
+			assertEquals(fingerprint, fingerprint(environment, second));
+
+			Files.write(new File(second, "Foo.class").toPath(), new byte[] {1, 2, 4});
+			assertNotEquals(fingerprint, fingerprint(environment, second));
+		}
+		finally {
+			FileSystemUtils.deleteRecursively(root);
+		}
+	}
+
+	@Test
+	public void fingerprintIncludesArchiveContent() throws IOException {
+		File root = Files.createTempDirectory("snapshot").toFile();
+		try {
+			File lib = new File(root, "WEB-INF/lib");
+			assertTrue(lib.mkdirs());
+			File jar = new File(lib, "app.jar");
+			writeJar(jar, new byte[] {1, 2, 3});
+
+			StandardEnvironment environment = new StandardEnvironment();
+			String fingerprint = fingerprint(environment, jar);
+			assertEquals(fingerprint, fingerprint(environment, jar));
+
+			writeJar(jar, new byte[] {1, 2, 4});
+			assertNotEquals(fingerprint, fingerprint(environment, jar));
+		}
+		finally {
+			FileSystemUtils.deleteRecursively(root);
+		}
+	}
+
+	private static String fingerprint(StandardEnvironment environment, File classPathRoot) throws IOException {
+		try (URLClassLoader classLoader = new URLClassLoader(new URL[] {classPathRoot.toURI().toURL()}, null)) {
+			return BeanDefinitionSnapshot.fingerprint(environment, classLoader, null);
+		}
+	}
+
+	private static void writeJar(File file, byte[] content) throws IOException {
+		try (JarOutputStream out = new JarOutputStream(new FileOutputStream(file), new Manifest())) {
+			out.putNextEntry(new JarEntry("Foo.class"));
+			out.write(content);
+			out.closeEntry();
+		}
+	}
+
+	@Test
+	public void writeAndLoadWithManagedValues() throws IOException {
+		GenericApplicationContext buildContext = new GenericApplicationContext();
+		RootBeanDefinition bd = new RootBeanDefinition(TestBean.class);
+		bd.setScope(BeanDefinition.SCOPE_PROTOTYPE);
+		bd.getConstructorArgumentValues().addIndexedArgumentValue(0, "sam");
+		ManagedList<Object> friends = new ManagedList<>();
+		friends.add(new RootBeanDefinition(TestBean.class));
+		friends.add("friend");
+		bd.getPropertyValues().add("friends", friends);
+		bd.getPropertyValues().add("age", 42);
+		buildContext.registerBeanDefinition("prototype", bd);
+		byte[] snapshot = writeSnapshot(buildContext);
+
+		GenericApplicationContext context = new GenericApplicationContext();
+		assertTrue(BeanDefinitionSnapshot.load(context, new ByteArrayResource(snapshot)));
+		context.refresh();
+		TestBean prototype = context.getBean("prototype", TestBean.class);
+		assertNotSame(prototype, context.getBean("prototype"));
+		assertEquals("sam", prototype.getName());
+		assertEquals(42, prototype.getAge());
+		assertEquals(2, prototype.getFriends().size());
+		context.close();
+	}
+
+	@Test
+	public void loadWithDifferentProfiles() throws IOException {
+		AnnotationConfigApplicationContext buildContext = new AnnotationConfigApplicationContext();
+		buildContext.getEnvironment().setActiveProfiles("snapshot");
+		buildContext.register(SnapshotConfig.class);
+		byte[] snapshot = writeSnapshot(buildContext);
+
+		GenericApplicationContext context = new GenericApplicationContext();
+		assertFalse(BeanDefinitionSnapshot.load(context, new ByteArrayResource(snapshot)));
+		assertEquals(0, context.getBeanDefinitionCount());
+	}
+
+	@Test
+	public void loadCorruptSnapshot() {
+		GenericApplicationContext context = new GenericApplicationContext();
+		assertFalse(BeanDefinitionSnapshot.load(context, new ByteArrayResource(new byte[] {1, 2, 3})));
+		assertEquals(0, context.getBeanDefinitionCount());
+	}
+
+	@Test
+	public void loadNonExistentSnapshot() {
+		GenericApplicationContext context = new GenericApplicationContext();
+		assertFalse(BeanDefinitionSnapshot.load(context, new ClassPathResource("no-such.snapshot")));
+	}
+
+	@Test(expected = BeanDefinitionStoreException.class)
+	public void writeWithInstanceSupplier() throws IOException {
+		GenericApplicationContext buildContext = new GenericApplicationContext();
+		buildContext.registerBean("supplied", TestBean.class, () -> new TestBean());
+		writeSnapshot(buildContext);
+	}
+
+
+	private static byte[] writeSnapshot(GenericApplicationContext context) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		BeanDefinitionSnapshot.write(context, out);
+		return out.toByteArray();
+	}
+
+
+	@Configuration
+	@Import({ImportedConfig.class, ScopedBean.class})
+	static class SnapshotConfig {
+
+		@Bean({"testBean", "aliasedTestBean"})
+		public TestBean testBean() {
+			return new TestBean("juergen");
+		}
+
+		@Bean
+		public TestBean spouseHolder() {
+			TestBean holder = new TestBean();
+			holder.setSpouse(testBean());
+			return holder;
+		}
+	}
+
+
+	@Configuration
+	@PropertySource(name = "p1", value = "classpath:org/springframework/context/annotation/p1.properties")
+	static class PropertySourceConfig {
+
+		@Bean
+		public TestBean testBean(@Value("${testbean.name}") String name) {
+			return new TestBean(name);
+		}
+	}
+
+
+	@Configuration
+	static class ImportedConfig implements ImportAware {
+
+		AnnotationMetadata importMetadata;
+
+		@Override
+		public void setImportMetadata(AnnotationMetadata importMetadata) {
+			this.importMetadata = importMetadata;
+		}
+
+		@Bean
+		public List<String> importedList() {
+			return Arrays.asList("a", "b");
+		}
+	}
+
+
+	@Scope(scopeName = BeanDefinition.SCOPE_PROTOTYPE, proxyMode = ScopedProxyMode.INTERFACES)
+	static class ScopedBean extends TestBean {
+
+		public ScopedBean() {
+			super("scoped");
+		}
+	}
+
+}
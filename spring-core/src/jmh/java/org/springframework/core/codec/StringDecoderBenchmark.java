@@ -0,0 +1,209 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.codec;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import reactor.core.publisher.Flux;
+
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.util.MimeTypeUtils;
+
+/**
+ * Benchmarks for {@link StringDecoder}, splitting NDJSON-like lines received
+ * in fixed-size chunks, compared to the previous implementation that searched
+ * each delimiter separately and copied every line into a new buffer.
+ *
+ * <p>Typically run with {@code "./gradlew :spring-core:jmh"}.
+ *
+ * @author agent
+ */
+@BenchmarkMode(Mode.Throughput)
+public class StringDecoderBenchmark {
+
+	private static final ResolvableType STRING_TYPE = ResolvableType.forClass(String.class);
+
+
+	@State(Scope.Benchmark)
+	public static class DecoderData {
+
+		@Param({"1000"})
+		public int lineCount;
+
+		@Param({"64", "1024"})
+		public int lineLength;
+
+		@Param({"8192"})
+		public int chunkSize;
+
+		public final DefaultDataBufferFactory bufferFactory = new DefaultDataBufferFactory();
+
+		public final StringDecoder decoder = StringDecoder.allMimeTypes();
+
+		public final LegacyStringDecoder legacyDecoder =
+				new LegacyStringDecoder(StringDecoder.DEFAULT_DELIMITERS, StandardCharsets.UTF_8);
+
+		public List<byte[]> chunks;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			StringBuilder text = new StringBuilder();
+			for (int i = 0; i < this.lineCount; i++) {
+				text.append("{\"id\":").append(i).append(",\"value\":\"");
+				while (text.length() % this.lineLength != this.lineLength - 3) {
+					text.append((char) ('a' + text.length() % 26));
+				}
+				text.append("\"}\n");
+			}
+			byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+			this.chunks = new ArrayList<>();
+			for (int offset = 0; offset < bytes.length; offset += this.chunkSize) {
+				int length = Math.min(this.chunkSize, bytes.length - offset);
+				byte[] chunk = new byte[length];
+				System.arraycopy(bytes, offset, chunk, 0, length);
+				this.chunks.add(chunk);
+			}
+		}
+
+		public Flux<DataBuffer> dataBuffers() {
+			return Flux.fromIterable(this.chunks).map(this.bufferFactory::wrap);
+		}
+	}
+
+
+	@Benchmark
+	public List<String> decode(DecoderData data) {
+		return data.decoder.decode(data.dataBuffers(), STRING_TYPE, MimeTypeUtils.TEXT_PLAIN, null)
+				.collectList().block();
+	}
+
+	@Benchmark
+	public List<String> decodeLegacy(DecoderData data) {
+		return data.legacyDecoder.decode(data.dataBuffers()).collectList().block();
+	}
+
+
+	/**
+	 * Line splitting as previously done by {@link StringDecoder}: one
+	 * {@code indexOf} scan per delimiter, a joined copy of every line, and
+	 * decoding through an intermediate {@code CharBuffer}.
+	 */
+	static class LegacyStringDecoder {
+
+		private static final DataBuffer END_FRAME = new DefaultDataBufferFactory().wrap(new byte[0]);
+
+		private final List<byte[]> delimiters = new ArrayList<>();
+
+		private final Charset charset;
+
+		LegacyStringDecoder(List<String> delimiters, Charset charset) {
+			for (String delimiter : delimiters) {
+				this.delimiters.add(delimiter.getBytes(charset));
+			}
+			this.charset = charset;
+		}
+
+		Flux<String> decode(Flux<DataBuffer> input) {
+			return input.concatMapIterable(this::splitOnDelimiter)
+					.bufferUntil(buffer -> buffer == END_FRAME)
+					.map(LegacyStringDecoder::joinUntilEndFrame)
+					.map(buffer -> {
+						String value = this.charset.decode(buffer.asByteBuffer()).toString();
+						DataBufferUtils.release(buffer);
+						return value;
+					});
+		}
+
+		private List<DataBuffer> splitOnDelimiter(DataBuffer buffer) {
+			List<DataBuffer> frames = new ArrayList<>();
+			do {
+				int length = Integer.MAX_VALUE;
+				byte[] matchingDelimiter = null;
+				for (byte[] delimiter : this.delimiters) {
+					int index = indexOf(buffer, delimiter);
+					if (index >= 0 && index < length) {
+						length = index;
+						matchingDelimiter = delimiter;
+					}
+				}
+				int readPosition = buffer.readPosition();
+				if (matchingDelimiter != null) {
+					frames.add(DataBufferUtils.retain(buffer.slice(readPosition, length)));
+					buffer.readPosition(readPosition + length + matchingDelimiter.length);
+					frames.add(END_FRAME);
+				}
+				else {
+					frames.add(DataBufferUtils.retain(buffer.slice(readPosition, buffer.readableByteCount())));
+					buffer.readPosition(readPosition + buffer.readableByteCount());
+				}
+			}
+			while (buffer.readableByteCount() > 0);
+			DataBufferUtils.release(buffer);
+			return frames;
+		}
+
+		private static int indexOf(DataBuffer buffer, byte[] delimiter) {
+			for (int i = buffer.readPosition(); i < buffer.writePosition(); i++) {
+				int bufferPos = i;
+				int delimiterPos = 0;
+				while (delimiterPos < delimiter.length) {
+					if (buffer.getByte(bufferPos) != delimiter[delimiterPos]) {
+						break;
+					}
+					else {
+						bufferPos++;
+						boolean endOfBuffer = bufferPos == buffer.writePosition();
+						boolean endOfDelimiter = delimiterPos == delimiter.length - 1;
+						if (endOfBuffer && !endOfDelimiter) {
+							return -1;
+						}
+					}
+					delimiterPos++;
+				}
+				if (delimiterPos == delimiter.length) {
+					return i - buffer.readPosition();
+				}
+			}
+			return -1;
+		}
+
+		private static DataBuffer joinUntilEndFrame(List<DataBuffer> dataBuffers) {
+			if (!dataBuffers.isEmpty()) {
+				int lastIdx = dataBuffers.size() - 1;
+				if (dataBuffers.get(lastIdx) == END_FRAME) {
+					dataBuffers.remove(lastIdx);
+				}
+			}
+			return dataBuffers.get(0).factory().join(dataBuffers);
+		}
+	}
+
+}
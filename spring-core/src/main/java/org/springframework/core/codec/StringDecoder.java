@@ -16,7 +16,7 @@
 
 package org.springframework.core.codec;
 
-import java.nio.CharBuffer;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
@@ -32,6 +32,7 @@ import reactor.core.publisher.Flux;
 
 import org.springframework.core.ResolvableType;
 import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
 import org.springframework.core.io.buffer.DataBufferLimitException;
 import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.core.io.buffer.DefaultDataBufferFactory;
@@ -49,6 +50,10 @@ import org.springframework.util.MimeTypeUtils;
  * This is to make sure that multibyte characters are decoded properly, and do not cross buffer
  * boundaries. The default delimiters ({@code \n}, {@code \r\n})can be customized.
  *
+ * <p>Each buffer is scanned once for all delimiters, including delimiters that
+ * span buffer boundaries, and lines are passed on as slices of the input
+ * buffers, only joined into a new buffer if they span several input buffers.
+ *
  * <p>Partially inspired by Netty's {@code DelimiterBasedFrameDecoder}.
  *
  * @author Sebastien Deleuze
@@ -60,8 +65,6 @@ import org.springframework.util.MimeTypeUtils;
  */
 public final class StringDecoder extends AbstractDataBufferDecoder<String> {
 
-	private static final DataBuffer END_FRAME = new DefaultDataBufferFactory().wrap(new byte[0]);
-
 	/** The default charset to use, i.e. "UTF-8". */
 	public static final Charset DEFAULT_CHARSET = StandardCharsets.UTF_8;
 
@@ -73,7 +76,7 @@ public final class StringDecoder extends AbstractDataBufferDecoder<String> {
 
 	private final boolean stripDelimiter;
 
-	private final ConcurrentMap<Charset, List<byte[]>> delimitersCache = new ConcurrentHashMap<>();
+	private final ConcurrentMap<Charset, Delimiters> delimitersCache = new ConcurrentHashMap<>();
 
 
 	private StringDecoder(List<String> delimiters, boolean stripDelimiter, MimeType... mimeTypes) {
@@ -93,9 +96,10 @@ public final class StringDecoder extends AbstractDataBufferDecoder<String> {
 	public Flux<String> decode(Publisher<DataBuffer> input, ResolvableType elementType,
 			@Nullable MimeType mimeType, @Nullable Map<String, Object> hints) {
 
-		List<byte[]> delimiterBytes = getDelimiterBytes(mimeType);
+		Delimiters delimiters = getDelimiters(mimeType);
 
 		Flux<DataBuffer> inputFlux = Flux.defer(() -> {
+			DelimiterMatcher matcher = new DelimiterMatcher(delimiters);
 			if (getMaxInMemorySize() != -1) {
 
 				// Passing limiter into endFrameAfterDelimiter helps to ensure that in case of one DataBuffer
@@ -109,9 +113,10 @@ public final class StringDecoder extends AbstractDataBufferDecoder<String> {
 				LimitedDataBufferList limiter = new LimitedDataBufferList(getMaxInMemorySize());
 
 				return Flux.from(input)
-						.concatMapIterable(buffer -> splitOnDelimiter(buffer, delimiterBytes, limiter))
-						.bufferUntil(buffer -> buffer == END_FRAME)
-						.map(StringDecoder::joinUntilEndFrame)
+						.concatMapIterable(buffer -> splitOnDelimiter(buffer, matcher, limiter))
+						.concatWith(Flux.defer(() -> Flux.fromIterable(endOfInput(matcher, limiter))))
+						.bufferUntil(delimiters::isEndFrame)
+						.map(buffers -> joinUntilEndFrame(buffers, delimiters))
 						.doOnDiscard(PooledDataBuffer.class, DataBufferUtils::release);
 			}
 			else {
@@ -125,11 +130,12 @@ public final class StringDecoder extends AbstractDataBufferDecoder<String> {
 				ConcatMapIterableDiscardWorkaroundCache cache = new ConcatMapIterableDiscardWorkaroundCache();
 
 				return Flux.from(input)
-						.concatMapIterable(buffer -> cache.addAll(splitOnDelimiter(buffer, delimiterBytes, null)))
+						.concatMapIterable(buffer -> cache.addAll(splitOnDelimiter(buffer, matcher, null)))
+						.concatWith(Flux.defer(() -> Flux.fromIterable(cache.addAll(endOfInput(matcher, null)))))
 						.doOnNext(cache)
 						.doOnCancel(cache)
-						.bufferUntil(buffer -> buffer == END_FRAME)
-						.map(StringDecoder::joinUntilEndFrame)
+						.bufferUntil(delimiters::isEndFrame)
+						.map(buffers -> joinUntilEndFrame(buffers, delimiters))
 						.doOnDiscard(PooledDataBuffer.class, DataBufferUtils::release);
 			}
 		});
@@ -137,56 +143,64 @@ public final class StringDecoder extends AbstractDataBufferDecoder<String> {
 		return super.decode(inputFlux, elementType, mimeType, hints);
 	}
 
-	private List<byte[]> getDelimiterBytes(@Nullable MimeType mimeType) {
+	private Delimiters getDelimiters(@Nullable MimeType mimeType) {
 		return this.delimitersCache.computeIfAbsent(getCharset(mimeType), charset -> {
 			List<byte[]> list = new ArrayList<>();
 			for (String delimiter : this.delimiters) {
 				byte[] bytes = delimiter.getBytes(charset);
 				list.add(bytes);
 			}
-			return list;
+			return new Delimiters(list);
 		});
 	}
 
 	/**
 	 * Split the given data buffer on delimiter boundaries.
-	 * The returned Flux contains an {@link #END_FRAME} buffer after each delimiter.
+	 * The returned Flux contains an end frame buffer after each delimiter.
 	 */
 	private List<DataBuffer> splitOnDelimiter(
-			DataBuffer buffer, List<byte[]> delimiterBytes, @Nullable LimitedDataBufferList limiter) {
+			DataBuffer buffer, DelimiterMatcher matcher, @Nullable LimitedDataBufferList limiter) {
 
 		List<DataBuffer> frames = new ArrayList<>();
 		try {
 			do {
-				int length = Integer.MAX_VALUE;
-				byte[] matchingDelimiter = null;
-				for (byte[] delimiter : delimiterBytes) {
-					int index = indexOf(buffer, delimiter);
-					if (index >= 0 && index < length) {
-						length = index;
-						matchingDelimiter = delimiter;
+				int readPosition = buffer.readPosition();
+				int endIndex = matcher.match(buffer);
+				DataBuffer frame;
+				if (endIndex == DelimiterMatcher.PREVIOUS_BUFFER) {
+					// The pending match ended in a previous buffer: match the held back bytes again
+					frames.add(matcher.getEndFrame());
+					if (limiter != null) {
+						limiter.clear();
 					}
+					buffer = matcher.prependHeldBack(buffer);
 				}
-				DataBuffer frame;
-				int readPosition = buffer.readPosition();
-				if (matchingDelimiter != null) {
-					frame = this.stripDelimiter ?
-							buffer.slice(readPosition, length) :
-							buffer.slice(readPosition, length + matchingDelimiter.length);
-					buffer.readPosition(readPosition + length + matchingDelimiter.length);
+				else if (endIndex != -1) {
+					addHeldBack(matcher, frames, limiter);
+					// The frame includes the delimiter, which may have started in a previous buffer
+					frame = buffer.slice(readPosition, endIndex + 1 - readPosition);
+					buffer.readPosition(endIndex + 1);
 					frames.add(DataBufferUtils.retain(frame));
-					frames.add(END_FRAME);
+					frames.add(matcher.getEndFrame());
 					if (limiter != null) {
+						if (this.stripDelimiter) {
+							int length = Math.max(frame.readableByteCount() - matcher.getDelimiterLength(), 0);
+							frame = frame.slice(frame.readPosition(), length);
+						}
 						limiter.add(frame); // enforce the limit
 						limiter.clear();
 					}
 				}
 				else {
-					frame = buffer.slice(readPosition, buffer.readableByteCount());
+					// Bytes following a still pending match are held back until it is decided
+					int end = matcher.holdBackUndecided(buffer);
 					buffer.readPosition(readPosition + buffer.readableByteCount());
-					frames.add(DataBufferUtils.retain(frame));
-					if (limiter != null) {
-						limiter.add(frame);
+					if (end > readPosition) {
+						frame = buffer.slice(readPosition, end - readPosition);
+						frames.add(DataBufferUtils.retain(frame));
+						if (limiter != null) {
+							limiter.add(frame);
+						}
 					}
 				}
 			}
@@ -211,45 +225,56 @@ public final class StringDecoder extends AbstractDataBufferDecoder<String> {
 	}
 
 	/**
-	 * Find the given delimiter in the given data buffer.
-	 * @return the index of the delimiter, or -1 if not found.
+	 * Complete the match still pending at the end of the input, if any, and
+	 * split the bytes held back after it.
 	 */
-	private static int indexOf(DataBuffer buffer, byte[] delimiter) {
-		for (int i = buffer.readPosition(); i < buffer.writePosition(); i++) {
-			int bufferPos = i;
-			int delimiterPos = 0;
-			while (delimiterPos < delimiter.length) {
-				if (buffer.getByte(bufferPos) != delimiter[delimiterPos]) {
-					break;
-				}
-				else {
-					bufferPos++;
-					boolean endOfBuffer = bufferPos == buffer.writePosition();
-					boolean endOfDelimiter = delimiterPos == delimiter.length - 1;
-					if (endOfBuffer && !endOfDelimiter) {
-						return -1;
-					}
-				}
-				delimiterPos++;
+	private List<DataBuffer> endOfInput(DelimiterMatcher matcher, @Nullable LimitedDataBufferList limiter) {
+		List<DataBuffer> frames = new ArrayList<>();
+		while (matcher.hasPendingMatch()) {
+			DataBuffer heldBack = matcher.completePendingAtEnd();
+			frames.add(matcher.getEndFrame());
+			if (limiter != null) {
+				limiter.clear();
 			}
-			if (delimiterPos == delimiter.length) {
-				return i - buffer.readPosition();
+			if (heldBack != null) {
+				frames.addAll(splitOnDelimiter(heldBack, matcher, limiter));
+			}
+		}
+		return frames;
+	}
+
+	private void addHeldBack(
+			DelimiterMatcher matcher, List<DataBuffer> frames, @Nullable LimitedDataBufferList limiter) {
+
+		DataBuffer heldBack = matcher.takeHeldBack();
+		if (heldBack != null) {
+			frames.add(heldBack);
+			if (limiter != null) {
+				limiter.add(heldBack);
 			}
 		}
-		return -1;
 	}
 
 	/**
-	 * Join the given list of buffers into a single buffer.
+	 * Join the given list of buffers into a single buffer, stripping the
+	 * delimiter at the end if necessary. A single buffer is returned as is.
 	 */
-	private static DataBuffer joinUntilEndFrame(List<DataBuffer> dataBuffers) {
+	private DataBuffer joinUntilEndFrame(List<DataBuffer> dataBuffers, Delimiters delimiters) {
+		int delimiterLength = 0;
 		if (!dataBuffers.isEmpty()) {
 			int lastIdx = dataBuffers.size() - 1;
-			if (dataBuffers.get(lastIdx) == END_FRAME) {
+			DataBuffer last = dataBuffers.get(lastIdx);
+			if (delimiters.isEndFrame(last)) {
+				delimiterLength = delimiters.getDelimiterLength(last);
 				dataBuffers.remove(lastIdx);
 			}
 		}
-		return dataBuffers.get(0).factory().join(dataBuffers);
+		DataBuffer result = (dataBuffers.size() == 1 ? dataBuffers.get(0) :
+				dataBuffers.get(0).factory().join(dataBuffers));
+		if (this.stripDelimiter && delimiterLength > 0) {
+			result.writePosition(result.writePosition() - delimiterLength);
+		}
+		return result;
 	}
 
 	@Override
@@ -257,9 +282,17 @@ public final class StringDecoder extends AbstractDataBufferDecoder<String> {
 			@Nullable MimeType mimeType, @Nullable Map<String, Object> hints) {
 
 		Charset charset = getCharset(mimeType);
-		CharBuffer charBuffer = charset.decode(dataBuffer.asByteBuffer());
+		ByteBuffer byteBuffer = dataBuffer.asByteBuffer();
+		String value;
+		if (byteBuffer.hasArray()) {
+			// Decode straight from the backing array, without intermediate CharBuffer
+			value = new String(byteBuffer.array(),
+					byteBuffer.arrayOffset() + byteBuffer.position(), byteBuffer.remaining(), charset);
+		}
+		else {
+			value = charset.decode(byteBuffer).toString();
+		}
 		DataBufferUtils.release(dataBuffer);
-		String value = charBuffer.toString();
 		LogFormatUtils.traceDebug(logger, traceOn -> {
 			String formatted = LogFormatUtils.formatValue(value, !traceOn);
 			return Hints.getLogPrefix(hints) + "Decoded " + formatted;
@@ -335,6 +368,338 @@ public final class StringDecoder extends AbstractDataBufferDecoder<String> {
 	}
 
 
+	/**
+	 * The delimiters for a given charset, with the lookup tables used for
+	 * matching them and one end frame buffer per delimiter.
+	 */
+	private static final class Delimiters {
+
+		private static final long ONES = 0x0101010101010101L;
+
+		private static final long HIGH_BITS = 0x8080808080808080L;
+
+		private static final int MAX_WORD_PATTERNS = 4;
+
+		private final byte[][] bytes;
+
+		private final int[][] failureTables;
+
+		private final DataBuffer[] endFrames;
+
+		private final boolean[] firstBytes = new boolean[256];
+
+		@Nullable
+		private final long[] firstBytePatterns;
+
+		Delimiters(List<byte[]> delimiters) {
+			int count = delimiters.size();
+			this.bytes = new byte[count][];
+			this.failureTables = new int[count][];
+			this.endFrames = new DataBuffer[count];
+			List<Long> patterns = new ArrayList<>();
+			for (int i = 0; i < count; i++) {
+				byte[] delimiter = delimiters.get(i);
+				Assert.isTrue(delimiter.length > 0, "Delimiters must not be empty");
+				this.bytes[i] = delimiter;
+				this.failureTables[i] = failureTable(delimiter);
+				this.endFrames[i] = new DefaultDataBufferFactory().wrap(new byte[0]);
+				int first = delimiter[0] & 0xFF;
+				if (!this.firstBytes[first]) {
+					this.firstBytes[first] = true;
+					patterns.add(ONES * first);
+				}
+			}
+			if (patterns.size() <= MAX_WORD_PATTERNS) {
+				this.firstBytePatterns = new long[patterns.size()];
+				for (int i = 0; i < patterns.size(); i++) {
+					this.firstBytePatterns[i] = patterns.get(i);
+				}
+			}
+			else {
+				this.firstBytePatterns = null;
+			}
+		}
+
+		/**
+		 * Knuth-Morris-Pratt failure table: for each prefix of the delimiter,
+		 * the length of its longest proper prefix that is also a suffix.
+		 */
+		private static int[] failureTable(byte[] delimiter) {
+			int[] table = new int[delimiter.length];
+			int length = 0;
+			for (int i = 1; i < delimiter.length; i++) {
+				while (length > 0 && delimiter[i] != delimiter[length]) {
+					length = table[length - 1];
+				}
+				if (delimiter[i] == delimiter[length]) {
+					length++;
+				}
+				table[i] = length;
+			}
+			return table;
+		}
+
+		boolean isEndFrame(DataBuffer buffer) {
+			for (DataBuffer endFrame : this.endFrames) {
+				if (buffer == endFrame) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		int getDelimiterLength(DataBuffer endFrame) {
+			for (int i = 0; i < this.endFrames.length; i++) {
+				if (endFrame == this.endFrames[i]) {
+					return this.bytes[i].length;
+				}
+			}
+			return 0;
+		}
+
+		/**
+		 * Skip ahead to the next byte that starts any of the delimiters,
+		 * checking 8 bytes at a time where possible.
+		 * @return the index of that byte, or {@code length} if there is none
+		 */
+		int skipToCandidate(ByteBuffer byteBuffer, int base, int from, int length) {
+			int i = from;
+			long[] patterns = this.firstBytePatterns;
+			if (patterns != null) {
+				while (i + 8 <= length && !containsAny(byteBuffer.getLong(base + i), patterns)) {
+					i += 8;
+				}
+			}
+			while (i < length && !this.firstBytes[byteBuffer.get(base + i) & 0xFF]) {
+				i++;
+			}
+			return i;
+		}
+
+		private static boolean containsAny(long word, long[] patterns) {
+			for (long pattern : patterns) {
+				long value = word ^ pattern;
+				if (((value - ONES) & ~value & HIGH_BITS) != 0) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+
+	/**
+	 * Matches all delimiters in a single pass, keeping the partial match
+	 * state across buffers. Not thread-safe: one instance per subscription.
+	 * <p>Like a search for each delimiter in turn, the delimiter that starts
+	 * first wins, and among delimiters starting at the same position, the one
+	 * declared first. A completed match is therefore held back while another
+	 * delimiter that started earlier is still partially matched, e.g. "b"
+	 * within "abc" for delimiters "abc" and "b". If that is still undecided
+	 * at the end of a buffer, the bytes following the pending match are held
+	 * back as well, since they belong to the current frame or to the next one
+	 * depending on which delimiter wins.
+	 */
+	private static final class DelimiterMatcher {
+
+		/**
+		 * Returned by {@link #match} if the pending match that ended in a
+		 * previous buffer has been confirmed.
+		 */
+		static final int PREVIOUS_BUFFER = -2;
+
+		private final Delimiters delimiters;
+
+		private final int[] matches;
+
+		private boolean idle = true;
+
+		private int matchedDelimiter = -1;
+
+		private int matchEnd;
+
+		private int pendingDelimiter = -1;
+
+		private int pendingStart;
+
+		private int pendingEnd;
+
+		@Nullable
+		private byte[] heldBack;
+
+		@Nullable
+		private DataBufferFactory heldBackFactory;
+
+		DelimiterMatcher(Delimiters delimiters) {
+			this.delimiters = delimiters;
+			this.matches = new int[delimiters.bytes.length];
+		}
+
+		/**
+		 * Find the end of the next delimiter in the readable bytes of the given buffer.
+		 * @return the index of the last byte of the delimiter, {@link #PREVIOUS_BUFFER}
+		 * if it ended in a previous buffer, or -1 if not found
+		 */
+		int match(DataBuffer buffer) {
+			ByteBuffer byteBuffer = buffer.asByteBuffer();
+			int base = byteBuffer.position();
+			int length = byteBuffer.remaining();
+			int i = 0;
+			while (i < length) {
+				if (this.idle) {
+					i = this.delimiters.skipToCandidate(byteBuffer, base, i, length);
+					if (i == length) {
+						break;
+					}
+				}
+				if (advance(byteBuffer.get(base + i), i)) {
+					return (this.matchEnd >= 0 ? buffer.readPosition() + this.matchEnd : PREVIOUS_BUFFER);
+				}
+				i++;
+			}
+			return -1;
+		}
+
+		/**
+		 * Advance the partial matches of all delimiters by the given byte.
+		 * @param b the next byte
+		 * @param index the index of that byte in the current buffer
+		 * @return whether a match is complete, ending at {@link #matchEnd},
+		 * possibly before the given index
+		 */
+		private boolean advance(byte b, int index) {
+			byte[][] bytes = this.delimiters.bytes;
+			boolean active = false;
+			for (int d = 0; d < bytes.length; d++) {
+				byte[] delimiter = bytes[d];
+				int m = this.matches[d];
+				while (m > 0 && delimiter[m] != b) {
+					m = this.delimiters.failureTables[d][m - 1];
+				}
+				if (delimiter[m] == b) {
+					m++;
+				}
+				if (m == delimiter.length) {
+					int start = index - m + 1;
+					if (this.pendingDelimiter == -1 || precedesPending(d, start)) {
+						this.pendingDelimiter = d;
+						this.pendingStart = start;
+						this.pendingEnd = index;
+					}
+					m = this.delimiters.failureTables[d][m - 1];
+				}
+				this.matches[d] = m;
+				active |= (m > 0);
+			}
+			if (this.pendingDelimiter != -1) {
+				for (int d = 0; d < bytes.length; d++) {
+					int m = this.matches[d];
+					if (m > 0 && precedesPending(d, index - m + 1)) {
+						// Keep going: this one may still complete and take precedence
+						this.idle = false;
+						return false;
+					}
+				}
+				completePending();
+				return true;
+			}
+			this.idle = !active;
+			return false;
+		}
+
+		private boolean precedesPending(int delimiter, int start) {
+			return (start < this.pendingStart || (start == this.pendingStart && delimiter < this.pendingDelimiter));
+		}
+
+		private void completePending() {
+			Arrays.fill(this.matches, 0);
+			this.idle = true;
+			this.matchedDelimiter = this.pendingDelimiter;
+			this.matchEnd = this.pendingEnd;
+			this.pendingDelimiter = -1;
+		}
+
+		/**
+		 * Hold back the bytes of the given buffer, which has been searched by
+		 * {@link #match} without result, that follow a still pending match.
+		 * @return the position up to which the buffer belongs to the current frame
+		 */
+		int holdBackUndecided(DataBuffer buffer) {
+			int readPosition = buffer.readPosition();
+			int length = buffer.readableByteCount();
+			if (this.pendingDelimiter == -1) {
+				return readPosition + length;
+			}
+			int from = Math.max(this.pendingEnd + 1, 0);
+			int offset = 0;
+			if (this.heldBack == null) {
+				this.heldBack = new byte[length - from];
+			}
+			else {
+				offset = this.heldBack.length;
+				this.heldBack = Arrays.copyOf(this.heldBack, offset + length - from);
+			}
+			for (int i = from; i < length; i++) {
+				this.heldBack[offset++] = buffer.getByte(readPosition + i);
+			}
+			this.heldBackFactory = buffer.factory();
+			// Continue with the next buffer: make indexes relative to its start
+			this.pendingStart -= length;
+			this.pendingEnd -= length;
+			return readPosition + from;
+		}
+
+		/**
+		 * Return the bytes held back by {@link #holdBackUndecided}, if any.
+		 */
+		@Nullable
+		DataBuffer takeHeldBack() {
+			byte[] bytes = this.heldBack;
+			DataBufferFactory factory = this.heldBackFactory;
+			this.heldBack = null;
+			this.heldBackFactory = null;
+			return (bytes != null && factory != null ? factory.wrap(bytes) : null);
+		}
+
+		/**
+		 * Prepend the held back bytes to the given buffer, to be matched again.
+		 */
+		DataBuffer prependHeldBack(DataBuffer buffer) {
+			DataBuffer heldBack = takeHeldBack();
+			return (heldBack != null ? buffer.factory().join(Arrays.asList(heldBack, buffer)) : buffer);
+		}
+
+		/**
+		 * Whether a match is pending at the end of the input, in which case
+		 * it is to be confirmed through {@link #completePendingAtEnd()}.
+		 */
+		boolean hasPendingMatch() {
+			return (this.pendingDelimiter != -1);
+		}
+
+		/**
+		 * Confirm the pending match at the end of the input, as no delimiter
+		 * that started earlier can be completed anymore.
+		 * @return the held back bytes following the match, to be matched again
+		 */
+		@Nullable
+		DataBuffer completePendingAtEnd() {
+			completePending();
+			return takeHeldBack();
+		}
+
+		DataBuffer getEndFrame() {
+			Assert.state(this.matchedDelimiter != -1, "No delimiter matched");
+			return this.delimiters.endFrames[this.matchedDelimiter];
+		}
+
+		int getDelimiterLength() {
+			Assert.state(this.matchedDelimiter != -1, "No delimiter matched");
+			return this.delimiters.bytes[this.matchedDelimiter].length;
+		}
+	}
+
+
 	private class ConcatMapIterableDiscardWorkaroundCache implements Consumer<DataBuffer>, Runnable {
 
 		private final List<DataBuffer> buffers = new ArrayList<>();
@@ -0,0 +1,615 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.io.buffer;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.ConcurrentReferenceHashMap;
+
+/**
+ * {@link DefaultDataBufferFactory} extension that recycles the memory of
+ * {@link DefaultDataBuffer DefaultDataBuffers}, for runtimes that do not come
+ * with a buffer pool of their own (i.e. Servlet containers and Undertow, as
+ * opposed to Reactor Netty and its {@link NettyDataBufferFactory}).
+ *
+ * <p>Allocated buffers are {@link PooledDataBuffer PooledDataBuffers} with a
+ * reference count of 1, to be {@linkplain DataBufferUtils#release released}
+ * once consumed. Capacities up to {@link #getMaxPooledCapacity()} are rounded
+ * up to a power-of-two size class, and released memory is kept for reuse in a
+ * small per-thread cache first (for size classes up to 8 KB only) and in a
+ * bounded shared arena per size class next.
+ * Larger buffers, as well as buffers created through {@code wrap}, are not
+ * pooled. Slices share the reference count of the buffer they were taken from,
+ * and the memory a buffer outgrows when its capacity changes is only recycled
+ * once that reference count drops to 0, as slices may still point into it.
+ *
+ * <p>Pooling relies on every buffer being released exactly once and not used
+ * after that, which is why it needs to be set up explicitly, e.g. through
+ * {@code ServletHttpHandlerAdapter#setDataBufferFactory}.
+ *
+ * <p>Each per-thread cache holds at most 64 KB. Every 1024 allocations, a
+ * thread returns the chunks of its cache that went unused since its previous
+ * trim to the arenas, and at most once per second, the caches of threads that
+ * have not allocated or released a buffer since the previous sweep are emptied
+ * into the arenas as well. Caches of terminated threads are left to the
+ * garbage collector.
+ *
+ * <p>A buffer that is never released is not lost, it is simply left to the
+ * garbage collector. To find such buffers, {@linkplain #setLeakDetection
+ * leak detection} records the allocation stack trace of every buffer and
+ * reports buffers that were garbage collected without having been released.
+ *
+ * @author agent
+ * @since 5.1.20
+ */
+public class PooledDataBufferFactory extends DefaultDataBufferFactory {
+
+	/**
+	 * The default maximum capacity of pooled buffers: 64 KB.
+	 */
+	public static final int DEFAULT_MAX_POOLED_CAPACITY = 64 * 1024;
+
+	private static final int MIN_POOLED_CAPACITY = 64;
+
+	private static final int THREAD_CACHE_SIZE = 16;
+
+	private static final int THREAD_CACHE_MAX_CAPACITY = 8 * 1024;
+
+	private static final int THREAD_CACHE_MAX_BYTES = 64 * 1024;
+
+	private static final int THREAD_CACHE_TRIM_INTERVAL = 1024;
+
+	private static final long THREAD_CACHE_SWEEP_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+
+	private static final int MAX_ARENA_BYTES_PER_SIZE_CLASS = 4 * 1024 * 1024;
+
+	private static final Log logger = LogFactory.getLog(PooledDataBufferFactory.class);
+
+
+	private final boolean preferDirect;
+
+	private final int maxPooledCapacity;
+
+	private final Arena[] arenas;
+
+	private final int threadCacheSizeClasses;
+
+	private final ThreadLocal<ThreadCache> threadCaches;
+
+	/** All thread caches, weakly referenced so that those of terminated threads can be collected. */
+	private final Map<ThreadCache, Boolean> allThreadCaches =
+			new ConcurrentReferenceHashMap<>(16, ConcurrentReferenceHashMap.ReferenceType.WEAK);
+
+	private final AtomicLong lastThreadCacheSweep = new AtomicLong(System.nanoTime());
+
+	private volatile boolean leakDetection;
+
+	private final Map<LeakRecord, Boolean> leakRecords = new ConcurrentHashMap<>();
+
+	private final ReferenceQueue<PooledBuffer> leakQueue = new ReferenceQueue<>();
+
+
+	/**
+	 * Create a new {@code PooledDataBufferFactory} with heap buffers and
+	 * default settings.
+	 */
+	public PooledDataBufferFactory() {
+		this(false);
+	}
+
+	/**
+	 * Create a new {@code PooledDataBufferFactory}, indicating whether direct
+	 * buffers should be pooled rather than heap buffers.
+	 * @param preferDirect {@code true} if direct buffers are to be preferred;
+	 * {@code false} otherwise
+	 */
+	public PooledDataBufferFactory(boolean preferDirect) {
+		this(preferDirect, DEFAULT_INITIAL_CAPACITY, DEFAULT_MAX_POOLED_CAPACITY);
+	}
+
+	/**
+	 * Create a new {@code PooledDataBufferFactory}, indicating whether direct
+	 * buffers should be pooled rather than heap buffers, what the capacity is to
+	 * be used for {@link #allocateBuffer()}, and up to which capacity buffers
+	 * are pooled.
+	 * @param preferDirect {@code true} if direct buffers are to be preferred;
+	 * {@code false} otherwise
+	 * @param defaultInitialCapacity the capacity for {@link #allocateBuffer()}
+	 * @param maxPooledCapacity the maximum capacity of pooled buffers, larger
+	 * buffers are allocated on demand
+	 */
+	public PooledDataBufferFactory(boolean preferDirect, int defaultInitialCapacity, int maxPooledCapacity) {
+		super(preferDirect, defaultInitialCapacity);
+		Assert.isTrue(maxPooledCapacity >= MIN_POOLED_CAPACITY,
+				"'maxPooledCapacity' should be at least " + MIN_POOLED_CAPACITY);
+		this.preferDirect = preferDirect;
+		this.maxPooledCapacity = roundUpToPowerOfTwo(maxPooledCapacity);
+		int sizeClasses = sizeClassIndex(this.maxPooledCapacity) + 1;
+		this.arenas = new Arena[sizeClasses];
+		for (int i = 0; i < sizeClasses; i++) {
+			int bufferCapacity = MIN_POOLED_CAPACITY << i;
+			this.arenas[i] = new Arena(Math.max(MAX_ARENA_BYTES_PER_SIZE_CLASS / bufferCapacity, 1));
+		}
+		this.threadCacheSizeClasses = Math.min(sizeClasses, sizeClassIndex(THREAD_CACHE_MAX_CAPACITY) + 1);
+		this.threadCaches = ThreadLocal.withInitial(() -> {
+			ThreadCache cache = new ThreadCache(this.arenas, this.threadCacheSizeClasses);
+			this.allThreadCaches.put(cache, Boolean.TRUE);
+			return cache;
+		});
+	}
+
+
+	/**
+	 * Return the maximum capacity of pooled buffers.
+	 */
+	public int getMaxPooledCapacity() {
+		return this.maxPooledCapacity;
+	}
+
+	/**
+	 * Whether to record the allocation stack trace of each buffer, and to log
+	 * a warning with that trace for buffers that are garbage collected without
+	 * having been released.
+	 * <p>This is expensive and intended for development and tests only.
+	 * <p>Default is {@code false}.
+	 * @see #getUnreleasedBufferTraces()
+	 */
+	public void setLeakDetection(boolean leakDetection) {
+		this.leakDetection = leakDetection;
+	}
+
+	/**
+	 * Whether leak detection is enabled.
+	 */
+	public boolean isLeakDetection() {
+		return this.leakDetection;
+	}
+
+	/**
+	 * Return the allocation stack traces of all buffers allocated with
+	 * {@linkplain #setLeakDetection leak detection} enabled that have not
+	 * been released yet, including buffers still legitimately in use.
+	 */
+	public List<Throwable> getUnreleasedBufferTraces() {
+		List<Throwable> traces = new ArrayList<>();
+		for (LeakRecord record : this.leakRecords.keySet()) {
+			traces.add(record.allocation);
+		}
+		return traces;
+	}
+
+
+	@Override
+	public DefaultDataBuffer allocateBuffer(int initialCapacity) {
+		if (initialCapacity > this.maxPooledCapacity) {
+			return super.allocateBuffer(initialCapacity);
+		}
+		ByteBuffer chunk = acquire(initialCapacity);
+		PooledBuffer buffer = new PooledBuffer(this, chunk, initialCapacity);
+		if (this.leakDetection) {
+			reportLeaks();
+			buffer.leakRecord = new LeakRecord(buffer, this.leakQueue);
+			this.leakRecords.put(buffer.leakRecord, Boolean.TRUE);
+		}
+		return buffer;
+	}
+
+	/**
+	 * Obtain a chunk of memory from the thread cache, or the arena, or
+	 * allocate a new one if neither has one available.
+	 */
+	private ByteBuffer acquire(int capacity) {
+		int index = sizeClassIndex(capacity);
+		ByteBuffer chunk = null;
+		if (index < this.threadCacheSizeClasses) {
+			ThreadCache cache = this.threadCaches.get();
+			chunk = cache.poll(index);
+			if (++cache.allocations >= THREAD_CACHE_TRIM_INTERVAL) {
+				cache.allocations = 0;
+				cache.trim();
+				sweepIdleThreadCaches(cache);
+			}
+		}
+		if (chunk == null) {
+			chunk = this.arenas[index].poll();
+		}
+		if (chunk == null) {
+			int chunkCapacity = MIN_POOLED_CAPACITY << index;
+			chunk = (this.preferDirect ?
+					ByteBuffer.allocateDirect(chunkCapacity) : ByteBuffer.allocate(chunkCapacity));
+		}
+		return chunk;
+	}
+
+	/**
+	 * Return a chunk of memory for reuse.
+	 */
+	private void recycle(ByteBuffer chunk) {
+		((Buffer) chunk).clear();
+		int index = sizeClassIndex(chunk.capacity());
+		if (index >= this.threadCacheSizeClasses || !this.threadCaches.get().offer(index, chunk)) {
+			this.arenas[index].offer(chunk);
+		}
+	}
+
+	/**
+	 * Empty the caches of threads that have not used them since the previous
+	 * sweep, at most once per sweep interval.
+	 */
+	private void sweepIdleThreadCaches(ThreadCache current) {
+		long lastSweep = this.lastThreadCacheSweep.get();
+		long now = System.nanoTime();
+		if (now - lastSweep < THREAD_CACHE_SWEEP_INTERVAL ||
+				!this.lastThreadCacheSweep.compareAndSet(lastSweep, now)) {
+			return;
+		}
+		for (ThreadCache cache : this.allThreadCaches.keySet()) {
+			if (cache != current && cache.isIdleSinceLastSweep()) {
+				cache.clear();
+			}
+		}
+	}
+
+	private void reportLeaks() {
+		LeakRecord record;
+		while ((record = (LeakRecord) this.leakQueue.poll()) != null) {
+			if (this.leakRecords.remove(record) != null && logger.isWarnEnabled()) {
+				logger.warn("DataBuffer was garbage collected without having been released. " +
+						"Allocated at:", record.allocation);
+			}
+		}
+	}
+
+	private static int sizeClassIndex(int capacity) {
+		if (capacity <= MIN_POOLED_CAPACITY) {
+			return 0;
+		}
+		return Integer.numberOfTrailingZeros(roundUpToPowerOfTwo(capacity)) -
+				Integer.numberOfTrailingZeros(MIN_POOLED_CAPACITY);
+	}
+
+	private static int roundUpToPowerOfTwo(int value) {
+		int highestOneBit = Integer.highestOneBit(value);
+		return (highestOneBit == value ? value : highestOneBit << 1);
+	}
+
+	/**
+	 * Return a view on the given chunk with the given capacity.
+	 */
+	private static ByteBuffer limit(ByteBuffer chunk, int capacity) {
+		((Buffer) chunk).clear().limit(capacity);
+		return chunk.slice();
+	}
+
+
+	@Override
+	public String toString() {
+		return "PooledDataBufferFactory (preferDirect=" + this.preferDirect +
+				", maxPooledCapacity=" + this.maxPooledCapacity + ")";
+	}
+
+
+	/**
+	 * Shared pool of chunks of a given size class, bounded by a maximum
+	 * number of chunks.
+	 */
+	private static class Arena {
+
+		private final Queue<ByteBuffer> chunks = new ConcurrentLinkedQueue<>();
+
+		private final AtomicInteger size = new AtomicInteger();
+
+		private final int maxSize;
+
+		Arena(int maxSize) {
+			this.maxSize = maxSize;
+		}
+
+		@Nullable
+		ByteBuffer poll() {
+			ByteBuffer chunk = this.chunks.poll();
+			if (chunk != null) {
+				this.size.decrementAndGet();
+			}
+			return chunk;
+		}
+
+		void offer(ByteBuffer chunk) {
+			if (this.size.incrementAndGet() <= this.maxSize) {
+				this.chunks.offer(chunk);
+			}
+			else {
+				this.size.decrementAndGet();
+			}
+		}
+	}
+
+
+	/**
+	 * Per-thread cache of chunks, serving allocations without contention.
+	 * Bounded by a number of chunks per size class and a total number of bytes.
+	 * Methods are synchronized since idle caches are cleared by other threads,
+	 * so the monitor is uncontended in the common case.
+	 */
+	private static class ThreadCache {
+
+		private final Arena[] arenas;
+
+		private final ArrayDeque<ByteBuffer>[] chunks;
+
+		/** Cache hits per size class since the previous trim. */
+		private final int[] hits;
+
+		private int bytes;
+
+		private int uses;
+
+		private int usesAtLastSweep;
+
+		/** Allocations since the previous trim, only accessed by the owning thread. */
+		int allocations;
+
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		ThreadCache(Arena[] arenas, int sizeClasses) {
+			this.arenas = arenas;
+			this.chunks = new ArrayDeque[sizeClasses];
+			for (int i = 0; i < sizeClasses; i++) {
+				this.chunks[i] = new ArrayDeque<>(THREAD_CACHE_SIZE);
+			}
+			this.hits = new int[sizeClasses];
+		}
+
+		@Nullable
+		synchronized ByteBuffer poll(int index) {
+			this.uses++;
+			ByteBuffer chunk = this.chunks[index].pollLast();
+			if (chunk != null) {
+				this.bytes -= chunk.capacity();
+				this.hits[index]++;
+			}
+			return chunk;
+		}
+
+		synchronized boolean offer(int index, ByteBuffer chunk) {
+			this.uses++;
+			ArrayDeque<ByteBuffer> deque = this.chunks[index];
+			if (deque.size() < THREAD_CACHE_SIZE && this.bytes + chunk.capacity() <= THREAD_CACHE_MAX_BYTES) {
+				deque.addLast(chunk);
+				this.bytes += chunk.capacity();
+				return true;
+			}
+			return false;
+		}
+
+		/**
+		 * Return the chunks that exceed the number of cache hits of their
+		 * size class since the previous trim to the arenas.
+		 */
+		synchronized void trim() {
+			for (int i = 0; i < this.chunks.length; i++) {
+				release(i, this.hits[i]);
+				this.hits[i] = 0;
+			}
+		}
+
+		/**
+		 * Return all chunks to the arenas.
+		 */
+		synchronized void clear() {
+			for (int i = 0; i < this.chunks.length; i++) {
+				release(i, 0);
+				this.hits[i] = 0;
+			}
+		}
+
+		synchronized boolean isIdleSinceLastSweep() {
+			boolean idle = (this.uses == this.usesAtLastSweep);
+			this.usesAtLastSweep = this.uses;
+			return idle;
+		}
+
+		private void release(int index, int keep) {
+			ArrayDeque<ByteBuffer> deque = this.chunks[index];
+			while (deque.size() > keep) {
+				ByteBuffer chunk = deque.pollFirst();
+				this.bytes -= chunk.capacity();
+				this.arenas[index].offer(chunk);
+			}
+		}
+	}
+
+
+	/**
+	 * Weak reference to a buffer, holding its allocation stack trace.
+	 */
+	private static class LeakRecord extends WeakReference<PooledBuffer> {
+
+		final Throwable allocation;
+
+		LeakRecord(PooledBuffer buffer, ReferenceQueue<PooledBuffer> queue) {
+			super(buffer, queue);
+			this.allocation = new Throwable("DataBuffer allocation");
+		}
+	}
+
+
+	/**
+	 * Reference counted {@link DefaultDataBuffer} backed by a pooled chunk.
+	 */
+	private static class PooledBuffer extends DefaultDataBuffer implements PooledDataBuffer {
+
+		private static final AtomicIntegerFieldUpdater<PooledBuffer> REF_COUNT_UPDATER =
+				AtomicIntegerFieldUpdater.newUpdater(PooledBuffer.class, "refCount");
+
+		private final PooledDataBufferFactory factory;
+
+		@Nullable
+		private ByteBuffer chunk;
+
+		/** Chunks outgrown by capacity changes, possibly still referenced by slices. */
+		@Nullable
+		private List<ByteBuffer> previousChunks;
+
+		@Nullable
+		LeakRecord leakRecord;
+
+		private volatile int refCount = 1;
+
+		PooledBuffer(PooledDataBufferFactory factory, ByteBuffer chunk, int capacity) {
+			super(factory, limit(chunk, capacity));
+			this.factory = factory;
+			this.chunk = chunk;
+		}
+
+		@Override
+		public boolean isAllocated() {
+			return (this.refCount > 0);
+		}
+
+		@Override
+		public PooledDataBuffer retain() {
+			for (;;) {
+				int current = this.refCount;
+				if (current <= 0) {
+					throw new IllegalStateException("DataBuffer has already been released");
+				}
+				if (REF_COUNT_UPDATER.compareAndSet(this, current, current + 1)) {
+					return this;
+				}
+			}
+		}
+
+		@Override
+		public boolean release() {
+			for (;;) {
+				int current = this.refCount;
+				if (current <= 0) {
+					throw new IllegalStateException("DataBuffer has already been released");
+				}
+				if (REF_COUNT_UPDATER.compareAndSet(this, current, current - 1)) {
+					if (current == 1) {
+						deallocate();
+						return true;
+					}
+					return false;
+				}
+			}
+		}
+
+		private void deallocate() {
+			ByteBuffer chunk = this.chunk;
+			this.chunk = null;
+			if (chunk != null) {
+				this.factory.recycle(chunk);
+			}
+			List<ByteBuffer> previousChunks = this.previousChunks;
+			this.previousChunks = null;
+			if (previousChunks != null) {
+				previousChunks.forEach(this.factory::recycle);
+			}
+			LeakRecord leakRecord = this.leakRecord;
+			if (leakRecord != null) {
+				this.factory.leakRecords.remove(leakRecord);
+				leakRecord.clear();
+			}
+		}
+
+		@Override
+		ByteBuffer allocateNativeBuffer(int capacity, boolean direct) {
+			if (this.chunk != null) {
+				if (this.previousChunks == null) {
+					this.previousChunks = new ArrayList<>(2);
+				}
+				this.previousChunks.add(this.chunk);
+			}
+			if (capacity > this.factory.maxPooledCapacity) {
+				this.chunk = null;
+				return super.allocateNativeBuffer(capacity, direct);
+			}
+			this.chunk = this.factory.acquire(capacity);
+			return limit(this.chunk, capacity);
+		}
+
+		@Override
+		public DefaultDataBuffer slice(int index, int length) {
+			DefaultDataBuffer slice = super.slice(index, length);
+			return new PooledSlice(this.factory, slice.getNativeBuffer(), length, this);
+		}
+	}
+
+
+	/**
+	 * Slice of a {@link PooledBuffer}, sharing its reference count.
+	 */
+	private static class PooledSlice extends DefaultDataBuffer implements PooledDataBuffer {
+
+		private final PooledBuffer parent;
+
+		PooledSlice(PooledDataBufferFactory factory, ByteBuffer byteBuffer, int length, PooledBuffer parent) {
+			super(factory, byteBuffer);
+			writePosition(length);
+			this.parent = parent;
+		}
+
+		@Override
+		public boolean isAllocated() {
+			return this.parent.isAllocated();
+		}
+
+		@Override
+		public PooledDataBuffer retain() {
+			this.parent.retain();
+			return this;
+		}
+
+		@Override
+		public boolean release() {
+			return this.parent.release();
+		}
+
+		@Override
+		public DefaultDataBuffer capacity(int newCapacity) {
+			throw new UnsupportedOperationException("Changing the capacity of a sliced buffer is not supported");
+		}
+
+		@Override
+		public DefaultDataBuffer slice(int index, int length) {
+			DefaultDataBuffer slice = super.slice(index, length);
+			return new PooledSlice((PooledDataBufferFactory) factory(), slice.getNativeBuffer(), length, this.parent);
+		}
+	}
+
+}
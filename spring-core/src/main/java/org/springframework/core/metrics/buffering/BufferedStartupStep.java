@@ -0,0 +1,155 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.metrics.buffering;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * {@link StartupStep} implementation for {@link BufferingApplicationStartup},
+ * keeping track of its parent step, start time and allocation count.
+ *
+ * @author agent
+ * @since 5.1.20
+ */
+class BufferedStartupStep implements StartupStep {
+
+	private final String name;
+
+	private final long id;
+
+	@Nullable
+	private final BufferedStartupStep parent;
+
+	private final long startNanos;
+
+	private final long startAllocatedBytes;
+
+	private final Consumer<BufferedStartupStep> recorder;
+
+	private final List<Tag> tags = new ArrayList<>(2);
+
+	private volatile boolean ended;
+
+
+	BufferedStartupStep(String name, long id, @Nullable BufferedStartupStep parent,
+			long startNanos, long startAllocatedBytes, Consumer<BufferedStartupStep> recorder) {
+
+		this.name = name;
+		this.id = id;
+		this.parent = parent;
+		this.startNanos = startNanos;
+		this.startAllocatedBytes = startAllocatedBytes;
+		this.recorder = recorder;
+	}
+
+
+	@Override
+	public String getName() {
+		return this.name;
+	}
+
+	@Override
+	public long getId() {
+		return this.id;
+	}
+
+	@Override
+	@Nullable
+	public Long getParentId() {
+		return (this.parent != null ? this.parent.getId() : null);
+	}
+
+	@Nullable
+	BufferedStartupStep getParent() {
+		return this.parent;
+	}
+
+	long getStartNanos() {
+		return this.startNanos;
+	}
+
+	long getStartAllocatedBytes() {
+		return this.startAllocatedBytes;
+	}
+
+	@Override
+	public StartupStep tag(String key, String value) {
+		Assert.notNull(key, "Tag key must not be null");
+		Assert.notNull(value, "Tag value must not be null");
+		Assert.state(!this.ended, "StartupStep has already ended");
+		this.tags.add(new DefaultTag(key, value));
+		return this;
+	}
+
+	@Override
+	public StartupStep tag(String key, Supplier<String> value) {
+		return tag(key, value.get());
+	}
+
+	@Override
+	public Tags getTags() {
+		List<Tag> tags = Collections.unmodifiableList(this.tags);
+		return tags::iterator;
+	}
+
+	@Override
+	public void end() {
+		Assert.state(!this.ended, "StartupStep has already ended");
+		this.ended = true;
+		this.recorder.accept(this);
+	}
+
+
+	/**
+	 * Simple {@link Tag} implementation.
+	 */
+	static class DefaultTag implements Tag {
+
+		private final String key;
+
+		private final String value;
+
+		DefaultTag(String key, String value) {
+			this.key = key;
+			this.value = value;
+		}
+
+		@Override
+		public String getKey() {
+			return this.key;
+		}
+
+		@Override
+		public String getValue() {
+			return this.value;
+		}
+
+		@Override
+		public String toString() {
+			return this.key + "=" + this.value;
+		}
+	}
+
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.metrics.buffering;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+import org.springframework.core.NamedThreadLocal;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+
+/**
+ * {@link ApplicationStartup} implementation that buffers {@link StartupStep steps}
+ * in memory and records their timestamps, durations and the number of bytes
+ * allocated on the recording thread while they were in progress.
+ *
+ * <p>Steps are nested per thread: a step started while another step is in
+ * progress on the same thread becomes its child. Once ended, steps are kept
+ * up to the configured capacity; further steps are dropped.
+ *
+ * <p>The recorded {@link StartupTimeline} can be retrieved at any time, e.g.
+ * after the application context has been refreshed, and exported as JSON
+ * through {@link StartupTimeline#writeJson(Appendable)}:
+ *
+ * <pre class="code">
+ * BufferingApplicationStartup startup = new BufferingApplicationStartup(10000);
+ * AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+ * context.setApplicationStartup(startup);
+ * context.register(AppConfig.class);
+ * context.refresh();
+ * startup.getTimeline().writeJson(writer);
+ * </pre>
+ *
+ * @author agent
+ * @since 5.1.20
+ */
+public class BufferingApplicationStartup implements ApplicationStartup {
+
+	private static final boolean allocationCountingSupported =
+			ClassUtils.isPresent("com.sun.management.ThreadMXBean", BufferingApplicationStartup.class.getClassLoader());
+
+
+	private final int capacity;
+
+	private final Instant startTime = Instant.now();
+
+	private final long startNanos = System.nanoTime();
+
+	private final AtomicLong idSeq = new AtomicLong();
+
+	private final ThreadLocal<BufferedStartupStep> currentStep = new NamedThreadLocal<>("Current startup step");
+
+	private final ConcurrentLinkedQueue<StartupTimeline.TimelineEntry> entries = new ConcurrentLinkedQueue<>();
+
+	private final AtomicInteger entryCount = new AtomicInteger();
+
+	private final AtomicInteger droppedCount = new AtomicInteger();
+
+	private Predicate<StartupStep> filter = step -> true;
+
+
+	/**
+	 * Create a new buffered {@link ApplicationStartup} with a limited capacity.
+	 * @param capacity the maximum number of steps to keep in the buffer
+	 */
+	public BufferingApplicationStartup(int capacity) {
+		Assert.isTrue(capacity > 0, "Capacity must be greater than 0");
+		this.capacity = capacity;
+	}
+
+
+	/**
+	 * Add a predicate filter to the list of existing ones.
+	 * <p>A {@link StartupStep step} that doesn't match all filters
+	 * will not be kept in the buffer.
+	 * @param filter the predicate filter to add
+	 */
+	public void addFilter(Predicate<StartupStep> filter) {
+		Assert.notNull(filter, "Filter must not be null");
+		this.filter = this.filter.and(filter);
+	}
+
+	@Override
+	public StartupStep start(String name) {
+		Assert.notNull(name, "Step name must not be null");
+		BufferedStartupStep step = new BufferedStartupStep(name, this.idSeq.incrementAndGet(),
+				this.currentStep.get(), System.nanoTime(), getAllocatedBytes(), this::record);
+		this.currentStep.set(step);
+		return step;
+	}
+
+	private void record(BufferedStartupStep step) {
+		long endNanos = System.nanoTime();
+		long endAllocatedBytes = getAllocatedBytes();
+		// Also pops nested steps that were not ended, e.g. because of an exception
+		for (BufferedStartupStep current = this.currentStep.get(); current != null; current = current.getParent()) {
+			if (current == step) {
+				BufferedStartupStep parent = step.getParent();
+				if (parent != null) {
+					this.currentStep.set(parent);
+				}
+				else {
+					this.currentStep.remove();
+				}
+				break;
+			}
+		}
+		if (!this.filter.test(step)) {
+			return;
+		}
+		if (this.entryCount.incrementAndGet() > this.capacity) {
+			this.entryCount.decrementAndGet();
+			this.droppedCount.incrementAndGet();
+			return;
+		}
+		long allocatedBytes = (step.getStartAllocatedBytes() >= 0 && endAllocatedBytes >= 0 ?
+				endAllocatedBytes - step.getStartAllocatedBytes() : -1);
+		this.entries.add(new StartupTimeline.TimelineEntry(step,
+				this.startTime.plusNanos(step.getStartNanos() - this.startNanos),
+				Duration.ofNanos(endNanos - step.getStartNanos()), allocatedBytes, Thread.currentThread().getName()));
+	}
+
+	/**
+	 * Return the number of steps that were dropped because the buffer was full.
+	 */
+	public int getDroppedCount() {
+		return this.droppedCount.get();
+	}
+
+	/**
+	 * Return a snapshot of the currently buffered steps.
+	 * <p>This will not remove steps from the buffer, see {@link #drainBufferedTimeline()}
+	 * for its counterpart.
+	 */
+	public StartupTimeline getTimeline() {
+		return new StartupTimeline(this.startTime, new ArrayList<>(this.entries));
+	}
+
+	/**
+	 * Return the {@link StartupTimeline timeline} by pulling steps from the buffer.
+	 * <p>This removes steps from the buffer, see {@link #getTimeline()} for its
+	 * read-only counterpart.
+	 */
+	public StartupTimeline drainBufferedTimeline() {
+		List<StartupTimeline.TimelineEntry> drained = new ArrayList<>();
+		StartupTimeline.TimelineEntry entry;
+		while ((entry = this.entries.poll()) != null) {
+			drained.add(entry);
+			this.entryCount.decrementAndGet();
+		}
+		return new StartupTimeline(this.startTime, drained);
+	}
+
+	private static long getAllocatedBytes() {
+		return (allocationCountingSupported ? AllocationCounter.getAllocatedBytes() : -1);
+	}
+
+
+	/**
+	 * Inner class to avoid a hard dependency on the HotSpot-specific
+	 * {@code com.sun.management.ThreadMXBean} extension.
+	 */
+	private static class AllocationCounter {
+
+		@Nullable
+		private static final com.sun.management.ThreadMXBean threadMXBean = initThreadMXBean();
+
+		@Nullable
+		private static com.sun.management.ThreadMXBean initThreadMXBean() {
+			ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+			if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+				com.sun.management.ThreadMXBean sunThreadMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+				if (sunThreadMXBean.isThreadAllocatedMemorySupported() &&
+						sunThreadMXBean.isThreadAllocatedMemoryEnabled()) {
+					return sunThreadMXBean;
+				}
+			}
+			return null;
+		}
+
+		static long getAllocatedBytes() {
+			return (threadMXBean != null ? threadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId()) : -1);
+		}
+	}
+
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.metrics.buffering;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.core.metrics.StartupStep;
+
+/**
+ * Represent the timeline of {@link StartupStep steps} recorded by
+ * {@link BufferingApplicationStartup}. Each {@link TimelineEntry} has
+ * a start time, a duration and the number of bytes allocated while the
+ * step was in progress.
+ *
+ * <p>This is returned by the {@link BufferingApplicationStartup} and
+ * can be exported as JSON for further analysis.
+ *
+ * @author agent
+ * @since 5.1.20
+ */
+public class StartupTimeline {
+
+	private final Instant startTime;
+
+	private final List<TimelineEntry> entries;
+
+
+	StartupTimeline(Instant startTime, List<TimelineEntry> entries) {
+		this.startTime = startTime;
+		this.entries = Collections.unmodifiableList(entries);
+	}
+
+
+	/**
+	 * Return the start time of this timeline.
+	 */
+	public Instant getStartTime() {
+		return this.startTime;
+	}
+
+	/**
+	 * Return the recorded entries, in the order in which their steps ended.
+	 */
+	public List<TimelineEntry> getEvents() {
+		return this.entries;
+	}
+
+	/**
+	 * Write this timeline as a JSON document to the given output.
+	 * <p>The document holds the {@code startTime} of the timeline and an
+	 * {@code events} array with an object for each entry: step {@code id},
+	 * {@code parentId}, {@code name} and {@code tags}, as well as the
+	 * {@code startTime}, {@code duration} in nanoseconds,
+	 * {@code allocatedBytes} (-1 if not supported by the JVM) and
+	 * recording {@code thread}.
+	 * @param out the output to write to
+	 * @throws IOException in case of I/O errors
+	 */
+	public void writeJson(Appendable out) throws IOException {
+		out.append("{\"startTime\":\"").append(this.startTime.toString()).append("\",\"events\":[");
+		boolean first = true;
+		for (TimelineEntry entry : this.entries) {
+			if (!first) {
+				out.append(',');
+			}
+			first = false;
+			StartupStep step = entry.getStartupStep();
+			out.append("{\"id\":").append(String.valueOf(step.getId()));
+			out.append(",\"parentId\":").append(String.valueOf(step.getParentId()));
+			out.append(",\"name\":");
+			appendJsonString(out, step.getName());
+			out.append(",\"startTime\":\"").append(entry.getStartTime().toString()).append('"');
+			out.append(",\"duration\":").append(String.valueOf(entry.getDuration().toNanos()));
+			out.append(",\"allocatedBytes\":").append(String.valueOf(entry.getAllocatedBytes()));
+			out.append(",\"thread\":");
+			appendJsonString(out, entry.getThreadName());
+			out.append(",\"tags\":[");
+			boolean firstTag = true;
+			for (StartupStep.Tag tag : step.getTags()) {
+				if (!firstTag) {
+					out.append(',');
+				}
+				firstTag = false;
+				out.append("{\"key\":");
+				appendJsonString(out, tag.getKey());
+				out.append(",\"value\":");
+				appendJsonString(out, tag.getValue());
+				out.append('}');
+			}
+			out.append("]}");
+		}
+		out.append("]}");
+	}
+
+	/**
+	 * Return this timeline as a JSON document.
+	 * @see #writeJson(Appendable)
+	 */
+	public String toJson() {
+		StringBuilder sb = new StringBuilder(128 + this.entries.size() * 160);
+		try {
+			writeJson(sb);
+		}
+		catch (IOException ex) {
+			throw new IllegalStateException(ex);
+		}
+		return sb.toString();
+	}
+
+	private static void appendJsonString(Appendable out, String value) throws IOException {
+		out.append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '"' || c == '\\') {
+				out.append('\\').append(c);
+			}
+			else if (c < 0x20) {
+				out.append(String.format("\\u%04x", (int) c));
+			}
+			else {
+				out.append(c);
+			}
+		}
+		out.append('"');
+	}
+
+
+	/**
+	 * Event on the current {@link StartupTimeline}.
+	 */
+	public static class TimelineEntry {
+
+		private final StartupStep step;
+
+		private final Instant startTime;
+
+		private final Duration duration;
+
+		private final long allocatedBytes;
+
+		private final String threadName;
+
+		TimelineEntry(StartupStep step, Instant startTime, Duration duration, long allocatedBytes, String threadName) {
+			this.step = step;
+			this.startTime = startTime;
+			this.duration = duration;
+			this.allocatedBytes = allocatedBytes;
+			this.threadName = threadName;
+		}
+
+		/**
+		 * Return the start time of this event.
+		 */
+		public Instant getStartTime() {
+			return this.startTime;
+		}
+
+		/**
+		 * Return the end time of this event.
+		 */
+		public Instant getEndTime() {
+			return this.startTime.plus(this.duration);
+		}
+
+		/**
+		 * Return the duration of this event, i.e. the processing time of the
+		 * associated {@link StartupStep}, including its nested steps.
+		 */
+		public Duration getDuration() {
+			return this.duration;
+		}
+
+		/**
+		 * Return the number of bytes allocated by the recording thread while
+		 * the step was in progress, or -1 if not supported by the JVM.
+		 */
+		public long getAllocatedBytes() {
+			return this.allocatedBytes;
+		}
+
+		/**
+		 * Return the name of the thread that recorded the step.
+		 */
+		public String getThreadName() {
+			return this.threadName;
+		}
+
+		/**
+		 * Return the {@link StartupStep} information for this event.
+		 */
+		public StartupStep getStartupStep() {
+			return this.step;
+		}
+	}
+
+}
@@ -0,0 +1,9 @@
+/**
+ * Support package for recording startup metrics in memory.
+ */
+@NonNullApi
+@NonNullFields
+package org.springframework.core.metrics.buffering;
+
+import org.springframework.lang.NonNullApi;
+import org.springframework.lang.NonNullFields;
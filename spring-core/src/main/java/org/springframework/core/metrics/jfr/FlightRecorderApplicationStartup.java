@@ -0,0 +1,87 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.metrics.jfr;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.core.NamedThreadLocal;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+
+/**
+ * {@link ApplicationStartup} implementation for the Java Flight Recorder.
+ *
+ * <p>This variant records {@link StartupStep} as Flight Recorder events;
+ * because such events only support base types, the
+ * {@link org.springframework.core.metrics.StartupStep.Tags} are serialized
+ * as a single String attribute.
+ *
+ * <p>Once this is configured on the application context, you can record
+ * data by launching the application with recording enabled:
+ * {@code java -XX:StartFlightRecording:filename=recording.jfr,duration=10s -jar app.jar}.
+ *
+ * <p>Requires the {@code jdk.jfr} API, available on JDK 8u262 and higher;
+ * nothing else in the framework refers to this package.
+ *
+ * @author agent
+ * @since 5.1.20
+ */
+public class FlightRecorderApplicationStartup implements ApplicationStartup {
+
+	private final AtomicLong currentSequenceId = new AtomicLong(0);
+
+	private final ThreadLocal<FlightRecorderStartupStep> currentStep =
+			new NamedThreadLocal<>("Current flight recorder startup step");
+
+
+	/**
+	 * Create a new {@code FlightRecorderApplicationStartup}.
+	 * @throws IllegalStateException if the {@code jdk.jfr} API is not available
+	 */
+	public FlightRecorderApplicationStartup() {
+		Assert.state(ClassUtils.isPresent("jdk.jfr.Event", getClass().getClassLoader()),
+				"Java Flight Recorder API (jdk.jfr) not available: JDK 8u262 or higher required");
+	}
+
+
+	@Override
+	public StartupStep start(String name) {
+		FlightRecorderStartupStep step = new FlightRecorderStartupStep(
+				this.currentSequenceId.incrementAndGet(), name, this.currentStep.get(), this);
+		this.currentStep.set(step);
+		return step;
+	}
+
+	void stepEnded(FlightRecorderStartupStep step) {
+		// Also pops nested steps that were not ended, e.g. because of an exception
+		for (FlightRecorderStartupStep current = this.currentStep.get(); current != null; current = current.getParent()) {
+			if (current == step) {
+				FlightRecorderStartupStep parent = step.getParent();
+				if (parent != null) {
+					this.currentStep.set(parent);
+				}
+				else {
+					this.currentStep.remove();
+				}
+				break;
+			}
+		}
+	}
+
+}
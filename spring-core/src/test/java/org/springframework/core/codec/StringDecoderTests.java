@@ -92,7 +92,7 @@ public class StringDecoderTests extends AbstractDecoderTestCase<StringDecoder> {
 		byte[] bytes = s.getBytes(charset);
 		List<byte[]> chunks = new ArrayList<>();
 		for (int i = 0; i < bytes.length; i += length) {
-			chunks.add(Arrays.copyOfRange(bytes, i, i + length));
+			chunks.add(Arrays.copyOfRange(bytes, i, Math.min(i + length, bytes.length)));
 		}
 		return Flux.fromIterable(chunks)
 				.map(chunk -> {
@@ -181,6 +181,59 @@ public class StringDecoderTests extends AbstractDecoderTestCase<StringDecoder> {
 				.verify());
 	}
 
+	@Test
+	public void decodeDelimiterAcrossBuffers() {
+		Flux<DataBuffer> input = Flux.just(
+				stringBuffer("abc\r"),
+				stringBuffer("\ndef\r"),
+				stringBuffer("\n"),
+				stringBuffer("ghi"));
+
+		testDecode(input, String.class, step -> step
+				.expectNext("abc", "def", "ghi")
+				.verifyComplete());
+	}
+
+	@Test
+	public void decodeMultiCharacterDelimiters() {
+		this.decoder = StringDecoder.allMimeTypes(Arrays.asList("--", "||", "::", "##", "~~end~~"), true);
+
+		String line = "0123456789abcdefghijklmnopqrstuvwxyz-|:#~~en!";
+		Flux<DataBuffer> input = toDataBuffers(line + "--" + line + "||" + line + "~~end~~x", 7, UTF_8);
+
+		testDecode(input, String.class, step -> step
+				.expectNext(line, line, line, "x")
+				.verifyComplete());
+	}
+
+	@Test
+	public void decodeOverlappingDelimiters() {
+		this.decoder = StringDecoder.allMimeTypes(Arrays.asList("abc", "b"), true);
+
+		// The delimiter that starts first wins, even if another one ends before it,
+		// regardless of how the input is split into buffers
+		String input = "xabcxyabxzabcz";
+		for (int length = 1; length <= input.length(); length++) {
+			testDecode(toDataBuffers(input, length, UTF_8), String.class, step -> step
+					.expectNext("x", "xya", "xz", "z")
+					.verifyComplete());
+		}
+	}
+
+	@Test
+	public void decodeLongLines() {
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < 100; i++) {
+			builder.append("ü");
+		}
+		String line = builder.toString();
+		Flux<DataBuffer> input = toDataBuffers(line + "\n" + line + "\r\n" + line, 67, UTF_8);
+
+		testDecode(input, String.class, step -> step
+				.expectNext(line, line, line)
+				.verifyComplete());
+	}
+
 	@Test
 	public void decodeEmptyFlux() {
 		Flux<DataBuffer> input = Flux.empty();
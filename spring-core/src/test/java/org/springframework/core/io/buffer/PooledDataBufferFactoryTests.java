@@ -0,0 +1,185 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.io.buffer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import org.springframework.core.io.buffer.support.DataBufferTestUtils;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link PooledDataBufferFactory}.
+ *
+ * @author agent
+ */
+public class PooledDataBufferFactoryTests {
+
+	private final PooledDataBufferFactory bufferFactory = new PooledDataBufferFactory();
+
+
+	@Test
+	public void memoryReused() {
+		DefaultDataBuffer buffer = this.bufferFactory.allocateBuffer(100);
+		assertTrue(buffer instanceof PooledDataBuffer);
+		assertEquals(100, buffer.capacity());
+		byte[] memory = buffer.getNativeBuffer().array();
+		assertEquals(128, memory.length);
+		assertTrue(DataBufferUtils.release(buffer));
+
+		buffer = this.bufferFactory.allocateBuffer(120);
+		assertEquals(120, buffer.capacity());
+		assertSame(memory, buffer.getNativeBuffer().array());
+		DataBufferUtils.release(buffer);
+
+		buffer = this.bufferFactory.allocateBuffer(200);
+		assertNotSame(memory, buffer.getNativeBuffer().array());
+		DataBufferUtils.release(buffer);
+	}
+
+	@Test
+	public void capacityChange() {
+		DefaultDataBuffer buffer = this.bufferFactory.allocateBuffer(64);
+		byte[] memory = buffer.getNativeBuffer().array();
+		buffer.write(new byte[64]);
+		buffer.write("foo".getBytes(StandardCharsets.UTF_8));
+		assertEquals(67, buffer.readableByteCount());
+		assertNotSame(memory, buffer.getNativeBuffer().array());
+
+		// The previous memory is only returned to the pool along with the buffer
+		DefaultDataBuffer other = this.bufferFactory.allocateBuffer(10);
+		assertNotSame(memory, other.getNativeBuffer().array());
+		DataBufferUtils.release(other);
+
+		DataBufferUtils.release(buffer);
+		other = this.bufferFactory.allocateBuffer(64);
+		assertSame(memory, other.getNativeBuffer().array());
+		DataBufferUtils.release(other);
+	}
+
+	@Test
+	public void sliceRemainsValidAfterCapacityChange() {
+		DefaultDataBuffer buffer = this.bufferFactory.allocateBuffer(64);
+		buffer.write("foo".getBytes(StandardCharsets.UTF_8));
+		DataBuffer slice = buffer.slice(0, 3);
+		buffer.write(new byte[64]);
+
+		DefaultDataBuffer other = this.bufferFactory.allocateBuffer(64);
+		other.write("bar".getBytes(StandardCharsets.UTF_8));
+		assertEquals("foo", DataBufferTestUtils.dumpString(slice, StandardCharsets.UTF_8));
+
+		DataBufferUtils.release(other);
+		assertTrue(DataBufferUtils.release(slice));
+		assertFalse(((PooledDataBuffer) buffer).isAllocated());
+	}
+
+	@Test
+	public void threadCacheTrimmedToRecentUse() {
+		DefaultDataBuffer buffer = this.bufferFactory.allocateBuffer(4096);
+		byte[] memory = buffer.getNativeBuffer().array();
+		DataBufferUtils.release(buffer);
+
+		// Allocations of another size class only: the cached 4 KB chunk goes to the arena
+		for (int i = 0; i < 1024; i++) {
+			DataBufferUtils.release(this.bufferFactory.allocateBuffer(100));
+		}
+
+		DefaultDataBuffer[] buffers = new DefaultDataBuffer[2];
+		buffers[0] = this.bufferFactory.allocateBuffer(4096);
+		assertSame(memory, buffers[0].getNativeBuffer().array());
+		buffers[1] = this.bufferFactory.allocateBuffer(4096);
+		assertNotSame(memory, buffers[1].getNativeBuffer().array());
+		Arrays.stream(buffers).forEach(DataBufferUtils::release);
+	}
+
+	@Test
+	public void largeChunksBypassThreadCache() throws Exception {
+		DefaultDataBuffer buffer = this.bufferFactory.allocateBuffer(32 * 1024);
+		byte[] memory = buffer.getNativeBuffer().array();
+		DataBufferUtils.release(buffer);
+
+		// Not cached per thread, so available to other threads through the arena
+		byte[][] other = new byte[1][];
+		Thread thread = new Thread(() -> {
+			DefaultDataBuffer otherBuffer = this.bufferFactory.allocateBuffer(32 * 1024);
+			other[0] = otherBuffer.getNativeBuffer().array();
+			DataBufferUtils.release(otherBuffer);
+		});
+		thread.start();
+		thread.join();
+		assertSame(memory, other[0]);
+	}
+
+	@Test
+	public void largeBufferNotPooled() {
+		DefaultDataBuffer buffer = this.bufferFactory.allocateBuffer(PooledDataBufferFactory.DEFAULT_MAX_POOLED_CAPACITY + 1);
+		assertFalse(buffer instanceof PooledDataBuffer);
+
+		DefaultDataBuffer wrapped = this.bufferFactory.wrap(ByteBuffer.allocate(10));
+		assertFalse(wrapped instanceof PooledDataBuffer);
+	}
+
+	@Test
+	public void sliceSharesReferenceCount() {
+		DataBuffer buffer = this.bufferFactory.allocateBuffer(10);
+		buffer.write("foobar".getBytes(StandardCharsets.UTF_8));
+		DataBuffer slice = DataBufferUtils.retain(buffer.slice(3, 3));
+		assertTrue(slice instanceof PooledDataBuffer);
+
+		assertFalse(DataBufferUtils.release(buffer));
+		assertTrue(((PooledDataBuffer) buffer).isAllocated());
+		byte[] bytes = new byte[3];
+		slice.read(bytes);
+		assertEquals("bar", new String(bytes, StandardCharsets.UTF_8));
+
+		assertTrue(DataBufferUtils.release(slice));
+		assertFalse(((PooledDataBuffer) buffer).isAllocated());
+	}
+
+	@Test
+	public void join() {
+		DataBuffer foo = this.bufferFactory.allocateBuffer(3).write("foo".getBytes(StandardCharsets.UTF_8));
+		DataBuffer bar = this.bufferFactory.allocateBuffer(3).write("bar".getBytes(StandardCharsets.UTF_8));
+
+		DataBuffer result = this.bufferFactory.join(Arrays.asList(foo, bar));
+		assertFalse(((PooledDataBuffer) foo).isAllocated());
+		assertFalse(((PooledDataBuffer) bar).isAllocated());
+		assertEquals("foobar", DataBufferTestUtils.dumpString(result, StandardCharsets.UTF_8));
+		DataBufferUtils.release(result);
+	}
+
+	@Test
+	public void leakDetection() {
+		this.bufferFactory.setLeakDetection(true);
+		DataBuffer buffer = this.bufferFactory.allocateBuffer(10);
+		DataBuffer other = this.bufferFactory.allocateBuffer(10);
+		assertEquals(2, this.bufferFactory.getUnreleasedBufferTraces().size());
+
+		DataBufferUtils.release(buffer);
+		assertEquals(1, this.bufferFactory.getUnreleasedBufferTraces().size());
+		StackTraceElement[] trace = this.bufferFactory.getUnreleasedBufferTraces().get(0).getStackTrace();
+		assertTrue(trace.length > 0);
+
+		DataBufferUtils.release(other);
+		assertTrue(this.bufferFactory.getUnreleasedBufferTraces().isEmpty());
+	}
+
+}
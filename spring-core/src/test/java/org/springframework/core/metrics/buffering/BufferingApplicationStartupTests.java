@@ -0,0 +1,133 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.metrics.buffering;
+
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Test;
+
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.core.metrics.buffering.StartupTimeline.TimelineEntry;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link BufferingApplicationStartup}.
+ *
+ * @author agent
+ */
+public class BufferingApplicationStartupTests {
+
+	@Test
+	public void recordNestedSteps() {
+		BufferingApplicationStartup startup = new BufferingApplicationStartup(16);
+		StartupStep outer = startup.start("spring.test.outer").tag("key", "value");
+		StartupStep inner = startup.start("spring.test.inner");
+		inner.end();
+		StartupStep sibling = startup.start("spring.test.sibling");
+		sibling.end();
+		outer.end();
+
+		List<TimelineEntry> events = startup.getTimeline().getEvents();
+		assertEquals(3, events.size());
+		assertEquals("spring.test.inner", events.get(0).getStartupStep().getName());
+		assertEquals(Long.valueOf(outer.getId()), events.get(0).getStartupStep().getParentId());
+		assertEquals(Long.valueOf(outer.getId()), events.get(1).getStartupStep().getParentId());
+		TimelineEntry outerEvent = events.get(2);
+		assertNull(outerEvent.getStartupStep().getParentId());
+		assertTrue(outerEvent.getDuration().compareTo(events.get(0).getDuration()) >= 0);
+		assertFalse(outerEvent.getStartTime().isAfter(events.get(0).getStartTime()));
+		assertEquals(Thread.currentThread().getName(), outerEvent.getThreadName());
+		Iterator<StartupStep.Tag> tags = outerEvent.getStartupStep().getTags().iterator();
+		StartupStep.Tag tag = tags.next();
+		assertEquals("key", tag.getKey());
+		assertEquals("value", tag.getValue());
+		assertFalse(tags.hasNext());
+	}
+
+	@Test
+	public void stepNotEndedIsPoppedWithParent() {
+		BufferingApplicationStartup startup = new BufferingApplicationStartup(16);
+		StartupStep outer = startup.start("spring.test.outer");
+		startup.start("spring.test.failed");
+		outer.end();
+		StartupStep next = startup.start("spring.test.next");
+		assertNull(next.getParentId());
+	}
+
+	@Test
+	public void recordAllocatedBytes() {
+		BufferingApplicationStartup startup = new BufferingApplicationStartup(16);
+		StartupStep step = startup.start("spring.test.allocate");
+		byte[][] arrays = new byte[16][];
+		for (int i = 0; i < arrays.length; i++) {
+			arrays[i] = new byte[1024];
+		}
+		step.end();
+		long allocatedBytes = startup.getTimeline().getEvents().get(0).getAllocatedBytes();
+		assertTrue(allocatedBytes == -1 || allocatedBytes >= 16 * 1024);
+	}
+
+	@Test
+	public void dropStepsWhenBufferIsFull() {
+		BufferingApplicationStartup startup = new BufferingApplicationStartup(2);
+		for (int i = 0; i < 5; i++) {
+			startup.start("spring.test.step").end();
+		}
+		assertEquals(2, startup.getTimeline().getEvents().size());
+		assertEquals(3, startup.getDroppedCount());
+		assertEquals(2, startup.drainBufferedTimeline().getEvents().size());
+		assertTrue(startup.getTimeline().getEvents().isEmpty());
+		startup.start("spring.test.step").end();
+		assertEquals(1, startup.getTimeline().getEvents().size());
+	}
+
+	@Test
+	public void filterSteps() {
+		BufferingApplicationStartup startup = new BufferingApplicationStartup(16);
+		startup.addFilter(step -> step.getName().startsWith("spring.context"));
+		startup.start("spring.context.refresh").end();
+		startup.start("spring.beans.instantiate").end();
+		List<TimelineEntry> events = startup.getTimeline().getEvents();
+		assertEquals(1, events.size());
+		assertEquals("spring.context.refresh", events.get(0).getStartupStep().getName());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void tagEndedStep() {
+		StartupStep step = new BufferingApplicationStartup(16).start("spring.test.step");
+		step.end();
+		step.tag("key", "value");
+	}
+
+	@Test
+	public void writeJson() {
+		BufferingApplicationStartup startup = new BufferingApplicationStartup(16);
+		StartupStep outer = startup.start("spring.test.outer");
+		startup.start("spring.test.inner").tag("beanName", "quoted \"name\"\n").end();
+		outer.end();
+
+		String json = startup.getTimeline().toJson();
+		assertTrue(json.startsWith("{\"startTime\":\"" + startup.getTimeline().getStartTime() + "\",\"events\":[{"));
+		assertTrue(json.contains("\"id\":2,\"parentId\":1,\"name\":\"spring.test.inner\""));
+		assertTrue(json.contains("\"id\":1,\"parentId\":null,\"name\":\"spring.test.outer\""));
+		assertTrue(json.contains("\"tags\":[{\"key\":\"beanName\",\"value\":\"quoted \\\"name\\\"\\u000a\"}]"));
+		assertTrue(json.endsWith("\"tags\":[]}]}"));
+	}
+
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.expression.spel;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.standard.SpelExpression;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+
+/**
+ * Benchmarks for {@link SpelExpression#getValue(Object)}, comparing interpreted
+ * evaluation with evaluation of the compiled form of the same expression.
+ *
+ * <p>Typically run with {@code "./gradlew :spring-expression:jmh"}.
+ *
+ * @author agent
+ */
+@BenchmarkMode(Mode.Throughput)
+public class SpelExpressionBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class ExpressionData {
+
+		@Param({"name", "age > 18 and name.length() > 3", "address.city + ':' + address.zip"})
+		public String expressionString;
+
+		public final Person root = new Person("Jonathan", 42, new Address("Zurich", "8000"));
+
+		public Expression interpreted;
+
+		public SpelExpression compiled;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			this.interpreted = new SpelExpressionParser().parseExpression(this.expressionString);
+			this.compiled = (SpelExpression) new SpelExpressionParser().parseExpression(this.expressionString);
+			// Evaluate once so that the AST nodes record the exit type descriptors
+			this.compiled.getValue(this.root);
+			if (!this.compiled.compileExpression()) {
+				throw new IllegalStateException("Expression not compilable: " + this.expressionString);
+			}
+		}
+	}
+
+
+	@Benchmark
+	public Object interpreted(ExpressionData data) {
+		return data.interpreted.getValue(data.root);
+	}
+
+	@Benchmark
+	public Object compiled(ExpressionData data) {
+		return data.compiled.getValue(data.root);
+	}
+
+
+	public static class Person {
+
+		private final String name;
+
+		private final int age;
+
+		private final Address address;
+
+		public Person(String name, int age, Address address) {
+			this.name = name;
+			this.age = age;
+			this.address = address;
+		}
+
+		public String getName() {
+			return this.name;
+		}
+
+		public int getAge() {
+			return this.age;
+		}
+
+		public Address getAddress() {
+			return this.address;
+		}
+	}
+
+
+	public static class Address {
+
+		private final String city;
+
+		private final String zip;
+
+		public Address(String city, String zip) {
+			this.city = city;
+			this.zip = zip;
+		}
+
+		public String getCity() {
+			return this.city;
+		}
+
+		public String getZip() {
+			return this.zip;
+		}
+	}
+
+}
@@ -89,6 +89,18 @@ public class CodeFlow implements Opcodes {
 	 */
 	private int nextFreeVariableId = 1;
 
+	/**
+	 * Local variables holding the active context object for a nested evaluation,
+	 * e.g. the current element of a collection selection or projection.
+	 */
+	private final Deque<Integer> targetVariables = new ArrayDeque<>();
+
+	/**
+	 * The next local variable available in the main evaluation method
+	 * (variable 0 is 'this', 1 is the target and 2 is the EvaluationContext).
+	 */
+	private int nextLocalVariable = 3;
+
 
 	/**
 	 * Construct a new {@code CodeFlow} for the given class.
@@ -105,11 +117,13 @@ public class CodeFlow implements Opcodes {
 
 	/**
 	 * Push the byte code to load the target (i.e. what was passed as the first argument
-	 * to CompiledExpression.getValue(target, context))
+	 * to CompiledExpression.getValue(target, context)), or the current active context
+	 * object if within a {@link #enterTargetScope target scope}
 	 * @param mv the visitor into which the load instruction should be inserted
 	 */
 	public void loadTarget(MethodVisitor mv) {
-		mv.visitVarInsn(ALOAD, 1);
+		Integer targetVariable = this.targetVariables.peek();
+		mv.visitVarInsn(ALOAD, (targetVariable != null ? targetVariable : 1));
 	}
 
 	/**
@@ -150,6 +164,27 @@ public class CodeFlow implements Opcodes {
 		this.compilationScopes.pop();
 	}
 
+	/**
+	 * Enter a new target scope: until the matching {@link #exitTargetScope()},
+	 * {@link #loadTarget} loads the given local variable instead of the target
+	 * passed to the compiled expression. Used by nodes evaluating a sub-expression
+	 * against each element of a collection, like selection and projection.
+	 * @param variable the local variable holding the active context object
+	 * @since 5.1.20
+	 * @see #allocateLocalVariable()
+	 */
+	public void enterTargetScope(int variable) {
+		this.targetVariables.push(variable);
+	}
+
+	/**
+	 * Exit a target scope, returning to the previous active context object.
+	 * @since 5.1.20
+	 */
+	public void exitTargetScope() {
+		this.targetVariables.pop();
+	}
+
 	/**
 	 * Return the descriptor for the item currently on top of the stack (in the current scope).
 	 */
@@ -225,6 +260,16 @@ public class CodeFlow implements Opcodes {
 		return this.nextFreeVariableId++;
 	}
 
+	/**
+	 * Allocate a local variable in the main evaluation method, e.g. for
+	 * holding an iterator whilst generating a loop.
+	 * @return the index of the new local variable
+	 * @since 5.1.20
+	 */
+	public int allocateLocalVariable() {
+		return this.nextLocalVariable++;
+	}
+
 	public String getClassName() {
 		return this.className;
 	}
@@ -614,6 +659,26 @@ public class CodeFlow implements Opcodes {
 		return false;
 	}
 
+	/**
+	 * Determine whether a (possibly boxed) supported number type can be widened to
+	 * another supported number type, e.g. from {@code int} to {@code long} or from
+	 * {@code java.lang.Float} to {@code java.lang.Double}.
+	 * @param stackDescriptor the descriptor of the number on the stack
+	 * @param targetDescriptor the descriptor of the desired number type
+	 * @return {@code true} if {@link #insertNumericUnboxOrPrimitiveTypeCoercion} followed
+	 * by boxing (if the target is a boxed type) converts from one to the other
+	 * @since 5.1.20
+	 */
+	public static boolean isNumericWideningCompatible(String stackDescriptor, String targetDescriptor) {
+		if (!isPrimitiveOrUnboxableSupportedNumber(stackDescriptor) ||
+				!isPrimitiveOrUnboxableSupportedNumber(targetDescriptor)) {
+			return false;
+		}
+		String widening = "IJFD";
+		return (widening.indexOf(toPrimitiveTargetDesc(stackDescriptor)) <
+				widening.indexOf(toPrimitiveTargetDesc(targetDescriptor)));
+	}
+
 	/**
 	 * Determine if the supplied descriptor is for a supported number type or boolean. The
 	 * compilation process only (currently) supports certain number types. These are
@@ -273,7 +273,8 @@ public class MethodReference extends SpelNodeImpl {
 
 	/**
 	 * A method reference is compilable if it has been resolved to a reflectively accessible method
-	 * and the child nodes (arguments to the method) are also compilable.
+	 * and the child nodes (arguments to the method) are also compilable. Argument conversion is
+	 * only supported for boxing and number widening, as typically needed for overloaded methods.
 	 */
 	@Override
 	public boolean isCompilable() {
@@ -290,7 +291,7 @@ public class MethodReference extends SpelNodeImpl {
 		}
 
 		ReflectiveMethodExecutor executor = (ReflectiveMethodExecutor) executorToCheck.get();
-		if (executor.didArgumentConversionOccur()) {
+		if (executor.didArgumentConversionOccur() && !isCompilableArgumentConversion(executor.getMethod())) {
 			return false;
 		}
 		Class<?> clazz = executor.getMethod().getDeclaringClass();
@@ -301,6 +302,37 @@ public class MethodReference extends SpelNodeImpl {
 		return true;
 	}
 
+	/**
+	 * Determine whether the argument conversion applied by the last invocation can be
+	 * replicated in bytecode, i.e. whether every argument either matches its parameter
+	 * as a simple value type or just needs boxing/unboxing or number widening.
+	 */
+	private boolean isCompilableArgumentConversion(Method method) {
+		if (method.isVarArgs()) {
+			return false;
+		}
+		String[] paramDescriptors = CodeFlow.toParamDescriptors(method);
+		for (int i = 0; i < paramDescriptors.length; i++) {
+			String argDescriptor = this.children[i].exitTypeDescriptor;
+			String paramDescriptor = paramDescriptors[i];
+			if (argDescriptor == null) {
+				return false;
+			}
+			if (argDescriptor.equals(paramDescriptor)) {
+				// Same type but possibly converted, e.g. a collection with converted elements
+				if (!CodeFlow.isPrimitiveOrUnboxableSupportedNumberOrBoolean(argDescriptor) &&
+						!"Ljava/lang/String".equals(argDescriptor)) {
+					return false;
+				}
+			}
+			else if (!CodeFlow.areBoxingCompatible(argDescriptor, paramDescriptor) &&
+					!CodeFlow.isNumericWideningCompatible(argDescriptor, paramDescriptor)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 	@Override
 	public void generateCode(MethodVisitor mv, CodeFlow cf) {
 		CachedMethodExecutor executorToCheck = this.cachedExecutor;
@@ -265,8 +265,16 @@ public abstract class SpelNodeImpl implements SpelNode, Opcodes {
 		String lastDesc = cf.lastDescriptor();
 		Assert.state(lastDesc != null, "No last descriptor");
 		boolean primitiveOnStack = CodeFlow.isPrimitive(lastDesc);
+		if (CodeFlow.isNumericWideningCompatible(lastDesc, paramDesc)) {
+			// Widening number conversion, e.g. int literal passed to a long or Long parameter
+			char targetDesc = CodeFlow.toPrimitiveTargetDesc(paramDesc);
+			CodeFlow.insertNumericUnboxOrPrimitiveTypeCoercion(mv, lastDesc, targetDesc);
+			if (paramDesc.charAt(0) == 'L') {
+				CodeFlow.insertBoxIfNecessary(mv, targetDesc);
+			}
+		}
 		// Check if need to box it for the method reference?
-		if (primitiveOnStack && paramDesc.charAt(0) == 'L') {
+		else if (primitiveOnStack && paramDesc.charAt(0) == 'L') {
 			CodeFlow.insertBoxIfNecessary(mv, lastDesc.charAt(0));
 		}
 		else if (paramDesc.length() == 1 && !primitiveOnStack) {
@@ -77,6 +77,14 @@ public class SpelExpression implements Expression {
 	// give up trying to compile it when it just doesn't seem to be possible.
 	private final AtomicInteger failedAttempts = new AtomicInteger(0);
 
+	// The number of times compilation succeeded - more than once if the compiled form
+	// got discarded in between, e.g. after a type change in mixed mode
+	private final AtomicInteger compilationCount = new AtomicInteger(0);
+
+	// The number of times the compiled form failed at evaluation time and mixed mode
+	// reverted to interpretation (typically since the types flowing through changed)
+	private final AtomicInteger revertCount = new AtomicInteger(0);
+
 
 	/**
 	 * Construct an expression, only used by the parser.
@@ -129,6 +137,7 @@ public class SpelExpression implements Expression {
 				if (this.configuration.getCompilerMode() == SpelCompilerMode.MIXED) {
 					this.compiledAst = null;
 					this.interpretedCount.set(0);
+					this.revertCount.incrementAndGet();
 				}
 				else {
 					// Running in SpelCompilerMode.immediate mode - propagate exception to caller
@@ -165,6 +174,7 @@ public class SpelExpression implements Expression {
 				if (this.configuration.getCompilerMode() == SpelCompilerMode.MIXED) {
 					this.compiledAst = null;
 					this.interpretedCount.set(0);
+					this.revertCount.incrementAndGet();
 				}
 				else {
 					// Running in SpelCompilerMode.immediate mode - propagate exception to caller
@@ -193,6 +203,7 @@ public class SpelExpression implements Expression {
 				if (this.configuration.getCompilerMode() == SpelCompilerMode.MIXED) {
 					this.compiledAst = null;
 					this.interpretedCount.set(0);
+					this.revertCount.incrementAndGet();
 				}
 				else {
 					// Running in SpelCompilerMode.immediate mode - propagate exception to caller
@@ -229,6 +240,7 @@ public class SpelExpression implements Expression {
 				if (this.configuration.getCompilerMode() == SpelCompilerMode.MIXED) {
 					this.compiledAst = null;
 					this.interpretedCount.set(0);
+					this.revertCount.incrementAndGet();
 				}
 				else {
 					// Running in SpelCompilerMode.immediate mode - propagate exception to caller
@@ -260,6 +272,7 @@ public class SpelExpression implements Expression {
 				if (this.configuration.getCompilerMode() == SpelCompilerMode.MIXED) {
 					this.compiledAst = null;
 					this.interpretedCount.set(0);
+					this.revertCount.incrementAndGet();
 				}
 				else {
 					// Running in SpelCompilerMode.immediate mode - propagate exception to caller
@@ -296,6 +309,7 @@ public class SpelExpression implements Expression {
 				if (this.configuration.getCompilerMode() == SpelCompilerMode.MIXED) {
 					this.compiledAst = null;
 					this.interpretedCount.set(0);
+					this.revertCount.incrementAndGet();
 				}
 				else {
 					// Running in SpelCompilerMode.immediate mode - propagate exception to caller
@@ -325,6 +339,7 @@ public class SpelExpression implements Expression {
 				if (this.configuration.getCompilerMode() == SpelCompilerMode.MIXED) {
 					this.compiledAst = null;
 					this.interpretedCount.set(0);
+					this.revertCount.incrementAndGet();
 				}
 				else {
 					// Running in SpelCompilerMode.immediate mode - propagate exception to caller
@@ -363,6 +378,7 @@ public class SpelExpression implements Expression {
 				if (this.configuration.getCompilerMode() == SpelCompilerMode.MIXED) {
 					this.compiledAst = null;
 					this.interpretedCount.set(0);
+					this.revertCount.incrementAndGet();
 				}
 				else {
 					// Running in SpelCompilerMode.immediate mode - propagate exception to caller
@@ -527,6 +543,7 @@ public class SpelExpression implements Expression {
 			if (compiledAst != null) {
 				// Successfully compiled
 				this.compiledAst = compiledAst;
+				this.compilationCount.incrementAndGet();
 				return true;
 			}
 			else {
@@ -548,6 +565,37 @@ public class SpelExpression implements Expression {
 		this.failedAttempts.set(0);
 	}
 
+	/**
+	 * Return whether this expression is currently evaluated in compiled form.
+	 * @since 5.1.20
+	 */
+	public boolean isCompiled() {
+		return (this.compiledAst != null);
+	}
+
+	/**
+	 * Return the number of times this expression has been compiled successfully.
+	 * <p>A count higher than 1 indicates recompilation, typically after the compiled
+	 * form failed in {@link SpelCompilerMode#MIXED} mode due to a type change.
+	 * @since 5.1.20
+	 * @see #getRevertCount()
+	 */
+	public int getCompilationCount() {
+		return this.compilationCount.get();
+	}
+
+	/**
+	 * Return the number of times the compiled form of this expression failed during
+	 * evaluation and got discarded in favor of interpretation (in
+	 * {@link SpelCompilerMode#MIXED} mode), typically because the types of the
+	 * objects the expression operates on changed since it was compiled.
+	 * @since 5.1.20
+	 * @see #getCompilationCount()
+	 */
+	public int getRevertCount() {
+		return this.revertCount.get();
+	}
+
 	/**
 	 * Return the Abstract Syntax Tree for the expression.
 	 */
@@ -0,0 +1,334 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.expression.spel.standard;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.springframework.expression.Expression;
+import org.springframework.expression.ParserContext;
+import org.springframework.expression.common.CompositeStringExpression;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ObjectUtils;
+
+/**
+ * Process-wide, bounded cache of parsed expressions, keyed by expression string,
+ * {@link ParserContext} and {@link SpelParserConfiguration} settings. Shared by all
+ * {@link SpelExpressionParser} instances with {@link SpelExpressionParser#setUseSharedCache
+ * "useSharedCache"} enabled, so that frequently parsed expressions are parsed once and,
+ * with a compiler mode other than {@code OFF}, evaluated in compiled form after warmup
+ * no matter which parser instance they come from.
+ *
+ * <p>Entries are also keyed by the ClassLoader that their expressions resolve and
+ * compile types against: the parser's compiler ClassLoader if configured, or the
+ * thread context ClassLoader at the time of parsing otherwise. Since cached
+ * expressions refer to types and compiled classes of that ClassLoader, they are
+ * only shared among parsers within the same application, and need to be released
+ * through {@link #clearClassLoader} when the application shuts down, which every
+ * {@code ApplicationContext} does on close.
+ *
+ * <p>Also exposes hit/miss counts as well as compilation statistics for the cached
+ * expressions, e.g. to detect expressions getting recompiled over and over again
+ * because of changing types.
+ *
+ * @author agent
+ * @since 5.1.20
+ * @see SpelExpressionParser#setUseSharedCache
+ */
+public final class SpelExpressionCache {
+
+	/** Default maximum number of entries in the shared cache: 1024. */
+	public static final int DEFAULT_CACHE_LIMIT = 1024;
+
+	private static final SpelExpressionCache sharedInstance = new SpelExpressionCache();
+
+
+	private volatile int cacheLimit = DEFAULT_CACHE_LIMIT;
+
+	/** Fast access cache for expressions, returning cached instances without a global lock. */
+	private final Map<CacheKey, Expression> accessCache = new ConcurrentHashMap<>(DEFAULT_CACHE_LIMIT);
+
+	/** Map from cache key to expression, synchronized for registration and eviction. */
+	@SuppressWarnings("serial")
+	private final Map<CacheKey, Expression> creationCache =
+			new LinkedHashMap<CacheKey, Expression>(DEFAULT_CACHE_LIMIT, 0.75f, true) {
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<CacheKey, Expression> eldest) {
+					if (size() > getCacheLimit()) {
+						accessCache.remove(eldest.getKey());
+						return true;
+					}
+					else {
+						return false;
+					}
+				}
+			};
+
+	private final LongAdder hitCount = new LongAdder();
+
+	private final LongAdder missCount = new LongAdder();
+
+
+	private SpelExpressionCache() {
+	}
+
+
+	/**
+	 * Return the process-wide shared cache instance.
+	 */
+	public static SpelExpressionCache getSharedInstance() {
+		return sharedInstance;
+	}
+
+
+	/**
+	 * Specify the maximum number of entries in the cache.
+	 * Default is 1024; the eldest entries get evicted beyond that.
+	 */
+	public void setCacheLimit(int cacheLimit) {
+		Assert.isTrue(cacheLimit > 0, "Cache limit must be greater than 0");
+		this.cacheLimit = cacheLimit;
+	}
+
+	/**
+	 * Return the maximum number of entries in the cache.
+	 */
+	public int getCacheLimit() {
+		return this.cacheLimit;
+	}
+
+	/**
+	 * Return the expression cached for the given key, parsing and caching it first if necessary.
+	 */
+	Expression getExpression(SpelParserConfiguration configuration, String expressionString,
+			@Nullable ParserContext context, Supplier<Expression> parser) {
+
+		CacheKey cacheKey = new CacheKey(configuration, expressionString, context);
+		Expression expression = this.accessCache.get(cacheKey);
+		if (expression != null) {
+			this.hitCount.increment();
+			return expression;
+		}
+		this.missCount.increment();
+		// Parse outside of the lock: concurrent parsing of the same expression is harmless
+		expression = parser.get();
+		synchronized (this.creationCache) {
+			Expression existing = this.creationCache.get(cacheKey);
+			if (existing != null) {
+				return existing;
+			}
+			this.accessCache.put(cacheKey, expression);
+			this.creationCache.put(cacheKey, expression);
+		}
+		return expression;
+	}
+
+	/**
+	 * Remove the expressions associated with the given ClassLoader (or any of
+	 * its child ClassLoaders) from the cache, releasing their compiled classes.
+	 * @param classLoader the ClassLoader to clear the cache for
+	 */
+	public void clearClassLoader(@Nullable ClassLoader classLoader) {
+		if (classLoader == null) {
+			return;
+		}
+		synchronized (this.creationCache) {
+			this.creationCache.keySet().removeIf(cacheKey -> {
+				if (isUnderneathClassLoader(cacheKey.classLoader, classLoader)) {
+					this.accessCache.remove(cacheKey);
+					return true;
+				}
+				return false;
+			});
+		}
+	}
+
+	/**
+	 * Return the number of expressions currently cached.
+	 */
+	public int size() {
+		return this.accessCache.size();
+	}
+
+	/**
+	 * Clear the cache, also resetting the hit and miss counts.
+	 */
+	public void clear() {
+		synchronized (this.creationCache) {
+			this.accessCache.clear();
+			this.creationCache.clear();
+		}
+		this.hitCount.reset();
+		this.missCount.reset();
+	}
+
+	/**
+	 * Return the number of parse requests served from the cache.
+	 */
+	public long getHitCount() {
+		return this.hitCount.sum();
+	}
+
+	/**
+	 * Return the number of parse requests that required actual parsing.
+	 */
+	public long getMissCount() {
+		return this.missCount.sum();
+	}
+
+	/**
+	 * Return the number of cached SpEL expressions currently evaluated in compiled form.
+	 * @see SpelExpression#isCompiled()
+	 */
+	public int getCompiledCount() {
+		int count = 0;
+		for (SpelExpression expression : getSpelExpressions()) {
+			if (expression.isCompiled()) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Return the total number of times cached SpEL expressions got compiled again
+	 * after their compiled form had been discarded, e.g. due to a type change.
+	 * @see SpelExpression#getCompilationCount()
+	 */
+	public long getRecompilationCount() {
+		long count = 0;
+		for (SpelExpression expression : getSpelExpressions()) {
+			count += Math.max(0, expression.getCompilationCount() - 1);
+		}
+		return count;
+	}
+
+	/**
+	 * Return the total number of times cached SpEL expressions reverted from
+	 * compiled form to interpretation, typically due to a type change.
+	 * @see SpelExpression#getRevertCount()
+	 */
+	public long getRevertCount() {
+		long count = 0;
+		for (SpelExpression expression : getSpelExpressions()) {
+			count += expression.getRevertCount();
+		}
+		return count;
+	}
+
+	private List<SpelExpression> getSpelExpressions() {
+		List<SpelExpression> result = new ArrayList<>();
+		for (Expression expression : this.accessCache.values()) {
+			addSpelExpressions(expression, result);
+		}
+		return result;
+	}
+
+	private static boolean isUnderneathClassLoader(@Nullable ClassLoader candidate, ClassLoader parent) {
+		ClassLoader classLoaderToCheck = candidate;
+		while (classLoaderToCheck != null) {
+			if (classLoaderToCheck == parent) {
+				return true;
+			}
+			classLoaderToCheck = classLoaderToCheck.getParent();
+		}
+		return false;
+	}
+
+	private static void addSpelExpressions(Expression expression, List<SpelExpression> result) {
+		if (expression instanceof SpelExpression) {
+			result.add((SpelExpression) expression);
+		}
+		else if (expression instanceof CompositeStringExpression) {
+			for (Expression part : ((CompositeStringExpression) expression).getExpressions()) {
+				addSpelExpressions(part, result);
+			}
+		}
+	}
+
+
+	/**
+	 * Key for cached expressions: expressions are only shared between parsers
+	 * with equivalent configuration settings within the same ClassLoader.
+	 */
+	private static final class CacheKey {
+
+		private final String expressionString;
+
+		@Nullable
+		private final ClassLoader classLoader;
+
+		@Nullable
+		private final String prefix;
+
+		@Nullable
+		private final String suffix;
+
+		private final Object[] configuration;
+
+		private final int hashCode;
+
+		CacheKey(SpelParserConfiguration configuration, String expressionString, @Nullable ParserContext context) {
+			this.expressionString = expressionString;
+			this.classLoader = (configuration.getCompilerClassLoader() != null ?
+					configuration.getCompilerClassLoader() : ClassUtils.getDefaultClassLoader());
+			boolean template = (context != null && context.isTemplate());
+			this.prefix = (template ? context.getExpressionPrefix() : null);
+			this.suffix = (template ? context.getExpressionSuffix() : null);
+			this.configuration = new Object[] {configuration.getCompilerMode(),
+					configuration.isAutoGrowNullReferences(),
+					configuration.isAutoGrowCollections(), configuration.getMaximumAutoGrowSize()};
+			this.hashCode = (this.expressionString.hashCode() * 29 + ObjectUtils.nullSafeHashCode(this.configuration)) * 29 +
+					ObjectUtils.nullSafeHashCode(this.classLoader);
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof CacheKey)) {
+				return false;
+			}
+			CacheKey otherKey = (CacheKey) other;
+			return (this.expressionString.equals(otherKey.expressionString) &&
+					this.classLoader == otherKey.classLoader &&
+					ObjectUtils.nullSafeEquals(this.prefix, otherKey.prefix) &&
+					ObjectUtils.nullSafeEquals(this.suffix, otherKey.suffix) &&
+					ObjectUtils.nullSafeEquals(this.configuration, otherKey.configuration));
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hashCode;
+		}
+
+		@Override
+		public String toString() {
+			return (this.prefix != null ? this.prefix + this.expressionString + this.suffix : this.expressionString);
+		}
+	}
+
+}
@@ -16,6 +16,7 @@
 
 package org.springframework.expression.spel.standard;
 
+import org.springframework.expression.Expression;
 import org.springframework.expression.ParseException;
 import org.springframework.expression.ParserContext;
 import org.springframework.expression.common.TemplateAwareExpressionParser;
@@ -34,6 +35,8 @@ public class SpelExpressionParser extends TemplateAwareExpressionParser {
 
 	private final SpelParserConfiguration configuration;
 
+	private boolean useSharedCache = false;
+
 
 	/**
 	 * Create a parser with default settings.
@@ -52,6 +55,40 @@ public class SpelExpressionParser extends TemplateAwareExpressionParser {
 	}
 
 
+	/**
+	 * Specify whether to share parsed expressions through the process-wide
+	 * {@link SpelExpressionCache}, keyed by expression string, {@link ParserContext},
+	 * configuration settings and ClassLoader. Repeatedly parsing the same expression then returns
+	 * the same instance which, with a compiler mode other than {@code OFF}, gets
+	 * evaluated in compiled form after warmup.
+	 * <p>Default is "false". Only switch this to "true" if the returned expressions
+	 * are not customized, e.g. through {@link SpelExpression#setEvaluationContext},
+	 * since cached instances are shared with other parsers.
+	 * @since 5.1.20
+	 * @see SpelExpressionCache#getSharedInstance()
+	 */
+	public void setUseSharedCache(boolean useSharedCache) {
+		this.useSharedCache = useSharedCache;
+	}
+
+	/**
+	 * Return whether parsed expressions are shared through the process-wide cache.
+	 * @since 5.1.20
+	 */
+	public boolean isUseSharedCache() {
+		return this.useSharedCache;
+	}
+
+
+	@Override
+	public Expression parseExpression(String expressionString, @Nullable ParserContext context) throws ParseException {
+		if (!this.useSharedCache) {
+			return super.parseExpression(expressionString, context);
+		}
+		return SpelExpressionCache.getSharedInstance().getExpression(this.configuration, expressionString, context,
+				() -> super.parseExpression(expressionString, context));
+	}
+
 	public SpelExpression parseRaw(String expressionString) throws ParseException {
 		return doParseExpression(expressionString, null);
 	}
@@ -20,6 +20,7 @@ import java.io.IOException;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -104,6 +105,8 @@ public class SpelCompilationCoverageTests extends AbstractExpressionTests {
 	 * FunctionReference
 	 * InlineList
 	 * OpModulus
+	 * Projection (over an Iterable)
+	 * Selection (over an Iterable)
 	 *
 	 * Not yet compiled (some may never need to be):
 	 * Assign
@@ -114,9 +117,7 @@ public class SpelCompilationCoverageTests extends AbstractExpressionTests {
 	 * OpMatches
 	 * OpPower
 	 * OpInc
-	 * Projection
 	 * QualifiedId
-	 * Selection
 	 */
 
 
@@ -5123,6 +5124,121 @@ public class SpelCompilationCoverageTests extends AbstractExpressionTests {
 		assertTrue(classloadersUsed.size() > 1);
 	}
 
+	@Test
+	public void projection() throws Exception {
+		List<String> list = new ArrayList<>(Arrays.asList("a", "bb", "ccc"));
+		expression = parser.parseExpression("#root.![length()]");
+		assertEquals(Arrays.asList(1, 2, 3), expression.getValue(list));
+		assertCanCompile(expression);
+		assertEquals(Arrays.asList(1, 2, 3), expression.getValue(list));
+		assertEquals(Collections.emptyList(), expression.getValue(new ArrayList<>()));
+
+		// Method arguments are evaluated against the current element as well
+		expression = parser.parseExpression("#root.![substring(length() - 1)]");
+		assertEquals(Arrays.asList("a", "b", "c"), expression.getValue(list));
+		assertCanCompile(expression);
+		assertEquals(Arrays.asList("a", "b", "c"), expression.getValue(list));
+
+		// Nested projection, with #root still referring to the root object
+		expression = parser.parseExpression("#root.![#root.![length()].size() + length()]");
+		assertEquals(Arrays.asList(4, 5, 6), expression.getValue(list));
+		assertCanCompile(expression);
+		assertEquals(Arrays.asList(4, 5, 6), expression.getValue(list));
+
+		expression = parser.parseExpression("#root?.![length()]");
+		assertEquals(Arrays.asList(1, 2, 3), expression.getValue(list));
+		assertCanCompile(expression);
+		assertNull(expression.getValue((Object) null));
+
+		// Not compiled: #this, maps and arrays
+		expression = parser.parseExpression("#root.![#this]");
+		assertEquals(list, expression.getValue(list));
+		assertCantCompile(expression);
+		expression = parser.parseExpression("#root.![key]");
+		assertEquals(Collections.singletonList("a"), expression.getValue(Collections.singletonMap("a", 1)));
+		assertCantCompile(expression);
+		expression = parser.parseExpression("#root.![length()]");
+		assertArrayEquals(new Integer[] {1, 2}, (Object[]) expression.getValue(new String[] {"a", "bb"}));
+		assertCantCompile(expression);
+	}
+
+	@Test
+	public void selection() throws Exception {
+		List<String> list = new ArrayList<>(Arrays.asList("a", "bb", "ccc"));
+		expression = parser.parseExpression("#root.?[length() > 1]");
+		assertEquals(Arrays.asList("bb", "ccc"), expression.getValue(list));
+		assertCanCompile(expression);
+		assertEquals(Arrays.asList("bb", "ccc"), expression.getValue(list));
+		assertEquals(Collections.emptyList(), expression.getValue(new ArrayList<>(Collections.singletonList("a"))));
+
+		expression = parser.parseExpression("#root.^[length() > 1]");
+		assertEquals("bb", expression.getValue(list));
+		assertCanCompile(expression);
+		assertEquals("bb", expression.getValue(list));
+		assertNull(expression.getValue(new ArrayList<>(Collections.singletonList("a"))));
+
+		expression = parser.parseExpression("#root.$[length() > 1]");
+		assertEquals("ccc", expression.getValue(list));
+		assertCanCompile(expression);
+		assertEquals("ccc", expression.getValue(list));
+		assertNull(expression.getValue(new ArrayList<>(Collections.singletonList("a"))));
+
+		expression = parser.parseExpression("#root.?[isEmpty()].![length()]");
+		assertEquals(Collections.singletonList(0), expression.getValue(new ArrayList<>(Arrays.asList("a", ""))));
+		assertCanCompile(expression);
+		assertEquals(Collections.singletonList(0), expression.getValue(new ArrayList<>(Arrays.asList("a", ""))));
+
+		expression = parser.parseExpression("#root?.?[length() > 1]");
+		assertEquals(Arrays.asList("bb", "ccc"), expression.getValue(list));
+		assertCanCompile(expression);
+		assertNull(expression.getValue((Object) null));
+
+		// Not compiled: maps
+		expression = parser.parseExpression("#root.?[value > 1]");
+		assertEquals(Collections.emptyMap(), expression.getValue(Collections.singletonMap("a", 1)));
+		assertCantCompile(expression);
+	}
+
+	@Test
+	public void methodReferenceWithNumberWidening() throws Exception {
+		NumberWidening root = new NumberWidening();
+		expression = parser.parseExpression("sum(1, 2)");
+		assertEquals(3L, expression.getValue(root));
+		assertCanCompile(expression);
+		assertEquals(3L, expression.getValue(root));
+
+		expression = parser.parseExpression("sum(1, 2, 3)");
+		assertEquals(6L, expression.getValue(root));
+		assertCanCompile(expression);
+		assertEquals(6L, expression.getValue(root));
+
+		StandardEvaluationContext context = new StandardEvaluationContext(root);
+		context.setVariable("x", 2);
+		expression = parser.parseExpression("boxedSum(1, #x)");
+		assertEquals(3.0d, expression.getValue(context));
+		assertCanCompile(expression);
+		assertEquals(3.0d, expression.getValue(context));
+
+		// Not compiled: conversion other than number widening
+		expression = parser.parseExpression("describe(42)");
+		assertEquals("42", expression.getValue(root));
+		assertCantCompile(expression);
+	}
+
+	@Test
+	public void indexIntoMapWithNonStringKey() throws Exception {
+		NumberWidening root = new NumberWidening();
+		expression = parser.parseExpression("intMap[1]");
+		assertEquals("one", expression.getValue(root));
+		assertCanCompile(expression);
+		assertEquals("one", expression.getValue(root));
+
+		// Key converted from Integer to Long: not compiled
+		expression = parser.parseExpression("longMap[1]");
+		assertEquals("one", expression.getValue(root));
+		assertCantCompile(expression);
+	}
+
 
 	// Helper methods
 
@@ -6276,4 +6392,28 @@ public class SpelCompilationCoverageTests extends AbstractExpressionTests {
 		}
 	}
 
+
+	public static class NumberWidening {
+
+		public Map<Integer, String> intMap = Collections.singletonMap(1, "one");
+
+		public Map<Long, String> longMap = Collections.singletonMap(1L, "one");
+
+		public long sum(long a, long b) {
+			return a + b;
+		}
+
+		public long sum(long a, long b, long c) {
+			return a + b + c;
+		}
+
+		public double boxedSum(Long a, double b) {
+			return a + b;
+		}
+
+		public String describe(String value) {
+			return value;
+		}
+	}
+
 }
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.expression.spel.standard;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+import org.springframework.expression.Expression;
+import org.springframework.expression.ParseException;
+import org.springframework.expression.ParserContext;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link SpelExpressionCache}.
+ *
+ * @author agent
+ */
+public class SpelExpressionCacheTests {
+
+	private final SpelExpressionCache cache = SpelExpressionCache.getSharedInstance();
+
+
+	@After
+	public void clearCache() {
+		this.cache.setCacheLimit(SpelExpressionCache.DEFAULT_CACHE_LIMIT);
+		this.cache.clear();
+	}
+
+
+	@Test
+	public void sharedBetweenParsersWithSameConfiguration() {
+		SpelExpressionParser parser1 = cachingParser(new SpelParserConfiguration());
+		SpelExpressionParser parser2 = cachingParser(new SpelParserConfiguration());
+		SpelExpressionParser parser3 = cachingParser(new SpelParserConfiguration(true, true));
+
+		Expression expression = parser1.parseExpression("'abc'.length()");
+		assertSame(expression, parser1.parseExpression("'abc'.length()"));
+		assertSame(expression, parser2.parseExpression("'abc'.length()"));
+		assertNotSame(expression, parser3.parseExpression("'abc'.length()"));
+		assertNotSame(expression, new SpelExpressionParser().parseExpression("'abc'.length()"));
+		assertEquals(2, this.cache.size());
+		assertEquals(2, this.cache.getHitCount());
+		assertEquals(2, this.cache.getMissCount());
+	}
+
+	@Test
+	public void keyedByParserContext() {
+		SpelExpressionParser parser = cachingParser(new SpelParserConfiguration());
+		Expression plain = parser.parseExpression("'a'");
+		Expression template = parser.parseExpression("'a'", ParserContext.TEMPLATE_EXPRESSION);
+		Expression composite = parser.parseExpression("#{'a'}b", ParserContext.TEMPLATE_EXPRESSION);
+
+		assertNotSame(plain, template);
+		assertSame(template, parser.parseExpression("'a'", ParserContext.TEMPLATE_EXPRESSION));
+		assertSame(composite, parser.parseExpression("#{'a'}b", ParserContext.TEMPLATE_EXPRESSION));
+		assertEquals("a", plain.getValue());
+		assertEquals("'a'", template.getValue());
+		assertEquals("ab", composite.getValue());
+	}
+
+	@Test
+	public void keyedByClassLoader() {
+		SpelExpressionParser parser = cachingParser(new SpelParserConfiguration());
+		ClassLoader original = Thread.currentThread().getContextClassLoader();
+		ClassLoader appClassLoader = new URLClassLoader(new URL[0], original);
+		ClassLoader childClassLoader = new URLClassLoader(new URL[0], appClassLoader);
+		Expression expression = parser.parseExpression("'abc'");
+		Expression appExpression;
+		Expression childExpression;
+		try {
+			Thread.currentThread().setContextClassLoader(appClassLoader);
+			appExpression = parser.parseExpression("'abc'");
+			assertSame(appExpression, parser.parseExpression("'abc'"));
+			Thread.currentThread().setContextClassLoader(childClassLoader);
+			childExpression = parser.parseExpression("'abc'");
+		}
+		finally {
+			Thread.currentThread().setContextClassLoader(original);
+		}
+		assertNotSame(expression, appExpression);
+		assertNotSame(appExpression, childExpression);
+		assertEquals(3, this.cache.size());
+
+		this.cache.clearClassLoader(appClassLoader);
+		assertEquals(1, this.cache.size());
+		assertSame(expression, parser.parseExpression("'abc'"));
+	}
+
+	@Test
+	public void cacheLimit() {
+		this.cache.setCacheLimit(2);
+		SpelExpressionParser parser = cachingParser(new SpelParserConfiguration());
+		Expression one = parser.parseExpression("1");
+		Expression two = parser.parseExpression("2");
+		parser.parseExpression("3");
+
+		assertEquals(2, this.cache.size());
+		assertSame(two, parser.parseExpression("2"));
+		assertNotSame(one, parser.parseExpression("1"));
+		assertEquals(4, this.cache.getMissCount());
+		assertEquals(1, this.cache.getHitCount());
+	}
+
+	@Test
+	public void recompilationStatistics() {
+		SpelExpressionParser parser = cachingParser(new SpelParserConfiguration(SpelCompilerMode.MIXED, null));
+		SpelExpression expression = (SpelExpression) parser.parseExpression("#root.![intValue()]");
+		List<Integer> integers = new ArrayList<>(Arrays.asList(1, 2));
+		assertEquals(Arrays.asList(1, 2), expression.getValue(integers));
+		assertTrue(expression.compileExpression());
+		assertEquals(1, this.cache.getCompiledCount());
+		assertEquals(Arrays.asList(1, 2), expression.getValue(integers));
+
+		// Type change: compiled form fails, mixed mode reverts to interpretation
+		List<Long> longs = new ArrayList<>(Arrays.asList(3L));
+		assertEquals(Arrays.asList(3), expression.getValue(longs));
+		assertFalse(expression.isCompiled());
+		assertEquals(1, expression.getRevertCount());
+		assertEquals(0, this.cache.getCompiledCount());
+
+		assertTrue(expression.compileExpression());
+		assertEquals(Arrays.asList(3), expression.getValue(longs));
+		assertEquals(2, expression.getCompilationCount());
+		assertEquals(1, this.cache.getRecompilationCount());
+		assertEquals(1, this.cache.getRevertCount());
+	}
+
+	@Test
+	public void parseFailureNotCached() {
+		SpelExpressionParser parser = cachingParser(new SpelParserConfiguration());
+		for (int i = 0; i < 2; i++) {
+			try {
+				parser.parseExpression("1 +");
+				fail("Should have thrown ParseException");
+			}
+			catch (ParseException ex) {
+				// expected
+			}
+		}
+		assertEquals(0, this.cache.size());
+	}
+
+
+	private static SpelExpressionParser cachingParser(SpelParserConfiguration configuration) {
+		SpelExpressionParser parser = new SpelExpressionParser(configuration);
+		parser.setUseSharedCache(true);
+		return parser;
+	}
+
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core;
+
+import java.util.List;
+import java.util.Map;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+/**
+ * Benchmarks for {@link JdbcTemplate} queries against an embedded H2 database,
+ * measuring the framework overhead of statement handling and row mapping.
+ *
+ * <p>Typically run with {@code "./gradlew :spring-jdbc:jmh"}.
+ *
+ * @author agent
+ */
+@BenchmarkMode(Mode.Throughput)
+public class JdbcTemplateQueryBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class DatabaseData {
+
+		@Param({"1", "100"})
+		public int rowCount;
+
+		public EmbeddedDatabase database;
+
+		public JdbcTemplate jdbcTemplate;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			this.database = new EmbeddedDatabaseBuilder()
+					.generateUniqueName(true)
+					.setType(EmbeddedDatabaseType.H2)
+					.build();
+			this.jdbcTemplate = new JdbcTemplate(this.database);
+			this.jdbcTemplate.execute("CREATE TABLE person (id INT PRIMARY KEY, name VARCHAR(50), age INT)");
+			for (int i = 0; i < this.rowCount; i++) {
+				this.jdbcTemplate.update("INSERT INTO person VALUES (?, ?, ?)", i, "person-" + i, 20 + (i % 50));
+			}
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() {
+			this.database.shutdown();
+		}
+	}
+
+
+	@Benchmark
+	public List<Person> queryWithRowMapper(DatabaseData data) {
+		return data.jdbcTemplate.query("SELECT id, name, age FROM person",
+				(rs, rowNum) -> new Person(rs.getInt(1), rs.getString(2), rs.getInt(3)));
+	}
+
+	@Benchmark
+	public List<Person> queryWithArguments(DatabaseData data) {
+		return data.jdbcTemplate.query("SELECT id, name, age FROM person WHERE age >= ?",
+				(rs, rowNum) -> new Person(rs.getInt(1), rs.getString(2), rs.getInt(3)), 0);
+	}
+
+	@Benchmark
+	public List<Map<String, Object>> queryForList(DatabaseData data) {
+		return data.jdbcTemplate.queryForList("SELECT id, name, age FROM person");
+	}
+
+
+	public static class Person {
+
+		private final int id;
+
+		private final String name;
+
+		private final int age;
+
+		public Person(int id, String name, int age) {
+			this.id = id;
+			this.name = name;
+			this.age = age;
+		}
+
+		public int getId() {
+			return this.id;
+		}
+
+		public String getName() {
+			return this.name;
+		}
+
+		public int getAge() {
+			return this.age;
+		}
+	}
+
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.messaging.simp.stomp;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import org.springframework.messaging.Message;
+
+/**
+ * Benchmarks for {@link StompDecoder#decode(ByteBuffer)} with a typical
+ * {@code MESSAGE} frame and a configurable body size.
+ *
+ * <p>Typically run with {@code "./gradlew :spring-messaging:jmh"}.
+ *
+ * @author agent
+ */
+@BenchmarkMode(Mode.Throughput)
+public class StompDecoderBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class DecoderData {
+
+		@Param({"16", "1024", "65536"})
+		public int bodySize;
+
+		public final StompDecoder decoder = new StompDecoder();
+
+		public byte[] frame;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			char[] body = new char[this.bodySize];
+			Arrays.fill(body, 'x');
+			String frame = "MESSAGE\n" +
+					"subscription:sub-0\n" +
+					"message-id:a7f3c1e0-5d1b-4c5e-9f0a-000000000001\n" +
+					"destination:/topic/prices.NASDAQ.SPRG\n" +
+					"content-type:application/json;charset=UTF-8\n" +
+					"content-length:" + this.bodySize + "\n" +
+					"\n" + new String(body) + "\0";
+			this.frame = frame.getBytes(StandardCharsets.UTF_8);
+		}
+	}
+
+
+	@Benchmark
+	public List<Message<byte[]>> decode(DecoderData data) {
+		return data.decoder.decode(ByteBuffer.wrap(data.frame));
+	}
+
+}
@@ -84,6 +84,14 @@ public class SimpMessageHeaderAccessor extends NativeMessageHeaderAccessor {
 	 */
 	public static final String IGNORE_ERROR = "simpIgnoreError";
 
+	/**
+	 * A header set by the broker on all messages that it derives from the
+	 * same published message for different subscribers, allowing outbound
+	 * handlers to prepare the shared part of their content only once.
+	 * @since 5.1.20
+	 */
+	public static final String BROADCAST_ID_HEADER = "simpBroadcastId";
+
 
 	@Nullable
 	private Consumer<Principal> userCallback;
@@ -26,19 +26,10 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArraySet;
 
-import org.springframework.expression.EvaluationContext;
-import org.springframework.expression.Expression;
-import org.springframework.expression.ExpressionParser;
-import org.springframework.expression.PropertyAccessor;
-import org.springframework.expression.TypedValue;
-import org.springframework.expression.spel.SpelEvaluationException;
-import org.springframework.expression.spel.standard.SpelExpressionParser;
-import org.springframework.expression.spel.support.SimpleEvaluationContext;
 import org.springframework.lang.Nullable;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageHeaders;
 import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
-import org.springframework.messaging.support.MessageHeaderAccessor;
 import org.springframework.util.AntPathMatcher;
 import org.springframework.util.Assert;
 import org.springframework.util.LinkedMultiValueMap;
@@ -54,6 +45,7 @@ import org.springframework.util.StringUtils;
  * <p>As of 4.2, this class supports a {@link #setSelectorHeaderName selector}
  * header on subscription messages with Spring EL expressions evaluated against
  * the headers to filter out messages in addition to destination matching.
+ * Selectors are compiled and evaluated through a {@link SelectorEvaluator}.
  *
  * @author Rossen Stoyanchev
  * @author Sebastien Deleuze
@@ -65,11 +57,6 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 	/** Default maximum number of entries for the destination cache: 1024. */
 	public static final int DEFAULT_CACHE_LIMIT = 1024;
 
-	/** Static evaluation context to reuse. */
-	private static final EvaluationContext messageEvalContext =
-			SimpleEvaluationContext.forPropertyAccessors(new SimpMessageHeaderPropertyAccessor()).build();
-
-
 	private PathMatcher pathMatcher = new AntPathMatcher();
 
 	private volatile int cacheLimit = DEFAULT_CACHE_LIMIT;
@@ -79,7 +66,7 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 
 	private volatile boolean selectorHeaderInUse = false;
 
-	private final ExpressionParser expressionParser = new SpelExpressionParser();
+	private final SelectorEvaluator selectorEvaluator = new SelectorEvaluator();
 
 	private final DestinationCache destinationCache = new DestinationCache();
 
@@ -147,32 +134,32 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 	protected void addSubscriptionInternal(
 			String sessionId, String subsId, String destination, Message<?> message) {
 
-		Expression expression = getSelectorExpression(message.getHeaders());
-		this.subscriptionRegistry.addSubscription(sessionId, subsId, destination, expression);
+		SelectorEvaluator.Selector selector = getSelector(message.getHeaders());
+		this.subscriptionRegistry.addSubscription(sessionId, subsId, destination, selector);
 		this.destinationCache.updateAfterNewSubscription(destination, sessionId, subsId);
 	}
 
 	@Nullable
-	private Expression getSelectorExpression(MessageHeaders headers) {
-		Expression expression = null;
+	private SelectorEvaluator.Selector getSelector(MessageHeaders headers) {
+		SelectorEvaluator.Selector selector = null;
 		if (getSelectorHeaderName() != null) {
-			String selector = SimpMessageHeaderAccessor.getFirstNativeHeader(getSelectorHeaderName(), headers);
-			if (selector != null) {
+			String expression = SimpMessageHeaderAccessor.getFirstNativeHeader(getSelectorHeaderName(), headers);
+			if (expression != null) {
 				try {
-					expression = this.expressionParser.parseExpression(selector);
+					selector = this.selectorEvaluator.parseSelector(expression);
 					this.selectorHeaderInUse = true;
 					if (logger.isTraceEnabled()) {
-						logger.trace("Subscription selector: [" + selector + "]");
+						logger.trace("Subscription selector: [" + expression + "]");
 					}
 				}
 				catch (Throwable ex) {
 					if (logger.isDebugEnabled()) {
-						logger.debug("Failed to parse selector: " + selector, ex);
+						logger.debug("Failed to parse selector: " + expression, ex);
 					}
 				}
 			}
 		}
-		return expression;
+		return selector;
 	}
 
 	@Override
@@ -207,6 +194,7 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 			return allMatches;
 		}
 		MultiValueMap<String, String> result = new LinkedMultiValueMap<>(allMatches.size());
+		SelectorEvaluator.Matcher matcher = this.selectorEvaluator.matcher(message);
 		allMatches.forEach((sessionId, subIds) -> {
 			for (String subId : subIds) {
 				SessionSubscriptionInfo info = this.subscriptionRegistry.getSubscriptions(sessionId);
@@ -217,23 +205,8 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 				if (sub == null) {
 					continue;
 				}
-				Expression expression = sub.getSelectorExpression();
-				if (expression == null) {
+				if (matcher.matches(sub.getSelector())) {
 					result.add(sessionId, subId);
-					continue;
-				}
-				try {
-					if (Boolean.TRUE.equals(expression.getValue(messageEvalContext, message, Boolean.class))) {
-						result.add(sessionId, subId);
-					}
-				}
-				catch (SpelEvaluationException ex) {
-					if (logger.isDebugEnabled()) {
-						logger.debug("Failed to evaluate selector: " + ex.getMessage());
-					}
-				}
-				catch (Throwable ex) {
-					logger.debug("Failed to evaluate selector", ex);
 				}
 			}
 		});
@@ -381,7 +354,7 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 		}
 
 		public SessionSubscriptionInfo addSubscription(String sessionId, String subscriptionId,
-				String destination, @Nullable Expression selectorExpression) {
+				String destination, @Nullable SelectorEvaluator.Selector selector) {
 
 			SessionSubscriptionInfo info = this.sessions.get(sessionId);
 			if (info == null) {
@@ -391,7 +364,7 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 					info = value;
 				}
 			}
-			info.addSubscription(destination, subscriptionId, selectorExpression);
+			info.addSubscription(destination, subscriptionId, selector);
 			return info;
 		}
 
@@ -447,7 +420,9 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 			return null;
 		}
 
-		public void addSubscription(String destination, String subscriptionId, @Nullable Expression selectorExpression) {
+		public void addSubscription(
+				String destination, String subscriptionId, @Nullable SelectorEvaluator.Selector selector) {
+
 			Set<Subscription> subs = this.destinationLookup.get(destination);
 			if (subs == null) {
 				synchronized (this.destinationLookup) {
@@ -458,7 +433,7 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 					}
 				}
 			}
-			subs.add(new Subscription(subscriptionId, selectorExpression));
+			subs.add(new Subscription(subscriptionId, selector));
 		}
 
 		@Nullable
@@ -494,12 +469,12 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 		private final String id;
 
 		@Nullable
-		private final Expression selectorExpression;
+		private final SelectorEvaluator.Selector selector;
 
-		public Subscription(String id, @Nullable Expression selector) {
+		public Subscription(String id, @Nullable SelectorEvaluator.Selector selector) {
 			Assert.notNull(id, "Subscription id must not be null");
 			this.id = id;
-			this.selectorExpression = selector;
+			this.selector = selector;
 		}
 
 		public String getId() {
@@ -507,8 +482,8 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 		}
 
 		@Nullable
-		public Expression getSelectorExpression() {
-			return this.selectorExpression;
+		public SelectorEvaluator.Selector getSelector() {
+			return this.selector;
 		}
 
 		@Override
@@ -527,55 +502,4 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 		}
 	}
 
-
-	private static class SimpMessageHeaderPropertyAccessor implements PropertyAccessor {
-
-		@Override
-		public Class<?>[] getSpecificTargetClasses() {
-			return new Class<?>[] {Message.class, MessageHeaders.class};
-		}
-
-		@Override
-		public boolean canRead(EvaluationContext context, @Nullable Object target, String name) {
-			return true;
-		}
-
-		@Override
-		public TypedValue read(EvaluationContext context, @Nullable Object target, String name) {
-			Object value;
-			if (target instanceof Message) {
-				value = name.equals("headers") ? ((Message) target).getHeaders() : null;
-			}
-			else if (target instanceof MessageHeaders) {
-				MessageHeaders headers = (MessageHeaders) target;
-				SimpMessageHeaderAccessor accessor =
-						MessageHeaderAccessor.getAccessor(headers, SimpMessageHeaderAccessor.class);
-				Assert.state(accessor != null, "No SimpMessageHeaderAccessor");
-				if ("destination".equalsIgnoreCase(name)) {
-					value = accessor.getDestination();
-				}
-				else {
-					value = accessor.getFirstNativeHeader(name);
-					if (value == null) {
-						value = headers.get(name);
-					}
-				}
-			}
-			else {
-				// Should never happen...
-				throw new IllegalStateException("Expected Message or MessageHeaders.");
-			}
-			return new TypedValue(value);
-		}
-
-		@Override
-		public boolean canWrite(EvaluationContext context, @Nullable Object target, String name) {
-			return false;
-		}
-
-		@Override
-		public void write(EvaluationContext context, @Nullable Object target, String name, @Nullable Object value) {
-		}
-	}
-
 }
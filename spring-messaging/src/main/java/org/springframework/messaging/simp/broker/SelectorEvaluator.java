@@ -0,0 +1,396 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.messaging.simp.broker;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+
+import org.springframework.asm.MethodVisitor;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
+import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.ParseException;
+import org.springframework.expression.TypedValue;
+import org.springframework.expression.spel.CodeFlow;
+import org.springframework.expression.spel.CompilablePropertyAccessor;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelEvaluationException;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.standard.SpelExpression;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.SimpleEvaluationContext;
+import org.springframework.lang.Nullable;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpLogging;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ConcurrentReferenceHashMap;
+
+/**
+ * Parses and evaluates the Spring EL selector expressions of broker
+ * subscriptions, as supported by {@link DefaultSubscriptionRegistry} and
+ * {@link TrieSubscriptionRegistry} through their "selector" header.
+ *
+ * <p>Selectors are parsed in {@link SpelCompilerMode#MIXED mixed} compiler
+ * mode and compiled to bytecode after their first evaluation, falling back to
+ * interpretation if an expression cannot be compiled. All selectors share a
+ * single, read-only evaluation context. Subscriptions with the same selector
+ * expression share the same {@link Selector} instance, and a {@link Matcher}
+ * obtained for a message evaluates each distinct selector only once, no
+ * matter how many subscriptions use it.
+ *
+ * @author agent
+ * @since 5.1.20
+ */
+public class SelectorEvaluator {
+
+	private static final Log logger = SimpLogging.forLogName(SelectorEvaluator.class);
+
+	private static final String MESSAGE_DESCRIPTOR = "Lorg/springframework/messaging/Message";
+
+	private static final String HEADERS_DESCRIPTOR = "Lorg/springframework/messaging/MessageHeaders";
+
+	private static final EvaluationContext evaluationContext = SimpleEvaluationContext.forPropertyAccessors(
+			new MessagePropertyAccessor(), new MessageHeadersPropertyAccessor()).build();
+
+
+	private final ExpressionParser expressionParser;
+
+	private final Map<String, Selector> selectorCache = new ConcurrentReferenceHashMap<>(64);
+
+
+	/**
+	 * Create an evaluator that compiles selectors with the class loader
+	 * that loaded this class.
+	 */
+	public SelectorEvaluator() {
+		this(ClassUtils.getDefaultClassLoader());
+	}
+
+	/**
+	 * Create an evaluator that compiles selectors with the given class loader.
+	 * @param classLoader the class loader to define compiled selectors in
+	 */
+	public SelectorEvaluator(@Nullable ClassLoader classLoader) {
+		this.expressionParser = new SpelExpressionParser(
+				new SpelParserConfiguration(SpelCompilerMode.MIXED, classLoader));
+	}
+
+
+	/**
+	 * Parse the given selector expression, or return the previously parsed
+	 * {@link Selector} for the same expression.
+	 * @param expressionString the Spring EL expression, e.g. "headers.foo == 'bar'"
+	 * @return the selector to evaluate against messages
+	 * @throws ParseException if the expression cannot be parsed
+	 */
+	public Selector parseSelector(String expressionString) throws ParseException {
+		Selector selector = this.selectorCache.get(expressionString);
+		if (selector == null) {
+			selector = new Selector(expressionString, this.expressionParser.parseExpression(expressionString));
+			Selector existing = this.selectorCache.putIfAbsent(expressionString, selector);
+			if (existing != null) {
+				selector = existing;
+			}
+		}
+		return selector;
+	}
+
+	/**
+	 * Return a {@link Matcher} for evaluating selectors against the given message.
+	 * The matcher is not thread-safe and meant to be used for a single lookup.
+	 * @param message the message to evaluate selectors against
+	 */
+	public Matcher matcher(Message<?> message) {
+		return new Matcher(message);
+	}
+
+
+	/**
+	 * Return the value of a header as seen by selector expressions: the
+	 * destination, a native header, or else a message header of that name.
+	 * <p>Public for use by compiled selector expressions only.
+	 * @param headers the headers of the message
+	 * @param name the name of the header
+	 * @return the header value, or {@code null} if none
+	 */
+	@Nullable
+	public static Object getHeaderValue(MessageHeaders headers, String name) {
+		SimpMessageHeaderAccessor accessor =
+				MessageHeaderAccessor.getAccessor(headers, SimpMessageHeaderAccessor.class);
+		Assert.state(accessor != null, "No SimpMessageHeaderAccessor");
+		if ("destination".equalsIgnoreCase(name)) {
+			return accessor.getDestination();
+		}
+		Object value = accessor.getFirstNativeHeader(name);
+		return (value != null ? value : headers.get(name));
+	}
+
+
+	/**
+	 * A parsed selector expression.
+	 */
+	public static final class Selector {
+
+		private final String expressionString;
+
+		private final Expression expression;
+
+		private volatile boolean compileAttempted;
+
+		Selector(String expressionString, Expression expression) {
+			this.expressionString = expressionString;
+			this.expression = expression;
+		}
+
+		/**
+		 * Return the original expression string.
+		 */
+		public String getExpressionString() {
+			return this.expressionString;
+		}
+
+		/**
+		 * Whether the expression is currently running as compiled bytecode.
+		 */
+		public boolean isCompiled() {
+			return (this.expression instanceof SpelExpression && ((SpelExpression) this.expression).isCompiled());
+		}
+
+		/**
+		 * Evaluate this selector against the given message.
+		 * @return {@code true} if the expression evaluates to {@code true};
+		 * {@code false} if it evaluates to anything else or fails to evaluate
+		 */
+		public boolean matches(Message<?> message) {
+			try {
+				boolean result = Boolean.TRUE.equals(
+						this.expression.getValue(evaluationContext, message, Boolean.class));
+				if (!this.compileAttempted) {
+					// Exit types are known after the first evaluation: compile right away
+					// rather than waiting for the mixed mode threshold
+					this.compileAttempted = true;
+					if (this.expression instanceof SpelExpression) {
+						((SpelExpression) this.expression).compileExpression();
+					}
+				}
+				return result;
+			}
+			catch (SpelEvaluationException ex) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("Failed to evaluate selector: " + ex.getMessage());
+				}
+			}
+			catch (Throwable ex) {
+				logger.debug("Failed to evaluate selector", ex);
+			}
+			return false;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			return (this == other || (other instanceof Selector &&
+					this.expressionString.equals(((Selector) other).expressionString)));
+		}
+
+		@Override
+		public int hashCode() {
+			return this.expressionString.hashCode();
+		}
+
+		@Override
+		public String toString() {
+			return "selector[" + this.expressionString + "]";
+		}
+	}
+
+
+	/**
+	 * Evaluates selectors against one message, remembering the result of
+	 * each distinct selector.
+	 */
+	public static final class Matcher {
+
+		private final Message<?> message;
+
+		@Nullable
+		private Selector lastSelector;
+
+		private boolean lastResult;
+
+		@Nullable
+		private Map<Selector, Boolean> results;
+
+		Matcher(Message<?> message) {
+			this.message = message;
+		}
+
+		/**
+		 * Whether the message matches the given selector, or {@code true}
+		 * if the selector is {@code null}.
+		 */
+		public boolean matches(@Nullable Selector selector) {
+			if (selector == null) {
+				return true;
+			}
+			if (selector == this.lastSelector) {
+				return this.lastResult;
+			}
+			Boolean result = null;
+			if (this.results != null) {
+				result = this.results.get(selector);
+			}
+			else if (this.lastSelector != null) {
+				this.results = new HashMap<>(8);
+				this.results.put(this.lastSelector, this.lastResult);
+			}
+			if (result == null) {
+				result = selector.matches(this.message);
+				if (this.results != null) {
+					this.results.put(selector, result);
+				}
+			}
+			this.lastSelector = selector;
+			this.lastResult = result;
+			return result;
+		}
+	}
+
+
+	/**
+	 * Resolves "headers" against the {@link Message} root object.
+	 */
+	private static class MessagePropertyAccessor implements CompilablePropertyAccessor {
+
+		@Override
+		public Class<?>[] getSpecificTargetClasses() {
+			return new Class<?>[] {Message.class};
+		}
+
+		@Override
+		public boolean canRead(EvaluationContext context, @Nullable Object target, String name) {
+			return true;
+		}
+
+		@Override
+		public TypedValue read(EvaluationContext context, @Nullable Object target, String name) {
+			Assert.state(target instanceof Message, "Expected Message");
+			return new TypedValue(name.equals("headers") ? ((Message<?>) target).getHeaders() : null);
+		}
+
+		@Override
+		public boolean canWrite(EvaluationContext context, @Nullable Object target, String name) {
+			return false;
+		}
+
+		@Override
+		public void write(EvaluationContext context, @Nullable Object target, String name, @Nullable Object value) {
+		}
+
+		@Override
+		public boolean isCompilable() {
+			return true;
+		}
+
+		@Override
+		public Class<?> getPropertyType() {
+			return MessageHeaders.class;
+		}
+
+		@Override
+		public void generateCode(String propertyName, MethodVisitor mv, CodeFlow cf) {
+			String descriptor = cf.lastDescriptor();
+			if (descriptor == null) {
+				cf.loadTarget(mv);
+			}
+			if (propertyName.equals("headers")) {
+				if (!MESSAGE_DESCRIPTOR.equals(descriptor)) {
+					CodeFlow.insertCheckCast(mv, MESSAGE_DESCRIPTOR);
+				}
+				mv.visitMethodInsn(INVOKEINTERFACE, "org/springframework/messaging/Message",
+						"getHeaders", "()" + HEADERS_DESCRIPTOR + ";", true);
+			}
+			else {
+				mv.visitInsn(POP);
+				mv.visitInsn(ACONST_NULL);
+			}
+		}
+	}
+
+
+	/**
+	 * Resolves header values against {@link MessageHeaders}.
+	 * @see #getHeaderValue
+	 */
+	private static class MessageHeadersPropertyAccessor implements CompilablePropertyAccessor {
+
+		@Override
+		public Class<?>[] getSpecificTargetClasses() {
+			return new Class<?>[] {MessageHeaders.class};
+		}
+
+		@Override
+		public boolean canRead(EvaluationContext context, @Nullable Object target, String name) {
+			return true;
+		}
+
+		@Override
+		public TypedValue read(EvaluationContext context, @Nullable Object target, String name) {
+			Assert.state(target instanceof MessageHeaders, "Expected MessageHeaders");
+			return new TypedValue(getHeaderValue((MessageHeaders) target, name));
+		}
+
+		@Override
+		public boolean canWrite(EvaluationContext context, @Nullable Object target, String name) {
+			return false;
+		}
+
+		@Override
+		public void write(EvaluationContext context, @Nullable Object target, String name, @Nullable Object value) {
+		}
+
+		@Override
+		public boolean isCompilable() {
+			return true;
+		}
+
+		@Override
+		public Class<?> getPropertyType() {
+			return Object.class;
+		}
+
+		@Override
+		public void generateCode(String propertyName, MethodVisitor mv, CodeFlow cf) {
+			String descriptor = cf.lastDescriptor();
+			if (descriptor == null) {
+				cf.loadTarget(mv);
+			}
+			if (!HEADERS_DESCRIPTOR.equals(descriptor)) {
+				CodeFlow.insertCheckCast(mv, HEADERS_DESCRIPTOR);
+			}
+			mv.visitLdcInsn(propertyName);
+			mv.visitMethodInsn(INVOKESTATIC, "org/springframework/messaging/simp/broker/SelectorEvaluator",
+					"getHeaderValue", "(" + HEADERS_DESCRIPTOR + ";Ljava/lang/String;)Ljava/lang/Object;", false);
+		}
+	}
+
+}
@@ -17,11 +17,18 @@
 package org.springframework.messaging.simp.broker;
 
 import java.security.Principal;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.springframework.lang.Nullable;
 import org.springframework.messaging.Message;
@@ -34,7 +41,10 @@ import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.messaging.support.MessageHeaderAccessor;
 import org.springframework.messaging.support.MessageHeaderInitializer;
 import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.AlternativeJdkIdGenerator;
 import org.springframework.util.Assert;
+import org.springframework.util.IdGenerator;
 import org.springframework.util.MultiValueMap;
 import org.springframework.util.PathMatcher;
 
@@ -43,6 +53,11 @@ import org.springframework.util.PathMatcher;
  * {@link SimpMessageType}, keeps track of subscriptions with the help of a
  * {@link SubscriptionRegistry} and sends messages to subscribers.
  *
+ * <p>By default messages are sent to subscribers on the thread that handles
+ * the message published to the broker. Alternatively, {@link #setWorkerLanes
+ * worker lanes} can be configured to spread the sending across a fixed number
+ * of threads, while preserving the order of messages per session.
+ *
  * @author Rossen Stoyanchev
  * @author Juergen Hoeller
  * @since 4.0
@@ -51,6 +66,8 @@ public class SimpleBrokerMessageHandler extends AbstractBrokerMessageHandler {
 
 	private static final byte[] EMPTY_PAYLOAD = new byte[0];
 
+	private static final int DEFAULT_WORKER_LANE_QUEUE_CAPACITY = 10000;
+
 
 	@Nullable
 	private PathMatcher pathMatcher;
@@ -70,14 +87,23 @@ public class SimpleBrokerMessageHandler extends AbstractBrokerMessageHandler {
 	@Nullable
 	private MessageHeaderInitializer headerInitializer;
 
+	private int workerLanes = 0;
+
+	private int workerLaneQueueCapacity = DEFAULT_WORKER_LANE_QUEUE_CAPACITY;
+
 
 	private SubscriptionRegistry subscriptionRegistry;
 
 	private final Map<String, SessionInfo> sessions = new ConcurrentHashMap<>();
 
+	private final IdGenerator broadcastIdGenerator = new AlternativeJdkIdGenerator();
+
 	@Nullable
 	private ScheduledFuture<?> heartbeatFuture;
 
+	@Nullable
+	private volatile ThreadPoolExecutor[] laneExecutors;
+
 
 	/**
 	 * Create a SimpleBrokerMessageHandler instance with the given message channels
@@ -180,6 +206,9 @@ public class SimpleBrokerMessageHandler extends AbstractBrokerMessageHandler {
 		if (this.subscriptionRegistry instanceof DefaultSubscriptionRegistry) {
 			((DefaultSubscriptionRegistry) this.subscriptionRegistry).setSelectorHeaderName(this.selectorHeaderName);
 		}
+		else if (this.subscriptionRegistry instanceof TrieSubscriptionRegistry) {
+			((TrieSubscriptionRegistry) this.subscriptionRegistry).setSelectorHeaderName(this.selectorHeaderName);
+		}
 	}
 
 	/**
@@ -249,9 +278,90 @@ public class SimpleBrokerMessageHandler extends AbstractBrokerMessageHandler {
 		return this.headerInitializer;
 	}
 
+	/**
+	 * Configure the number of worker lanes to send messages to sessions with.
+	 * <p>Each session is assigned to one lane by its id, and each lane is an
+	 * ordered queue drained by a single thread. All messages to a session,
+	 * including CONNECT_ACK, DISCONNECT_ACK and heartbeats, thus go through
+	 * the same lane and keep their order, while the fan-out of a message to
+	 * many sessions proceeds in parallel across lanes. This is unlike an
+	 * executor-backed broker channel, which does not preserve order.
+	 * <p>By default this is 0, i.e. messages are sent on the calling thread.
+	 * Must be configured before the broker is started.
+	 * @param workerLanes the number of lanes, typically the number of cores
+	 * @since 5.1.20
+	 * @see #setWorkerLaneQueueCapacity(int)
+	 * @see #getWorkerLaneQueueDepths()
+	 */
+	public void setWorkerLanes(int workerLanes) {
+		Assert.isTrue(workerLanes >= 0, "Worker lanes must not be negative");
+		this.workerLanes = workerLanes;
+	}
+
+	/**
+	 * Return the configured number of worker lanes.
+	 * @since 5.1.20
+	 */
+	public int getWorkerLanes() {
+		return this.workerLanes;
+	}
+
+	/**
+	 * Configure the maximum number of messages that may wait in the queue of
+	 * each {@link #setWorkerLanes worker lane}.
+	 * <p>Once the queue of a lane is full, for example because the
+	 * "clientOutboundChannel" blocks or falls behind, further messages to the
+	 * sessions of that lane are dropped and logged at error level, rather than
+	 * letting the queue grow without bounds. Blocking the caller instead would
+	 * stall the broker, and with it the sessions of all other lanes.
+	 * <p>By default this is set to 10000.
+	 * Must be configured before the broker is started.
+	 * @param workerLaneQueueCapacity the queue capacity per lane
+	 * @since 5.1.20
+	 */
+	public void setWorkerLaneQueueCapacity(int workerLaneQueueCapacity) {
+		Assert.isTrue(workerLaneQueueCapacity > 0, "Worker lane queue capacity must be positive");
+		this.workerLaneQueueCapacity = workerLaneQueueCapacity;
+	}
+
+	/**
+	 * Return the configured queue capacity per worker lane.
+	 * @since 5.1.20
+	 */
+	public int getWorkerLaneQueueCapacity() {
+		return this.workerLaneQueueCapacity;
+	}
+
+	/**
+	 * Return the number of tasks waiting in the queue of each worker lane,
+	 * or an empty array if no worker lanes are running.
+	 * @since 5.1.20
+	 * @see #setWorkerLanes
+	 */
+	public int[] getWorkerLaneQueueDepths() {
+		ThreadPoolExecutor[] executors = this.laneExecutors;
+		if (executors == null) {
+			return new int[0];
+		}
+		int[] depths = new int[executors.length];
+		for (int i = 0; i < executors.length; i++) {
+			depths[i] = executors[i].getQueue().size();
+		}
+		return depths;
+	}
+
 
 	@Override
 	public void startInternal() {
+		if (this.workerLanes > 0) {
+			CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("SimpleBrokerLane-");
+			ThreadPoolExecutor[] executors = new ThreadPoolExecutor[this.workerLanes];
+			for (int i = 0; i < executors.length; i++) {
+				executors[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+						new LinkedBlockingQueue<>(this.workerLaneQueueCapacity), threadFactory);
+			}
+			this.laneExecutors = executors;
+		}
 		publishBrokerAvailableEvent();
 		if (this.taskScheduler != null) {
 			long interval = initHeartbeatTaskDelay();
@@ -284,6 +394,13 @@ public class SimpleBrokerMessageHandler extends AbstractBrokerMessageHandler {
 		if (this.heartbeatFuture != null) {
 			this.heartbeatFuture.cancel(true);
 		}
+		ThreadPoolExecutor[] executors = this.laneExecutors;
+		if (executors != null) {
+			this.laneExecutors = null;
+			for (ThreadPoolExecutor executor : executors) {
+				executor.shutdown();
+			}
+		}
 	}
 
 	@Override
@@ -320,7 +437,7 @@ public class SimpleBrokerMessageHandler extends AbstractBrokerMessageHandler {
 				connectAck.setHeader(SimpMessageHeaderAccessor.CONNECT_MESSAGE_HEADER, message);
 				connectAck.setHeader(SimpMessageHeaderAccessor.HEART_BEAT_HEADER, heartbeatOut);
 				Message<byte[]> messageOut = MessageBuilder.createMessage(EMPTY_PAYLOAD, connectAck.getMessageHeaders());
-				getClientOutboundChannel().send(messageOut);
+				sendToSession(sessionId, messageOut, getClientOutboundChannel());
 			}
 		}
 		else if (SimpMessageType.DISCONNECT.equals(messageType)) {
@@ -376,7 +493,46 @@ public class SimpleBrokerMessageHandler extends AbstractBrokerMessageHandler {
 		}
 		initHeaders(accessor);
 		Message<byte[]> message = MessageBuilder.createMessage(EMPTY_PAYLOAD, accessor.getMessageHeaders());
-		getClientOutboundChannel().send(message);
+		sendToSession(sessionId, message, getClientOutboundChannel());
+	}
+
+	private void sendToSession(String sessionId, Message<?> message, MessageChannel channel) {
+		ThreadPoolExecutor[] executors = this.laneExecutors;
+		if (executors == null) {
+			channel.send(message);
+			return;
+		}
+		executeInLane(executors[getLaneIndex(sessionId, executors.length)], () -> {
+			try {
+				channel.send(message);
+			}
+			catch (Throwable ex) {
+				if (logger.isErrorEnabled()) {
+					logger.error("Failed to send " + message, ex);
+				}
+			}
+		}, message);
+	}
+
+	private void executeInLane(ThreadPoolExecutor executor, Runnable task, Message<?> message) {
+		try {
+			executor.execute(task);
+		}
+		catch (RejectedExecutionException ex) {
+			if (executor.isShutdown()) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("Worker lane rejected task, broker stopped?");
+				}
+			}
+			else if (logger.isErrorEnabled()) {
+				logger.error("Worker lane queue full (capacity " + this.workerLaneQueueCapacity +
+						"), dropping " + message);
+			}
+		}
+	}
+
+	private static int getLaneIndex(String sessionId, int laneCount) {
+		return (sessionId.hashCode() & Integer.MAX_VALUE) % laneCount;
 	}
 
 	protected void sendMessageToSubscribers(@Nullable String destination, Message<?> message) {
@@ -384,33 +540,84 @@ public class SimpleBrokerMessageHandler extends AbstractBrokerMessageHandler {
 		if (!subscriptions.isEmpty() && logger.isDebugEnabled()) {
 			logger.debug("Broadcasting to " + subscriptions.size() + " sessions.");
 		}
-		long now = System.currentTimeMillis();
+		// Mark messages for several recipients, so that their shared content can be encoded once
+		Object broadcastId = (isBroadcast(subscriptions) ? this.broadcastIdGenerator.generateId() : null);
+		ThreadPoolExecutor[] executors = this.laneExecutors;
+		if (executors == null) {
+			long now = System.currentTimeMillis();
+			subscriptions.forEach((sessionId, subscriptionIds) ->
+					sendMessageToSession(sessionId, subscriptionIds, message, broadcastId, now));
+			return;
+		}
+		// One task per lane: each lane sends to its own sessions, in the order of publication.
+		// The subscription ids are captured here, as the registry's result may not be immutable.
+		List<Map<String, List<String>>> laneSubscriptions = new ArrayList<>(executors.length);
+		for (int i = 0; i < executors.length; i++) {
+			laneSubscriptions.add(null);
+		}
 		subscriptions.forEach((sessionId, subscriptionIds) -> {
-			for (String subscriptionId : subscriptionIds) {
-				SimpMessageHeaderAccessor headerAccessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
-				initHeaders(headerAccessor);
-				headerAccessor.setSessionId(sessionId);
-				headerAccessor.setSubscriptionId(subscriptionId);
-				headerAccessor.copyHeadersIfAbsent(message.getHeaders());
-				headerAccessor.setLeaveMutable(true);
-				Object payload = message.getPayload();
-				Message<?> reply = MessageBuilder.createMessage(payload, headerAccessor.getMessageHeaders());
-				SessionInfo info = this.sessions.get(sessionId);
-				if (info != null) {
-					try {
-						info.getClientOutboundChannel().send(reply);
-					}
-					catch (Throwable ex) {
-						if (logger.isErrorEnabled()) {
-							logger.error("Failed to send " + message, ex);
-						}
-					}
-					finally {
-						info.setLastWriteTime(now);
+			int index = getLaneIndex(sessionId, executors.length);
+			Map<String, List<String>> sessionSubscriptions = laneSubscriptions.get(index);
+			if (sessionSubscriptions == null) {
+				sessionSubscriptions = new LinkedHashMap<>();
+				laneSubscriptions.set(index, sessionSubscriptions);
+			}
+			sessionSubscriptions.put(sessionId, new ArrayList<>(subscriptionIds));
+		});
+		for (int i = 0; i < executors.length; i++) {
+			Map<String, List<String>> sessionSubscriptions = laneSubscriptions.get(i);
+			if (sessionSubscriptions != null) {
+				executeInLane(executors[i], () -> {
+					long now = System.currentTimeMillis();
+					sessionSubscriptions.forEach((sessionId, subscriptionIds) ->
+							sendMessageToSession(sessionId, subscriptionIds, message, broadcastId, now));
+				}, message);
+			}
+		}
+	}
+
+	private static boolean isBroadcast(MultiValueMap<String, String> subscriptions) {
+		if (subscriptions.size() > 1) {
+			return true;
+		}
+		for (List<String> subscriptionIds : subscriptions.values()) {
+			if (subscriptionIds.size() > 1) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void sendMessageToSession(String sessionId, List<String> subscriptionIds, Message<?> message,
+			@Nullable Object broadcastId, long now) {
+
+		for (String subscriptionId : subscriptionIds) {
+			SimpMessageHeaderAccessor headerAccessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+			initHeaders(headerAccessor);
+			headerAccessor.setSessionId(sessionId);
+			headerAccessor.setSubscriptionId(subscriptionId);
+			if (broadcastId != null) {
+				headerAccessor.setHeader(SimpMessageHeaderAccessor.BROADCAST_ID_HEADER, broadcastId);
+			}
+			headerAccessor.copyHeadersIfAbsent(message.getHeaders());
+			headerAccessor.setLeaveMutable(true);
+			Object payload = message.getPayload();
+			Message<?> reply = MessageBuilder.createMessage(payload, headerAccessor.getMessageHeaders());
+			SessionInfo info = this.sessions.get(sessionId);
+			if (info != null) {
+				try {
+					info.getClientOutboundChannel().send(reply);
+				}
+				catch (Throwable ex) {
+					if (logger.isErrorEnabled()) {
+						logger.error("Failed to send " + message, ex);
 					}
 				}
+				finally {
+					info.setLastWriteTime(now);
+				}
 			}
-		});
+		}
 	}
 
 	@Override
@@ -517,7 +724,8 @@ public class SimpleBrokerMessageHandler extends AbstractBrokerMessageHandler {
 					initHeaders(accessor);
 					accessor.setLeaveMutable(true);
 					MessageHeaders headers = accessor.getMessageHeaders();
-					info.getClientOutboundChannel().send(MessageBuilder.createMessage(EMPTY_PAYLOAD, headers));
+					Message<byte[]> heartbeat = MessageBuilder.createMessage(EMPTY_PAYLOAD, headers);
+					sendToSession(info.getSessionId(), heartbeat, info.getClientOutboundChannel());
 				}
 			}
 		}
@@ -0,0 +1,580 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.messaging.simp.broker;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.lang.Nullable;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.Assert;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.util.StringUtils;
+
+/**
+ * Implementation of {@link SubscriptionRegistry} that indexes subscription
+ * destination patterns in a trie of path segments, for use with large numbers
+ * of sessions and frequent subscription changes.
+ *
+ * <p>Destinations are matched with {@link AntPathMatcher} semantics: literal
+ * segments are resolved through a hash lookup per trie level, while {@code *},
+ * {@code **} and segments with embedded wildcards are kept as separate wildcard
+ * nodes. A lookup therefore costs time proportional to the depth of the
+ * destination and the number of wildcard nodes along its path, rather than
+ * to the total number of subscriptions as with the destination cache misses
+ * of {@link DefaultSubscriptionRegistry}.
+ *
+ * <p>Each trie node keeps its own snapshot of the subscriptions registered for
+ * its pattern, rebuilt lazily on the next lookup after a change. Subscribing
+ * or unsubscribing thus only affects the node of the given pattern. Updates
+ * are serialized per stripe, chosen by the first segment of the pattern, while
+ * lookups do not lock at all.
+ *
+ * <p>Like {@link DefaultSubscriptionRegistry}, this class supports a
+ * {@link #setSelectorHeaderName selector} header on subscription messages.
+ *
+ * @author agent
+ * @since 5.1.20
+ * @see SimpleBrokerMessageHandler#setSubscriptionRegistry
+ */
+public class TrieSubscriptionRegistry extends AbstractSubscriptionRegistry {
+
+	private static final int LOCK_STRIPES = 32;
+
+	private static final MultiValueMap<String, String> EMPTY_MAP =
+			CollectionUtils.unmodifiableMultiValueMap(new LinkedMultiValueMap<>());
+
+
+	private String pathSeparator = AntPathMatcher.DEFAULT_PATH_SEPARATOR;
+
+	private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+	@Nullable
+	private String selectorHeaderName = "selector";
+
+	private volatile boolean selectorHeaderInUse = false;
+
+	private final SelectorEvaluator selectorEvaluator = new SelectorEvaluator();
+
+	private final Node absoluteRoot = new Node(true);
+
+	private final Node relativeRoot = new Node(false);
+
+	/** Patterns ending with a separator, matched one by one. */
+	private final Map<String, Node> fallbackPatterns = new ConcurrentHashMap<>();
+
+	/** Map from sessionId to {@code <subscriptionId, Registration>}. */
+	private final Map<String, Map<String, Registration>> sessions = new ConcurrentHashMap<>();
+
+	private final Object[] locks = new Object[LOCK_STRIPES];
+
+
+	public TrieSubscriptionRegistry() {
+		for (int i = 0; i < LOCK_STRIPES; i++) {
+			this.locks[i] = new Object();
+		}
+	}
+
+
+	/**
+	 * Set the path separator to use for destination patterns, e.g. "." for
+	 * destinations such as "/topic/PRICE.STOCK.*.IBM".
+	 * <p>Default is "/", as in {@link AntPathMatcher}. Must be set before any
+	 * subscriptions are registered.
+	 */
+	public void setPathSeparator(String pathSeparator) {
+		Assert.hasLength(pathSeparator, "Path separator must not be empty");
+		Assert.state(this.sessions.isEmpty(), "Subscriptions already registered");
+		this.pathSeparator = pathSeparator;
+		this.pathMatcher.setPathSeparator(pathSeparator);
+	}
+
+	/**
+	 * Return the configured path separator.
+	 */
+	public String getPathSeparator() {
+		return this.pathSeparator;
+	}
+
+	/**
+	 * Configure the name of a header that a subscription message can have for
+	 * the purpose of filtering messages matched to the subscription. The header
+	 * value is expected to be a Spring EL boolean expression to be applied to
+	 * the headers of messages matched to the subscription.
+	 * <p>By default this is set to "selector". You can set it to a different
+	 * name, or to {@code null} to turn off support for a selector header.
+	 * @param selectorHeaderName the name to use for a selector header
+	 * @see DefaultSubscriptionRegistry#setSelectorHeaderName
+	 */
+	public void setSelectorHeaderName(@Nullable String selectorHeaderName) {
+		this.selectorHeaderName = (StringUtils.hasText(selectorHeaderName) ? selectorHeaderName : null);
+	}
+
+	/**
+	 * Return the name for the selector header name.
+	 */
+	@Nullable
+	public String getSelectorHeaderName() {
+		return this.selectorHeaderName;
+	}
+
+
+	@Override
+	protected void addSubscriptionInternal(
+			String sessionId, String subsId, String destination, Message<?> message) {
+
+		SelectorEvaluator.Selector selector = getSelector(message.getHeaders());
+		Subscription subscription = new Subscription(sessionId, subsId, selector);
+		Map<String, Registration> registrations =
+				this.sessions.computeIfAbsent(sessionId, id -> new ConcurrentHashMap<>(4));
+		Registration previous = registrations.remove(subsId);
+		if (previous != null) {
+			unregister(previous);
+		}
+		registrations.put(subsId, register(destination, subscription));
+	}
+
+	@Nullable
+	private SelectorEvaluator.Selector getSelector(MessageHeaders headers) {
+		SelectorEvaluator.Selector selector = null;
+		if (getSelectorHeaderName() != null) {
+			String expression = SimpMessageHeaderAccessor.getFirstNativeHeader(getSelectorHeaderName(), headers);
+			if (expression != null) {
+				try {
+					selector = this.selectorEvaluator.parseSelector(expression);
+					this.selectorHeaderInUse = true;
+					if (logger.isTraceEnabled()) {
+						logger.trace("Subscription selector: [" + expression + "]");
+					}
+				}
+				catch (Throwable ex) {
+					if (logger.isDebugEnabled()) {
+						logger.debug("Failed to parse selector: " + expression, ex);
+					}
+				}
+			}
+		}
+		return selector;
+	}
+
+	@Override
+	protected void removeSubscriptionInternal(String sessionId, String subsId, Message<?> message) {
+		Map<String, Registration> registrations = this.sessions.get(sessionId);
+		if (registrations != null) {
+			Registration registration = registrations.remove(subsId);
+			if (registration != null) {
+				unregister(registration);
+			}
+		}
+	}
+
+	@Override
+	public void unregisterAllSubscriptions(String sessionId) {
+		Map<String, Registration> registrations = this.sessions.remove(sessionId);
+		if (registrations != null) {
+			registrations.values().forEach(this::unregister);
+		}
+	}
+
+	private Registration register(String pattern, Subscription subscription) {
+		if (!StringUtils.hasLength(pattern) || pattern.endsWith(this.pathSeparator)) {
+			Object lock = lockFor(pattern);
+			synchronized (lock) {
+				Node node = this.fallbackPatterns.computeIfAbsent(pattern, Node::new);
+				node.addSubscription(subscription);
+				return new Registration(subscription, node, lock, true);
+			}
+		}
+		String[] segments = tokenize(pattern);
+		Object lock = lockFor(segments.length > 0 ? segments[0] : "");
+		synchronized (lock) {
+			Node node = (pattern.startsWith(this.pathSeparator) ? this.absoluteRoot : this.relativeRoot);
+			for (String segment : segments) {
+				node = node.getOrCreateChild(segment, this.pathSeparator);
+			}
+			node.addSubscription(subscription);
+			return new Registration(subscription, node, lock, false);
+		}
+	}
+
+	private void unregister(Registration registration) {
+		synchronized (registration.lock) {
+			Node node = registration.node;
+			node.removeSubscription(registration.subscription);
+			if (registration.fallback) {
+				if (node.isEmpty()) {
+					this.fallbackPatterns.remove(node.pattern, node);
+				}
+			}
+			else {
+				while (node.parent != null && node.isEmpty()) {
+					node.parent.removeChild(node);
+					node = node.parent;
+				}
+			}
+		}
+	}
+
+	private Object lockFor(String key) {
+		return this.locks[(key.hashCode() & Integer.MAX_VALUE) % LOCK_STRIPES];
+	}
+
+	private String[] tokenize(String path) {
+		return StringUtils.tokenizeToStringArray(path, this.pathSeparator, false, true);
+	}
+
+
+	@Override
+	protected MultiValueMap<String, String> findSubscriptionsInternal(String destination, Message<?> message) {
+		List<Node> matches = new ArrayList<>(4);
+		boolean trailingSeparator = destination.endsWith(this.pathSeparator);
+		Node root = (destination.startsWith(this.pathSeparator) ? this.absoluteRoot : this.relativeRoot);
+		collectMatches(root, tokenize(destination), 0, trailingSeparator, matches);
+		if (trailingSeparator) {
+			// Rare case: the trie ignores the trailing separator, so double-check candidates
+			matches.removeIf(node -> !this.pathMatcher.match(node.pattern, destination));
+		}
+		if (!this.fallbackPatterns.isEmpty()) {
+			for (Node node : this.fallbackPatterns.values()) {
+				if (this.pathMatcher.match(node.pattern, destination)) {
+					matches.add(node);
+				}
+			}
+		}
+		if (matches.isEmpty()) {
+			return EMPTY_MAP;
+		}
+		boolean filter = this.selectorHeaderInUse;
+		if (matches.size() == 1) {
+			Snapshot snapshot = matches.get(0).getSnapshot();
+			if (!filter || !snapshot.hasSelectors) {
+				return snapshot.subscriptions;
+			}
+		}
+		MultiValueMap<String, String> result = new LinkedMultiValueMap<>();
+		SelectorEvaluator.Matcher matcher = null;
+		for (Node node : matches) {
+			Snapshot snapshot = node.getSnapshot();
+			if (!filter || !snapshot.hasSelectors) {
+				result.addAll(snapshot.subscriptions);
+			}
+			else {
+				if (matcher == null) {
+					matcher = this.selectorEvaluator.matcher(message);
+				}
+				for (Subscription subscription : snapshot.entries) {
+					if (matcher.matches(subscription.selector)) {
+						result.add(subscription.sessionId, subscription.id);
+					}
+				}
+			}
+		}
+		return result;
+	}
+
+	private void collectMatches(Node node, String[] tokens, int index, boolean trailingSeparator, List<Node> matches) {
+		Node[] wildcards = node.wildcardChildren;
+		for (Node wildcard : wildcards) {
+			if (wildcard.type == SegmentType.DOUBLE_WILDCARD) {
+				for (int i = index; i <= tokens.length; i++) {
+					collectMatches(wildcard, tokens, i, trailingSeparator, matches);
+				}
+			}
+		}
+		if (index == tokens.length) {
+			addMatch(node, matches);
+			if (trailingSeparator) {
+				// AntPathMatcher lets "/a/*" match "/a/"
+				for (Node wildcard : wildcards) {
+					if (wildcard.type == SegmentType.SINGLE_WILDCARD) {
+						addMatch(wildcard, matches);
+					}
+				}
+			}
+			return;
+		}
+		String token = tokens[index];
+		Node literal = node.literalChildren.get(token);
+		if (literal != null) {
+			collectMatches(literal, tokens, index + 1, trailingSeparator, matches);
+		}
+		for (Node wildcard : wildcards) {
+			if (wildcard.type == SegmentType.SINGLE_WILDCARD ||
+					(wildcard.type == SegmentType.PATTERN && this.pathMatcher.match(wildcard.segment, token))) {
+				collectMatches(wildcard, tokens, index + 1, trailingSeparator, matches);
+			}
+		}
+	}
+
+	private static void addMatch(Node node, List<Node> matches) {
+		if (node.hasSubscriptions() && !matches.contains(node)) {
+			matches.add(node);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "TrieSubscriptionRegistry[" + this.sessions.size() + " sessions]";
+	}
+
+
+	private enum SegmentType {
+
+		LITERAL, SINGLE_WILDCARD, DOUBLE_WILDCARD, PATTERN;
+
+		static SegmentType of(String segment) {
+			if (segment.equals("*")) {
+				return SINGLE_WILDCARD;
+			}
+			else if (segment.equals("**")) {
+				return DOUBLE_WILDCARD;
+			}
+			for (int i = 0; i < segment.length(); i++) {
+				char c = segment.charAt(i);
+				if (c == '*' || c == '?' || c == '{') {
+					return PATTERN;
+				}
+			}
+			return LITERAL;
+		}
+	}
+
+
+	/**
+	 * A trie node for one pattern segment, holding the subscriptions for the
+	 * pattern that ends at this node. Structural changes are made under the
+	 * stripe lock of the pattern; reads are lock-free.
+	 */
+	private static final class Node {
+
+		private static final Node[] NO_CHILDREN = new Node[0];
+
+		@Nullable
+		final Node parent;
+
+		final String segment;
+
+		final String pattern;
+
+		final SegmentType type;
+
+		// Whether this is the root for patterns starting with a separator
+		private final boolean absolute;
+
+		final Map<String, Node> literalChildren = new ConcurrentHashMap<>(4);
+
+		/** Copy-on-write array of non-literal children. */
+		volatile Node[] wildcardChildren = NO_CHILDREN;
+
+		final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet(4);
+
+		volatile int version;
+
+		@Nullable
+		volatile Snapshot snapshot;
+
+		// Root node
+		Node(boolean absolute) {
+			this(null, "", (absolute ? null : ""));
+		}
+
+		// Fallback node, not part of the trie
+		Node(String pattern) {
+			this(null, pattern, pattern);
+		}
+
+		private Node(@Nullable Node parent, String segment, @Nullable String pattern) {
+			this.parent = parent;
+			this.segment = segment;
+			this.pattern = (pattern != null ? pattern : "");
+			this.type = SegmentType.of(segment);
+			this.absolute = (pattern == null);
+		}
+
+		Node getOrCreateChild(String segment, String separator) {
+			SegmentType type = SegmentType.of(segment);
+			if (type == SegmentType.LITERAL) {
+				return this.literalChildren.computeIfAbsent(segment, s -> new Node(this, s, childPattern(s, separator)));
+			}
+			// Root wildcard children may be modified under different stripe locks
+			synchronized (this) {
+				for (Node child : this.wildcardChildren) {
+					if (child.segment.equals(segment)) {
+						return child;
+					}
+				}
+				Node child = new Node(this, segment, childPattern(segment, separator));
+				Node[] children = Arrays.copyOf(this.wildcardChildren, this.wildcardChildren.length + 1);
+				children[children.length - 1] = child;
+				this.wildcardChildren = children;
+				return child;
+			}
+		}
+
+		private String childPattern(String segment, String separator) {
+			if (this.parent == null && !this.absolute) {
+				return segment;
+			}
+			return this.pattern + separator + segment;
+		}
+
+		void removeChild(Node child) {
+			if (child.type == SegmentType.LITERAL) {
+				this.literalChildren.remove(child.segment, child);
+			}
+			else {
+				synchronized (this) {
+					List<Node> children = new ArrayList<>(Arrays.asList(this.wildcardChildren));
+					children.remove(child);
+					this.wildcardChildren = children.toArray(NO_CHILDREN);
+				}
+			}
+		}
+
+		void addSubscription(Subscription subscription) {
+			if (this.subscriptions.add(subscription)) {
+				this.version++;
+			}
+		}
+
+		void removeSubscription(Subscription subscription) {
+			if (this.subscriptions.remove(subscription)) {
+				this.version++;
+			}
+		}
+
+		boolean hasSubscriptions() {
+			return !this.subscriptions.isEmpty();
+		}
+
+		boolean isEmpty() {
+			return (this.subscriptions.isEmpty() && this.literalChildren.isEmpty() &&
+					this.wildcardChildren.length == 0);
+		}
+
+		Snapshot getSnapshot() {
+			int version = this.version;
+			Snapshot snapshot = this.snapshot;
+			if (snapshot == null || snapshot.version != version) {
+				snapshot = new Snapshot(version, this.subscriptions);
+				this.snapshot = snapshot;
+			}
+			return snapshot;
+		}
+
+		@Override
+		public String toString() {
+			return "node[" + this.pattern + "]";
+		}
+	}
+
+
+	/**
+	 * Immutable view of the subscriptions of a node at a given version.
+	 */
+	private static final class Snapshot {
+
+		final int version;
+
+		final List<Subscription> entries;
+
+		final MultiValueMap<String, String> subscriptions;
+
+		final boolean hasSelectors;
+
+		Snapshot(int version, Set<Subscription> subscriptions) {
+			this.version = version;
+			this.entries = new ArrayList<>(subscriptions);
+			MultiValueMap<String, String> map = new LinkedMultiValueMap<>(this.entries.size());
+			boolean hasSelectors = false;
+			for (Subscription subscription : this.entries) {
+				map.add(subscription.sessionId, subscription.id);
+				hasSelectors |= (subscription.selector != null);
+			}
+			this.subscriptions = CollectionUtils.unmodifiableMultiValueMap(map);
+			this.hasSelectors = hasSelectors;
+		}
+	}
+
+
+	private static final class Subscription {
+
+		final String sessionId;
+
+		final String id;
+
+		@Nullable
+		final SelectorEvaluator.Selector selector;
+
+		Subscription(String sessionId, String id, @Nullable SelectorEvaluator.Selector selector) {
+			this.sessionId = sessionId;
+			this.id = id;
+			this.selector = selector;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof Subscription)) {
+				return false;
+			}
+			Subscription otherSubscription = (Subscription) other;
+			return (this.sessionId.equals(otherSubscription.sessionId) && this.id.equals(otherSubscription.id));
+		}
+
+		@Override
+		public int hashCode() {
+			return this.sessionId.hashCode() * 31 + this.id.hashCode();
+		}
+
+		@Override
+		public String toString() {
+			return "subscription(session=" + this.sessionId + ", id=" + this.id + ")";
+		}
+	}
+
+
+	private static final class Registration {
+
+		final Subscription subscription;
+
+		final Node node;
+
+		final Object lock;
+
+		final boolean fallback;
+
+		Registration(Subscription subscription, Node node, Object lock, boolean fallback) {
+			this.subscription = subscription;
+			this.node = node;
+			this.lock = lock;
+			this.fallback = fallback;
+		}
+	}
+
+}
@@ -39,6 +39,11 @@ public class SimpleBrokerRegistration extends AbstractBrokerRegistration {
 	@Nullable
 	private String selectorHeaderName = "selector";
 
+	private int workerLanes = 0;
+
+	@Nullable
+	private Integer workerLaneQueueCapacity;
+
 
 	public SimpleBrokerRegistration(SubscribableChannel inChannel, MessageChannel outChannel, String[] prefixes) {
 		super(inChannel, outChannel, prefixes);
@@ -89,6 +94,32 @@ public class SimpleBrokerRegistration extends AbstractBrokerRegistration {
 		this.selectorHeaderName = selectorHeaderName;
 	}
 
+	/**
+	 * Configure the number of worker lanes to send messages to sessions with,
+	 * in parallel across lanes while preserving the order per session.
+	 * <p>By default this is 0, i.e. messages are sent on the calling thread.
+	 * @param workerLanes the number of lanes
+	 * @since 5.1.20
+	 * @see SimpleBrokerMessageHandler#setWorkerLanes(int)
+	 */
+	public SimpleBrokerRegistration setWorkerLanes(int workerLanes) {
+		this.workerLanes = workerLanes;
+		return this;
+	}
+
+	/**
+	 * Configure the maximum number of messages that may wait in the queue of
+	 * each worker lane, beyond which messages are dropped.
+	 * <p>By default this is set to 10000.
+	 * @param workerLaneQueueCapacity the queue capacity per lane
+	 * @since 5.1.20
+	 * @see SimpleBrokerMessageHandler#setWorkerLaneQueueCapacity(int)
+	 */
+	public SimpleBrokerRegistration setWorkerLaneQueueCapacity(int workerLaneQueueCapacity) {
+		this.workerLaneQueueCapacity = workerLaneQueueCapacity;
+		return this;
+	}
+
 
 	@Override
 	protected SimpleBrokerMessageHandler getMessageHandler(SubscribableChannel brokerChannel) {
@@ -101,6 +132,10 @@ public class SimpleBrokerRegistration extends AbstractBrokerRegistration {
 			handler.setHeartbeatValue(this.heartbeat);
 		}
 		handler.setSelectorHeaderName(this.selectorHeaderName);
+		handler.setWorkerLanes(this.workerLanes);
+		if (this.workerLaneQueueCapacity != null) {
+			handler.setWorkerLaneQueueCapacity(this.workerLaneQueueCapacity);
+		}
 		return handler;
 	}
 
@@ -16,7 +16,6 @@
 
 package org.springframework.messaging.simp.stomp;
 
-import java.io.ByteArrayOutputStream;
 import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
@@ -53,6 +52,29 @@ public class StompDecoder {
 
 	private static final Log logger = SimpLogging.forLogName(StompDecoder.class);
 
+	private static final StompCommand[] COMMANDS = StompCommand.values();
+
+	private static final byte[][] COMMAND_BYTES = new byte[COMMANDS.length][];
+
+	/** Header names that are returned as shared String instances rather than decoded per frame. */
+	private static final String[] KNOWN_HEADER_NAMES = new String[] {
+			StompHeaders.DESTINATION, StompHeaders.SUBSCRIPTION, StompHeaders.MESSAGE_ID,
+			StompHeaders.CONTENT_TYPE, StompHeaders.CONTENT_LENGTH, StompHeaders.ID, StompHeaders.ACK,
+			StompHeaders.RECEIPT, StompHeaders.RECEIPT_ID, StompHeaders.ACCEPT_VERSION, StompHeaders.HOST,
+			StompHeaders.LOGIN, StompHeaders.PASSCODE, StompHeaders.HEARTBEAT, StompHeaders.SESSION,
+			StompHeaders.SERVER, StompHeaderAccessor.STOMP_VERSION_HEADER, StompHeaderAccessor.STOMP_MESSAGE_HEADER};
+
+	private static final byte[][] KNOWN_HEADER_NAME_BYTES = new byte[KNOWN_HEADER_NAMES.length][];
+
+	static {
+		for (int i = 0; i < COMMANDS.length; i++) {
+			COMMAND_BYTES[i] = COMMANDS[i].name().getBytes(StandardCharsets.UTF_8);
+		}
+		for (int i = 0; i < KNOWN_HEADER_NAMES.length; i++) {
+			KNOWN_HEADER_NAME_BYTES[i] = KNOWN_HEADER_NAMES[i].getBytes(StandardCharsets.UTF_8);
+		}
+	}
+
 	@Nullable
 	private MessageHeaderInitializer headerInitializer;
 
@@ -135,12 +157,13 @@ public class StompDecoder {
 		Buffer buffer = byteBuffer;
 		buffer.mark();
 
-		String command = readCommand(byteBuffer);
-		if (command.length() > 0) {
+		int commandStart = byteBuffer.position();
+		int commandLength = readLine(byteBuffer);
+		if (commandLength > 0) {
 			StompHeaderAccessor headerAccessor = null;
 			byte[] payload = null;
 			if (byteBuffer.remaining() > 0) {
-				StompCommand stompCommand = StompCommand.valueOf(command);
+				StompCommand stompCommand = toCommand(byteBuffer, commandStart, commandLength);
 				headerAccessor = StompHeaderAccessor.create(stompCommand);
 				initHeaders(headerAccessor);
 				readHeaders(byteBuffer, headerAccessor);
@@ -206,37 +229,58 @@ public class StompDecoder {
 		}
 	}
 
-	private String readCommand(ByteBuffer byteBuffer) {
-		ByteArrayOutputStream command = new ByteArrayOutputStream(256);
-		while (byteBuffer.remaining() > 0 && !tryConsumeEndOfLine(byteBuffer)) {
-			command.write(byteBuffer.get());
+	/**
+	 * Advance the buffer past the next EOL, or to its end if there is none.
+	 * @return the length of the line, excluding the EOL
+	 */
+	private int readLine(ByteBuffer byteBuffer) {
+		int start = byteBuffer.position();
+		int limit = byteBuffer.limit();
+		for (int i = start; i < limit; i++) {
+			byte b = byteBuffer.get(i);
+			if (b == '\n') {
+				((Buffer) byteBuffer).position(i + 1);
+				return i - start;
+			}
+			else if (b == '\r') {
+				if (i + 1 < limit && byteBuffer.get(i + 1) == '\n') {
+					((Buffer) byteBuffer).position(i + 2);
+					return i - start;
+				}
+				throw new StompConversionException("'\\r' must be followed by '\\n'");
+			}
+		}
+		((Buffer) byteBuffer).position(limit);
+		return limit - start;
+	}
+
+	private StompCommand toCommand(ByteBuffer byteBuffer, int start, int length) {
+		for (int i = 0; i < COMMANDS.length; i++) {
+			if (regionMatches(byteBuffer, start, length, COMMAND_BYTES[i])) {
+				return COMMANDS[i];
+			}
 		}
-		return new String(command.toByteArray(), StandardCharsets.UTF_8);
+		return StompCommand.valueOf(toString(byteBuffer, start, length));
 	}
 
 	private void readHeaders(ByteBuffer byteBuffer, StompHeaderAccessor headerAccessor) {
 		while (true) {
-			ByteArrayOutputStream headerStream = new ByteArrayOutputStream(256);
-			boolean headerComplete = false;
-			while (byteBuffer.hasRemaining()) {
-				if (tryConsumeEndOfLine(byteBuffer)) {
-					headerComplete = true;
-					break;
-				}
-				headerStream.write(byteBuffer.get());
-			}
-			if (headerStream.size() > 0 && headerComplete) {
-				String header = new String(headerStream.toByteArray(), StandardCharsets.UTF_8);
-				int colonIndex = header.indexOf(':');
-				if (colonIndex <= 0) {
+			int start = byteBuffer.position();
+			int length = readLine(byteBuffer);
+			int lineEnd = start + length;
+			// A complete line is followed by an EOL that has been consumed
+			boolean headerComplete = (byteBuffer.position() > lineEnd);
+			if (length > 0 && headerComplete) {
+				int colonIndex = indexOf(byteBuffer, (byte) ':', start, lineEnd);
+				if (colonIndex <= start) {
 					if (byteBuffer.remaining() > 0) {
-						throw new StompConversionException("Illegal header: '" + header +
+						throw new StompConversionException("Illegal header: '" + toString(byteBuffer, start, length) +
 								"'. A header must be of the form <name>:[<value>].");
 					}
 				}
 				else {
-					String headerName = unescape(header.substring(0, colonIndex));
-					String headerValue = unescape(header.substring(colonIndex + 1));
+					String headerName = readHeaderName(byteBuffer, start, colonIndex - start);
+					String headerValue = unescape(toString(byteBuffer, colonIndex + 1, lineEnd - colonIndex - 1));
 					try {
 						headerAccessor.addNativeHeader(headerName, headerValue);
 					}
@@ -253,14 +297,61 @@ public class StompDecoder {
 		}
 	}
 
+	private String readHeaderName(ByteBuffer byteBuffer, int start, int length) {
+		for (int i = 0; i < KNOWN_HEADER_NAME_BYTES.length; i++) {
+			if (regionMatches(byteBuffer, start, length, KNOWN_HEADER_NAME_BYTES[i])) {
+				return KNOWN_HEADER_NAMES[i];
+			}
+		}
+		return unescape(toString(byteBuffer, start, length));
+	}
+
+	private static boolean regionMatches(ByteBuffer byteBuffer, int start, int length, byte[] bytes) {
+		if (length != bytes.length) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (byteBuffer.get(start + i) != bytes[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int indexOf(ByteBuffer byteBuffer, byte value, int start, int end) {
+		for (int i = start; i < end; i++) {
+			if (byteBuffer.get(i) == value) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static String toString(ByteBuffer byteBuffer, int start, int length) {
+		if (length == 0) {
+			return "";
+		}
+		if (byteBuffer.hasArray()) {
+			return new String(byteBuffer.array(), byteBuffer.arrayOffset() + start, length, StandardCharsets.UTF_8);
+		}
+		byte[] bytes = new byte[length];
+		for (int i = 0; i < length; i++) {
+			bytes[i] = byteBuffer.get(start + i);
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
 	/**
 	 * See STOMP Spec 1.2:
 	 * <a href="https://stomp.github.io/stomp-specification-1.2.html#Value_Encoding">"Value Encoding"</a>.
 	 */
 	private String unescape(String inString) {
+		int index = inString.indexOf('\\');
+		if (index == -1) {
+			return inString;
+		}
 		StringBuilder sb = new StringBuilder(inString.length());
 		int pos = 0;  // position in the old string
-		int index = inString.indexOf('\\');
 
 		while (index >= 0) {
 			sb.append(inString, pos, index);
@@ -288,7 +379,7 @@ public class StompDecoder {
 			index = inString.indexOf('\\', pos);
 		}
 
-		sb.append(inString.substring(pos));
+		sb.append(inString, pos, inString.length());
 		return sb.toString();
 	}
 
@@ -319,16 +410,14 @@ public class StompDecoder {
 			}
 		}
 		else {
-			ByteArrayOutputStream payload = new ByteArrayOutputStream(256);
-			while (byteBuffer.remaining() > 0) {
-				byte b = byteBuffer.get();
-				if (b == 0) {
-					return payload.toByteArray();
-				}
-				else {
-					payload.write(b);
-				}
+			int end = indexOf(byteBuffer, (byte) 0, byteBuffer.position(), byteBuffer.limit());
+			if (end != -1) {
+				byte[] payload = new byte[end - byteBuffer.position()];
+				byteBuffer.get(payload);
+				byteBuffer.get();
+				return payload;
 			}
+			((Buffer) byteBuffer).position(byteBuffer.limit());
 		}
 		return null;
 	}
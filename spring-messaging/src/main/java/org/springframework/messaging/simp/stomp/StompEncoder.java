@@ -16,10 +16,10 @@
 
 package org.springframework.messaging.simp.stomp;
 
-import java.io.ByteArrayOutputStream;
-import java.io.DataOutputStream;
-import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -51,6 +51,16 @@ public class StompEncoder  {
 
 	private static final byte COLON = ':';
 
+	private static final byte[] CONTENT_LENGTH_BYTES = "content-length".getBytes(StandardCharsets.UTF_8);
+
+	private static final byte[][] COMMAND_BYTES = new byte[StompCommand.values().length][];
+
+	static {
+		for (StompCommand command : StompCommand.values()) {
+			COMMAND_BYTES[command.ordinal()] = command.name().getBytes(StandardCharsets.UTF_8);
+		}
+	}
+
 	private static final Log logger = SimpLogging.forLogName(StompEncoder.class);
 
 	private static final int HEADER_KEY_CACHE_LIMIT = 32;
@@ -93,38 +103,85 @@ public class StompEncoder  {
 		Assert.notNull(headers, "'headers' is required");
 		Assert.notNull(payload, "'payload' is required");
 
-		try {
-			ByteArrayOutputStream baos = new ByteArrayOutputStream(128 + payload.length);
-			DataOutputStream output = new DataOutputStream(baos);
+		if (SimpMessageType.HEARTBEAT.equals(SimpMessageHeaderAccessor.getMessageType(headers))) {
+			logger.trace("Encoding heartbeat");
+			return StompDecoder.HEARTBEAT_PAYLOAD.clone();
+		}
 
-			if (SimpMessageType.HEARTBEAT.equals(SimpMessageHeaderAccessor.getMessageType(headers))) {
-				logger.trace("Encoding heartbeat");
-				output.write(StompDecoder.HEARTBEAT_PAYLOAD);
-			}
+		// Header names and values are collected in pairs, then copied once into a frame of the exact size
+		StompCommand command = getCommand(headers);
+		List<byte[]> headerBytes = new ArrayList<>();
+		encodeHeaders(command, headers, Collections.emptySet(), headerBytes);
+		addContentLength(command, payload, headerBytes);
+
+		byte[] commandBytes = COMMAND_BYTES[command.ordinal()];
+		byte[] frame = new byte[commandBytes.length + 1 + lengthOf(headerBytes) + 1 + payload.length + 1];
+		int pos = write(frame, 0, commandBytes);
+		frame[pos++] = LF;
+		pos = writeHeaders(frame, pos, headerBytes);
+		frame[pos++] = LF;
+		pos = write(frame, pos, payload);
+		frame[pos] = 0;
+		return frame;
+	}
 
-			else {
-				StompCommand command = StompHeaderAccessor.getCommand(headers);
-				if (command == null) {
-					throw new IllegalStateException("Missing STOMP command: " + headers);
-				}
+	/**
+	 * Encode the given headers and payload once for a message to be sent to
+	 * several recipients whose frames differ only in the given headers, e.g.
+	 * "subscription" and "message-id" for a broadcast MESSAGE frame.
+	 * <p>The returned {@link SharedFrame} holds the serialized command, the
+	 * remaining headers and the body, and completes the frame for each
+	 * recipient without encoding those again.
+	 * @param headers the headers of the message, any recipient-specific
+	 * native headers among them are ignored
+	 * @param payload the payload
+	 * @param recipientHeaderNames the names of the native headers that
+	 * differ per recipient
+	 * @return the shared frame
+	 * @since 5.1.20
+	 */
+	public SharedFrame encodeShared(Map<String, Object> headers, byte[] payload,
+			Collection<String> recipientHeaderNames) {
 
-				output.write(command.toString().getBytes(StandardCharsets.UTF_8));
-				output.write(LF);
-				writeHeaders(command, headers, payload, output);
-				output.write(LF);
-				writeBody(payload, output);
-				output.write((byte) 0);
-			}
+		Assert.notNull(headers, "'headers' is required");
+		Assert.notNull(payload, "'payload' is required");
 
-			return baos.toByteArray();
-		}
-		catch (IOException ex) {
-			throw new StompConversionException("Failed to encode STOMP frame, headers=" + headers,  ex);
+		StompCommand command = getCommand(headers);
+		List<byte[]> headerBytes = new ArrayList<>();
+		encodeHeaders(command, headers, recipientHeaderNames, headerBytes);
+
+		byte[] commandBytes = COMMAND_BYTES[command.ordinal()];
+		byte[] head = new byte[commandBytes.length + 1 + lengthOf(headerBytes)];
+		int pos = write(head, 0, commandBytes);
+		head[pos++] = LF;
+		writeHeaders(head, pos, headerBytes);
+
+		headerBytes.clear();
+		addContentLength(command, payload, headerBytes);
+		byte[] tail = new byte[lengthOf(headerBytes) + 1 + payload.length + 1];
+		pos = writeHeaders(tail, 0, headerBytes);
+		tail[pos++] = LF;
+		pos = write(tail, pos, payload);
+		tail[pos] = 0;
+
+		return new SharedFrame(head, tail, shouldEscape(command));
+	}
+
+	private StompCommand getCommand(Map<String, Object> headers) {
+		StompCommand command = StompHeaderAccessor.getCommand(headers);
+		if (command == null) {
+			throw new IllegalStateException("Missing STOMP command: " + headers);
 		}
+		return command;
+	}
+
+	private static boolean shouldEscape(StompCommand command) {
+		return (command != StompCommand.CONNECT && command != StompCommand.STOMP &&
+				command != StompCommand.CONNECTED);
 	}
 
-	private void writeHeaders(StompCommand command, Map<String, Object> headers, byte[] payload,
-			DataOutputStream output) throws IOException {
+	private void encodeHeaders(StompCommand command, Map<String, Object> headers,
+			Collection<String> excludedNames, List<byte[]> headerBytes) {
 
 		@SuppressWarnings("unchecked")
 		Map<String,List<String>> nativeHeaders =
@@ -138,13 +195,15 @@ public class StompEncoder  {
 			return;
 		}
 
-		boolean shouldEscape = (command != StompCommand.CONNECT && command != StompCommand.STOMP
-				&& command != StompCommand.CONNECTED);
+		boolean shouldEscape = shouldEscape(command);
 
 		for (Entry<String, List<String>> entry : nativeHeaders.entrySet()) {
 			if (command.requiresContentLength() && "content-length".equals(entry.getKey())) {
 				continue;
 			}
+			if (excludedNames.contains(entry.getKey())) {
+				continue;
+			}
 
 			List<String> values = entry.getValue();
 			if ((StompCommand.CONNECT.equals(command) || StompCommand.STOMP.equals(command)) &&
@@ -154,19 +213,44 @@ public class StompEncoder  {
 
 			byte[] encodedKey = encodeHeaderKey(entry.getKey(), shouldEscape);
 			for (String value : values) {
-				output.write(encodedKey);
-				output.write(COLON);
-				output.write(encodeHeaderValue(value, shouldEscape));
-				output.write(LF);
+				headerBytes.add(encodedKey);
+				headerBytes.add(encodeHeaderValue(value, shouldEscape));
 			}
 		}
+	}
 
+	private static void addContentLength(StompCommand command, byte[] payload, List<byte[]> headerBytes) {
 		if (command.requiresContentLength()) {
-			int contentLength = payload.length;
-			output.write("content-length:".getBytes(StandardCharsets.UTF_8));
-			output.write(Integer.toString(contentLength).getBytes(StandardCharsets.UTF_8));
-			output.write(LF);
+			headerBytes.add(CONTENT_LENGTH_BYTES);
+			headerBytes.add(Integer.toString(payload.length).getBytes(StandardCharsets.UTF_8));
+		}
+	}
+
+	/**
+	 * Return the encoded length of the given header name and value pairs,
+	 * including a colon and an EOL for each pair.
+	 */
+	private static int lengthOf(List<byte[]> headerBytes) {
+		int length = headerBytes.size();
+		for (byte[] bytes : headerBytes) {
+			length += bytes.length;
 		}
+		return length;
+	}
+
+	private static int writeHeaders(byte[] target, int pos, List<byte[]> headerBytes) {
+		for (int i = 0; i < headerBytes.size(); i += 2) {
+			pos = write(target, pos, headerBytes.get(i));
+			target[pos++] = COLON;
+			pos = write(target, pos, headerBytes.get(i + 1));
+			target[pos++] = LF;
+		}
+		return pos;
+	}
+
+	private static int write(byte[] target, int pos, byte[] source) {
+		System.arraycopy(source, 0, target, pos, source.length);
+		return pos + source.length;
 	}
 
 	private byte[] encodeHeaderKey(String input, boolean escape) {
@@ -229,8 +313,75 @@ public class StompEncoder  {
 		return sb;
 	}
 
-	private void writeBody(byte[] payload, DataOutputStream output) throws IOException {
-		output.write(payload);
+
+
+	/**
+	 * A STOMP frame encoded once for several recipients, to be completed with
+	 * the headers of each recipient.
+	 * @since 5.1.20
+	 * @see #encodeShared
+	 */
+	public final class SharedFrame {
+
+		private final byte[] head;
+
+		private final byte[] tail;
+
+		private final boolean escape;
+
+		private SharedFrame(byte[] head, byte[] tail, boolean escape) {
+			this.head = head;
+			this.tail = tail;
+			this.escape = escape;
+		}
+
+		/**
+		 * Return the complete frame for a recipient as a single array.
+		 * @param recipientHeaders the headers specific to the recipient
+		 */
+		public byte[] encode(Map<String, String> recipientHeaders) {
+			byte[] recipientPart = encodeRecipientHeaders(recipientHeaders);
+			byte[] frame = new byte[this.head.length + recipientPart.length + this.tail.length];
+			int pos = write(frame, 0, this.head);
+			pos = write(frame, pos, recipientPart);
+			write(frame, pos, this.tail);
+			return frame;
+		}
+
+		/**
+		 * Return the complete frame for a recipient as a sequence of buffers,
+		 * suitable for a gathering write. The buffers for the shared parts of
+		 * the frame are read-only views, so nothing is copied but the headers
+		 * of the recipient.
+		 * @param recipientHeaders the headers specific to the recipient
+		 */
+		public ByteBuffer[] toByteBuffers(Map<String, String> recipientHeaders) {
+			return new ByteBuffer[] {
+					ByteBuffer.wrap(this.head).asReadOnlyBuffer(),
+					ByteBuffer.wrap(encodeRecipientHeaders(recipientHeaders)),
+					ByteBuffer.wrap(this.tail).asReadOnlyBuffer()};
+		}
+
+		/**
+		 * Return the number of bytes shared by all recipients.
+		 */
+		public int getSharedLength() {
+			return this.head.length + this.tail.length;
+		}
+
+		private byte[] encodeRecipientHeaders(Map<String, String> recipientHeaders) {
+			if (recipientHeaders.isEmpty()) {
+				return new byte[0];
+			}
+			List<byte[]> headerBytes = new ArrayList<>(recipientHeaders.size() * 2);
+			recipientHeaders.forEach((name, value) -> {
+				headerBytes.add(encodeHeaderKey(name, this.escape));
+				headerBytes.add(encodeHeaderValue(value, this.escape));
+			});
+			byte[] bytes = new byte[lengthOf(headerBytes)];
+			writeHeaders(bytes, 0, headerBytes);
+			return bytes;
+		}
 	}
 
 }
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.messaging.simp.broker;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test fixture for {@link SelectorEvaluator}.
+ *
+ * @author agent
+ */
+public class SelectorEvaluatorTests {
+
+	private final SelectorEvaluator evaluator = new SelectorEvaluator();
+
+
+	@Test
+	public void parseSelectorReturnsSharedInstance() {
+		SelectorEvaluator.Selector selector = this.evaluator.parseSelector("headers.foo == 'bar'");
+		assertSame(selector, this.evaluator.parseSelector("headers.foo == 'bar'"));
+		assertNotSame(selector, this.evaluator.parseSelector("headers.foo == 'baz'"));
+	}
+
+	@Test
+	public void matchNativeHeadersAndDestination() {
+		Message<?> message = createMessage("/topic/foo", "bar");
+
+		assertTrue(this.evaluator.parseSelector("headers.foo == 'bar'").matches(message));
+		assertFalse(this.evaluator.parseSelector("headers.foo == 'baz'").matches(message));
+		assertTrue(this.evaluator.parseSelector("headers.destination == '/topic/foo'").matches(message));
+		assertTrue(this.evaluator.parseSelector("headers.simpMessageType != null").matches(message));
+		assertFalse(this.evaluator.parseSelector("headers.foo").matches(message));
+		assertFalse(this.evaluator.parseSelector("headers.foo.bar == 'x'").matches(message));
+	}
+
+	@Test
+	public void selectorCompiledAfterFirstEvaluation() {
+		SelectorEvaluator.Selector selector =
+				this.evaluator.parseSelector("headers.foo == 'bar' and headers.destination != null");
+		assertFalse(selector.isCompiled());
+
+		assertTrue(selector.matches(createMessage("/topic/foo", "bar")));
+		assertTrue(selector.isCompiled());
+
+		assertTrue(selector.matches(createMessage("/topic/bar", "bar")));
+		assertFalse(selector.matches(createMessage("/topic/foo", "baz")));
+		assertFalse(selector.matches(createMessage("/topic/foo", null)));
+		assertTrue(selector.isCompiled());
+	}
+
+	@Test
+	public void matcherEvaluatesEachDistinctSelectorOnce() {
+		SelectorEvaluator.Selector selector1 = this.evaluator.parseSelector("headers.foo == 'bar'");
+		SelectorEvaluator.Selector selector2 = this.evaluator.parseSelector("headers.foo == 'baz'");
+		CountingMessage message = new CountingMessage(createMessage("/topic/foo", "bar"));
+
+		SelectorEvaluator.Matcher matcher = this.evaluator.matcher(message);
+		for (int i = 0; i < 10; i++) {
+			assertTrue(matcher.matches(selector1));
+			assertFalse(matcher.matches(selector2));
+			assertTrue(matcher.matches(null));
+		}
+		assertEquals(2, message.headerAccessCount.get());
+	}
+
+
+	private Message<?> createMessage(String destination, String foo) {
+		SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create();
+		accessor.setDestination(destination);
+		if (foo != null) {
+			accessor.setNativeHeader("foo", foo);
+		}
+		return MessageBuilder.createMessage("", accessor.getMessageHeaders());
+	}
+
+
+	private static class CountingMessage implements Message<Object> {
+
+		private final Message<?> delegate;
+
+		private final AtomicInteger headerAccessCount = new AtomicInteger();
+
+		CountingMessage(Message<?> delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public Object getPayload() {
+			return this.delegate.getPayload();
+		}
+
+		@Override
+		public MessageHeaders getHeaders() {
+			this.headerAccessCount.incrementAndGet();
+			return this.delegate.getHeaders();
+		}
+	}
+
+}
@@ -17,9 +17,14 @@
 package org.springframework.messaging.simp.broker;
 
 import java.security.Principal;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -37,6 +42,8 @@ import org.springframework.messaging.simp.SimpMessageType;
 import org.springframework.messaging.simp.TestPrincipal;
 import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.scheduling.TaskScheduler;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
 
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
@@ -101,6 +108,26 @@ public class SimpleBrokerMessageHandlerTests {
 		assertTrue(messageCaptured("sess2", "sub3", "/bar"));
 	}
 
+	@Test
+	public void publishSetsBroadcastIdForSeveralRecipients() {
+		startSession("sess1");
+		startSession("sess2");
+
+		this.messageHandler.handleMessage(createSubscriptionMessage("sess1", "sub1", "/foo"));
+		this.messageHandler.handleMessage(createSubscriptionMessage("sess2", "sub1", "/foo"));
+		this.messageHandler.handleMessage(createSubscriptionMessage("sess2", "sub2", "/bar"));
+
+		this.messageHandler.handleMessage(createMessage("/foo", "message1"));
+		this.messageHandler.handleMessage(createMessage("/bar", "message2"));
+
+		verify(this.clientOutChannel, times(3)).send(this.messageCaptor.capture());
+		List<Message<?>> messages = this.messageCaptor.getAllValues();
+		Object broadcastId = messages.get(0).getHeaders().get(SimpMessageHeaderAccessor.BROADCAST_ID_HEADER);
+		assertNotNull(broadcastId);
+		assertSame(broadcastId, messages.get(1).getHeaders().get(SimpMessageHeaderAccessor.BROADCAST_ID_HEADER));
+		assertNull(messages.get(2).getHeaders().get(SimpMessageHeaderAccessor.BROADCAST_ID_HEADER));
+	}
+
 	@Test
 	public void subscribeDisconnectPublish() {
 		String sess1 = "sess1";
@@ -286,6 +313,130 @@ public class SimpleBrokerMessageHandlerTests {
 				messages.get(0).getHeaders().get(SimpMessageHeaderAccessor.MESSAGE_TYPE_HEADER));
 	}
 
+	@Test
+	public void workerLanesPreserveOrderPerSession() throws Exception {
+		int sessionCount = 8;
+		int messageCount = 100;
+		CountDownLatch latch = new CountDownLatch(sessionCount * (messageCount + 1));
+		Map<String, List<Object>> received = new ConcurrentHashMap<>();
+		MessageChannel outChannel = (message, timeout) -> {
+			assertTrue(Thread.currentThread().getName().startsWith("SimpleBrokerLane-"));
+			String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+			received.computeIfAbsent(sessionId, id -> Collections.synchronizedList(new ArrayList<>()))
+					.add(message.getPayload());
+			latch.countDown();
+			return true;
+		};
+		SimpleBrokerMessageHandler handler = new SimpleBrokerMessageHandler(
+				this.clientInChannel, outChannel, this.brokerChannel, Collections.emptyList());
+		handler.setWorkerLanes(4);
+		handler.start();
+		assertEquals(4, handler.getWorkerLaneQueueDepths().length);
+
+		for (int i = 0; i < sessionCount; i++) {
+			handler.handleMessage(createConnectMessage("sess" + i, new TestPrincipal("joe"), null));
+			handler.handleMessage(createSubscriptionMessage("sess" + i, "sub1", "/foo"));
+		}
+		for (int i = 0; i < messageCount; i++) {
+			handler.handleMessage(createMessage("/foo", String.valueOf(i)));
+		}
+
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+		for (int i = 0; i < sessionCount; i++) {
+			List<Object> payloads = received.get("sess" + i);
+			assertEquals(messageCount + 1, payloads.size());
+			for (int j = 0; j < messageCount; j++) {
+				assertEquals(String.valueOf(j), payloads.get(j + 1));
+			}
+		}
+		handler.stop();
+		assertEquals(0, handler.getWorkerLaneQueueDepths().length);
+	}
+
+	@Test
+	public void workerLanesCaptureSubscriptionsBeforeHandOff() throws Exception {
+		CountDownLatch blocked = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch delivered = new CountDownLatch(2);
+		List<Object> received = Collections.synchronizedList(new ArrayList<>());
+		MessageChannel outChannel = (message, timeout) -> {
+			blocked.countDown();
+			try {
+				release.await(5, TimeUnit.SECONDS);
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+			received.add(message.getPayload());
+			delivered.countDown();
+			return true;
+		};
+		// A registry that reuses its result map, as a custom registry may do
+		MultiValueMap<String, String> result = new LinkedMultiValueMap<>();
+		SubscriptionRegistry registry = mock(SubscriptionRegistry.class);
+		when(registry.findSubscriptions(any())).thenAnswer(invocation -> {
+			result.clear();
+			result.add("sess1", "sub1");
+			return result;
+		});
+		SimpleBrokerMessageHandler handler = new SimpleBrokerMessageHandler(
+				this.clientInChannel, outChannel, this.brokerChannel, Collections.emptyList());
+		handler.setSubscriptionRegistry(registry);
+		handler.setWorkerLanes(1);
+		handler.start();
+
+		handler.handleMessage(createConnectMessage("sess1", new TestPrincipal("joe"), null));
+		assertTrue(blocked.await(5, TimeUnit.SECONDS));
+		handler.handleMessage(createMessage("/foo", "message1"));
+		result.clear();
+
+		release.countDown();
+		assertTrue(delivered.await(5, TimeUnit.SECONDS));
+		assertEquals("message1", received.get(1));
+		handler.stop();
+	}
+
+	@Test
+	public void workerLaneQueueBounded() throws Exception {
+		CountDownLatch blocked = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		List<Object> received = Collections.synchronizedList(new ArrayList<>());
+		MessageChannel outChannel = (message, timeout) -> {
+			blocked.countDown();
+			try {
+				release.await(5, TimeUnit.SECONDS);
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+			received.add(message.getPayload());
+			return true;
+		};
+		SimpleBrokerMessageHandler handler = new SimpleBrokerMessageHandler(
+				this.clientInChannel, outChannel, this.brokerChannel, Collections.emptyList());
+		handler.setWorkerLanes(1);
+		handler.setWorkerLaneQueueCapacity(2);
+		handler.start();
+
+		handler.handleMessage(createConnectMessage("sess1", new TestPrincipal("joe"), null));
+		handler.handleMessage(createSubscriptionMessage("sess1", "sub1", "/foo"));
+		assertTrue(blocked.await(5, TimeUnit.SECONDS));
+		for (int i = 0; i < 5; i++) {
+			handler.handleMessage(createMessage("/foo", String.valueOf(i)));
+		}
+		assertArrayEquals(new int[] {2}, handler.getWorkerLaneQueueDepths());
+
+		release.countDown();
+		handler.stop();
+		// CONNECT_ACK and the two queued messages, the others were dropped
+		for (int i = 0; i < 50 && received.size() < 3; i++) {
+			Thread.sleep(100);
+		}
+		assertEquals(3, received.size());
+		assertEquals("0", received.get(1));
+		assertEquals("1", received.get(2));
+	}
+
 
 	private Message<String> startSession(String id) {
 		this.messageHandler.start();
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.messaging.simp.broker;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Test;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.MultiValueMap;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test fixture for {@link TrieSubscriptionRegistry}.
+ *
+ * @author agent
+ */
+public class TrieSubscriptionRegistryTests {
+
+	private final TrieSubscriptionRegistry registry = new TrieSubscriptionRegistry();
+
+
+	@Test
+	public void registerSubscription() {
+		this.registry.registerSubscription(subscribeMessage("sess01", "subs01", "/foo"));
+		this.registry.registerSubscription(subscribeMessage("sess01", "subs02", "/foo"));
+		this.registry.registerSubscription(subscribeMessage("sess02", "subs01", "/foo"));
+		this.registry.registerSubscription(subscribeMessage("sess02", "subs02", "/bar"));
+
+		MultiValueMap<String, String> actual = this.registry.findSubscriptions(createMessage("/foo"));
+		assertEquals(2, actual.size());
+		assertEquals(Arrays.asList("subs01", "subs02"), sort(actual.get("sess01")));
+		assertEquals(Collections.singletonList("subs01"), actual.get("sess02"));
+		assertEquals(0, this.registry.findSubscriptions(createMessage("/baz")).size());
+	}
+
+	@Test
+	public void registerSubscriptionsWithSimpleAndPatternDestinations() {
+		this.registry.registerSubscription(subscribeMessage("sess1", "subs1", "/topic/PRICE.STOCK.NASDAQ.IBM"));
+		this.registry.registerSubscription(subscribeMessage("sess1", "subs2", "/topic/PRICE.STOCK.*.IBM"));
+		this.registry.registerSubscription(subscribeMessage("sess2", "subs1", "/topic/**"));
+		this.registry.registerSubscription(subscribeMessage("sess2", "subs2", "/topic/PRICE.STOCK.NYSE.IBM"));
+
+		MultiValueMap<String, String> actual =
+				this.registry.findSubscriptions(createMessage("/topic/PRICE.STOCK.NASDAQ.IBM"));
+		assertEquals(Arrays.asList("subs1", "subs2"), sort(actual.get("sess1")));
+		assertEquals(Collections.singletonList("subs1"), actual.get("sess2"));
+
+		this.registry.unregisterAllSubscriptions("sess1");
+		actual = this.registry.findSubscriptions(createMessage("/topic/PRICE.STOCK.NASDAQ.IBM"));
+		assertEquals(1, actual.size());
+		assertEquals(Collections.singletonList("subs1"), actual.get("sess2"));
+
+		this.registry.unregisterSubscription(unsubscribeMessage("sess2", "subs1"));
+		assertEquals(0, this.registry.findSubscriptions(createMessage("/topic/PRICE.STOCK.NASDAQ.IBM")).size());
+		assertEquals(1, this.registry.findSubscriptions(createMessage("/topic/PRICE.STOCK.NYSE.IBM")).size());
+	}
+
+	@Test
+	public void dotSeparatedDestinations() {
+		this.registry.setPathSeparator(".");
+		this.registry.registerSubscription(subscribeMessage("sess1", "subs1", "/topic.PRICE.STOCK.*.IBM"));
+		this.registry.registerSubscription(subscribeMessage("sess1", "subs2", "/topic.PRICE.**"));
+
+		assertEquals(Arrays.asList("subs1", "subs2"),
+				sort(this.registry.findSubscriptions(createMessage("/topic.PRICE.STOCK.NASDAQ.IBM")).get("sess1")));
+		assertEquals(Collections.singletonList("subs2"),
+				this.registry.findSubscriptions(createMessage("/topic.PRICE.STOCK.NASDAQ.GOOG")).get("sess1"));
+	}
+
+	@Test
+	public void sameMatchesAsAntPathMatcher() {
+		List<String> patterns = Arrays.asList("/a", "a", "/a/b", "/a/*", "/a/**", "/**", "**", "/*/b",
+				"/a/**/c", "/a/**/b/**", "/a/b*", "/a/?", "/a/{id}", "/a/b/", "/a/*/", "/**/c", "/a//b");
+		List<String> destinations = Arrays.asList("/a", "a", "/a/b", "/a/b/c", "/a/c", "/a/x/y/c", "/a/",
+				"/a/b/", "/b", "/a/bc", "/x/b", "/a/b/b/c", "/", "/a//b", "a/b");
+		AntPathMatcher matcher = new AntPathMatcher();
+
+		for (int i = 0; i < patterns.size(); i++) {
+			this.registry.registerSubscription(subscribeMessage("sess", String.valueOf(i), patterns.get(i)));
+		}
+		for (String destination : destinations) {
+			List<String> expected = new ArrayList<>();
+			for (int i = 0; i < patterns.size(); i++) {
+				if (matcher.match(patterns.get(i), destination)) {
+					expected.add(String.valueOf(i));
+				}
+			}
+			List<String> actual = this.registry.findSubscriptions(createMessage(destination)).get("sess");
+			assertEquals("Destination " + destination, expected,
+					(actual != null ? sort(new ArrayList<>(actual)) : Collections.emptyList()));
+		}
+	}
+
+	@Test
+	public void resubscribeReplacesSubscription() {
+		this.registry.registerSubscription(subscribeMessage("sess1", "subs1", "/foo"));
+		this.registry.registerSubscription(subscribeMessage("sess1", "subs1", "/bar"));
+
+		assertEquals(0, this.registry.findSubscriptions(createMessage("/foo")).size());
+		assertEquals(Collections.singletonList("subs1"),
+				this.registry.findSubscriptions(createMessage("/bar")).get("sess1"));
+	}
+
+	@Test
+	public void registerSubscriptionWithSelector() {
+		this.registry.registerSubscription(subscribeMessage("sess1", "subs1", "/foo", "headers.foo == 'bar'"));
+		this.registry.registerSubscription(subscribeMessage("sess2", "subs1", "/foo"));
+
+		SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create();
+		accessor.setDestination("/foo");
+		accessor.setNativeHeader("foo", "bar");
+		Message<?> message = MessageBuilder.createMessage("", accessor.getMessageHeaders());
+
+		MultiValueMap<String, String> actual = this.registry.findSubscriptions(message);
+		assertEquals(2, actual.size());
+
+		actual = this.registry.findSubscriptions(createMessage("/foo"));
+		assertEquals(1, actual.size());
+		assertEquals(Collections.singletonList("subs1"), actual.get("sess2"));
+	}
+
+	@Test
+	public void findSubscriptionsReturnsMapSafeToIterateIncludingValues() {
+		this.registry.registerSubscription(subscribeMessage("sess1", "1", "/foo"));
+		this.registry.registerSubscription(subscribeMessage("sess1", "2", "/foo"));
+
+		MultiValueMap<String, String> allSubscriptions = this.registry.findSubscriptions(createMessage("/foo"));
+		assertEquals(1, allSubscriptions.size());
+
+		Iterator<String> iteratorValues = allSubscriptions.get("sess1").iterator();
+		iteratorValues.next();
+
+		this.registry.unregisterSubscription(unsubscribeMessage("sess1", "2"));
+		this.registry.registerSubscription(subscribeMessage("sess2", "1", "/foo"));
+
+		iteratorValues.next();
+		assertEquals(2, allSubscriptions.get("sess1").size());
+		assertEquals(2, this.registry.findSubscriptions(createMessage("/foo")).size());
+	}
+
+
+	private Message<?> createMessage(String destination) {
+		SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create();
+		accessor.setDestination(destination);
+		return MessageBuilder.createMessage("", accessor.getMessageHeaders());
+	}
+
+	private Message<?> subscribeMessage(String sessionId, String subscriptionId, String destination) {
+		return subscribeMessage(sessionId, subscriptionId, destination, null);
+	}
+
+	private Message<?> subscribeMessage(String sessionId, String subscriptionId, String dest, String selector) {
+		SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.SUBSCRIBE);
+		accessor.setSessionId(sessionId);
+		accessor.setSubscriptionId(subscriptionId);
+		accessor.setDestination(dest);
+		if (selector != null) {
+			accessor.setNativeHeader("selector", selector);
+		}
+		return MessageBuilder.createMessage("", accessor.getMessageHeaders());
+	}
+
+	private Message<?> unsubscribeMessage(String sessionId, String subscriptionId) {
+		SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.UNSUBSCRIBE);
+		accessor.setSessionId(sessionId);
+		accessor.setSubscriptionId(subscriptionId);
+		return MessageBuilder.createMessage("", accessor.getMessageHeaders());
+	}
+
+	private List<String> sort(List<String> list) {
+		List<String> sorted = new ArrayList<>(list);
+		sorted.sort((s1, s2) -> Integer.compare(s1.length(), s2.length()) != 0 ?
+				Integer.compare(s1.length(), s2.length()) : s1.compareTo(s2));
+		return sorted;
+	}
+
+}
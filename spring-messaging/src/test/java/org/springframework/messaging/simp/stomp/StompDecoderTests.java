@@ -18,6 +18,7 @@ package org.springframework.messaging.simp.stomp;
 
 import java.io.UnsupportedEncodingException;
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 import org.junit.Test;
@@ -28,6 +29,7 @@ import org.springframework.util.InvalidMimeTypeException;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 /**
  * Test fixture for {@link StompDecoder}.
@@ -248,6 +250,36 @@ public class StompDecoderTests {
 		assertEquals(SimpMessageType.HEARTBEAT, StompHeaderAccessor.wrap(messages.get(0)).getMessageType());
 	}
 
+	@Test
+	public void decodeFrameFromDirectBuffer() {
+		byte[] bytes = "SEND\ndestination:/queue/a\nfoo:b\\car\n\nThe body\0".getBytes(StandardCharsets.UTF_8);
+		ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length + 4);
+		buffer.put(bytes).put("SEND".getBytes(StandardCharsets.UTF_8));
+		buffer.flip();
+
+		List<Message<byte[]>> messages = this.decoder.decode(buffer);
+
+		assertEquals(1, messages.size());
+		StompHeaderAccessor headers = StompHeaderAccessor.wrap(messages.get(0));
+		assertEquals(StompCommand.SEND, headers.getCommand());
+		assertEquals("/queue/a", headers.getDestination());
+		assertEquals("b:ar", headers.getFirstNativeHeader("foo"));
+		assertEquals("The body", new String(messages.get(0).getPayload(), StandardCharsets.UTF_8));
+		assertEquals(bytes.length, buffer.position());
+	}
+
+	@Test
+	public void decodeFrameWithKnownHeaderNamesShared() {
+		Message<byte[]> frame = decode("MESSAGE\nsubscription:s1\nmessage-id:m1\ndestination:/topic/a\n\n\0");
+		StompHeaderAccessor headers = StompHeaderAccessor.wrap(frame);
+
+		for (String name : headers.toNativeHeaderMap().keySet()) {
+			assertSame(name, name.intern());
+		}
+		assertEquals("s1", headers.getSubscriptionId());
+		assertEquals("m1", headers.getMessageId());
+	}
+
 	private void assertIncompleteDecode(String partialFrame) {
 		ByteBuffer buffer = ByteBuffer.wrap(partialFrame.getBytes());
 		assertNull(decode(buffer));
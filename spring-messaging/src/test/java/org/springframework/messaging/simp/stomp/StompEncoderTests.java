@@ -16,6 +16,11 @@
 
 package org.springframework.messaging.simp.stomp;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import org.junit.Test;
 
 import org.springframework.messaging.Message;
@@ -77,6 +82,34 @@ public class StompEncoderTests {
 				new String(encoder.encode(frame)));
 	}
 
+	@Test
+	public void encodeSharedFrame() {
+		StompHeaderAccessor headers = StompHeaderAccessor.create(StompCommand.MESSAGE);
+		headers.setDestination("/topic/a");
+		headers.setSubscriptionId("s0");
+		headers.setMessageId("m0");
+		Message<byte[]> frame = MessageBuilder.createMessage("Message body".getBytes(), headers.getMessageHeaders());
+
+		StompEncoder.SharedFrame sharedFrame = this.encoder.encodeShared(
+				frame.getHeaders(), frame.getPayload(), Arrays.asList("subscription", "message-id"));
+
+		Map<String, String> recipientHeaders = new LinkedHashMap<>();
+		recipientHeaders.put("subscription", "s1");
+		recipientHeaders.put("message-id", "m:1");
+		String expected = "MESSAGE\ndestination:/topic/a\nsubscription:s1\nmessage-id:m\\c1\n" +
+				"content-length:12\n\nMessage body\0";
+		assertEquals(expected, new String(sharedFrame.encode(recipientHeaders)));
+
+		ByteBuffer[] buffers = sharedFrame.toByteBuffers(recipientHeaders);
+		ByteBuffer joined = ByteBuffer.allocate(expected.length());
+		for (ByteBuffer buffer : buffers) {
+			joined.put(buffer);
+		}
+		assertEquals(expected, new String(joined.array()));
+		assertEquals(expected.length() - "subscription:s1\nmessage-id:m\\c1\n".length(),
+				sharedFrame.getSharedLength());
+	}
+
 	@Test
 	public void encodeFrameWithContentLengthPresent() {
 		StompHeaderAccessor headers = StompHeaderAccessor.create(StompCommand.SEND);
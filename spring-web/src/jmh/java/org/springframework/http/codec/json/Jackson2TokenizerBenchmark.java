@@ -0,0 +1,107 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.http.codec.json;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import reactor.core.publisher.Flux;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+
+/**
+ * Benchmarks for {@link Jackson2Tokenizer}, tokenizing a JSON array of objects
+ * received in fixed-size chunks.
+ *
+ * <p>Typically run with {@code "./gradlew :spring-web:jmh"}.
+ *
+ * @author agent
+ */
+@BenchmarkMode(Mode.Throughput)
+public class Jackson2TokenizerBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class TokenizerData {
+
+		@Param({"10", "1000"})
+		public int elementCount;
+
+		@Param({"256", "8192"})
+		public int chunkSize;
+
+		public final DefaultDataBufferFactory bufferFactory = new DefaultDataBufferFactory();
+
+		public final ObjectMapper objectMapper = new ObjectMapper();
+
+		public final JsonFactory jsonFactory = this.objectMapper.getFactory();
+
+		public List<byte[]> chunks;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			StringBuilder json = new StringBuilder("[");
+			for (int i = 0; i < this.elementCount; i++) {
+				if (i > 0) {
+					json.append(',');
+				}
+				json.append("{\"id\":").append(i).append(",\"name\":\"element-").append(i)
+						.append("\",\"active\":true,\"tags\":[\"a\",\"b\",\"c\"],\"score\":").append(i * 0.5d)
+						.append('}');
+			}
+			json.append(']');
+			byte[] bytes = json.toString().getBytes(StandardCharsets.UTF_8);
+			this.chunks = new ArrayList<>();
+			for (int offset = 0; offset < bytes.length; offset += this.chunkSize) {
+				int length = Math.min(this.chunkSize, bytes.length - offset);
+				byte[] chunk = new byte[length];
+				System.arraycopy(bytes, offset, chunk, 0, length);
+				this.chunks.add(chunk);
+			}
+		}
+
+		public Flux<DataBuffer> dataBuffers() {
+			return Flux.fromIterable(this.chunks).map(this.bufferFactory::wrap);
+		}
+	}
+
+
+	@Benchmark
+	public List<TokenBuffer> tokenizeArrayElements(TokenizerData data) {
+		return Jackson2Tokenizer.tokenize(data.dataBuffers(), data.jsonFactory, data.objectMapper,
+				true, false, -1).collectList().block();
+	}
+
+	@Benchmark
+	public List<TokenBuffer> tokenizeWholeDocument(TokenizerData data) {
+		return Jackson2Tokenizer.tokenize(data.dataBuffers(), data.jsonFactory, data.objectMapper,
+				false, false, -1).collectList().block();
+	}
+
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.util.pattern;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.springframework.http.server.PathContainer;
+import org.springframework.util.AntPathMatcher;
+
+/**
+ * Benchmarks comparing {@link AntPathMatcher#match(String, String)} with
+ * {@link PathPattern#matches(PathContainer)} for a set of route-like patterns.
+ *
+ * <p>Typically run with {@code "./gradlew :spring-web:jmh"}.
+ *
+ * @author agent
+ */
+@BenchmarkMode(Mode.Throughput)
+public class PathMatchingBenchmark {
+
+	private static final String[] PATTERNS = {
+			"/", "/about", "/login", "/logout", "/static/**", "/css/*.css", "/js/**/*.js",
+			"/api/users", "/api/users/{id}", "/api/users/{id}/orders", "/api/users/{id}/orders/{orderId}",
+			"/api/products", "/api/products/{id}", "/api/products/{id}/reviews/{reviewId}",
+			"/api/search/*", "/admin/**", "/files/{path}.{ext}", "/health", "/metrics/{name}"
+	};
+
+	private static final String[] PATHS = {
+			"/", "/about", "/static/images/logo.png", "/css/site.css", "/js/lib/app.min.js",
+			"/api/users/42", "/api/users/42/orders/1337", "/api/products/7/reviews/3",
+			"/files/report.pdf", "/metrics/jvm.memory", "/does/not/match"
+	};
+
+
+	@State(Scope.Benchmark)
+	public static class AntPathMatcherData {
+
+		public AntPathMatcher matcher;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			this.matcher = new AntPathMatcher();
+		}
+	}
+
+
+	@State(Scope.Benchmark)
+	public static class PathPatternData {
+
+		public List<PathPattern> patterns;
+
+		public List<PathContainer> paths;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			PathPatternParser parser = new PathPatternParser();
+			this.patterns = new ArrayList<>(PATTERNS.length);
+			for (String pattern : PATTERNS) {
+				this.patterns.add(parser.parse(pattern));
+			}
+			this.paths = new ArrayList<>(PATHS.length);
+			for (String path : PATHS) {
+				this.paths.add(PathContainer.parsePath(path));
+			}
+		}
+	}
+
+
+	@Benchmark
+	public void antPathMatcher(AntPathMatcherData data, Blackhole bh) {
+		for (String path : PATHS) {
+			for (String pattern : PATTERNS) {
+				bh.consume(data.matcher.match(pattern, path));
+			}
+		}
+	}
+
+	@Benchmark
+	public void pathPattern(PathPatternData data, Blackhole bh) {
+		for (PathContainer path : data.paths) {
+			for (PathPattern pattern : data.patterns) {
+				bh.consume(pattern.matches(path));
+			}
+		}
+	}
+
+	@Benchmark
+	public void pathPatternIncludingPathParsing(PathPatternData data, Blackhole bh) {
+		for (String path : PATHS) {
+			PathContainer container = PathContainer.parsePath(path);
+			for (PathPattern pattern : data.patterns) {
+				bh.consume(pattern.matches(container));
+			}
+		}
+	}
+
+}
@@ -46,7 +46,6 @@ import java.util.stream.Collectors;
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
 import org.springframework.util.CollectionUtils;
-import org.springframework.util.LinkedCaseInsensitiveMap;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 import org.springframework.util.StringUtils;
@@ -414,13 +413,23 @@ public class HttpHeaders implements MultiValueMap<String, String>, Serializable
 
 	final MultiValueMap<String, String> headers;
 
+	@Nullable
+	private transient ParsedValue<String, MediaType> parsedContentType;
+
+	@Nullable
+	private transient ParsedValue<List<String>, List<MediaType>> parsedAccept;
+
+	@Nullable
+	private transient ParsedValue<String, Long> parsedContentLength;
+
 
 	/**
 	 * Construct a new, empty instance of the {@code HttpHeaders} object.
-	 * <p>This is the common constructor, using a case-insensitive map structure.
+	 * <p>This is the common constructor, using a case-insensitive map structure
+	 * that does not allocate on lookup.
 	 */
 	public HttpHeaders() {
-		this(CollectionUtils.toMultiValueMap(new LinkedCaseInsensitiveMap<>(8, Locale.ENGLISH)));
+		this(new HttpHeadersMap(8));
 	}
 
 	/**
@@ -450,7 +459,17 @@ public class HttpHeaders implements MultiValueMap<String, String>, Serializable
 	 * <p>Returns an empty list when the acceptable media types are unspecified.
 	 */
 	public List<MediaType> getAccept() {
-		return MediaType.parseMediaTypes(get(ACCEPT));
+		List<String> values = get(ACCEPT);
+		if (CollectionUtils.isEmpty(values)) {
+			return Collections.emptyList();
+		}
+		ParsedValue<List<String>, List<MediaType>> parsed = this.parsedAccept;
+		if (parsed == null || !parsed.raw.equals(values)) {
+			parsed = new ParsedValue<>(new ArrayList<>(values), MediaType.parseMediaTypes(values));
+			this.parsedAccept = parsed;
+		}
+		// Callers may sort the returned list in place
+		return new ArrayList<>(parsed.value);
 	}
 
 	/**
@@ -909,7 +928,15 @@ public class HttpHeaders implements MultiValueMap<String, String>, Serializable
 	 */
 	public long getContentLength() {
 		String value = getFirst(CONTENT_LENGTH);
-		return (value != null ? Long.parseLong(value) : -1);
+		if (value == null) {
+			return -1;
+		}
+		ParsedValue<String, Long> parsed = this.parsedContentLength;
+		if (parsed == null || !parsed.raw.equals(value)) {
+			parsed = new ParsedValue<>(value, Long.parseLong(value));
+			this.parsedContentLength = parsed;
+		}
+		return parsed.value;
 	}
 
 	/**
@@ -935,7 +962,15 @@ public class HttpHeaders implements MultiValueMap<String, String>, Serializable
 	@Nullable
 	public MediaType getContentType() {
 		String value = getFirst(CONTENT_TYPE);
-		return (StringUtils.hasLength(value) ? MediaType.parseMediaType(value) : null);
+		if (!StringUtils.hasLength(value)) {
+			return null;
+		}
+		ParsedValue<String, MediaType> parsed = this.parsedContentType;
+		if (parsed == null || !parsed.raw.equals(value)) {
+			parsed = new ParsedValue<>(value, MediaType.parseMediaType(value));
+			this.parsedContentType = parsed;
+		}
+		return parsed.value;
 	}
 
 	/**
@@ -1753,4 +1788,21 @@ public class HttpHeaders implements MultiValueMap<String, String>, Serializable
 		return DATE_FORMATTER.format(time);
 	}
 
+
+	/**
+	 * A parsed header value along with the raw value it was parsed from,
+	 * so that it can be reused for as long as the raw value is unchanged.
+	 */
+	private static final class ParsedValue<R, V> {
+
+		final R raw;
+
+		final V value;
+
+		ParsedValue(R raw, V value) {
+			this.raw = raw;
+			this.value = value;
+		}
+	}
+
 }
@@ -0,0 +1,531 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.http;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.springframework.lang.Nullable;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.LinkedCaseInsensitiveMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.util.ObjectUtils;
+
+/**
+ * Default {@link MultiValueMap} behind {@link HttpHeaders}: an insertion-ordered
+ * map with ASCII case-insensitive keys, as appropriate for HTTP header names.
+ *
+ * <p>In contrast to {@link org.springframework.util.LinkedCaseInsensitiveMap},
+ * lookups do not allocate: header names are hashed and compared with ASCII
+ * case folding directly, using open addressing over an index table that points
+ * into insertion-ordered entry arrays. Names of well-known headers are stored
+ * as the {@link HttpHeaders} constants, so lookups with those constants mostly
+ * succeed on an identity check.
+ *
+ * <p>Like {@code LinkedCaseInsensitiveMap}, the key casing of the last
+ * {@link #put} is retained. Not thread-safe. Instances are serialized in the
+ * form of the {@code LinkedCaseInsensitiveMap} based map they replace, and
+ * deserialized as such.
+ *
+ * @author agent
+ * @since 5.1.20
+ */
+final class HttpHeadersMap extends AbstractMap<String, List<String>>
+		implements MultiValueMap<String, String>, Serializable {
+
+	private static final long serialVersionUID = 2380916355616476431L;
+
+	private static final int DELETED = -1;
+
+	private static final Map<String, String> COMMON_HEADER_NAMES = new HashMap<>(128);
+
+	static {
+		String[] names = new String[] {
+				HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_CHARSET, HttpHeaders.ACCEPT_ENCODING,
+				HttpHeaders.ACCEPT_LANGUAGE, HttpHeaders.ACCEPT_RANGES,
+				HttpHeaders.ACCESS_CONTROL_ALLOW_CREDENTIALS, HttpHeaders.ACCESS_CONTROL_ALLOW_HEADERS,
+				HttpHeaders.ACCESS_CONTROL_ALLOW_METHODS, HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN,
+				HttpHeaders.ACCESS_CONTROL_EXPOSE_HEADERS, HttpHeaders.ACCESS_CONTROL_MAX_AGE,
+				HttpHeaders.ACCESS_CONTROL_REQUEST_HEADERS, HttpHeaders.ACCESS_CONTROL_REQUEST_METHOD,
+				HttpHeaders.AGE, HttpHeaders.ALLOW, HttpHeaders.AUTHORIZATION, HttpHeaders.CACHE_CONTROL,
+				HttpHeaders.CONNECTION, HttpHeaders.CONTENT_ENCODING, HttpHeaders.CONTENT_DISPOSITION,
+				HttpHeaders.CONTENT_LANGUAGE, HttpHeaders.CONTENT_LENGTH, HttpHeaders.CONTENT_LOCATION,
+				HttpHeaders.CONTENT_RANGE, HttpHeaders.CONTENT_TYPE, HttpHeaders.COOKIE, HttpHeaders.DATE,
+				HttpHeaders.ETAG, HttpHeaders.EXPECT, HttpHeaders.EXPIRES, HttpHeaders.FROM, HttpHeaders.HOST,
+				HttpHeaders.IF_MATCH, HttpHeaders.IF_MODIFIED_SINCE, HttpHeaders.IF_NONE_MATCH,
+				HttpHeaders.IF_RANGE, HttpHeaders.IF_UNMODIFIED_SINCE, HttpHeaders.LAST_MODIFIED,
+				HttpHeaders.LINK, HttpHeaders.LOCATION, HttpHeaders.MAX_FORWARDS, HttpHeaders.ORIGIN,
+				HttpHeaders.PRAGMA, HttpHeaders.PROXY_AUTHENTICATE, HttpHeaders.PROXY_AUTHORIZATION,
+				HttpHeaders.RANGE, HttpHeaders.REFERER, HttpHeaders.RETRY_AFTER, HttpHeaders.SERVER,
+				HttpHeaders.SET_COOKIE, HttpHeaders.SET_COOKIE2, HttpHeaders.TE, HttpHeaders.TRAILER,
+				HttpHeaders.TRANSFER_ENCODING, HttpHeaders.UPGRADE, HttpHeaders.USER_AGENT, HttpHeaders.VARY,
+				HttpHeaders.VIA, HttpHeaders.WARNING, HttpHeaders.WWW_AUTHENTICATE};
+		for (String name : names) {
+			COMMON_HEADER_NAMES.put(name, name);
+		}
+	}
+
+
+	private transient String[] keys;
+
+	private transient List<String>[] values;
+
+	private transient int[] hashes;
+
+	// Open addressing index: 0 for a free slot, DELETED, or entry index + 1
+	private transient int[] table;
+
+	// Number of used entry slots, including removed ones
+	private transient int count;
+
+	private transient int size;
+
+	private transient int modCount;
+
+	@Nullable
+	private transient Set<Entry<String, List<String>>> entrySet;
+
+
+	HttpHeadersMap() {
+		this(8);
+	}
+
+	HttpHeadersMap(int expectedSize) {
+		allocate(expectedSize);
+	}
+
+
+	@SuppressWarnings("unchecked")
+	private void allocate(int expectedSize) {
+		int capacity = 4;
+		while (capacity < expectedSize) {
+			capacity <<= 1;
+		}
+		this.keys = new String[capacity];
+		this.values = (List<String>[]) new List<?>[capacity];
+		this.hashes = new int[capacity];
+		this.table = new int[capacity << 1];
+		this.count = 0;
+		this.size = 0;
+	}
+
+
+	// MultiValueMap implementation
+
+	@Override
+	@Nullable
+	public String getFirst(String key) {
+		List<String> values = get(key);
+		return (values != null && !values.isEmpty() ? values.get(0) : null);
+	}
+
+	@Override
+	public void add(String key, @Nullable String value) {
+		List<String> values = get(key);
+		if (values == null) {
+			values = new ArrayList<>(1);
+			put(key, values);
+		}
+		values.add(value);
+	}
+
+	@Override
+	public void addAll(String key, List<? extends String> values) {
+		List<String> currentValues = get(key);
+		if (currentValues == null) {
+			currentValues = new ArrayList<>(values.size());
+			put(key, currentValues);
+		}
+		currentValues.addAll(values);
+	}
+
+	@Override
+	public void addAll(MultiValueMap<String, String> values) {
+		for (Entry<String, List<String>> entry : values.entrySet()) {
+			addAll(entry.getKey(), entry.getValue());
+		}
+	}
+
+	@Override
+	public void set(String key, @Nullable String value) {
+		List<String> values = new ArrayList<>(1);
+		values.add(value);
+		put(key, values);
+	}
+
+	@Override
+	public void setAll(Map<String, String> values) {
+		values.forEach(this::set);
+	}
+
+	@Override
+	public Map<String, String> toSingleValueMap() {
+		Map<String, String> singleValueMap = new LinkedHashMap<>(this.size);
+		for (int i = 0; i < this.count; i++) {
+			List<String> values = this.values[i];
+			if (this.keys[i] != null && values != null && !values.isEmpty()) {
+				singleValueMap.put(this.keys[i], values.get(0));
+			}
+		}
+		return singleValueMap;
+	}
+
+
+	// Map implementation
+
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return (this.size == 0);
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return (key instanceof String && findSlot((String) key, hash((String) key)) != -1);
+	}
+
+	@Override
+	@Nullable
+	public List<String> get(Object key) {
+		if (key instanceof String) {
+			int slot = findSlot((String) key, hash((String) key));
+			if (slot != -1) {
+				return this.values[this.table[slot] - 1];
+			}
+		}
+		return null;
+	}
+
+	@Override
+	@Nullable
+	public List<String> put(String key, List<String> value) {
+		int hash = hash(key);
+		int slot = findSlot(key, hash);
+		if (slot != -1) {
+			int index = this.table[slot] - 1;
+			List<String> oldValue = this.values[index];
+			if (this.keys[index].equals(key)) {
+				this.values[index] = value;
+				return oldValue;
+			}
+			// Different casing: re-insert under the new key, as LinkedCaseInsensitiveMap does
+			removeSlot(slot);
+			insert(key, hash, value);
+			return oldValue;
+		}
+		insert(key, hash, value);
+		return null;
+	}
+
+	@Override
+	@Nullable
+	public List<String> remove(Object key) {
+		if (key instanceof String) {
+			int slot = findSlot((String) key, hash((String) key));
+			if (slot != -1) {
+				return removeSlot(slot);
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(this.keys, null);
+		Arrays.fill(this.values, null);
+		Arrays.fill(this.table, 0);
+		this.count = 0;
+		this.size = 0;
+		this.modCount++;
+	}
+
+	@Override
+	public Set<Entry<String, List<String>>> entrySet() {
+		Set<Entry<String, List<String>>> entrySet = this.entrySet;
+		if (entrySet == null) {
+			entrySet = new EntrySet();
+			this.entrySet = entrySet;
+		}
+		return entrySet;
+	}
+
+
+	private int findSlot(String key, int hash) {
+		int mask = this.table.length - 1;
+		for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+			int entry = this.table[slot];
+			if (entry == 0) {
+				return -1;
+			}
+			if (entry != DELETED) {
+				int index = entry - 1;
+				if (this.hashes[index] == hash && equalsIgnoreCase(this.keys[index], key)) {
+					return slot;
+				}
+			}
+		}
+	}
+
+	private void insert(String key, int hash, List<String> value) {
+		if (this.count == this.keys.length) {
+			resize();
+		}
+		int index = this.count++;
+		String commonName = COMMON_HEADER_NAMES.get(key);
+		this.keys[index] = (commonName != null ? commonName : key);
+		this.values[index] = value;
+		this.hashes[index] = hash;
+		link(index, hash);
+		this.size++;
+		this.modCount++;
+	}
+
+	private void link(int index, int hash) {
+		int mask = this.table.length - 1;
+		int slot = hash & mask;
+		while (this.table[slot] > 0) {
+			slot = (slot + 1) & mask;
+		}
+		this.table[slot] = index + 1;
+	}
+
+	private List<String> removeSlot(int slot) {
+		int index = this.table[slot] - 1;
+		List<String> oldValue = this.values[index];
+		this.table[slot] = DELETED;
+		this.keys[index] = null;
+		this.values[index] = null;
+		this.size--;
+		this.modCount++;
+		return oldValue;
+	}
+
+	/**
+	 * Compact removed entries and, if more than half of the entries are live,
+	 * double the capacity. Also clears any deleted markers from the index.
+	 */
+	private void resize() {
+		String[] oldKeys = this.keys;
+		List<String>[] oldValues = this.values;
+		int[] oldHashes = this.hashes;
+		int oldCount = this.count;
+		allocate(this.size >= oldKeys.length / 2 ? oldKeys.length << 1 : oldKeys.length);
+		for (int i = 0; i < oldCount; i++) {
+			if (oldKeys[i] != null) {
+				int index = this.count++;
+				this.keys[index] = oldKeys[i];
+				this.values[index] = oldValues[i];
+				this.hashes[index] = oldHashes[i];
+				link(index, oldHashes[i]);
+			}
+		}
+		this.size = this.count;
+	}
+
+	private static int hash(String key) {
+		int hash = 0;
+		for (int i = 0; i < key.length(); i++) {
+			hash = 31 * hash + toLowerCase(key.charAt(i));
+		}
+		return hash ^ (hash >>> 16);
+	}
+
+	private static boolean equalsIgnoreCase(String key, String other) {
+		if (key == other) {
+			return true;
+		}
+		int length = key.length();
+		if (length != other.length()) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			char c1 = key.charAt(i);
+			char c2 = other.charAt(i);
+			if (c1 != c2 && toLowerCase(c1) != toLowerCase(c2)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static char toLowerCase(char c) {
+		return (c >= 'A' && c <= 'Z' ? (char) (c + 32) : c);
+	}
+
+
+	/**
+	 * Serialize as the {@code LinkedCaseInsensitiveMap} based map that backed
+	 * {@link HttpHeaders} before, so that serialized headers, e.g. within a
+	 * {@code RestClientResponseException} or a session, can be exchanged with
+	 * nodes that run an earlier 5.1.x version.
+	 */
+	private Object writeReplace() {
+		LinkedCaseInsensitiveMap<List<String>> map = new LinkedCaseInsensitiveMap<>(this.size, Locale.ENGLISH);
+		for (int i = 0; i < this.count; i++) {
+			if (this.keys[i] != null) {
+				map.put(this.keys[i], this.values[i]);
+			}
+		}
+		return CollectionUtils.toMultiValueMap(map);
+	}
+
+
+	private class EntrySet extends AbstractSet<Entry<String, List<String>>> {
+
+		@Override
+		public Iterator<Entry<String, List<String>>> iterator() {
+			return new EntryIterator();
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public void clear() {
+			HttpHeadersMap.this.clear();
+		}
+	}
+
+
+	private class EntryIterator implements Iterator<Entry<String, List<String>>> {
+
+		private int next;
+
+		private int last = -1;
+
+		private int expectedModCount = modCount;
+
+		EntryIterator() {
+			this.next = advance(0);
+		}
+
+		private int advance(int from) {
+			while (from < count && keys[from] == null) {
+				from++;
+			}
+			return from;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return (this.next < count);
+		}
+
+		@Override
+		public Entry<String, List<String>> next() {
+			checkForComodification();
+			if (this.next >= count) {
+				throw new NoSuchElementException();
+			}
+			this.last = this.next;
+			this.next = advance(this.next + 1);
+			return new HeaderEntry(this.last);
+		}
+
+		@Override
+		public void remove() {
+			if (this.last == -1) {
+				throw new IllegalStateException();
+			}
+			checkForComodification();
+			removeSlot(findSlot(keys[this.last], hashes[this.last]));
+			this.last = -1;
+			this.expectedModCount = modCount;
+		}
+
+		private void checkForComodification() {
+			if (modCount != this.expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+		}
+	}
+
+
+	private class HeaderEntry implements Entry<String, List<String>> {
+
+		private final int index;
+
+		private final String key;
+
+		HeaderEntry(int index) {
+			this.index = index;
+			this.key = keys[index];
+		}
+
+		@Override
+		public String getKey() {
+			return this.key;
+		}
+
+		@Override
+		public List<String> getValue() {
+			return (keys[this.index] == this.key ? values[this.index] : get(this.key));
+		}
+
+		@Override
+		public List<String> setValue(List<String> value) {
+			if (keys[this.index] != this.key) {
+				throw new IllegalStateException("Entry no longer in map");
+			}
+			List<String> oldValue = values[this.index];
+			values[this.index] = value;
+			return oldValue;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof Map.Entry)) {
+				return false;
+			}
+			Map.Entry<?, ?> otherEntry = (Map.Entry<?, ?>) other;
+			return (this.key.equals(otherEntry.getKey()) &&
+					ObjectUtils.nullSafeEquals(getValue(), otherEntry.getValue()));
+		}
+
+		@Override
+		public int hashCode() {
+			return this.key.hashCode() ^ ObjectUtils.nullSafeHashCode(getValue());
+		}
+
+		@Override
+		public String toString() {
+			return this.key + "=" + getValue();
+		}
+	}
+
+}
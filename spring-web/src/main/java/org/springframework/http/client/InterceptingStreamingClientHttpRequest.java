@@ -0,0 +1,142 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.http.client;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.Iterator;
+import java.util.List;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.StreamingHttpOutputMessage;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.StreamUtils;
+
+/**
+ * Wrapper for a {@link ClientHttpRequest} that has support for
+ * {@link StreamingClientHttpRequestInterceptor StreamingClientHttpRequestInterceptors}.
+ *
+ * @author agent
+ * @since 5.1.20
+ */
+class InterceptingStreamingClientHttpRequest extends AbstractClientHttpRequest
+		implements StreamingHttpOutputMessage {
+
+	private final ClientHttpRequestFactory requestFactory;
+
+	private final List<StreamingClientHttpRequestInterceptor> interceptors;
+
+	private final HttpMethod method;
+
+	private final URI uri;
+
+	@Nullable
+	private Body body;
+
+	@Nullable
+	private ByteArrayOutputStream bufferedOutput;
+
+
+	InterceptingStreamingClientHttpRequest(ClientHttpRequestFactory requestFactory,
+			List<StreamingClientHttpRequestInterceptor> interceptors, URI uri, HttpMethod method) {
+
+		this.requestFactory = requestFactory;
+		this.interceptors = interceptors;
+		this.method = method;
+		this.uri = uri;
+	}
+
+
+	@Override
+	public HttpMethod getMethod() {
+		return this.method;
+	}
+
+	@Override
+	public String getMethodValue() {
+		return this.method.name();
+	}
+
+	@Override
+	public URI getURI() {
+		return this.uri;
+	}
+
+	@Override
+	public void setBody(Body body) {
+		assertNotExecuted();
+		this.body = body;
+	}
+
+	@Override
+	protected OutputStream getBodyInternal(HttpHeaders headers) throws IOException {
+		// Fallback for callers not aware of StreamingHttpOutputMessage
+		if (this.bufferedOutput == null) {
+			this.bufferedOutput = new ByteArrayOutputStream(1024);
+		}
+		return this.bufferedOutput;
+	}
+
+	@Override
+	protected ClientHttpResponse executeInternal(HttpHeaders headers) throws IOException {
+		Body body = this.body;
+		if (body == null && this.bufferedOutput != null && this.bufferedOutput.size() > 0) {
+			byte[] bytes = this.bufferedOutput.toByteArray();
+			body = outputStream -> StreamUtils.copy(bytes, outputStream);
+		}
+		return new InterceptingRequestExecution().execute(this, body);
+	}
+
+
+	private class InterceptingRequestExecution implements StreamingClientHttpRequestExecution {
+
+		private final Iterator<StreamingClientHttpRequestInterceptor> iterator;
+
+		public InterceptingRequestExecution() {
+			this.iterator = interceptors.iterator();
+		}
+
+		@Override
+		public ClientHttpResponse execute(HttpRequest request, @Nullable Body body) throws IOException {
+			if (this.iterator.hasNext()) {
+				StreamingClientHttpRequestInterceptor nextInterceptor = this.iterator.next();
+				return nextInterceptor.intercept(request, body, this);
+			}
+			else {
+				HttpMethod method = request.getMethod();
+				Assert.state(method != null, "No standard HTTP method");
+				ClientHttpRequest delegate = requestFactory.createRequest(request.getURI(), method);
+				request.getHeaders().forEach((key, value) -> delegate.getHeaders().addAll(key, value));
+				if (body != null) {
+					if (delegate instanceof StreamingHttpOutputMessage) {
+						((StreamingHttpOutputMessage) delegate).setBody(body);
+					}
+					else {
+						body.writeTo(delegate.getBody());
+					}
+				}
+				return delegate.execute();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.http.client;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.lang.Nullable;
+
+/**
+ * {@link ClientHttpRequestFactory} wrapper with support for
+ * {@link StreamingClientHttpRequestInterceptor StreamingClientHttpRequestInterceptors}.
+ *
+ * <p>In contrast to {@link InterceptingClientHttpRequestFactory}, the request body
+ * is not buffered: requests created by this factory are
+ * {@link org.springframework.http.StreamingHttpOutputMessage streaming} messages,
+ * and the body callback is passed through the interceptor chain to the
+ * underlying request. Only callers that write to {@code getBody()} directly
+ * fall back to an in-memory buffer.
+ *
+ * @author agent
+ * @since 5.1.20
+ * @see StreamingClientHttpRequestInterceptor
+ */
+public class InterceptingStreamingClientHttpRequestFactory extends AbstractClientHttpRequestFactoryWrapper {
+
+	private final List<StreamingClientHttpRequestInterceptor> interceptors;
+
+
+	/**
+	 * Create a new instance of the {@code InterceptingStreamingClientHttpRequestFactory} with the given parameters.
+	 * @param requestFactory the request factory to wrap
+	 * @param interceptors the interceptors that are to be applied (can be {@code null})
+	 */
+	public InterceptingStreamingClientHttpRequestFactory(ClientHttpRequestFactory requestFactory,
+			@Nullable List<StreamingClientHttpRequestInterceptor> interceptors) {
+
+		super(requestFactory);
+		this.interceptors = (interceptors != null ? interceptors : Collections.emptyList());
+	}
+
+
+	@Override
+	protected ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod, ClientHttpRequestFactory requestFactory) {
+		return new InterceptingStreamingClientHttpRequest(requestFactory, this.interceptors, uri, httpMethod);
+	}
+
+}
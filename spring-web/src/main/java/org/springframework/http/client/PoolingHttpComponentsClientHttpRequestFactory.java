@@ -0,0 +1,293 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.http.client;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HttpContext;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.CustomizableThreadCreator;
+
+/**
+ * {@link HttpComponentsClientHttpRequestFactory} variant that manages its own
+ * pooled HTTP/1.1 connections through a {@link PoolingHttpClientConnectionManager},
+ * with tunable per-route limits, a default keep-alive for responses that do not
+ * specify one, and background eviction of expired and idle connections.
+ *
+ * <p>Pool statistics are exposed through {@link #getTotalStats()} and
+ * {@link #getStats(URI)}. Both return immutable snapshots that may be polled
+ * from any thread, e.g. by a metrics gauge, without blocking request execution.
+ *
+ * <p>The eviction thread is started on first use and stopped on {@link #destroy()},
+ * which also shuts down the connection pool.
+ *
+ * @author agent
+ * @since 5.1.20
+ * @see InterceptingStreamingClientHttpRequestFactory
+ */
+public class PoolingHttpComponentsClientHttpRequestFactory extends HttpComponentsClientHttpRequestFactory {
+
+	/**
+	 * Default maximum number of connections in the pool: {@value}.
+	 */
+	public static final int DEFAULT_MAX_TOTAL = 200;
+
+	/**
+	 * Default maximum number of connections per route: {@value}.
+	 */
+	public static final int DEFAULT_MAX_PER_ROUTE = 20;
+
+	/**
+	 * Default keep-alive in milliseconds for responses without a
+	 * {@code Keep-Alive} header: {@value}.
+	 */
+	public static final long DEFAULT_KEEP_ALIVE = 30 * 1000;
+
+
+	private final PoolingHttpClientConnectionManager connectionManager;
+
+	private final KeepAliveStrategy keepAliveStrategy;
+
+	private volatile long idleEvictionInterval = 5 * 1000;
+
+	private volatile long maxIdleTime = DEFAULT_KEEP_ALIVE;
+
+	@Nullable
+	private volatile Thread evictionThread;
+
+	private boolean destroyed;
+
+	private final Object lifecycleMonitor = new Object();
+
+
+	/**
+	 * Create a new instance with a default {@link PoolingHttpClientConnectionManager}.
+	 */
+	public PoolingHttpComponentsClientHttpRequestFactory() {
+		this(new PoolingHttpClientConnectionManager());
+	}
+
+	/**
+	 * Create a new instance with the given {@link PoolingHttpClientConnectionManager},
+	 * e.g. one configured with a custom socket factory registry. The connection
+	 * manager is owned by this factory and shut down on {@link #destroy()}.
+	 * @param connectionManager the connection manager to use
+	 */
+	public PoolingHttpComponentsClientHttpRequestFactory(PoolingHttpClientConnectionManager connectionManager) {
+		this(connectionManager, new KeepAliveStrategy());
+	}
+
+	private PoolingHttpComponentsClientHttpRequestFactory(
+			PoolingHttpClientConnectionManager connectionManager, KeepAliveStrategy keepAliveStrategy) {
+
+		super(HttpClients.custom()
+				.setConnectionManager(connectionManager)
+				.setKeepAliveStrategy(keepAliveStrategy)
+				.useSystemProperties()
+				.build());
+		this.connectionManager = connectionManager;
+		this.keepAliveStrategy = keepAliveStrategy;
+		this.connectionManager.setMaxTotal(DEFAULT_MAX_TOTAL);
+		this.connectionManager.setDefaultMaxPerRoute(DEFAULT_MAX_PER_ROUTE);
+	}
+
+
+	/**
+	 * Return the underlying connection manager, for further configuration.
+	 */
+	public PoolingHttpClientConnectionManager getConnectionManager() {
+		return this.connectionManager;
+	}
+
+	/**
+	 * Set the maximum number of connections in the pool.
+	 * <p>By default this is set to {@value #DEFAULT_MAX_TOTAL}.
+	 */
+	public void setMaxConnections(int maxConnections) {
+		Assert.isTrue(maxConnections > 0, "Max connections must be greater than 0");
+		this.connectionManager.setMaxTotal(maxConnections);
+	}
+
+	/**
+	 * Set the default maximum number of connections per route, i.e. per
+	 * target host and port.
+	 * <p>By default this is set to {@value #DEFAULT_MAX_PER_ROUTE}.
+	 */
+	public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+		Assert.isTrue(maxConnectionsPerRoute > 0, "Max connections per route must be greater than 0");
+		this.connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+	}
+
+	/**
+	 * Set the maximum number of connections for the route to the given target,
+	 * overriding the {@linkplain #setMaxConnectionsPerRoute default per-route limit}.
+	 * @param target the target URI; only scheme, host and port are relevant
+	 * @param maxConnections the maximum number of connections for that route
+	 */
+	public void setMaxConnectionsPerRoute(URI target, int maxConnections) {
+		Assert.isTrue(maxConnections > 0, "Max connections must be greater than 0");
+		this.connectionManager.setMaxPerRoute(toRoute(target), maxConnections);
+	}
+
+	/**
+	 * Set the period of inactivity in milliseconds after which pooled
+	 * connections are re-validated before being leased again.
+	 * A non-positive value disables validation.
+	 * @see PoolingHttpClientConnectionManager#setValidateAfterInactivity(int)
+	 */
+	public void setValidateAfterInactivity(int validateAfterInactivity) {
+		this.connectionManager.setValidateAfterInactivity(validateAfterInactivity);
+	}
+
+	/**
+	 * Set the keep-alive in milliseconds to apply when a response does not
+	 * carry a {@code Keep-Alive} header. A non-positive value keeps such
+	 * connections alive indefinitely, which is the HttpClient default.
+	 * <p>By default this is set to {@value #DEFAULT_KEEP_ALIVE}.
+	 */
+	public void setDefaultKeepAlive(long defaultKeepAlive) {
+		this.keepAliveStrategy.defaultKeepAlive = defaultKeepAlive;
+	}
+
+	/**
+	 * Set the time in milliseconds after which idle pooled connections are
+	 * closed by the eviction thread. A non-positive value only evicts
+	 * connections whose keep-alive has expired.
+	 * <p>By default this is set to {@value #DEFAULT_KEEP_ALIVE}.
+	 */
+	public void setMaxIdleTime(long maxIdleTime) {
+		this.maxIdleTime = maxIdleTime;
+	}
+
+	/**
+	 * Set the interval in milliseconds at which the pool is checked for
+	 * expired and idle connections. A non-positive value disables background
+	 * eviction; it must be set before the first request is created.
+	 * <p>Default is 5000.
+	 */
+	public void setIdleEvictionInterval(long idleEvictionInterval) {
+		this.idleEvictionInterval = idleEvictionInterval;
+	}
+
+	/**
+	 * Return a snapshot of the statistics for the whole pool.
+	 */
+	public PoolStats getTotalStats() {
+		return this.connectionManager.getTotalStats();
+	}
+
+	/**
+	 * Return a snapshot of the statistics for the route to the given target.
+	 * @param target the target URI; only scheme, host and port are relevant
+	 */
+	public PoolStats getStats(URI target) {
+		return this.connectionManager.getStats(toRoute(target));
+	}
+
+
+	@Override
+	public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) throws IOException {
+		startEvictionIfNecessary();
+		return super.createRequest(uri, httpMethod);
+	}
+
+	private void startEvictionIfNecessary() {
+		if (this.evictionThread != null || this.idleEvictionInterval <= 0) {
+			return;
+		}
+		synchronized (this.lifecycleMonitor) {
+			if (this.evictionThread == null && !this.destroyed) {
+				CustomizableThreadCreator threadCreator = new CustomizableThreadCreator("http-pool-evictor-");
+				threadCreator.setDaemon(true);
+				Thread thread = threadCreator.createThread(this::evictConnections);
+				thread.start();
+				this.evictionThread = thread;
+			}
+		}
+	}
+
+	private void evictConnections() {
+		try {
+			while (!Thread.currentThread().isInterrupted()) {
+				Thread.sleep(this.idleEvictionInterval);
+				this.connectionManager.closeExpiredConnections();
+				long maxIdleTime = this.maxIdleTime;
+				if (maxIdleTime > 0) {
+					this.connectionManager.closeIdleConnections(maxIdleTime, TimeUnit.MILLISECONDS);
+				}
+			}
+		}
+		catch (InterruptedException ex) {
+			// destroyed
+		}
+	}
+
+	/**
+	 * Stop the eviction thread and shut down the connection pool.
+	 */
+	@Override
+	public void destroy() throws Exception {
+		synchronized (this.lifecycleMonitor) {
+			this.destroyed = true;
+			if (this.evictionThread != null) {
+				this.evictionThread.interrupt();
+				this.evictionThread = null;
+			}
+		}
+		super.destroy();
+		this.connectionManager.shutdown();
+	}
+
+	private static HttpRoute toRoute(URI target) {
+		String scheme = (target.getScheme() != null ? target.getScheme() : "http");
+		boolean secure = "https".equalsIgnoreCase(scheme);
+		int port = target.getPort();
+		if (port == -1) {
+			port = (secure ? 443 : 80);
+		}
+		return new HttpRoute(new HttpHost(target.getHost(), port, scheme), null, secure);
+	}
+
+
+	/**
+	 * Honors the {@code Keep-Alive} header and falls back to a configurable default.
+	 */
+	private static class KeepAliveStrategy implements ConnectionKeepAliveStrategy {
+
+		volatile long defaultKeepAlive = DEFAULT_KEEP_ALIVE;
+
+		@Override
+		public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+			long keepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+			return (keepAlive > 0 ? keepAlive : this.defaultKeepAlive);
+		}
+	}
+
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.http.client;
+
+import java.io.IOException;
+
+import org.springframework.http.HttpRequest;
+import org.springframework.http.StreamingHttpOutputMessage;
+import org.springframework.lang.Nullable;
+
+/**
+ * Represents the context of a streaming client-side HTTP request execution.
+ *
+ * <p>Used to invoke the next interceptor in the interceptor chain,
+ * or - if the calling interceptor is last - execute the request itself.
+ *
+ * @author agent
+ * @since 5.1.20
+ * @see StreamingClientHttpRequestInterceptor
+ */
+@FunctionalInterface
+public interface StreamingClientHttpRequestExecution {
+
+	/**
+	 * Execute the request with the given request attributes and body,
+	 * and return the response.
+	 * @param request the request, containing method, URI, and headers
+	 * @param body the body of the request to execute, or {@code null} if none
+	 * @return the response
+	 * @throws IOException in case of I/O errors
+	 */
+	ClientHttpResponse execute(HttpRequest request, @Nullable StreamingHttpOutputMessage.Body body)
+			throws IOException;
+
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.http.client;
+
+import java.io.IOException;
+
+import org.springframework.http.HttpRequest;
+import org.springframework.http.StreamingHttpOutputMessage;
+import org.springframework.lang.Nullable;
+
+/**
+ * Intercepts client-side HTTP requests without buffering the request body.
+ * A streaming variant of {@link ClientHttpRequestInterceptor}: the body is
+ * handed over as a {@link StreamingHttpOutputMessage.Body} callback that is
+ * only written once the underlying request is executed.
+ *
+ * <p>Implementations can be
+ * {@linkplain org.springframework.http.client.support.InterceptingHttpAccessor#setStreamingInterceptors
+ * registered} with the {@link org.springframework.web.client.RestTemplate RestTemplate}.
+ * Since the body may not be repeatable, interceptors should either pass it on
+ * unchanged, decorate it, or replace it - but not write it themselves.
+ *
+ * @author agent
+ * @since 5.1.20
+ * @see InterceptingStreamingClientHttpRequestFactory
+ */
+@FunctionalInterface
+public interface StreamingClientHttpRequestInterceptor {
+
+	/**
+	 * Intercept the given request, and return a response. The given
+	 * {@link StreamingClientHttpRequestExecution} allows the interceptor to
+	 * pass on the request and body to the next entity in the chain.
+	 * @param request the request, containing method, URI, and headers
+	 * @param body the body of the request, or {@code null} if none
+	 * @param execution the request execution
+	 * @return the response
+	 * @throws IOException in case of I/O errors
+	 */
+	ClientHttpResponse intercept(HttpRequest request, @Nullable StreamingHttpOutputMessage.Body body,
+			StreamingClientHttpRequestExecution execution) throws IOException;
+
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.http.client.reactive;
+
+import java.time.Duration;
+
+import reactor.util.context.Context;
+
+import org.springframework.lang.Nullable;
+
+/**
+ * Records the timeline of a single HTTP exchange as it progresses through
+ * a {@link ClientHttpConnector}.
+ *
+ * <p>An observation is passed to the connector through the Reactor
+ * {@link Context} of the {@code connect} subscriber, under the key
+ * {@code ClientHttpObservation.class}, see {@link #addTo(Context)}.
+ * Connectors that support observations, such as
+ * {@link ReactorClientHttpConnector} and {@link JettyClientHttpConnector},
+ * mark the phases they can detect; the others leave them unset.
+ *
+ * @author agent
+ * @since 5.1.20
+ */
+public final class ClientHttpObservation {
+
+	private final long startNanos = System.nanoTime();
+
+	private volatile long connectionAcquiredNanos;
+
+	private volatile long requestSentNanos;
+
+	private volatile long responseReceivedNanos;
+
+
+	/**
+	 * Mark the point when a connection was obtained for the request, i.e.
+	 * after DNS resolution, connection establishment, or waiting for a
+	 * pooled connection. Only the first invocation counts.
+	 */
+	public void connectionAcquired() {
+		if (this.connectionAcquiredNanos == 0) {
+			this.connectionAcquiredNanos = System.nanoTime();
+		}
+	}
+
+	/**
+	 * Mark the point when the request, including its body, was sent.
+	 */
+	public void requestSent() {
+		if (this.requestSentNanos == 0) {
+			this.requestSentNanos = System.nanoTime();
+		}
+	}
+
+	/**
+	 * Mark the point when the response status and headers were received.
+	 */
+	public void responseReceived() {
+		if (this.responseReceivedNanos == 0) {
+			this.responseReceivedNanos = System.nanoTime();
+		}
+	}
+
+	/**
+	 * Return the {@link System#nanoTime()} when the observation was created.
+	 */
+	public long getStartNanos() {
+		return this.startNanos;
+	}
+
+	/**
+	 * Return the time from the start until a connection was acquired,
+	 * or {@code null} if not marked by the connector.
+	 */
+	@Nullable
+	public Duration getConnectDuration() {
+		return elapsed(this.connectionAcquiredNanos);
+	}
+
+	/**
+	 * Return the time from the start until the request was sent,
+	 * or {@code null} if not marked by the connector.
+	 */
+	@Nullable
+	public Duration getRequestSentDuration() {
+		return elapsed(this.requestSentNanos);
+	}
+
+	/**
+	 * Return the time from the start until the response status and headers
+	 * were received, i.e. the time to first byte, or {@code null} if not
+	 * marked (yet).
+	 */
+	@Nullable
+	public Duration getTimeToFirstByte() {
+		return elapsed(this.responseReceivedNanos);
+	}
+
+	@Nullable
+	private Duration elapsed(long nanos) {
+		return (nanos != 0 ? Duration.ofNanos(nanos - this.startNanos) : null);
+	}
+
+	/**
+	 * Return a new context with this observation added.
+	 * @param context the context to add to
+	 */
+	public Context addTo(Context context) {
+		return context.put(ClientHttpObservation.class, this);
+	}
+
+	/**
+	 * Return the observation in the given context, if any.
+	 * @param context the context of the {@code connect} subscriber
+	 */
+	@Nullable
+	public static ClientHttpObservation from(Context context) {
+		return context.getOrDefault(ClientHttpObservation.class, null);
+	}
+
+}
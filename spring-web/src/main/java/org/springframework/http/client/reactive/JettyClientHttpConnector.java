@@ -21,6 +21,7 @@ import java.util.function.Consumer;
 import java.util.function.Function;
 
 import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.api.Request;
 import org.eclipse.jetty.reactive.client.ContentChunk;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -102,14 +103,21 @@ public class JettyClientHttpConnector implements ClientHttpConnector {
 			}
 		}
 
-		JettyClientHttpRequest clientHttpRequest = new JettyClientHttpRequest(
-				this.httpClient.newRequest(uri).method(method.toString()), this.bufferFactory);
-
-		return requestCallback.apply(clientHttpRequest).then(Mono.from(
-				clientHttpRequest.getReactiveRequest().response((response, chunks) -> {
-					Flux<DataBuffer> content = Flux.from(chunks).map(this::toDataBuffer);
-					return Mono.just(new JettyClientHttpResponse(response, content));
-				})));
+		return Mono.subscriberContext().flatMap(context -> {
+			Request request = this.httpClient.newRequest(uri).method(method.toString());
+			ClientHttpObservation observation = ClientHttpObservation.from(context);
+			if (observation != null) {
+				request.onRequestBegin(r -> observation.connectionAcquired())
+						.onRequestSuccess(r -> observation.requestSent())
+						.onResponseBegin(r -> observation.responseReceived());
+			}
+			JettyClientHttpRequest clientHttpRequest = new JettyClientHttpRequest(request, this.bufferFactory);
+			return requestCallback.apply(clientHttpRequest).then(Mono.from(
+					clientHttpRequest.getReactiveRequest().response((response, chunks) -> {
+						Flux<DataBuffer> content = Flux.from(chunks).map(this::toDataBuffer);
+						return Mono.just(new JettyClientHttpResponse(response, content));
+					})));
+		});
 	}
 
 	private DataBuffer toDataBuffer(ContentChunk chunk) {
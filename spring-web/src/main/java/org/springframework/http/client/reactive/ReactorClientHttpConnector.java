@@ -104,12 +104,27 @@ public class ReactorClientHttpConnector implements ClientHttpConnector {
 			return Mono.error(new IllegalArgumentException("URI is not absolute: " + uri));
 		}
 
-		return this.httpClient
-				.request(io.netty.handler.codec.http.HttpMethod.valueOf(method.name()))
-				.uri(uri.toString())
-				.send((request, outbound) -> requestCallback.apply(adaptRequest(method, uri, request, outbound)))
-				.responseConnection((res, con) -> Mono.just(adaptResponse(res, con.inbound(), con.outbound().alloc())))
-				.next();
+		return Mono.subscriberContext().flatMap(context -> {
+			ClientHttpObservation observation = ClientHttpObservation.from(context);
+			return this.httpClient
+					.request(io.netty.handler.codec.http.HttpMethod.valueOf(method.name()))
+					.uri(uri.toString())
+					.send((request, outbound) -> {
+						if (observation == null) {
+							return requestCallback.apply(adaptRequest(method, uri, request, outbound));
+						}
+						observation.connectionAcquired();
+						return requestCallback.apply(adaptRequest(method, uri, request, outbound))
+								.doOnSuccess(aVoid -> observation.requestSent());
+					})
+					.responseConnection((res, con) -> {
+						if (observation != null) {
+							observation.responseReceived();
+						}
+						return Mono.just(adaptResponse(res, con.inbound(), con.outbound().alloc()));
+					})
+					.next();
+		});
 	}
 
 	private ReactorClientHttpRequest adaptRequest(HttpMethod method, URI uri, HttpClientRequest request,
@@ -23,6 +23,8 @@ import org.springframework.core.annotation.AnnotationAwareOrderComparator;
 import org.springframework.http.client.ClientHttpRequestFactory;
 import org.springframework.http.client.ClientHttpRequestInterceptor;
 import org.springframework.http.client.InterceptingClientHttpRequestFactory;
+import org.springframework.http.client.InterceptingStreamingClientHttpRequestFactory;
+import org.springframework.http.client.StreamingClientHttpRequestInterceptor;
 import org.springframework.lang.Nullable;
 import org.springframework.util.CollectionUtils;
 
@@ -45,6 +47,8 @@ public abstract class InterceptingHttpAccessor extends HttpAccessor {
 
 	private final List<ClientHttpRequestInterceptor> interceptors = new ArrayList<>();
 
+	private final List<StreamingClientHttpRequestInterceptor> streamingInterceptors = new ArrayList<>();
+
 	@Nullable
 	private volatile ClientHttpRequestFactory interceptingRequestFactory;
 
@@ -73,6 +77,35 @@ public abstract class InterceptingHttpAccessor extends HttpAccessor {
 		return this.interceptors;
 	}
 
+	/**
+	 * Set the streaming request interceptors that this accessor should use.
+	 * <p>In contrast to {@link #setInterceptors regular interceptors}, these do
+	 * not require the request body to be buffered. If both kinds are present,
+	 * regular interceptors are applied first, followed by streaming ones.
+	 * <p>The interceptors will get sorted according to their order
+	 * once the {@link ClientHttpRequestFactory} will be built.
+	 * @since 5.1.20
+	 * @see #getRequestFactory()
+	 * @see AnnotationAwareOrderComparator
+	 */
+	public void setStreamingInterceptors(List<StreamingClientHttpRequestInterceptor> interceptors) {
+		if (this.streamingInterceptors != interceptors) {
+			this.streamingInterceptors.clear();
+			this.streamingInterceptors.addAll(interceptors);
+			AnnotationAwareOrderComparator.sort(this.streamingInterceptors);
+		}
+		this.interceptingRequestFactory = null;
+	}
+
+	/**
+	 * Return the streaming request interceptors that this accessor uses.
+	 * <p>The returned {@link List} is active and may get appended to.
+	 * @since 5.1.20
+	 */
+	public List<StreamingClientHttpRequestInterceptor> getStreamingInterceptors() {
+		return this.streamingInterceptors;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -84,16 +117,25 @@ public abstract class InterceptingHttpAccessor extends HttpAccessor {
 
 	/**
 	 * Overridden to expose an {@link InterceptingClientHttpRequestFactory}
+	 * and/or an {@link InterceptingStreamingClientHttpRequestFactory}
 	 * if necessary.
 	 * @see #getInterceptors()
+	 * @see #getStreamingInterceptors()
 	 */
 	@Override
 	public ClientHttpRequestFactory getRequestFactory() {
 		List<ClientHttpRequestInterceptor> interceptors = getInterceptors();
-		if (!CollectionUtils.isEmpty(interceptors)) {
+		List<StreamingClientHttpRequestInterceptor> streamingInterceptors = getStreamingInterceptors();
+		if (!CollectionUtils.isEmpty(interceptors) || !CollectionUtils.isEmpty(streamingInterceptors)) {
 			ClientHttpRequestFactory factory = this.interceptingRequestFactory;
 			if (factory == null) {
-				factory = new InterceptingClientHttpRequestFactory(super.getRequestFactory(), interceptors);
+				factory = super.getRequestFactory();
+				if (!CollectionUtils.isEmpty(streamingInterceptors)) {
+					factory = new InterceptingStreamingClientHttpRequestFactory(factory, streamingInterceptors);
+				}
+				if (!CollectionUtils.isEmpty(interceptors)) {
+					factory = new InterceptingClientHttpRequestFactory(factory, interceptors);
+				}
 				this.interceptingRequestFactory = factory;
 			}
 			return factory;
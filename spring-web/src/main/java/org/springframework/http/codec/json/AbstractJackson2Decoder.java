@@ -121,11 +121,37 @@ public abstract class AbstractJackson2Decoder extends Jackson2CodecSupport imple
 		}
 
 		Flux<DataBuffer> processed = processInput(input, elementType, mimeType, hints);
+		if (isStreamingDecoding()) {
+			ObjectReader reader = getObjectReader(elementType, hints);
+			return Jackson2StreamingReader.read(processed, this.jsonFactory, reader, true, getMaxInMemorySize(),
+					(value, byteCount) -> {
+						valueDecoded(value, byteCount);
+						logValue(value, byteCount, hints);
+					});
+		}
 		Flux<TokenBuffer> tokens = Jackson2Tokenizer.tokenize(processed, this.jsonFactory, getObjectMapper(),
 				true, forceUseOfBigDecimal, getMaxInMemorySize());
 		return decodeInternal(tokens, elementType, mimeType, hints);
 	}
 
+	/**
+	 * Whether {@link #decode} should bind each value straight from a single
+	 * non-blocking parser instead of collecting its tokens first. Only
+	 * supported for JSON text; {@code false} by default.
+	 * @since 5.1.20
+	 */
+	boolean isStreamingDecoding() {
+		return false;
+	}
+
+	/**
+	 * Callback for each value decoded in {@link #isStreamingDecoding() streaming}
+	 * mode, along with the number of bytes it was decoded from.
+	 * @since 5.1.20
+	 */
+	void valueDecoded(Object value, int byteCount) {
+	}
+
 	/**
 	 * Process the input publisher into a flux. Default implementation returns
 	 * {@link Flux#from(Publisher)}, but subclasses can choose to to customize
@@ -164,14 +190,7 @@ public abstract class AbstractJackson2Decoder extends Jackson2CodecSupport imple
 		Assert.notNull(tokens, "'tokens' must not be null");
 		Assert.notNull(elementType, "'elementType' must not be null");
 
-		MethodParameter param = getParameter(elementType);
-		Class<?> contextClass = (param != null ? param.getContainingClass() : null);
-		JavaType javaType = getJavaType(elementType.getType(), contextClass);
-		Class<?> jsonView = (hints != null ? (Class<?>) hints.get(Jackson2CodecSupport.JSON_VIEW_HINT) : null);
-
-		ObjectReader reader = (jsonView != null ?
-				getObjectMapper().readerWithView(jsonView).forType(javaType) :
-				getObjectMapper().readerFor(javaType));
+		ObjectReader reader = getObjectReader(elementType, hints);
 
 		return tokens.flatMap(tokenBuffer -> {
 			try {
@@ -196,6 +215,26 @@ public abstract class AbstractJackson2Decoder extends Jackson2CodecSupport imple
 		});
 	}
 
+	private ObjectReader getObjectReader(ResolvableType elementType, @Nullable Map<String, Object> hints) {
+		Assert.notNull(elementType, "'elementType' must not be null");
+		MethodParameter param = getParameter(elementType);
+		Class<?> contextClass = (param != null ? param.getContainingClass() : null);
+		JavaType javaType = getJavaType(elementType.getType(), contextClass);
+		Class<?> jsonView = (hints != null ? (Class<?>) hints.get(Jackson2CodecSupport.JSON_VIEW_HINT) : null);
+		return (jsonView != null ?
+				getObjectMapper().readerWithView(jsonView).forType(javaType) :
+				getObjectMapper().readerFor(javaType));
+	}
+
+	private void logValue(Object value, int byteCount, @Nullable Map<String, Object> hints) {
+		if (!Hints.isLoggingSuppressed(hints)) {
+			LogFormatUtils.traceDebug(logger, traceOn -> {
+				String formatted = LogFormatUtils.formatValue(value, !traceOn);
+				return Hints.getLogPrefix(hints) + "Decoded [" + formatted + "] from " + byteCount + " bytes";
+			});
+		}
+	}
+
 
 	// HttpMessageDecoder
 
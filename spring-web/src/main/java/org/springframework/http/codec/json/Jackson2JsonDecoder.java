@@ -20,6 +20,7 @@ import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.reactivestreams.Publisher;
@@ -51,6 +52,13 @@ public class Jackson2JsonDecoder extends AbstractJackson2Decoder {
 	private static final ResolvableType STRING_TYPE = ResolvableType.forClass(String.class);
 
 
+	private boolean streamingDecoding;
+
+	private final LongAdder decodedValueCount = new LongAdder();
+
+	private final LongAdder decodedByteCount = new LongAdder();
+
+
 	public Jackson2JsonDecoder() {
 		super(Jackson2ObjectMapperBuilder.json().build());
 	}
@@ -59,6 +67,58 @@ public class Jackson2JsonDecoder extends AbstractJackson2Decoder {
 		super(mapper, mimeTypes);
 	}
 
+
+	/**
+	 * Whether to decode the elements of a {@code Flux} by binding each JSON
+	 * value straight from a single non-blocking parser per subscription, rather
+	 * than first collecting its tokens into a {@code TokenBuffer} and parsing
+	 * them a second time. This avoids holding each value in memory twice, and
+	 * only retains the bytes of the value being received.
+	 * <p>Decoding to a {@code Mono} is not affected by this setting.
+	 * <p>By default this is set to {@code false}.
+	 * @param streamingDecoding whether to enable streaming decoding
+	 * @since 5.1.20
+	 * @see #getDecodedValueCount()
+	 * @see #getDecodedByteCount()
+	 */
+	public void setStreamingDecoding(boolean streamingDecoding) {
+		this.streamingDecoding = streamingDecoding;
+	}
+
+	/**
+	 * Whether {@link #setStreamingDecoding streaming decoding} is enabled.
+	 * @since 5.1.20
+	 */
+	@Override
+	public boolean isStreamingDecoding() {
+		return this.streamingDecoding;
+	}
+
+	/**
+	 * Return the number of values decoded in streaming mode so far.
+	 * @since 5.1.20
+	 */
+	public long getDecodedValueCount() {
+		return this.decodedValueCount.sum();
+	}
+
+	/**
+	 * Return the number of bytes that values decoded in streaming mode so far
+	 * were decoded from, excluding whitespace and separators between values.
+	 * Divided by {@link #getDecodedValueCount()}, this gives the average size
+	 * of a decoded value.
+	 * @since 5.1.20
+	 */
+	public long getDecodedByteCount() {
+		return this.decodedByteCount.sum();
+	}
+
+	@Override
+	void valueDecoded(Object value, int byteCount) {
+		this.decodedValueCount.increment();
+		this.decodedByteCount.add(byteCount);
+	}
+
 	@Override
 	protected Flux<DataBuffer> processInput(Publisher<DataBuffer> input, ResolvableType elementType,
 			@Nullable MimeType mimeType, @Nullable Map<String, Object> hints) {
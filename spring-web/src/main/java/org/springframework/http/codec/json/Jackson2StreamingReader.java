@@ -0,0 +1,368 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.http.codec.json;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.ObjIntConsumer;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.exc.InvalidDefinitionException;
+import reactor.core.publisher.Flux;
+
+import org.springframework.core.codec.CodecException;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+
+/**
+ * Decodes a stream of JSON values, or the elements of a top-level JSON array,
+ * straight into objects, as an alternative to {@link Jackson2Tokenizer} that
+ * does not copy each value into a {@code TokenBuffer} to be parsed again.
+ *
+ * <p>A lightweight scan of the raw bytes finds where values end. Bytes are
+ * only fed into the non-blocking {@link JsonParser} up to the end of the last
+ * complete value, so that the {@link ObjectReader} can bind each value
+ * directly from that parser, which is reused for the whole stream. Only the
+ * bytes of the incomplete value at the end of the input received so far are
+ * held in memory.
+ *
+ * <p>The scan is specific to JSON text and must not be used for binary
+ * formats such as Smile.
+ *
+ * @author agent
+ * @since 5.1.20
+ */
+final class Jackson2StreamingReader {
+
+	private final JsonParser parser;
+
+	// TODO: change to ByteBufferFeeder when supported by Jackson
+	// See https://github.com/FasterXML/jackson-core/issues/478
+	private final ByteArrayFeeder inputFeeder;
+
+	private final ObjectReader reader;
+
+	private final boolean tokenizeArrayElements;
+
+	private final int maxInMemorySize;
+
+	private final ObjIntConsumer<Object> valueCallback;
+
+	/** Bytes received but not fed into the parser yet. */
+	private byte[] pending = new byte[256];
+
+	private int pendingLength;
+
+	/** Position in {@link #pending} up to which bytes have been scanned. */
+	private int scanIndex;
+
+	/** Position in {@link #pending} after the last complete value. */
+	private int completeIndex;
+
+	/** Sizes of complete values that have not been bound yet. */
+	private final Deque<Integer> valueSizes = new ArrayDeque<>();
+
+	private int depth;
+
+	private int valueDepth;
+
+	private boolean started;
+
+	private boolean topLevelArray;
+
+	private boolean inString;
+
+	private boolean escape;
+
+	private boolean inScalar;
+
+	private int valueStart = -1;
+
+
+	private Jackson2StreamingReader(JsonParser parser, ObjectReader reader, boolean tokenizeArrayElements,
+			int maxInMemorySize, ObjIntConsumer<Object> valueCallback) {
+
+		this.parser = parser;
+		this.inputFeeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+		this.reader = reader.without(DeserializationFeature.FAIL_ON_TRAILING_TOKENS);
+		this.tokenizeArrayElements = tokenizeArrayElements;
+		this.maxInMemorySize = maxInMemorySize;
+		this.valueCallback = valueCallback;
+	}
+
+
+	private Flux<Object> read(DataBuffer dataBuffer) {
+		try {
+			append(dataBuffer);
+			scan();
+			List<Object> result = Collections.emptyList();
+			if (this.completeIndex > 0) {
+				result = feedAndBind(this.completeIndex);
+			}
+			if (this.maxInMemorySize >= 0 && this.pendingLength > this.maxInMemorySize) {
+				raiseLimitException();
+			}
+			return Flux.fromIterable(result);
+		}
+		catch (Throwable ex) {
+			return Flux.error(mapException(ex));
+		}
+	}
+
+	private Flux<Object> endOfInput() {
+		try {
+			if (this.inScalar) {
+				this.inScalar = false;
+				this.valueSizes.add(this.pendingLength - this.valueStart);
+			}
+			List<Object> result = new ArrayList<>();
+			if (this.pendingLength > 0) {
+				result.addAll(feedAndBind(this.pendingLength));
+			}
+			this.inputFeeder.endOfInput();
+			result.addAll(bind());
+			return Flux.fromIterable(result);
+		}
+		catch (Throwable ex) {
+			return Flux.error(mapException(ex));
+		}
+	}
+
+	private void append(DataBuffer dataBuffer) {
+		try {
+			int length = dataBuffer.readableByteCount();
+			int required = this.pendingLength + length;
+			if (required > this.pending.length) {
+				this.pending = Arrays.copyOf(this.pending, Math.max(required, this.pending.length * 2));
+			}
+			dataBuffer.read(this.pending, this.pendingLength, length);
+			this.pendingLength = required;
+		}
+		finally {
+			DataBufferUtils.release(dataBuffer);
+		}
+	}
+
+	/**
+	 * Scan the bytes received since the last call for the end of values at
+	 * the value depth, i.e. within the top-level array, or at the root.
+	 */
+	private void scan() {
+		byte[] bytes = this.pending;
+		for (int i = this.scanIndex; i < this.pendingLength; i++) {
+			byte b = bytes[i];
+			if (this.inString) {
+				if (this.escape) {
+					this.escape = false;
+				}
+				else if (b == '\\') {
+					this.escape = true;
+				}
+				else if (b == '"') {
+					this.inString = false;
+					if (this.depth == this.valueDepth) {
+						valueComplete(i + 1, i + 1);
+					}
+				}
+				continue;
+			}
+			if (this.inScalar) {
+				if (isScalarByte(b)) {
+					continue;
+				}
+				this.inScalar = false;
+				// The terminating byte lets the parser complete the number or literal
+				valueComplete(i, i + 1);
+			}
+			switch (b) {
+				case ' ':
+				case '\t':
+				case '\r':
+				case '\n':
+				case ',':
+				case ':':
+					break;
+				case '"':
+					valueStart(i);
+					this.inString = true;
+					break;
+				case '[':
+					if (this.depth == 0 && this.tokenizeArrayElements && (!this.started || this.topLevelArray)) {
+						this.topLevelArray = true;
+						this.valueDepth = 1;
+					}
+					else {
+						valueStart(i);
+					}
+					this.started = true;
+					this.depth++;
+					break;
+				case '{':
+					valueStart(i);
+					this.depth++;
+					break;
+				case '}':
+				case ']':
+					this.depth--;
+					if (this.depth == this.valueDepth) {
+						valueComplete(i + 1, i + 1);
+					}
+					else if (this.depth < this.valueDepth) {
+						// End of the top-level array, or malformed input for the parser to report
+						this.completeIndex = i + 1;
+					}
+					break;
+				default:
+					valueStart(i);
+					if (this.depth == this.valueDepth) {
+						this.inScalar = true;
+					}
+			}
+		}
+		this.scanIndex = this.pendingLength;
+	}
+
+	private static boolean isScalarByte(byte b) {
+		return ((b >= '0' && b <= '9') || (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') ||
+				b == '-' || b == '+' || b == '.');
+	}
+
+	private void valueStart(int index) {
+		this.started = true;
+		if (this.depth == this.valueDepth) {
+			this.valueStart = index;
+		}
+	}
+
+	private void valueComplete(int end, int feedEnd) {
+		int size = end - this.valueStart;
+		if (this.maxInMemorySize >= 0 && size > this.maxInMemorySize) {
+			raiseLimitException();
+		}
+		this.valueSizes.add(size);
+		this.valueStart = -1;
+		this.completeIndex = feedEnd;
+	}
+
+	private void raiseLimitException() {
+		throw new DataBufferLimitException(
+				"Exceeded limit on max bytes per JSON object: " + this.maxInMemorySize);
+	}
+
+	/**
+	 * Feed the given number of pending bytes into the parser, bind the
+	 * values they complete, and discard them.
+	 */
+	private List<Object> feedAndBind(int length) throws IOException {
+		this.inputFeeder.feedInput(this.pending, 0, length);
+		List<Object> result = bind();
+		// The parser has consumed all input, so the bytes can be shifted
+		System.arraycopy(this.pending, length, this.pending, 0, this.pendingLength - length);
+		this.pendingLength -= length;
+		this.scanIndex -= length;
+		this.completeIndex = 0;
+		if (this.valueStart >= 0) {
+			this.valueStart -= length;
+		}
+		return result;
+	}
+
+	private List<Object> bind() throws IOException {
+		List<Object> result = new ArrayList<>();
+		while (!this.parser.isClosed()) {
+			JsonToken token = this.parser.nextToken();
+			if (token == null || token == JsonToken.NOT_AVAILABLE) {
+				break;
+			}
+			if (this.tokenizeArrayElements && isTopLevelArrayToken(token)) {
+				continue;
+			}
+			Object value = this.reader.readValue(this.parser);
+			Integer size = this.valueSizes.poll();
+			if (value != null) {
+				this.valueCallback.accept(value, (size != null ? size : 0));
+				result.add(value);
+			}
+		}
+		return result;
+	}
+
+	private boolean isTopLevelArrayToken(JsonToken token) {
+		JsonStreamContext context = this.parser.getParsingContext();
+		if (token == JsonToken.START_ARRAY) {
+			return (context.getParent() != null && context.getParent().inRoot());
+		}
+		return (token == JsonToken.END_ARRAY && context.inRoot());
+	}
+
+	private static Throwable mapException(Throwable ex) {
+		if (ex instanceof InvalidDefinitionException) {
+			return new CodecException("Type definition error: " + ((InvalidDefinitionException) ex).getType(), ex);
+		}
+		else if (ex instanceof JsonProcessingException) {
+			return new DecodingException("JSON decoding error: " + ((JsonProcessingException) ex).getOriginalMessage(), ex);
+		}
+		else if (ex instanceof IOException) {
+			return new DecodingException("I/O error while parsing input stream", ex);
+		}
+		return ex;
+	}
+
+
+	/**
+	 * Decode the given {@code Flux<DataBuffer>} into a {@code Flux} of values.
+	 * @param dataBuffers the source data buffers, with UTF-8 encoded JSON
+	 * @param jsonFactory the factory to create the non-blocking parser with
+	 * @param reader the reader to bind values with
+	 * @param tokenizeArrays if {@code true} and the "top level" JSON object is
+	 * an array, each element is returned individually immediately after it is received
+	 * @param maxInMemorySize maximum number of bytes of a single value
+	 * @param valueCallback callback invoked with each value and its size in bytes
+	 * @return the decoded values
+	 */
+	public static Flux<Object> read(Flux<DataBuffer> dataBuffers, JsonFactory jsonFactory, ObjectReader reader,
+			boolean tokenizeArrays, int maxInMemorySize, ObjIntConsumer<Object> valueCallback) {
+
+		return Flux.defer(() -> {
+			try {
+				JsonParser parser = jsonFactory.createNonBlockingByteArrayParser();
+				Jackson2StreamingReader streamingReader =
+						new Jackson2StreamingReader(parser, reader, tokenizeArrays, maxInMemorySize, valueCallback);
+				return dataBuffers.concatMap(streamingReader::read, 1)
+						.concatWith(Flux.defer(streamingReader::endOfInput));
+			}
+			catch (IOException ex) {
+				return Flux.error(ex);
+			}
+		});
+	}
+
+}
@@ -0,0 +1,307 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.http.codec.multipart;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.codec.Hints;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.log.LogFormatUtils;
+import org.springframework.http.MediaType;
+import org.springframework.http.ReactiveHttpInputMessage;
+import org.springframework.http.codec.HttpMessageReader;
+import org.springframework.http.codec.LoggingCodecSupport;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.CustomizableThreadCreator;
+
+/**
+ * Default {@code HttpMessageReader} for parsing {@code "multipart/form-data"}
+ * requests to a stream of {@link Part}s, without third-party dependencies.
+ *
+ * <p>The request body is parsed as it is received, with back-pressure. Parts
+ * are kept in memory up to the {@link #setMaxInMemorySize in-memory limit};
+ * larger file parts are written to temporary files with an
+ * {@link java.nio.channels.AsynchronousFileChannel}, and other blocking file
+ * operations run on a bounded {@link #setBlockingOperationExecutor executor}.
+ * Temporary files are removed through {@link Part#delete()}, which is done
+ * automatically for the multipart data of a
+ * {@link org.springframework.web.server.ServerWebExchange#getMultipartData()
+ * ServerWebExchange}.
+ *
+ * <p>This reader can be provided to {@link MultipartHttpMessageReader} in order
+ * to aggregate all parts into a Map.
+ *
+ * @author agent
+ * @since 5.1.20
+ * @see MultipartHttpMessageReader
+ */
+public class DefaultPartHttpMessageReader extends LoggingCodecSupport implements HttpMessageReader<Part> {
+
+	private int maxInMemorySize = 256 * 1024;
+
+	private int maxHeadersSize = 8 * 1024;
+
+	private long maxDiskUsagePerPart = -1;
+
+	private int maxParts = -1;
+
+	private Charset headersCharset = StandardCharsets.UTF_8;
+
+	@Nullable
+	private ExecutorService blockingOperationExecutor;
+
+	@Nullable
+	private Scheduler blockingOperationScheduler;
+
+	@Nullable
+	private Path fileStorageDirectory;
+
+	@Nullable
+	private Mono<Path> fileStorageDirectoryMono;
+
+
+	/**
+	 * Configure the maximum amount of memory that is allowed per part.
+	 * When the limit is exceeded:
+	 * <ul>
+	 * <li>file parts, and parts with a content type other than
+	 * {@code text/plain}, are written to a temporary file.
+	 * <li>form field parts are rejected with {@link DataBufferLimitException}.
+	 * </ul>
+	 * <p>By default this is set to 256K.
+	 * @param maxInMemorySize the in-memory limit in bytes, or -1 for unlimited
+	 */
+	public void setMaxInMemorySize(int maxInMemorySize) {
+		this.maxInMemorySize = maxInMemorySize;
+	}
+
+	/**
+	 * Get the {@link #setMaxInMemorySize configured} maximum in-memory size.
+	 */
+	public int getMaxInMemorySize() {
+		return this.maxInMemorySize;
+	}
+
+	/**
+	 * Configure the maximum amount of memory allowed for the headers of a part.
+	 * When the limit is exceeded, {@link DataBufferLimitException} is raised.
+	 * <p>By default this is set to 8K.
+	 * @param byteCount the maximum amount of memory for headers, in bytes
+	 */
+	public void setMaxHeadersSize(int byteCount) {
+		this.maxHeadersSize = byteCount;
+	}
+
+	/**
+	 * Get the {@link #setMaxHeadersSize configured} maximum headers size.
+	 */
+	public int getMaxHeadersSize() {
+		return this.maxHeadersSize;
+	}
+
+	/**
+	 * Configure the maximum amount of disk space allowed per part.
+	 * When the limit is exceeded, {@link DecodingException} is raised.
+	 * <p>By default this is set to -1.
+	 * @param maxDiskUsagePerPart the disk limit in bytes, or -1 for unlimited
+	 */
+	public void setMaxDiskUsagePerPart(long maxDiskUsagePerPart) {
+		this.maxDiskUsagePerPart = maxDiskUsagePerPart;
+	}
+
+	/**
+	 * Get the {@link #setMaxDiskUsagePerPart configured} maximum disk usage.
+	 */
+	public long getMaxDiskUsagePerPart() {
+		return this.maxDiskUsagePerPart;
+	}
+
+	/**
+	 * Specify the maximum number of parts allowed in a given multipart request.
+	 * When the limit is exceeded, {@link DecodingException} is raised.
+	 * <p>By default this is set to -1, unlimited.
+	 */
+	public void setMaxParts(int maxParts) {
+		this.maxParts = maxParts;
+	}
+
+	/**
+	 * Return the {@link #setMaxParts configured} limit on the number of parts.
+	 */
+	public int getMaxParts() {
+		return this.maxParts;
+	}
+
+	/**
+	 * Set the character set used to decode the headers of a part.
+	 * <p>By default this is set to UTF-8, which is what browsers use for
+	 * non-ASCII filenames.
+	 */
+	public void setHeadersCharset(Charset headersCharset) {
+		Assert.notNull(headersCharset, "HeadersCharset must not be null");
+		this.headersCharset = headersCharset;
+	}
+
+	/**
+	 * Set the directory used to store parts larger than the
+	 * {@link #setMaxInMemorySize in-memory limit}. The directory is created
+	 * if it does not exist yet.
+	 * <p>By default a new directory is created in the system temporary
+	 * directory, the first time it is needed.
+	 */
+	public synchronized void setFileStorageDirectory(Path fileStorageDirectory) {
+		Assert.notNull(fileStorageDirectory, "FileStorageDirectory must not be null");
+		this.fileStorageDirectory = fileStorageDirectory;
+		this.fileStorageDirectoryMono = null;
+	}
+
+	/**
+	 * Set the executor used for writing and reading parts stored on disk, and
+	 * for other blocking file operations such as creating and deleting files.
+	 * <p>By default a shared pool of daemon threads is used, bounded to twice
+	 * the number of available processors.
+	 */
+	public void setBlockingOperationExecutor(ExecutorService executor) {
+		Assert.notNull(executor, "ExecutorService must not be null");
+		this.blockingOperationExecutor = executor;
+		this.blockingOperationScheduler = Schedulers.fromExecutorService(executor);
+	}
+
+
+	@Override
+	public List<MediaType> getReadableMediaTypes() {
+		return Collections.singletonList(MediaType.MULTIPART_FORM_DATA);
+	}
+
+	@Override
+	public boolean canRead(ResolvableType elementType, @Nullable MediaType mediaType) {
+		return Part.class.equals(elementType.toClass()) &&
+				(mediaType == null || MediaType.MULTIPART_FORM_DATA.isCompatibleWith(mediaType));
+	}
+
+	@Override
+	public Flux<Part> read(ResolvableType elementType, ReactiveHttpInputMessage message, Map<String, Object> hints) {
+		return Flux.defer(() -> {
+			byte[] boundary = getBoundary(message);
+			if (boundary == null) {
+				return Flux.error(new DecodingException("No multipart boundary found in Content-Type: \"" +
+						message.getHeaders().getContentType() + "\""));
+			}
+			ExecutorService executor = getBlockingOperationExecutor();
+			Scheduler scheduler = getBlockingOperationScheduler();
+			Flux<MultipartParser.Token> tokens = MultipartParser.parse(message.getBody(), boundary,
+					this.maxHeadersSize, this.headersCharset);
+			return PartGenerator.createParts(tokens, this.maxParts, this.maxInMemorySize,
+					this.maxDiskUsagePerPart, getFileStorageDirectory(scheduler), executor, scheduler);
+		})
+		.doOnNext(part -> {
+			if (!Hints.isLoggingSuppressed(hints)) {
+				LogFormatUtils.traceDebug(logger, traceOn -> Hints.getLogPrefix(hints) + "Parsed " +
+						(isEnableLoggingRequestDetails() ?
+								LogFormatUtils.formatValue(part, !traceOn) :
+								"parts '" + part.name() + "' (content masked)"));
+			}
+		});
+	}
+
+	@Override
+	public Mono<Part> readMono(ResolvableType elementType, ReactiveHttpInputMessage message, Map<String, Object> hints) {
+		return Mono.error(new UnsupportedOperationException("Cannot read multipart request body into single Part"));
+	}
+
+	@Nullable
+	private static byte[] getBoundary(ReactiveHttpInputMessage message) {
+		MediaType contentType = message.getHeaders().getContentType();
+		if (contentType != null) {
+			String boundary = contentType.getParameter("boundary");
+			if (boundary != null) {
+				int length = boundary.length();
+				if (length > 2 && boundary.charAt(0) == '"' && boundary.charAt(length - 1) == '"') {
+					boundary = boundary.substring(1, length - 1);
+				}
+				return boundary.getBytes(StandardCharsets.ISO_8859_1);
+			}
+		}
+		return null;
+	}
+
+	private ExecutorService getBlockingOperationExecutor() {
+		return (this.blockingOperationExecutor != null ?
+				this.blockingOperationExecutor : DefaultExecutorHolder.executor);
+	}
+
+	private Scheduler getBlockingOperationScheduler() {
+		return (this.blockingOperationScheduler != null ?
+				this.blockingOperationScheduler : DefaultExecutorHolder.scheduler);
+	}
+
+	private synchronized Mono<Path> getFileStorageDirectory(Scheduler scheduler) {
+		if (this.fileStorageDirectoryMono == null) {
+			Path directory = this.fileStorageDirectory;
+			this.fileStorageDirectoryMono = Mono.fromCallable(() -> {
+						if (directory == null) {
+							return Files.createTempDirectory("spring-multipart-");
+						}
+						return Files.createDirectories(directory);
+					})
+					.subscribeOn(scheduler)
+					.cache();
+		}
+		return this.fileStorageDirectoryMono;
+	}
+
+
+	/**
+	 * Holder for the default executor, created on first use.
+	 */
+	private static class DefaultExecutorHolder {
+
+		static final ExecutorService executor;
+
+		static final Scheduler scheduler;
+
+		static {
+			int poolSize = Runtime.getRuntime().availableProcessors() * 2;
+			CustomizableThreadCreator threadCreator = new CustomizableThreadCreator("multipart-io-");
+			threadCreator.setDaemon(true);
+			ThreadPoolExecutor pool = new ThreadPoolExecutor(poolSize, poolSize,
+					60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), threadCreator::createThread);
+			pool.allowCoreThreadTimeOut(true);
+			executor = pool;
+			scheduler = Schedulers.fromExecutorService(pool);
+		}
+	}
+
+}
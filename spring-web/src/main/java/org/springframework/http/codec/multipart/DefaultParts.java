@@ -0,0 +1,279 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.http.codec.multipart;
+
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+/**
+ * Default implementations of {@link Part} and subtypes, created by
+ * {@link PartGenerator}.
+ *
+ * @author agent
+ * @since 5.1.20
+ */
+abstract class DefaultParts {
+
+	// Static DataBufferFactory to wrap bytes[] and read from files.
+	private static final DataBufferFactory bufferFactory = new DefaultDataBufferFactory();
+
+
+	/**
+	 * Create a new {@link FormFieldPart} with the given parameters.
+	 */
+	public static FormFieldPart formFieldPart(HttpHeaders headers, String name, String value) {
+		return new DefaultFormFieldPart(headers, name, value);
+	}
+
+	/**
+	 * Create a new {@link Part} or {@link FilePart} with the given parameters,
+	 * depending on whether the Content-Disposition header has a filename.
+	 */
+	public static Part part(HttpHeaders headers, String name, Content content) {
+		String filename = headers.getContentDisposition().getFilename();
+		if (filename != null) {
+			return new DefaultFilePart(headers, name, filename, content);
+		}
+		else {
+			return new DefaultPart(headers, name, content);
+		}
+	}
+
+	/**
+	 * Create content held in memory.
+	 */
+	public static Content memoryContent(byte[] bytes, Scheduler blockingScheduler) {
+		return new MemoryContent(bytes, blockingScheduler);
+	}
+
+	/**
+	 * Create content stored in the given file.
+	 */
+	public static Content fileContent(Path file, ExecutorService executor, Scheduler blockingScheduler) {
+		return new FileContent(file, executor, blockingScheduler);
+	}
+
+
+	/**
+	 * The content of a part, either in memory or on disk.
+	 */
+	interface Content {
+
+		Flux<DataBuffer> content();
+
+		Mono<Void> transferTo(Path dest);
+
+		Mono<Void> delete();
+	}
+
+
+	private abstract static class AbstractPart implements Part {
+
+		private final HttpHeaders headers;
+
+		private final String name;
+
+		AbstractPart(HttpHeaders headers, String name) {
+			this.headers = headers;
+			this.name = name;
+		}
+
+		@Override
+		public String name() {
+			return this.name;
+		}
+
+		@Override
+		public HttpHeaders headers() {
+			return this.headers;
+		}
+
+		@Override
+		public String toString() {
+			return "Part '" + this.name + "', headers=" + this.headers;
+		}
+	}
+
+
+	private static class DefaultFormFieldPart extends AbstractPart implements FormFieldPart {
+
+		private final String value;
+
+		DefaultFormFieldPart(HttpHeaders headers, String name, String value) {
+			super(headers, name);
+			this.value = value;
+		}
+
+		@Override
+		public String value() {
+			return this.value;
+		}
+
+		@Override
+		public Flux<DataBuffer> content() {
+			return Flux.defer(() -> Flux.just(bufferFactory.wrap(this.value.getBytes(getCharset()))));
+		}
+
+		private Charset getCharset() {
+			MediaType contentType = headers().getContentType();
+			Charset charset = (contentType != null ? contentType.getCharset() : null);
+			return (charset != null ? charset : StandardCharsets.UTF_8);
+		}
+
+		@Override
+		public String toString() {
+			return "Part '" + name() + "=" + this.value + "'";
+		}
+	}
+
+
+	private static class DefaultPart extends AbstractPart {
+
+		private final Content content;
+
+		DefaultPart(HttpHeaders headers, String name, Content content) {
+			super(headers, name);
+			this.content = content;
+		}
+
+		@Override
+		public Flux<DataBuffer> content() {
+			return this.content.content();
+		}
+
+		@Override
+		public Mono<Void> delete() {
+			return this.content.delete();
+		}
+
+		protected Content getContent() {
+			return this.content;
+		}
+	}
+
+
+	private static class DefaultFilePart extends DefaultPart implements FilePart {
+
+		private final String filename;
+
+		DefaultFilePart(HttpHeaders headers, String name, String filename, Content content) {
+			super(headers, name, content);
+			this.filename = filename;
+		}
+
+		@Override
+		public String filename() {
+			return this.filename;
+		}
+
+		@Override
+		public Mono<Void> transferTo(Path dest) {
+			return getContent().transferTo(dest);
+		}
+
+		@Override
+		public String toString() {
+			return "Part '" + name() + "', filename='" + this.filename + "'";
+		}
+	}
+
+
+	private static class MemoryContent implements Content {
+
+		private final byte[] bytes;
+
+		private final Scheduler blockingScheduler;
+
+		MemoryContent(byte[] bytes, Scheduler blockingScheduler) {
+			this.bytes = bytes;
+			this.blockingScheduler = blockingScheduler;
+		}
+
+		@Override
+		public Flux<DataBuffer> content() {
+			return Flux.defer(() -> Flux.just(bufferFactory.wrap(this.bytes)));
+		}
+
+		@Override
+		public Mono<Void> transferTo(Path dest) {
+			return Mono.fromCallable(() -> Files.write(dest, this.bytes)).subscribeOn(this.blockingScheduler).then();
+		}
+
+		@Override
+		public Mono<Void> delete() {
+			return Mono.empty();
+		}
+	}
+
+
+	private static class FileContent implements Content {
+
+		private final Path file;
+
+		private final ExecutorService executor;
+
+		private final Scheduler blockingScheduler;
+
+		FileContent(Path file, ExecutorService executor, Scheduler blockingScheduler) {
+			this.file = file;
+			this.executor = executor;
+			this.blockingScheduler = blockingScheduler;
+		}
+
+		@Override
+		public Flux<DataBuffer> content() {
+			return DataBufferUtils.readAsynchronousFileChannel(
+					() -> AsynchronousFileChannel.open(this.file,
+							Collections.singleton(StandardOpenOption.READ), this.executor),
+					bufferFactory, 4096);
+		}
+
+		@Override
+		public Mono<Void> transferTo(Path dest) {
+			return blockingOperation(() -> Files.copy(this.file, dest, StandardCopyOption.REPLACE_EXISTING));
+		}
+
+		@Override
+		public Mono<Void> delete() {
+			return blockingOperation(() -> Files.deleteIfExists(this.file));
+		}
+
+		private Mono<Void> blockingOperation(Callable<?> callable) {
+			return Mono.fromCallable(callable).subscribeOn(this.blockingScheduler).then();
+		}
+	}
+
+}
@@ -0,0 +1,376 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.http.codec.multipart;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import reactor.core.publisher.Flux;
+
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.StringUtils;
+
+/**
+ * Parses a stream of {@link DataBuffer}s into a stream of {@link Token}s:
+ * the headers of each part, followed by zero or more buffers with its body.
+ *
+ * <p>Body tokens are slices of the input buffers, so body content is not
+ * copied. The only bytes held back between buffers are those that could be
+ * the start of the next boundary, and those of the part headers, which are
+ * limited in size.
+ *
+ * @author agent
+ * @since 5.1.20
+ * @see PartGenerator
+ */
+final class MultipartParser {
+
+	private static final byte CR = '\r';
+
+	private static final byte LF = '\n';
+
+	private static final byte HYPHEN = '-';
+
+	private static final byte[] HEADERS_END = {CR, LF, CR, LF};
+
+
+	private final byte[] delimiter;
+
+	private final int maxHeadersSize;
+
+	private final Charset headersCharset;
+
+	private State state = State.PREAMBLE;
+
+	private BytesMatcher matcher;
+
+	/** Bytes of a partially matched delimiter at the end of the previous buffer. */
+	private int heldLength;
+
+	private boolean hyphenAfterBoundary;
+
+	private byte[] headerBytes = new byte[256];
+
+	private int headerLength;
+
+
+	private MultipartParser(byte[] boundary, int maxHeadersSize, Charset headersCharset) {
+		// The delimiter of a body is CRLF followed by the boundary line
+		this.delimiter = new byte[boundary.length + 4];
+		this.delimiter[0] = CR;
+		this.delimiter[1] = LF;
+		this.delimiter[2] = HYPHEN;
+		this.delimiter[3] = HYPHEN;
+		System.arraycopy(boundary, 0, this.delimiter, 4, boundary.length);
+		this.maxHeadersSize = maxHeadersSize;
+		this.headersCharset = headersCharset;
+		// The first boundary line may be at the very start of the input
+		this.matcher = new BytesMatcher(Arrays.copyOfRange(this.delimiter, 2, this.delimiter.length));
+	}
+
+
+	/**
+	 * Parse the given stream of data buffers into a stream of tokens.
+	 * @param buffers the input buffers
+	 * @param boundary the multipart boundary, as found in the Content-Type header
+	 * @param maxHeadersSize the maximum number of bytes of the headers of a part
+	 * @param headersCharset the charset to decode the headers of a part with
+	 * @return the stream of tokens
+	 */
+	public static Flux<Token> parse(Flux<DataBuffer> buffers, byte[] boundary, int maxHeadersSize,
+			Charset headersCharset) {
+
+		return Flux.defer(() -> {
+			MultipartParser parser = new MultipartParser(boundary, maxHeadersSize, headersCharset);
+			return buffers.concatMapIterable(parser::parse)
+					.concatWith(Flux.defer(parser::endOfInput));
+		});
+	}
+
+
+	private List<Token> parse(DataBuffer buffer) {
+		List<Token> tokens = Collections.emptyList();
+		try {
+			int position = buffer.readPosition();
+			int end = buffer.writePosition();
+			while (position < end && this.state != State.DONE) {
+				if (tokens.isEmpty()) {
+					tokens = new ArrayList<>(2);
+				}
+				switch (this.state) {
+					case PREAMBLE:
+						position = readPreamble(buffer, position, end);
+						break;
+					case BOUNDARY:
+						position = readBoundarySuffix(buffer, position, end);
+						break;
+					case HEADERS:
+						position = readHeaders(buffer, position, end, tokens);
+						break;
+					default:
+						position = readBody(buffer, position, end, tokens);
+				}
+			}
+			return tokens;
+		}
+		catch (Throwable ex) {
+			tokens.forEach(Token::release);
+			throw ex;
+		}
+		finally {
+			DataBufferUtils.release(buffer);
+		}
+	}
+
+	private Flux<Token> endOfInput() {
+		switch (this.state) {
+			case PREAMBLE:
+				return Flux.error(new DecodingException("Could not find first boundary"));
+			case DONE:
+				return Flux.empty();
+			case HEADERS:
+				return Flux.error(new DecodingException("Could not find end of headers"));
+			default:
+				return Flux.error(new DecodingException("Could not find end of body"));
+		}
+	}
+
+	private int readPreamble(DataBuffer buffer, int position, int end) {
+		for (int i = position; i < end; i++) {
+			if (this.matcher.match(buffer.getByte(i))) {
+				this.state = State.BOUNDARY;
+				this.matcher = new BytesMatcher(this.delimiter);
+				return i + 1;
+			}
+		}
+		return end;
+	}
+
+	/**
+	 * Read the rest of a boundary line: either "--" for the last boundary,
+	 * or optional whitespace followed by CRLF.
+	 */
+	private int readBoundarySuffix(DataBuffer buffer, int position, int end) {
+		for (int i = position; i < end; i++) {
+			byte b = buffer.getByte(i);
+			if (this.hyphenAfterBoundary) {
+				if (b != HYPHEN) {
+					throw new DecodingException("Invalid character after boundary: " + (char) b);
+				}
+				this.state = State.DONE;
+				return end;
+			}
+			else if (b == HYPHEN) {
+				this.hyphenAfterBoundary = true;
+			}
+			else if (b == LF) {
+				this.state = State.HEADERS;
+				this.headerLength = 0;
+				return i + 1;
+			}
+			else if (b != CR && b != ' ' && b != '\t') {
+				throw new DecodingException("Invalid character after boundary: " + (char) b);
+			}
+		}
+		return end;
+	}
+
+	private int readHeaders(DataBuffer buffer, int position, int end, List<Token> tokens) {
+		if (this.headerLength == 0) {
+			// The CRLF of the boundary line counts towards the end of the headers
+			this.matcher = new BytesMatcher(HEADERS_END, 2);
+		}
+		for (int i = position; i < end; i++) {
+			byte b = buffer.getByte(i);
+			if (this.headerLength == this.headerBytes.length) {
+				this.headerBytes = Arrays.copyOf(this.headerBytes, this.headerLength * 2);
+			}
+			this.headerBytes[this.headerLength++] = b;
+			if (this.headerLength > this.maxHeadersSize) {
+				throw new DataBufferLimitException(
+						"Part headers exceeded the memory usage limit of " + this.maxHeadersSize + " bytes");
+			}
+			if (this.matcher.match(b)) {
+				tokens.add(new HeadersToken(parseHeaders()));
+				this.state = State.BODY;
+				this.matcher = new BytesMatcher(this.delimiter);
+				this.heldLength = 0;
+				return i + 1;
+			}
+		}
+		return end;
+	}
+
+	private HttpHeaders parseHeaders() {
+		HttpHeaders headers = new HttpHeaders();
+		String string = new String(this.headerBytes, 0, this.headerLength, this.headersCharset);
+		for (String line : StringUtils.delimitedListToStringArray(string, "\r\n")) {
+			int index = line.indexOf(':');
+			if (index > 0) {
+				headers.add(line.substring(0, index).trim(), line.substring(index + 1).trim());
+			}
+		}
+		return headers;
+	}
+
+	private int readBody(DataBuffer buffer, int position, int end, List<Token> tokens) {
+		for (int i = position; i < end; i++) {
+			if (this.matcher.match(buffer.getByte(i))) {
+				addBody(buffer, position, i + 1 - this.delimiter.length, tokens);
+				this.state = State.BOUNDARY;
+				this.hyphenAfterBoundary = false;
+				this.matcher = new BytesMatcher(this.delimiter);
+				this.heldLength = 0;
+				return i + 1;
+			}
+		}
+		int matched = this.matcher.matched();
+		addBody(buffer, position, end - matched, tokens);
+		this.heldLength = matched;
+		return end;
+	}
+
+	/**
+	 * Add the body between the given positions of the buffer, preceded by the
+	 * bytes held back from the previous buffer. These are the start of the
+	 * delimiter, and the end position may be before the start position if only
+	 * some of them turned out to be body content.
+	 */
+	private void addBody(DataBuffer buffer, int start, int end, List<Token> tokens) {
+		int held = Math.min(this.heldLength, this.heldLength + end - start);
+		if (held > 0) {
+			tokens.add(new BodyToken(buffer.factory().wrap(Arrays.copyOf(this.delimiter, held))));
+		}
+		if (end > start) {
+			DataBuffer body = buffer.slice(start, end - start);
+			tokens.add(new BodyToken(DataBufferUtils.retain(body)));
+		}
+	}
+
+
+	private enum State {
+
+		PREAMBLE, BOUNDARY, HEADERS, BODY, DONE
+	}
+
+
+	/**
+	 * Knuth-Morris-Pratt matcher for a byte sequence, fed one byte at a time.
+	 */
+	private static final class BytesMatcher {
+
+		private final byte[] pattern;
+
+		private final int[] table;
+
+		private int matched;
+
+		BytesMatcher(byte[] pattern) {
+			this(pattern, 0);
+		}
+
+		BytesMatcher(byte[] pattern, int matched) {
+			this.pattern = pattern;
+			this.table = new int[pattern.length];
+			for (int i = 1, j = 0; i < pattern.length; i++) {
+				while (j > 0 && pattern[i] != pattern[j]) {
+					j = this.table[j - 1];
+				}
+				if (pattern[i] == pattern[j]) {
+					j++;
+				}
+				this.table[i] = j;
+			}
+			this.matched = matched;
+		}
+
+		public boolean match(byte b) {
+			while (this.matched > 0 && b != this.pattern[this.matched]) {
+				this.matched = this.table[this.matched - 1];
+			}
+			if (b == this.pattern[this.matched]) {
+				this.matched++;
+				if (this.matched == this.pattern.length) {
+					this.matched = 0;
+					return true;
+				}
+			}
+			return false;
+		}
+
+		public int matched() {
+			return this.matched;
+		}
+	}
+
+
+	/**
+	 * Output of the parser.
+	 */
+	abstract static class Token {
+
+		void release() {
+		}
+	}
+
+
+	/**
+	 * Token with the headers of a part, marking its start.
+	 */
+	static final class HeadersToken extends Token {
+
+		private final HttpHeaders headers;
+
+		HeadersToken(HttpHeaders headers) {
+			this.headers = headers;
+		}
+
+		public HttpHeaders headers() {
+			return this.headers;
+		}
+	}
+
+
+	/**
+	 * Token with a buffer of the body of the current part.
+	 */
+	static final class BodyToken extends Token {
+
+		private final DataBuffer buffer;
+
+		BodyToken(DataBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		public DataBuffer buffer() {
+			return this.buffer;
+		}
+
+		@Override
+		void release() {
+			DataBufferUtils.release(this.buffer);
+		}
+	}
+
+}
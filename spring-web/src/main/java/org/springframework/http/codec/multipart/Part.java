@@ -17,6 +17,7 @@
 package org.springframework.http.codec.multipart;
 
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.HttpHeaders;
@@ -57,4 +58,16 @@ public interface Part {
 	 */
 	Flux<DataBuffer> content();
 
+	/**
+	 * Delete the underlying storage for this part, e.g. a temporary file.
+	 * <p>The default implementation returns an empty {@code Mono}, for parts
+	 * that are held in memory.
+	 * @return completion {@code Mono} that signals when the storage is deleted
+	 * @since 5.1.20
+	 * @see DefaultPartHttpMessageReader
+	 */
+	default Mono<Void> delete() {
+		return Mono.empty();
+	}
+
 }
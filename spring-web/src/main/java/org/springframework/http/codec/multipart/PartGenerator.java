@@ -0,0 +1,343 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.http.codec.multipart;
+
+import java.io.IOException;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.core.scheduler.Scheduler;
+
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.lang.Nullable;
+
+/**
+ * Creates {@link Part}s from the stream of {@link MultipartParser.Token}s of
+ * a multipart request.
+ *
+ * <p>The body of a part is kept in memory until it exceeds the in-memory
+ * limit, after which file parts and other non form field parts are written
+ * to a temporary file with an {@link AsynchronousFileChannel}. Tokens are
+ * requested one at a time, and only once the previous body buffer has been
+ * written, so the parsing of the request follows the speed of the disk.
+ *
+ * <p>If the stream of parts terminates with an error or is cancelled, the
+ * temporary files of all parts are deleted, including those of parts that
+ * have been emitted already, since they are not handed over to the caller
+ * as a complete result.
+ *
+ * @author agent
+ * @since 5.1.20
+ */
+final class PartGenerator {
+
+	private static final Set<OpenOption> FILE_OPTIONS =
+			Collections.singleton(StandardOpenOption.WRITE);
+
+
+	private final int maxParts;
+
+	private final int maxInMemorySize;
+
+	private final long maxDiskUsagePerPart;
+
+	private final Mono<Path> fileStorageDirectory;
+
+	private final ExecutorService executor;
+
+	private final Scheduler blockingScheduler;
+
+	private final Queue<Path> files = new ConcurrentLinkedQueue<>();
+
+	private int partCount;
+
+	@Nullable
+	private PartState state;
+
+	private volatile boolean disposed;
+
+
+	private PartGenerator(int maxParts, int maxInMemorySize, long maxDiskUsagePerPart,
+			Mono<Path> fileStorageDirectory, ExecutorService executor, Scheduler blockingScheduler) {
+
+		this.maxParts = maxParts;
+		this.maxInMemorySize = maxInMemorySize;
+		this.maxDiskUsagePerPart = maxDiskUsagePerPart;
+		this.fileStorageDirectory = fileStorageDirectory;
+		this.executor = executor;
+		this.blockingScheduler = blockingScheduler;
+	}
+
+
+	/**
+	 * Create parts from the given stream of tokens.
+	 * @param tokens the tokens produced by {@link MultipartParser}
+	 * @param maxParts the maximum number of parts, or -1 for unlimited
+	 * @param maxInMemorySize the maximum number of bytes of a part to keep in
+	 * memory, or -1 for unlimited
+	 * @param maxDiskUsagePerPart the maximum number of bytes of a part stored
+	 * on disk, or -1 for unlimited
+	 * @param fileStorageDirectory the directory to store parts in
+	 * @param executor the executor for asynchronous file channels
+	 * @param blockingScheduler the scheduler for other blocking file operations
+	 * @return the stream of parts
+	 */
+	public static Flux<Part> createParts(Flux<MultipartParser.Token> tokens, int maxParts, int maxInMemorySize,
+			long maxDiskUsagePerPart, Mono<Path> fileStorageDirectory, ExecutorService executor,
+			Scheduler blockingScheduler) {
+
+		return Flux.defer(() -> {
+			PartGenerator generator = new PartGenerator(maxParts, maxInMemorySize, maxDiskUsagePerPart,
+					fileStorageDirectory, executor, blockingScheduler);
+			return tokens.concatMap(generator::handleToken, 1)
+					.concatWith(Mono.defer(generator::finishPart))
+					.doFinally(generator::dispose);
+		});
+	}
+
+
+	private Flux<Part> handleToken(MultipartParser.Token token) {
+		if (token instanceof MultipartParser.HeadersToken) {
+			Mono<Part> previous = finishPart();
+			HttpHeaders headers = ((MultipartParser.HeadersToken) token).headers();
+			int index = ++this.partCount;
+			if (this.maxParts >= 0 && index > this.maxParts) {
+				return Flux.concat(previous,
+						Mono.error(new DecodingException("Too many parts (" + this.maxParts + " allowed)")));
+			}
+			String name = headers.getContentDisposition().getName();
+			if (name == null) {
+				return Flux.concat(previous,
+						Mono.error(new DecodingException("Part[" + index + "] has no name")));
+			}
+			this.state = new PartState(headers, name, index);
+			return previous.flux();
+		}
+		else {
+			DataBuffer buffer = ((MultipartParser.BodyToken) token).buffer();
+			PartState state = this.state;
+			if (state == null) {
+				DataBufferUtils.release(buffer);
+				return Flux.empty();
+			}
+			return state.body(buffer).thenMany(Flux.empty());
+		}
+	}
+
+	private Mono<Part> finishPart() {
+		PartState state = this.state;
+		this.state = null;
+		return (state != null ? state.finish() : Mono.empty());
+	}
+
+	private void dispose(SignalType signalType) {
+		this.disposed = true;
+		PartState state = this.state;
+		this.state = null;
+		if (state != null) {
+			state.dispose();
+		}
+		if (signalType != SignalType.ON_COMPLETE) {
+			Path file;
+			while ((file = this.files.poll()) != null) {
+				deleteFile(file);
+			}
+		}
+	}
+
+	private void deleteFile(Path file) {
+		Mono.fromCallable(() -> Files.deleteIfExists(file))
+				.subscribeOn(this.blockingScheduler)
+				.subscribe(deleted -> {}, ex -> {});
+	}
+
+	private static boolean isFormField(HttpHeaders headers) {
+		MediaType contentType = headers.getContentType();
+		return ((contentType == null || MediaType.TEXT_PLAIN.equalsTypeAndSubtype(contentType)) &&
+				headers.getContentDisposition().getFilename() == null);
+	}
+
+
+	/**
+	 * State of the part being received.
+	 */
+	private final class PartState {
+
+		private final HttpHeaders headers;
+
+		private final String name;
+
+		private final int index;
+
+		private final boolean formField;
+
+		private final List<DataBuffer> buffers = new ArrayList<>();
+
+		private long size;
+
+		private long position;
+
+		@Nullable
+		private volatile Path file;
+
+		@Nullable
+		private volatile AsynchronousFileChannel channel;
+
+		PartState(HttpHeaders headers, String name, int index) {
+			this.headers = headers;
+			this.name = name;
+			this.index = index;
+			this.formField = isFormField(headers);
+		}
+
+		public Mono<Void> body(DataBuffer buffer) {
+			this.size += buffer.readableByteCount();
+			this.buffers.add(buffer);
+			if (this.channel != null) {
+				checkDiskUsage();
+				return writeBuffers();
+			}
+			if (maxInMemorySize < 0 || this.size <= maxInMemorySize) {
+				return Mono.empty();
+			}
+			if (this.formField) {
+				throw new DataBufferLimitException("Part[" + this.index + "] " +
+						"exceeded the in-memory limit of " + maxInMemorySize + " bytes");
+			}
+			checkDiskUsage();
+			return createFile().then(Mono.defer(this::writeBuffers));
+		}
+
+		private void checkDiskUsage() {
+			if (maxDiskUsagePerPart >= 0 && this.size > maxDiskUsagePerPart) {
+				throw new DecodingException("Part[" + this.index + "] " +
+						"exceeded the disk usage limit of " + maxDiskUsagePerPart + " bytes");
+			}
+		}
+
+		private Mono<Void> createFile() {
+			return fileStorageDirectory
+					.flatMap(directory -> Mono.fromCallable(() -> {
+						Path file = Files.createTempFile(directory, null, ".multipart");
+						files.add(file);
+						this.file = file;
+						this.channel = AsynchronousFileChannel.open(file, FILE_OPTIONS, executor);
+						if (disposed) {
+							dispose();
+						}
+						return file;
+					}).subscribeOn(blockingScheduler))
+					.then();
+		}
+
+		private Mono<Void> writeBuffers() {
+			AsynchronousFileChannel channel = this.channel;
+			if (channel == null) {
+				// Disposed in the meantime
+				return Mono.empty();
+			}
+			List<DataBuffer> buffers = new ArrayList<>(this.buffers);
+			this.buffers.clear();
+			long position = this.position;
+			for (DataBuffer buffer : buffers) {
+				this.position += buffer.readableByteCount();
+			}
+			return DataBufferUtils.write(Flux.fromIterable(buffers), channel, position)
+					.doOnNext(DataBufferUtils::release)
+					.then();
+		}
+
+		public Mono<Part> finish() {
+			AsynchronousFileChannel channel = this.channel;
+			Path file = this.file;
+			if (channel == null || file == null) {
+				byte[] bytes = new byte[(int) this.size];
+				int offset = 0;
+				for (DataBuffer buffer : this.buffers) {
+					int length = buffer.readableByteCount();
+					buffer.read(bytes, offset, length);
+					offset += length;
+					DataBufferUtils.release(buffer);
+				}
+				this.buffers.clear();
+				if (this.formField) {
+					String value = new String(bytes, getCharset());
+					return Mono.just(DefaultParts.formFieldPart(this.headers, this.name, value));
+				}
+				DefaultParts.Content content = DefaultParts.memoryContent(bytes, blockingScheduler);
+				return Mono.just(DefaultParts.part(this.headers, this.name, content));
+			}
+			this.channel = null;
+			this.file = null;
+			try {
+				channel.close();
+			}
+			catch (IOException ex) {
+				return Mono.error(new DecodingException("Could not close file for part[" + this.index + "]", ex));
+			}
+			DefaultParts.Content content = DefaultParts.fileContent(file, executor, blockingScheduler);
+			return Mono.just(DefaultParts.part(this.headers, this.name, content));
+		}
+
+		private Charset getCharset() {
+			MediaType contentType = this.headers.getContentType();
+			Charset charset = (contentType != null ? contentType.getCharset() : null);
+			return (charset != null ? charset : StandardCharsets.UTF_8);
+		}
+
+		public void dispose() {
+			this.buffers.forEach(DataBufferUtils::release);
+			this.buffers.clear();
+			AsynchronousFileChannel channel = this.channel;
+			Path file = this.file;
+			this.channel = null;
+			this.file = null;
+			if (channel != null) {
+				try {
+					channel.close();
+				}
+				catch (IOException ex) {
+					// ignore
+				}
+			}
+			if (file != null) {
+				deleteFile(file);
+			}
+		}
+	}
+
+}
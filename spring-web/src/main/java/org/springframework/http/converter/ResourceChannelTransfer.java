@@ -0,0 +1,120 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.http.converter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+import org.springframework.core.io.Resource;
+
+/**
+ * Internal helper for writing the content of file-based {@link Resource Resources}
+ * through their {@link FileChannel}, starting at the requested position rather
+ * than skipping through an input stream.
+ *
+ * <p>If the target {@code OutputStream} is itself a {@link WritableByteChannel},
+ * the content is handed over through {@link FileChannel#transferTo}. Any other
+ * stream, such as a {@code ServletOutputStream}, is written from positional
+ * reads into a single buffer that is reused for the whole range.
+ *
+ * @author Brian Clozel
+ * @since 5.1.20
+ */
+abstract class ResourceChannelTransfer {
+
+	private static final int BUFFER_SIZE = 8192;
+
+
+	/**
+	 * Write the given range of the resource content to the given stream,
+	 * provided that the resource is backed by a {@link FileChannel}.
+	 * @param resource the resource to transfer
+	 * @param out the stream to write to (not closed)
+	 * @param start the position to start transferring from
+	 * @param end the position to end transferring at (inclusive), or -1 for the end of the file
+	 * @return {@code true} if the content has been written, {@code false} if
+	 * the resource is not file-based and the content needs to be copied from
+	 * its input stream instead
+	 * @throws IOException in case of I/O errors, or if the file ends before the
+	 * requested range (e.g. when it has been truncated in the meantime)
+	 */
+	static boolean transfer(Resource resource, OutputStream out, long start, long end) throws IOException {
+		if (!resource.isFile()) {
+			return false;
+		}
+		ReadableByteChannel channel = resource.readableChannel();
+		if (!(channel instanceof FileChannel)) {
+			channel.close();
+			return false;
+		}
+		try (FileChannel fileChannel = (FileChannel) channel) {
+			long last = (end < 0 ? fileChannel.size() - 1 : end);
+			if (out instanceof WritableByteChannel) {
+				transferTo(fileChannel, (WritableByteChannel) out, start, last, resource);
+			}
+			else {
+				copy(fileChannel, out, start, last, resource);
+			}
+		}
+		return true;
+	}
+
+	private static void transferTo(FileChannel fileChannel, WritableByteChannel target,
+			long start, long last, Resource resource) throws IOException {
+
+		long position = start;
+		while (position <= last) {
+			long transferred = fileChannel.transferTo(position, last - position + 1, target);
+			if (transferred <= 0) {
+				throw shortTransfer(fileChannel, start, position, last, resource);
+			}
+			position += transferred;
+		}
+	}
+
+	private static void copy(FileChannel fileChannel, OutputStream out,
+			long start, long last, Resource resource) throws IOException {
+
+		ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(BUFFER_SIZE, Math.max(last - start + 1, 1)));
+		long position = start;
+		while (position <= last) {
+			buffer.clear();
+			long remaining = last - position + 1;
+			if (remaining < buffer.capacity()) {
+				buffer.limit((int) remaining);
+			}
+			int read = fileChannel.read(buffer, position);
+			if (read <= 0) {
+				throw shortTransfer(fileChannel, start, position, last, resource);
+			}
+			out.write(buffer.array(), 0, read);
+			position += read;
+		}
+	}
+
+	private static IOException shortTransfer(FileChannel fileChannel, long start, long position, long last,
+			Resource resource) throws IOException {
+
+		return new IOException("Transferred only " + (position - start) + " of " +
+				(last - start + 1) + " bytes from " + resource + ": file size is " + fileChannel.size());
+	}
+
+}
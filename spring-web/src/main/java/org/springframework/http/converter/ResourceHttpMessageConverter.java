@@ -127,6 +127,11 @@ public class ResourceHttpMessageConverter extends AbstractHttpMessageConverter<R
 	protected void writeContent(Resource resource, HttpOutputMessage outputMessage)
 			throws IOException, HttpMessageNotWritableException {
 		try {
+			long contentLength = outputMessage.getHeaders().getContentLength();
+			long end = (contentLength > 0 ? contentLength - 1 : -1);
+			if (ResourceChannelTransfer.transfer(resource, outputMessage.getBody(), 0, end)) {
+				return;
+			}
 			InputStream in = resource.getInputStream();
 			try {
 				StreamUtils.copy(in, outputMessage.getBody());
@@ -154,6 +154,9 @@ public class ResourceRegionHttpMessageConverter extends AbstractGenericHttpMessa
 		responseHeaders.add("Content-Range", "bytes " + start + '-' + end + '/' + resourceLength);
 		responseHeaders.setContentLength(rangeLength);
 
+		if (ResourceChannelTransfer.transfer(region.getResource(), outputMessage.getBody(), start, end)) {
+			return;
+		}
 		InputStream in = region.getResource().getInputStream();
 		try {
 			StreamUtils.copyRange(in, outputMessage.getBody(), start, end);
@@ -182,22 +185,25 @@ public class ResourceRegionHttpMessageConverter extends AbstractGenericHttpMessa
 		for (ResourceRegion region : resourceRegions) {
 			long start = region.getPosition();
 			long end = start + region.getCount() - 1;
+			// Writing MIME header.
+			println(out);
+			print(out, "--" + boundaryString);
+			println(out);
+			if (contentType != null) {
+				print(out, "Content-Type: " + contentType.toString());
+				println(out);
+			}
+			Long resourceLength = region.getResource().contentLength();
+			end = Math.min(end, resourceLength - 1);
+			print(out, "Content-Range: bytes " + start + '-' + end + '/' + resourceLength);
+			println(out);
+			println(out);
+			// Printing content
+			if (ResourceChannelTransfer.transfer(region.getResource(), out, start, end)) {
+				continue;
+			}
 			InputStream in = region.getResource().getInputStream();
 			try {
-				// Writing MIME header.
-				println(out);
-				print(out, "--" + boundaryString);
-				println(out);
-				if (contentType != null) {
-					print(out, "Content-Type: " + contentType.toString());
-					println(out);
-				}
-				Long resourceLength = region.getResource().contentLength();
-				end = Math.min(end, resourceLength - 1);
-				print(out, "Content-Range: bytes " + start + '-' + end + '/' + resourceLength);
-				println(out);
-				println(out);
-				// Printing content
 				StreamUtils.copyRange(in, out, start, end);
 			}
 			finally {
@@ -60,4 +60,15 @@ public interface RequestPath extends PathContainer {
 		return new DefaultRequestPath(uri, contextPath);
 	}
 
+	/**
+	 * Create a new {@code RequestPath} from the given raw, encoded path,
+	 * e.g. as obtained from {@code HttpServletRequest#getRequestURI()}.
+	 * @param rawPath the encoded path, without query
+	 * @param contextPath the context path, or {@code null} if none
+	 * @since 5.1.20
+	 */
+	static RequestPath parse(String rawPath, @Nullable String contextPath) {
+		return new DefaultRequestPath(rawPath, contextPath);
+	}
+
 }
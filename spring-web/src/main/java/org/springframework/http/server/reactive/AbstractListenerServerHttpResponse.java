@@ -16,6 +16,7 @@
 
 package org.springframework.http.server.reactive;
 
+import java.time.Duration;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.reactivestreams.Processor;
@@ -25,6 +26,7 @@ import reactor.core.publisher.Mono;
 import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.core.io.buffer.DataBufferFactory;
 import org.springframework.http.HttpHeaders;
+import org.springframework.util.Assert;
 
 /**
  * Abstract base class for listener-based server responses, e.g. Servlet 3.1
@@ -37,6 +39,10 @@ public abstract class AbstractListenerServerHttpResponse extends AbstractServerH
 
 	private final AtomicBoolean writeCalled = new AtomicBoolean();
 
+	private int writeAggregationSize;
+
+	private Duration writeAggregationLatency = Duration.ZERO;
+
 
 	public AbstractListenerServerHttpResponse(DataBufferFactory dataBufferFactory) {
 		super(dataBufferFactory);
@@ -47,6 +53,46 @@ public abstract class AbstractListenerServerHttpResponse extends AbstractServerH
 	}
 
 
+	/**
+	 * Coalesce small buffers of the response body into writes of up to the
+	 * given number of bytes. Buffers that become available while a previous
+	 * write is in progress are joined into a single buffer, reducing the
+	 * number of container writes, e.g. for streaming JSON and SSE responses.
+	 * <p>Write aggregation is off by default, i.e. each buffer is written as is.
+	 * {@link ServletHttpHandlerAdapter} and {@link UndertowHttpHandlerAdapter}
+	 * apply the value configured through their {@code setWriteAggregationSize}
+	 * and {@code setWriteAggregationLatency} properties.
+	 * @param maxBytes the maximum number of bytes to join into one write,
+	 * or 0 to disable write aggregation
+	 * @param maxLatency how long to hold back a partial write waiting for more
+	 * buffers within one flush, or {@link Duration#ZERO} to only join buffers
+	 * that are already available
+	 * @since 5.1.20
+	 */
+	public void setWriteAggregation(int maxBytes, Duration maxLatency) {
+		Assert.isTrue(maxBytes >= 0, "Write aggregation size must not be negative");
+		Assert.isTrue(!maxLatency.isNegative(), "Write aggregation latency must not be negative");
+		this.writeAggregationSize = maxBytes;
+		this.writeAggregationLatency = maxLatency;
+	}
+
+	/**
+	 * Return the configured maximum number of bytes per aggregated write.
+	 * @since 5.1.20
+	 */
+	public int getWriteAggregationSize() {
+		return this.writeAggregationSize;
+	}
+
+	/**
+	 * Return the configured latency budget for aggregated writes.
+	 * @since 5.1.20
+	 */
+	public Duration getWriteAggregationLatency() {
+		return this.writeAggregationLatency;
+	}
+
+
 	@Override
 	protected final Mono<Void> writeWithInternal(Publisher<? extends DataBuffer> body) {
 		return writeAndFlushWithInternal(Mono.just(body));
@@ -58,8 +104,11 @@ public abstract class AbstractListenerServerHttpResponse extends AbstractServerH
 
 		if (this.writeCalled.compareAndSet(false, true)) {
 			Processor<? super Publisher<? extends DataBuffer>, Void> processor = createBodyFlushProcessor();
+			Publisher<? extends Publisher<? extends DataBuffer>> bodyToWrite = (this.writeAggregationSize > 0 ?
+					WriteAggregator.aggregate(body, bufferFactory(), this.writeAggregationSize,
+							this.writeAggregationLatency) : body);
 			return Mono.from(subscriber -> {
-				body.subscribe(processor);
+				bodyToWrite.subscribe(processor);
 				processor.subscribe(subscriber);
 			});
 		}
@@ -18,6 +18,7 @@ package org.springframework.http.server.reactive;
 
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.time.Duration;
 import java.util.Collection;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -41,6 +42,7 @@ import org.reactivestreams.Subscription;
 
 import org.springframework.core.io.buffer.DataBufferFactory;
 import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.core.io.buffer.PooledDataBufferFactory;
 import org.springframework.http.HttpLogging;
 import org.springframework.http.HttpMethod;
 import org.springframework.lang.Nullable;
@@ -74,6 +76,10 @@ public class ServletHttpHandlerAdapter implements Servlet {
 
 	private DataBufferFactory dataBufferFactory = new DefaultDataBufferFactory(false);
 
+	private int writeAggregationSize;
+
+	private Duration writeAggregationLatency = Duration.ZERO;
+
 
 	public ServletHttpHandlerAdapter(HttpHandler httpHandler) {
 		Assert.notNull(httpHandler, "HttpHandler must not be null");
@@ -109,6 +115,13 @@ public class ServletHttpHandlerAdapter implements Servlet {
 		return this.servletPath;
 	}
 
+	/**
+	 * Set the {@link DataBufferFactory} to allocate request and response
+	 * buffers with.
+	 * <p>By default this is a heap-based {@link DefaultDataBufferFactory}.
+	 * A {@link PooledDataBufferFactory} recycles buffer memory instead, provided
+	 * that every buffer is released exactly once and not used afterwards.
+	 */
 	public void setDataBufferFactory(DataBufferFactory dataBufferFactory) {
 		Assert.notNull(dataBufferFactory, "DataBufferFactory must not be null");
 		this.dataBufferFactory = dataBufferFactory;
@@ -118,6 +131,49 @@ public class ServletHttpHandlerAdapter implements Servlet {
 		return this.dataBufferFactory;
 	}
 
+	/**
+	 * Set the maximum number of bytes to coalesce small response buffers into
+	 * before writing them out, reducing the number of container writes for
+	 * streaming responses such as JSON streams and Server-Sent Events.
+	 * <p>By default this is set to 0, i.e. write aggregation is off and each
+	 * buffer is written as is. A value such as 8192 enables it.
+	 * @since 5.1.20
+	 * @see AbstractListenerServerHttpResponse#setWriteAggregation(int, Duration)
+	 */
+	public void setWriteAggregationSize(int writeAggregationSize) {
+		Assert.isTrue(writeAggregationSize >= 0, "Write aggregation size must not be negative");
+		this.writeAggregationSize = writeAggregationSize;
+	}
+
+	/**
+	 * Return the configured write aggregation size.
+	 * @since 5.1.20
+	 */
+	public int getWriteAggregationSize() {
+		return this.writeAggregationSize;
+	}
+
+	/**
+	 * Set how long a partially aggregated write may be held back, waiting for
+	 * more buffers, when {@link #setWriteAggregationSize write aggregation} is on.
+	 * <p>By default this is set to {@link Duration#ZERO}, i.e. only buffers that
+	 * are already available when the next write is possible are coalesced.
+	 * @since 5.1.20
+	 */
+	public void setWriteAggregationLatency(Duration writeAggregationLatency) {
+		Assert.notNull(writeAggregationLatency, "Duration must not be null");
+		Assert.isTrue(!writeAggregationLatency.isNegative(), "Write aggregation latency must not be negative");
+		this.writeAggregationLatency = writeAggregationLatency;
+	}
+
+	/**
+	 * Return the configured write aggregation latency.
+	 * @since 5.1.20
+	 */
+	public Duration getWriteAggregationLatency() {
+		return this.writeAggregationLatency;
+	}
+
 
 	// Servlet methods...
 
@@ -180,7 +236,9 @@ public class ServletHttpHandlerAdapter implements Servlet {
 			return;
 		}
 
-		ServerHttpResponse httpResponse = createResponse(((HttpServletResponse) response), asyncContext, httpRequest);
+		ServletServerHttpResponse servletResponse = createResponse(((HttpServletResponse) response), asyncContext, httpRequest);
+		servletResponse.setWriteAggregation(getWriteAggregationSize(), getWriteAggregationLatency());
+		ServerHttpResponse httpResponse = servletResponse;
 		if (httpRequest.getMethod() == HttpMethod.HEAD) {
 			httpResponse = new HttpHeadResponseDecorator(httpResponse);
 		}
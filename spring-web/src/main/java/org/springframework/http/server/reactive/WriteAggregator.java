@@ -0,0 +1,373 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.http.server.reactive;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscription;
+import reactor.core.Disposable;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.lang.Nullable;
+
+/**
+ * Coalesces the {@code DataBuffer}s of a response body into fewer, larger
+ * writes, for listener-based servers that write one buffer per container
+ * callback.
+ *
+ * <p>Buffers are requested ahead of the writes, and those that arrive while
+ * the previous write is still in progress are joined into a single buffer,
+ * up to a maximum batch size. With a latency budget, a partial batch is also
+ * held back for up to that long, waiting for more buffers. Flush boundaries
+ * of {@code writeAndFlushWith} are preserved, but consecutive flushes within
+ * one batch are coalesced into a single flush after the batch.
+ *
+ * @author agent
+ * @since 5.1.20
+ * @see AbstractListenerServerHttpResponse#setWriteAggregation(int, Duration)
+ */
+final class WriteAggregator extends BaseSubscriber<DataBuffer> {
+
+	/** Marker for the end of a nested Publisher, i.e. a flush boundary. */
+	private static final DataBuffer FLUSH_MARKER = new DefaultDataBufferFactory().allocateBuffer(0);
+
+	private static final int PREFETCH = 32;
+
+	private static final int REPLENISH = PREFETCH - (PREFETCH >> 2);
+
+
+	private final FluxSink<Flux<DataBuffer>> sink;
+
+	private final DataBufferFactory bufferFactory;
+
+	private final int maxBatchSize;
+
+	private final long maxLatencyNanos;
+
+	private final Scheduler scheduler;
+
+	private final List<DataBuffer> pending = new ArrayList<>();
+
+	private int pendingBytes;
+
+	private int pendingFlushes;
+
+	private int consumed;
+
+	private boolean done;
+
+	@Nullable
+	private Throwable error;
+
+	private boolean terminated;
+
+	/** Whether a window was emitted that has not been completed yet. */
+	private boolean windowOpen;
+
+	@Nullable
+	private FluxSink<DataBuffer> windowSink;
+
+	@Nullable
+	private Disposable timer;
+
+	private boolean latencyElapsed;
+
+	private boolean draining;
+
+
+	private WriteAggregator(FluxSink<Flux<DataBuffer>> sink, DataBufferFactory bufferFactory,
+			int maxBatchSize, Duration maxLatency, Scheduler scheduler) {
+
+		this.sink = sink;
+		this.bufferFactory = bufferFactory;
+		this.maxBatchSize = maxBatchSize;
+		this.maxLatencyNanos = maxLatency.toNanos();
+		this.scheduler = scheduler;
+	}
+
+
+	/**
+	 * Coalesce the buffers of the given body, preserving the flush boundary
+	 * after each nested Publisher.
+	 * @param body the response body, with a flush after each nested Publisher
+	 * @param bufferFactory the factory to join buffers with
+	 * @param maxBatchSize the maximum number of bytes to join into one buffer
+	 * @param maxLatency how long to hold back a partial batch, or zero to only
+	 * join the buffers that are available when the next write is possible
+	 * @return the coalesced body, with a flush after each nested Publisher
+	 */
+	public static Flux<Flux<DataBuffer>> aggregate(Publisher<? extends Publisher<? extends DataBuffer>> body,
+			DataBufferFactory bufferFactory, int maxBatchSize, Duration maxLatency) {
+
+		Flux<DataBuffer> buffers = Flux.from(body)
+				.concatMap(publisher -> Flux.<DataBuffer>from(publisher).concatWith(Mono.just(FLUSH_MARKER)));
+
+		return Flux.create(sink -> {
+			WriteAggregator aggregator = new WriteAggregator(
+					sink, bufferFactory, maxBatchSize, maxLatency, Schedulers.parallel());
+			sink.onRequest(n -> aggregator.drain());
+			sink.onCancel(aggregator::cancelAndRelease);
+			buffers.subscribe(aggregator);
+		});
+	}
+
+
+	@Override
+	protected void hookOnSubscribe(Subscription subscription) {
+		subscription.request(PREFETCH);
+	}
+
+	@Override
+	protected void hookOnNext(DataBuffer buffer) {
+		synchronized (this) {
+			if (this.terminated) {
+				if (buffer != FLUSH_MARKER) {
+					DataBufferUtils.release(buffer);
+				}
+				return;
+			}
+			if (buffer == FLUSH_MARKER) {
+				this.pending.add(buffer);
+				this.pendingFlushes++;
+			}
+			else if (buffer.readableByteCount() == 0) {
+				DataBufferUtils.release(buffer);
+				this.consumed++;
+			}
+			else {
+				this.pending.add(buffer);
+				this.pendingBytes += buffer.readableByteCount();
+			}
+		}
+		drain();
+	}
+
+	@Override
+	protected void hookOnComplete() {
+		synchronized (this) {
+			this.done = true;
+		}
+		drain();
+	}
+
+	@Override
+	protected void hookOnError(Throwable ex) {
+		synchronized (this) {
+			this.error = ex;
+			this.done = true;
+		}
+		drain();
+	}
+
+	/**
+	 * Emit whatever the current state allows. Only one thread drains at a time,
+	 * and signals are emitted without holding the monitor, so that downstream
+	 * subscribers may call back into this aggregator from any thread.
+	 */
+	private void drain() {
+		synchronized (this) {
+			if (this.draining) {
+				// The draining thread picks up the change
+				return;
+			}
+			this.draining = true;
+		}
+		for (;;) {
+			Runnable signal;
+			long replenish = 0;
+			synchronized (this) {
+				signal = nextSignal();
+				if (signal == null) {
+					this.draining = false;
+					if (this.consumed >= REPLENISH && !this.done) {
+						replenish = this.consumed;
+						this.consumed = 0;
+					}
+				}
+			}
+			if (signal != null) {
+				signal.run();
+				continue;
+			}
+			if (replenish > 0) {
+				request(replenish);
+			}
+			return;
+		}
+	}
+
+	/**
+	 * Update the state for the next signal to emit, and return that signal.
+	 * Called with the monitor held.
+	 * @return the signal to emit, or {@code null} if there is none
+	 */
+	@Nullable
+	private Runnable nextSignal() {
+		if (this.terminated) {
+			return null;
+		}
+		if (this.pending.isEmpty() && this.done) {
+			return terminate();
+		}
+		if (!this.windowOpen) {
+			if (this.pending.isEmpty() || this.sink.requestedFromDownstream() == 0) {
+				return null;
+			}
+			this.windowOpen = true;
+			return () -> this.sink.next(Flux.create(this::subscribeWindow));
+		}
+		FluxSink<DataBuffer> window = this.windowSink;
+		if (window == null || this.pending.isEmpty()) {
+			return null;
+		}
+		if (this.pending.get(0) == FLUSH_MARKER) {
+			this.pending.remove(0);
+			this.pendingFlushes--;
+			this.consumed++;
+			this.windowOpen = false;
+			this.windowSink = null;
+			return window::complete;
+		}
+		if (window.requestedFromDownstream() == 0) {
+			return null;
+		}
+		if (isBatchReady()) {
+			DataBuffer batch = nextBatch();
+			return () -> {
+				if (window.isCancelled()) {
+					DataBufferUtils.release(batch);
+				}
+				else {
+					window.next(batch);
+				}
+			};
+		}
+		scheduleTimer();
+		return null;
+	}
+
+	private void subscribeWindow(FluxSink<DataBuffer> window) {
+		window.onRequest(n -> drain());
+		window.onCancel(this::cancelAndRelease);
+		boolean terminated;
+		Throwable error;
+		synchronized (this) {
+			terminated = this.terminated;
+			error = this.error;
+			if (!terminated) {
+				this.windowSink = window;
+			}
+		}
+		if (!terminated) {
+			drain();
+		}
+		else if (error != null) {
+			window.error(error);
+		}
+		else {
+			window.complete();
+		}
+	}
+
+	/**
+	 * Mark this aggregator as terminated and return the terminal signal.
+	 */
+	private Runnable terminate() {
+		this.terminated = true;
+		FluxSink<DataBuffer> window = this.windowSink;
+		this.windowSink = null;
+		Throwable error = this.error;
+		if (error != null) {
+			return (window != null ? () -> window.error(error) : () -> this.sink.error(error));
+		}
+		return () -> {
+			if (window != null) {
+				window.complete();
+			}
+			this.sink.complete();
+		};
+	}
+
+	private boolean isBatchReady() {
+		return (this.maxLatencyNanos == 0 || this.latencyElapsed || this.done ||
+				this.pendingFlushes > 0 || this.pendingBytes >= this.maxBatchSize);
+	}
+
+	private void scheduleTimer() {
+		if (this.timer == null) {
+			this.timer = this.scheduler.schedule(() -> {
+				synchronized (this) {
+					this.timer = null;
+					this.latencyElapsed = true;
+				}
+				drain();
+			}, this.maxLatencyNanos, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	private DataBuffer nextBatch() {
+		int count = 0;
+		int size = 0;
+		for (DataBuffer buffer : this.pending) {
+			int length = buffer.readableByteCount();
+			if (buffer == FLUSH_MARKER || (count > 0 && size + length > this.maxBatchSize)) {
+				break;
+			}
+			count++;
+			size += length;
+		}
+		List<DataBuffer> batch = this.pending.subList(0, count);
+		DataBuffer result = (count == 1 ? batch.get(0) : this.bufferFactory.join(new ArrayList<>(batch)));
+		batch.clear();
+		this.pendingBytes -= size;
+		this.consumed += count;
+		this.latencyElapsed = false;
+		if (this.timer != null) {
+			this.timer.dispose();
+			this.timer = null;
+		}
+		return result;
+	}
+
+	private void cancelAndRelease() {
+		synchronized (this) {
+			this.terminated = true;
+			this.pending.stream().filter(buffer -> buffer != FLUSH_MARKER).forEach(DataBufferUtils::release);
+			this.pending.clear();
+			this.pendingBytes = 0;
+			if (this.timer != null) {
+				this.timer.dispose();
+				this.timer = null;
+			}
+		}
+		cancel();
+	}
+
+}
@@ -22,18 +22,24 @@ import java.util.Map;
 
 import javax.servlet.http.HttpServletRequest;
 
+import org.springframework.http.server.PathContainer;
 import org.springframework.lang.Nullable;
 import org.springframework.util.AntPathMatcher;
 import org.springframework.util.Assert;
 import org.springframework.util.PathMatcher;
+import org.springframework.web.util.ServletRequestPathUtils;
 import org.springframework.web.util.UrlPathHelper;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
 
 /**
  * Provide a per request {@link CorsConfiguration} instance based on a
  * collection of {@link CorsConfiguration} mapped on path patterns.
  *
  * <p>Exact path mapping URIs (such as {@code "/admin"}) are supported
- * as well as Ant-style path patterns (such as {@code "/admin/**"}).
+ * as well as Ant-style path patterns (such as {@code "/admin/**"}), or
+ * alternatively parsed {@link PathPattern}s if a
+ * {@link #setPatternParser PathPatternParser} is set.
  *
  * @author Sebastien Deleuze
  * @since 4.2
@@ -46,6 +52,12 @@ public class UrlBasedCorsConfigurationSource implements CorsConfigurationSource
 
 	private UrlPathHelper urlPathHelper = new UrlPathHelper();
 
+	@Nullable
+	private PathPatternParser patternParser;
+
+	@Nullable
+	private volatile Map<PathPattern, CorsConfiguration> pathPatternConfigurations;
+
 
 	/**
 	 * Set the PathMatcher implementation to use for matching URL paths
@@ -57,6 +69,20 @@ public class UrlBasedCorsConfigurationSource implements CorsConfigurationSource
 		this.pathMatcher = pathMatcher;
 	}
 
+	/**
+	 * Enable use of parsed {@link PathPattern}s, matched against the
+	 * {@link ServletRequestPathUtils#parseAndCache parsed} request path,
+	 * in place of the configured {@link #setPathMatcher PathMatcher} and
+	 * {@link #setUrlPathHelper UrlPathHelper}.
+	 * <p>By default this is not set.
+	 * @param patternParser the parser to use
+	 * @since 5.1.20
+	 */
+	public void setPatternParser(@Nullable PathPatternParser patternParser) {
+		this.patternParser = patternParser;
+		this.pathPatternConfigurations = null;
+	}
+
 	/**
 	 * Shortcut to same property on underlying {@link #setUrlPathHelper UrlPathHelper}.
 	 * @see org.springframework.web.util.UrlPathHelper#setAlwaysUseFullPath
@@ -98,6 +124,7 @@ public class UrlBasedCorsConfigurationSource implements CorsConfigurationSource
 		if (corsConfigurations != null) {
 			this.corsConfigurations.putAll(corsConfigurations);
 		}
+		this.pathPatternConfigurations = null;
 	}
 
 	/**
@@ -112,13 +139,17 @@ public class UrlBasedCorsConfigurationSource implements CorsConfigurationSource
 	 */
 	public void registerCorsConfiguration(String path, CorsConfiguration config) {
 		this.corsConfigurations.put(path, config);
+		this.pathPatternConfigurations = null;
 	}
 
 
 	@Override
 	@Nullable
 	public CorsConfiguration getCorsConfiguration(HttpServletRequest request) {
-		String lookupPath = this.urlPathHelper.getLookupPathForRequest(request);
+		if (this.patternParser != null) {
+			return getCorsConfigurationByPathPattern(request, this.patternParser);
+		}
+		String lookupPath = this.urlPathHelper.getResolvedLookupPath(request);
 		for (Map.Entry<String, CorsConfiguration> entry : this.corsConfigurations.entrySet()) {
 			if (this.pathMatcher.match(entry.getKey(), lookupPath)) {
 				return entry.getValue();
@@ -127,4 +158,28 @@ public class UrlBasedCorsConfigurationSource implements CorsConfigurationSource
 		return null;
 	}
 
+	@Nullable
+	private CorsConfiguration getCorsConfigurationByPathPattern(HttpServletRequest request, PathPatternParser parser) {
+		Map<PathPattern, CorsConfiguration> configurations = this.pathPatternConfigurations;
+		if (configurations == null) {
+			configurations = new LinkedHashMap<>(this.corsConfigurations.size());
+			for (Map.Entry<String, CorsConfiguration> entry : this.corsConfigurations.entrySet()) {
+				configurations.put(parser.parse(entry.getKey()), entry.getValue());
+			}
+			this.pathPatternConfigurations = configurations;
+		}
+		if (configurations.isEmpty()) {
+			return null;
+		}
+		PathContainer path = (ServletRequestPathUtils.hasParsedRequestPath(request) ?
+				ServletRequestPathUtils.getParsedRequestPath(request) :
+				ServletRequestPathUtils.parseAndCache(request)).pathWithinApplication();
+		for (Map.Entry<PathPattern, CorsConfiguration> entry : configurations.entrySet()) {
+			if (entry.getKey().matches(path)) {
+				return entry.getValue();
+			}
+		}
+		return null;
+	}
+
 }
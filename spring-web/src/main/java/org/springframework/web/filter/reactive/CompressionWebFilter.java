@@ -0,0 +1,354 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.filter.reactive;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.Deflater;
+
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+
+/**
+ * Reactive {@link WebFilter} that compresses response bodies with the "gzip"
+ * or "deflate" content coding, as accepted by the client through the
+ * "Accept-Encoding" request header.
+ *
+ * <p>Bodies are compressed incrementally as they are written, with
+ * {@link Deflater} instances reused from a pool. Responses that are already
+ * encoded, that declare a {@link #setMinResponseSize(int) small} content
+ * length, that are partial ("206 Partial Content" or with a "Content-Range"),
+ * or that have an {@link #setExcludedMediaTypes excluded} (typically already
+ * compressed) content type are written as is. Responses with a compressible
+ * content type carry "Vary: Accept-Encoding" whether they end up compressed
+ * or not, so that caches keep the variants apart.
+ *
+ * <p>Streaming responses, i.e. those written with
+ * {@link ServerHttpResponse#writeAndFlushWith writeAndFlushWith} or with a
+ * {@link #setStreamingMediaTypes streaming} content type such as
+ * "text/event-stream", are flushed through the compressor after every write
+ * so that clients can decompress each event as it arrives.
+ *
+ * <p>This is mainly intended for the Servlet and Undertow adapters. Reactor
+ * Netty can compress responses itself, in which case this filter is not needed.
+ *
+ * @author agent
+ * @since 5.1.20
+ */
+public class CompressionWebFilter implements WebFilter {
+
+	private static final String GZIP = "gzip";
+
+	private static final String DEFLATE = "deflate";
+
+	private static final List<MediaType> DEFAULT_EXCLUDED_MEDIA_TYPES = Collections.unmodifiableList(Arrays.asList(
+			MediaType.IMAGE_GIF, MediaType.IMAGE_JPEG, MediaType.IMAGE_PNG, new MediaType("image", "webp"),
+			new MediaType("audio", "*"), new MediaType("video", "*"), MediaType.APPLICATION_PDF,
+			new MediaType("application", "zip"), new MediaType("application", "gzip"),
+			new MediaType("application", "x-gzip"), new MediaType("application", "x-7z-compressed"),
+			new MediaType("application", "x-rar-compressed"), new MediaType("application", "x-bzip2")));
+
+	private static final List<MediaType> DEFAULT_STREAMING_MEDIA_TYPES = Collections.unmodifiableList(Arrays.asList(
+			MediaType.TEXT_EVENT_STREAM, MediaType.APPLICATION_STREAM_JSON));
+
+
+	private int minResponseSize = 2048;
+
+	private List<MediaType> excludedMediaTypes = DEFAULT_EXCLUDED_MEDIA_TYPES;
+
+	private List<MediaType> streamingMediaTypes = DEFAULT_STREAMING_MEDIA_TYPES;
+
+	private DeflateEncoder.Pool pool = createPool(Deflater.DEFAULT_COMPRESSION);
+
+
+	/**
+	 * Set the minimum "Content-Length" of responses to compress. Responses
+	 * without a declared content length are compressed, unless the body is
+	 * a single buffer that is smaller than this size.
+	 * <p>By default this is set to 2048.
+	 */
+	public void setMinResponseSize(int minResponseSize) {
+		Assert.isTrue(minResponseSize >= 0, "'minResponseSize' must not be negative");
+		this.minResponseSize = minResponseSize;
+	}
+
+	/**
+	 * Return the configured minimum response size.
+	 */
+	public int getMinResponseSize() {
+		return this.minResponseSize;
+	}
+
+	/**
+	 * Set the content types to never compress, typically because they are
+	 * compressed already.
+	 * <p>By default these are common image, audio, video, and archive types.
+	 */
+	public void setExcludedMediaTypes(List<MediaType> excludedMediaTypes) {
+		Assert.notNull(excludedMediaTypes, "'excludedMediaTypes' must not be null");
+		this.excludedMediaTypes = new ArrayList<>(excludedMediaTypes);
+	}
+
+	/**
+	 * Return the configured excluded content types.
+	 */
+	public List<MediaType> getExcludedMediaTypes() {
+		return Collections.unmodifiableList(this.excludedMediaTypes);
+	}
+
+	/**
+	 * Set the content types for which to flush the compressed output after
+	 * every buffer written with {@link ServerHttpResponse#writeWith writeWith}.
+	 * <p>By default these are "text/event-stream" and "application/stream+json".
+	 */
+	public void setStreamingMediaTypes(List<MediaType> streamingMediaTypes) {
+		Assert.notNull(streamingMediaTypes, "'streamingMediaTypes' must not be null");
+		this.streamingMediaTypes = new ArrayList<>(streamingMediaTypes);
+	}
+
+	/**
+	 * Return the configured streaming content types.
+	 */
+	public List<MediaType> getStreamingMediaTypes() {
+		return Collections.unmodifiableList(this.streamingMediaTypes);
+	}
+
+	/**
+	 * Set the compression level from 0 to 9, see {@link Deflater#setLevel(int)}.
+	 * <p>By default this is {@link Deflater#DEFAULT_COMPRESSION}.
+	 */
+	public void setCompressionLevel(int compressionLevel) {
+		Assert.isTrue(compressionLevel == Deflater.DEFAULT_COMPRESSION ||
+				(compressionLevel >= Deflater.NO_COMPRESSION && compressionLevel <= Deflater.BEST_COMPRESSION),
+				"Invalid compression level: " + compressionLevel);
+		this.pool = createPool(compressionLevel);
+	}
+
+	private static DeflateEncoder.Pool createPool(int level) {
+		return new DeflateEncoder.Pool(level, Runtime.getRuntime().availableProcessors() * 4);
+	}
+
+
+	@Override
+	public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+		String coding = (exchange.getRequest().getMethod() != HttpMethod.HEAD ?
+				selectCoding(exchange.getRequest().getHeaders().get(HttpHeaders.ACCEPT_ENCODING)) : null);
+		ServerHttpResponse response = new CompressingResponse(exchange.getResponse(), coding);
+		return chain.filter(exchange.mutate().response(response).build());
+	}
+
+	/**
+	 * Select "gzip" or "deflate", whichever has the highest quality value
+	 * in the given "Accept-Encoding" header values, preferring "gzip".
+	 */
+	@Nullable
+	static String selectCoding(@Nullable List<String> acceptEncodings) {
+		if (acceptEncodings == null) {
+			return null;
+		}
+		String result = null;
+		float resultQuality = 0;
+		for (String value : acceptEncodings) {
+			for (String element : StringUtils.tokenizeToStringArray(value, ",")) {
+				String[] parts = StringUtils.tokenizeToStringArray(element, ";");
+				if (parts.length == 0) {
+					continue;
+				}
+				String coding = parts[0];
+				if ("*".equals(coding)) {
+					coding = GZIP;
+				}
+				else if (!GZIP.equalsIgnoreCase(coding) && !DEFLATE.equalsIgnoreCase(coding)) {
+					continue;
+				}
+				float quality = parseQuality(parts);
+				if (quality <= 0) {
+					continue;
+				}
+				if (quality > resultQuality || (quality == resultQuality && GZIP.equalsIgnoreCase(coding))) {
+					result = (GZIP.equalsIgnoreCase(coding) ? GZIP : DEFLATE);
+					resultQuality = quality;
+				}
+			}
+		}
+		return result;
+	}
+
+	private static float parseQuality(String[] parts) {
+		for (int i = 1; i < parts.length; i++) {
+			if (parts[i].startsWith("q=")) {
+				try {
+					return Float.parseFloat(parts[i].substring(2));
+				}
+				catch (NumberFormatException ex) {
+					return 0;
+				}
+			}
+		}
+		return 1;
+	}
+
+
+	/**
+	 * Response decorator that compresses the body, if applicable.
+	 */
+	private class CompressingResponse extends ServerHttpResponseDecorator {
+
+		@Nullable
+		private final String coding;
+
+		CompressingResponse(ServerHttpResponse delegate, @Nullable String coding) {
+			super(delegate);
+			this.coding = coding;
+		}
+
+		@Override
+		public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+			if (!shouldCompress()) {
+				return super.writeWith(body);
+			}
+			if (body instanceof Mono) {
+				return Mono.from(body).flatMap(buffer -> {
+					if (buffer.readableByteCount() < getMinResponseSize()) {
+						return super.writeWith(Mono.just(buffer));
+					}
+					return super.writeWith(encode(Flux.just(buffer), false));
+				});
+			}
+			return super.writeWith(encode(Flux.from(body), isStreaming()));
+		}
+
+		@Override
+		public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+			if (!shouldCompress()) {
+				return super.writeAndFlushWith(body);
+			}
+			String coding = startEncoding();
+			// Borrow the Deflater only once the body is actually written
+			Flux<Flux<DataBuffer>> compressed = Flux.defer(() -> {
+				DeflateEncoder encoder = createEncoder(coding);
+				return Flux.from(body)
+						.map(publisher -> Flux.from(publisher)
+								.map(buffer -> encoder.encode(buffer, false))
+								.concatWith(Mono.fromCallable(encoder::flush))
+								.filter(this::releaseIfEmpty))
+						.concatWith(Mono.fromCallable(() -> Flux.just(encoder.finish())))
+						.doFinally(signal -> encoder.release());
+			});
+			return super.writeAndFlushWith(compressed);
+		}
+
+		private Flux<DataBuffer> encode(Flux<? extends DataBuffer> body, boolean flush) {
+			String coding = startEncoding();
+			return Flux.defer(() -> {
+				DeflateEncoder encoder = createEncoder(coding);
+				return body.map(buffer -> encoder.encode(buffer, flush))
+						.concatWith(Mono.fromCallable(encoder::finish))
+						.filter(this::releaseIfEmpty)
+						.doFinally(signal -> encoder.release());
+			});
+		}
+
+		private String startEncoding() {
+			Assert.state(this.coding != null, "No content coding selected");
+			HttpHeaders headers = getHeaders();
+			headers.remove(HttpHeaders.CONTENT_LENGTH);
+			headers.set(HttpHeaders.CONTENT_ENCODING, this.coding);
+			return this.coding;
+		}
+
+		private DeflateEncoder createEncoder(String coding) {
+			return new DeflateEncoder(pool, GZIP.equals(coding), bufferFactory());
+		}
+
+		/**
+		 * Add "Vary: Accept-Encoding" if the content type is compressible, and
+		 * return whether to compress the body, i.e. if a content coding was
+		 * selected and the response is neither partial nor declared to be small.
+		 */
+		private boolean shouldCompress() {
+			HttpStatus status = getStatusCode();
+			if (status == HttpStatus.NO_CONTENT || status == HttpStatus.NOT_MODIFIED) {
+				return false;
+			}
+			HttpHeaders headers = getHeaders();
+			if (headers.containsKey(HttpHeaders.CONTENT_ENCODING) || !isCompressible(headers.getContentType())) {
+				return false;
+			}
+			if (!headers.getVary().contains(HttpHeaders.ACCEPT_ENCODING)) {
+				headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+			}
+			if (this.coding == null || status == HttpStatus.PARTIAL_CONTENT ||
+					headers.containsKey(HttpHeaders.CONTENT_RANGE)) {
+				return false;
+			}
+			long contentLength = headers.getContentLength();
+			return (contentLength < 0 || contentLength >= getMinResponseSize());
+		}
+
+		private boolean isCompressible(@Nullable MediaType contentType) {
+			if (contentType == null) {
+				return false;
+			}
+			for (MediaType excluded : excludedMediaTypes) {
+				if (excluded.includes(contentType)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private boolean isStreaming() {
+			MediaType contentType = getHeaders().getContentType();
+			if (contentType != null) {
+				for (MediaType streamingType : streamingMediaTypes) {
+					if (streamingType.isCompatibleWith(contentType)) {
+						return true;
+					}
+				}
+			}
+			return false;
+		}
+
+		private boolean releaseIfEmpty(DataBuffer buffer) {
+			if (buffer.readableByteCount() == 0) {
+				DataBufferUtils.release(buffer);
+				return false;
+			}
+			return true;
+		}
+	}
+
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.filter.reactive;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.lang.Nullable;
+
+/**
+ * Incrementally compresses the buffers of one response body in either the
+ * "gzip" or the "deflate" content coding, with a {@link Deflater} borrowed
+ * from a {@link Pool}.
+ *
+ * <p>Methods are synchronized since {@link #release()} may be invoked on
+ * cancellation, concurrently with the encoding of a buffer.
+ *
+ * @author agent
+ * @since 5.1.20
+ */
+final class DeflateEncoder {
+
+	private static final byte[] GZIP_HEADER = new byte[] {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0};
+
+	private static final int OUTPUT_CHUNK_SIZE = 8192;
+
+
+	private final Pool pool;
+
+	private final boolean gzip;
+
+	private final DataBufferFactory bufferFactory;
+
+	@Nullable
+	private Deflater deflater;
+
+	@Nullable
+	private final CRC32 crc;
+
+	private final byte[] output = new byte[OUTPUT_CHUNK_SIZE];
+
+	private boolean headerWritten;
+
+
+	DeflateEncoder(Pool pool, boolean gzip, DataBufferFactory bufferFactory) {
+		this.pool = pool;
+		this.gzip = gzip;
+		this.bufferFactory = bufferFactory;
+		this.deflater = pool.borrow(gzip);
+		this.crc = (gzip ? new CRC32() : null);
+	}
+
+
+	/**
+	 * Compress the given buffer, releasing it.
+	 * @param buffer the buffer to compress
+	 * @param flush whether to flush all pending output, so that the client
+	 * can decompress everything written so far
+	 * @return the compressed output, possibly empty if the deflater retained
+	 * the input and no flush was requested
+	 */
+	public synchronized DataBuffer encode(DataBuffer buffer, boolean flush) {
+		try {
+			Deflater deflater = this.deflater;
+			if (deflater == null) {
+				return this.bufferFactory.allocateBuffer(0);
+			}
+			DataBuffer result = startOutput();
+			ByteBuffer input = buffer.asByteBuffer();
+			byte[] bytes;
+			int offset;
+			int length = input.remaining();
+			if (input.hasArray()) {
+				bytes = input.array();
+				offset = input.arrayOffset() + input.position();
+			}
+			else {
+				bytes = new byte[length];
+				input.get(bytes);
+				offset = 0;
+			}
+			if (this.crc != null) {
+				this.crc.update(bytes, offset, length);
+			}
+			deflater.setInput(bytes, offset, length);
+			while (!deflater.needsInput()) {
+				deflate(deflater, result, Deflater.NO_FLUSH);
+			}
+			if (flush) {
+				flush(result);
+			}
+			return result;
+		}
+		finally {
+			DataBufferUtils.release(buffer);
+		}
+	}
+
+	/**
+	 * Flush all pending output, so that the client can decompress everything
+	 * written so far.
+	 */
+	public synchronized DataBuffer flush() {
+		DataBuffer result = startOutput();
+		flush(result);
+		return result;
+	}
+
+	/**
+	 * Write the remaining output and the trailer of the compressed stream,
+	 * and return the deflater to the pool.
+	 */
+	public synchronized DataBuffer finish() {
+		Deflater deflater = this.deflater;
+		if (deflater == null) {
+			return this.bufferFactory.allocateBuffer(0);
+		}
+		DataBuffer result = startOutput();
+		deflater.finish();
+		while (!deflater.finished()) {
+			deflate(deflater, result, Deflater.NO_FLUSH);
+		}
+		if (this.crc != null) {
+			writeIntLE(result, (int) this.crc.getValue());
+			writeIntLE(result, (int) deflater.getBytesRead());
+		}
+		release();
+		return result;
+	}
+
+	/**
+	 * Return the deflater to the pool, if not done yet.
+	 */
+	public synchronized void release() {
+		if (this.deflater != null) {
+			this.pool.giveBack(this.deflater, this.gzip);
+			this.deflater = null;
+		}
+	}
+
+	private DataBuffer startOutput() {
+		DataBuffer result = this.bufferFactory.allocateBuffer(OUTPUT_CHUNK_SIZE);
+		if (this.gzip && !this.headerWritten) {
+			result.write(GZIP_HEADER);
+			this.headerWritten = true;
+		}
+		return result;
+	}
+
+	private void flush(DataBuffer result) {
+		Deflater deflater = this.deflater;
+		if (deflater != null) {
+			// Repeat while the output buffer was filled, as per Deflater#deflate
+			int count;
+			do {
+				count = deflate(deflater, result, Deflater.SYNC_FLUSH);
+			}
+			while (count == this.output.length);
+		}
+	}
+
+	private int deflate(Deflater deflater, DataBuffer result, int flushMode) {
+		int count = deflater.deflate(this.output, 0, this.output.length, flushMode);
+		if (count > 0) {
+			result.write(this.output, 0, count);
+		}
+		return count;
+	}
+
+	private static void writeIntLE(DataBuffer buffer, int value) {
+		buffer.write((byte) value);
+		buffer.write((byte) (value >> 8));
+		buffer.write((byte) (value >> 16));
+		buffer.write((byte) (value >> 24));
+	}
+
+
+	/**
+	 * Bounded pool of {@link Deflater} instances, for both the raw deflate
+	 * format used within gzip and the zlib format of the "deflate" coding.
+	 */
+	static final class Pool {
+
+		private final int level;
+
+		private final Queue<Deflater> gzipDeflaters;
+
+		private final Queue<Deflater> zlibDeflaters;
+
+		Pool(int level, int capacity) {
+			this.level = level;
+			this.gzipDeflaters = new ArrayBlockingQueue<>(capacity);
+			this.zlibDeflaters = new ArrayBlockingQueue<>(capacity);
+		}
+
+		Deflater borrow(boolean gzip) {
+			Deflater deflater = (gzip ? this.gzipDeflaters : this.zlibDeflaters).poll();
+			return (deflater != null ? deflater : new Deflater(this.level, gzip));
+		}
+
+		void giveBack(Deflater deflater, boolean gzip) {
+			deflater.reset();
+			if (!(gzip ? this.gzipDeflaters : this.zlibDeflaters).offer(deflater)) {
+				deflater.end();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import javax.servlet.ServletRequest;
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.RequestPath;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+/**
+ * Utility class to parse the path of an {@link HttpServletRequest} to a
+ * {@link RequestPath} and cache it in a request attribute for further access.
+ * This can then be used for URL path matching with
+ * {@link org.springframework.web.util.pattern.PathPattern PathPattern}s.
+ *
+ * <p>For a Servlet mapped by prefix (e.g. "/api/*"), the servlet path is
+ * treated as part of the context path, so that
+ * {@link RequestPath#pathWithinApplication()} is the path within the Servlet
+ * mapping, consistent with {@link UrlPathHelper#getLookupPathForRequest}.
+ *
+ * @author agent
+ * @since 5.1.20
+ */
+public abstract class ServletRequestPathUtils {
+
+	/** Name of Servlet request attribute that holds the parsed {@link RequestPath}. */
+	public static final String PATH_ATTRIBUTE = ServletRequestPathUtils.class.getName() + ".PATH";
+
+
+	/**
+	 * Parse the {@link HttpServletRequest#getRequestURI() requestURI} to a
+	 * {@link RequestPath} and save it in the request attribute
+	 * {@link #PATH_ATTRIBUTE} for subsequent use with
+	 * {@link org.springframework.web.util.pattern.PathPattern parsed patterns}.
+	 * <p>The returned {@code RequestPath} will have both the contextPath and any
+	 * servletPath prefix omitted from the {@link RequestPath#pathWithinApplication()
+	 * pathWithinApplication} it exposes.
+	 * @param request the current request
+	 * @return the parsed {@code RequestPath}
+	 */
+	public static RequestPath parseAndCache(HttpServletRequest request) {
+		RequestPath requestPath = parse(request);
+		request.setAttribute(PATH_ATTRIBUTE, requestPath);
+		return requestPath;
+	}
+
+	/**
+	 * Return a {@link #parseAndCache previously} parsed and cached {@code RequestPath}.
+	 * @param request the current request
+	 * @throws IllegalArgumentException if no {@code RequestPath} has been cached
+	 */
+	public static RequestPath getParsedRequestPath(ServletRequest request) {
+		RequestPath path = (RequestPath) request.getAttribute(PATH_ATTRIBUTE);
+		Assert.notNull(path, () -> "Expected parsed RequestPath in request attribute \"" + PATH_ATTRIBUTE + "\".");
+		return path;
+	}
+
+	/**
+	 * Set the cached, parsed {@code RequestPath} to the given value.
+	 * @param requestPath the value to set to, or if {@code null} the cache
+	 * value is cleared
+	 * @param request the current request
+	 */
+	public static void setParsedRequestPath(@Nullable RequestPath requestPath, ServletRequest request) {
+		if (requestPath != null) {
+			request.setAttribute(PATH_ATTRIBUTE, requestPath);
+		}
+		else {
+			request.removeAttribute(PATH_ATTRIBUTE);
+		}
+	}
+
+	/**
+	 * Check for a {@link #parseAndCache previously} parsed and cached {@code RequestPath}.
+	 * @param request the current request
+	 */
+	public static boolean hasParsedRequestPath(ServletRequest request) {
+		return (request.getAttribute(PATH_ATTRIBUTE) != null);
+	}
+
+	/**
+	 * Remove the request attribute {@link #PATH_ATTRIBUTE} that holds a
+	 * {@link #parseAndCache previously} parsed and cached {@code RequestPath}.
+	 * @param request the current request
+	 */
+	public static void clearParsedRequestPath(ServletRequest request) {
+		request.removeAttribute(PATH_ATTRIBUTE);
+	}
+
+
+	private static RequestPath parse(HttpServletRequest request) {
+		String requestUri = (String) request.getAttribute(WebUtils.INCLUDE_REQUEST_URI_ATTRIBUTE);
+		if (requestUri == null) {
+			requestUri = request.getRequestURI();
+		}
+		String contextPath = (String) request.getAttribute(WebUtils.INCLUDE_CONTEXT_PATH_ATTRIBUTE);
+		if (contextPath == null) {
+			contextPath = request.getContextPath();
+		}
+		String servletPathPrefix = getServletPathPrefix(request, requestUri, contextPath);
+		return (servletPathPrefix != null ?
+				new ServletRequestPath(requestUri, contextPath, servletPathPrefix) :
+				RequestPath.parse(requestUri, contextPath));
+	}
+
+	/**
+	 * Determine the encoded servlet path to strip for a prefix-mapped Servlet,
+	 * i.e. when the container reports path info. Without the Servlet 4
+	 * {@code HttpServletMapping} API this is the closest approximation of a
+	 * "path" mapping match; an exact request for the prefix itself (e.g. "/api"
+	 * for "/api/*") is matched against its full path within the application.
+	 */
+	@Nullable
+	private static String getServletPathPrefix(HttpServletRequest request, String requestUri, String contextPath) {
+		String pathInfo = (String) request.getAttribute(WebUtils.INCLUDE_PATH_INFO_ATTRIBUTE);
+		String servletPath = (String) request.getAttribute(WebUtils.INCLUDE_SERVLET_PATH_ATTRIBUTE);
+		if (servletPath == null) {
+			servletPath = request.getServletPath();
+			pathInfo = request.getPathInfo();
+		}
+		if (pathInfo == null || !StringUtils.hasLength(servletPath)) {
+			return null;
+		}
+		String prefix = UriUtils.encodePath(servletPath, StandardCharsets.UTF_8);
+		int end = contextPath.length() + prefix.length();
+		if (!requestUri.startsWith(contextPath + prefix) ||
+				(requestUri.length() > end && requestUri.charAt(end) != '/')) {
+			// Encoded differently by the client, or with path parameters: no safe way to strip it
+			return null;
+		}
+		return prefix;
+	}
+
+
+	/**
+	 * Simple wrapper around the default {@link RequestPath} implementation that
+	 * supports a servletPath as an additional prefix to be omitted from
+	 * {@link #pathWithinApplication()}.
+	 */
+	private static final class ServletRequestPath implements RequestPath {
+
+		private final RequestPath requestPath;
+
+		private final PathContainer contextPath;
+
+		private ServletRequestPath(String rawPath, String contextPath, String servletPathPrefix) {
+			this.requestPath = RequestPath.parse(rawPath, contextPath + servletPathPrefix);
+			this.contextPath = PathContainer.parsePath(contextPath);
+		}
+
+		@Override
+		public String value() {
+			return this.requestPath.value();
+		}
+
+		@Override
+		public List<Element> elements() {
+			return this.requestPath.elements();
+		}
+
+		@Override
+		public PathContainer contextPath() {
+			return this.contextPath;
+		}
+
+		@Override
+		public PathContainer pathWithinApplication() {
+			return this.requestPath.pathWithinApplication();
+		}
+
+		@Override
+		public RequestPath modifyContextPath(String contextPath) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public boolean equals(@Nullable Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (other == null || getClass() != other.getClass()) {
+				return false;
+			}
+			return (this.requestPath.equals(((ServletRequestPath) other).requestPath));
+		}
+
+		@Override
+		public int hashCode() {
+			return this.requestPath.hashCode();
+		}
+
+		@Override
+		public String toString() {
+			return this.requestPath.toString();
+		}
+	}
+
+}
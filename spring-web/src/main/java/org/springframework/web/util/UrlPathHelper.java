@@ -50,6 +50,13 @@ import org.springframework.util.StringUtils;
  */
 public class UrlPathHelper {
 
+	/**
+	 * Name of the request attribute that holds the lookup path resolved and
+	 * cached through {@link #resolveAndCacheLookupPath}.
+	 * @since 5.1.20
+	 */
+	public static final String PATH_ATTRIBUTE = UrlPathHelper.class.getName() + ".PATH";
+
 	/**
 	 * Special WebSphere request attribute, indicating the original request URI.
 	 * Preferable over the standard Servlet 2.4 forward attribute on WebSphere,
@@ -197,6 +204,40 @@ public class UrlPathHelper {
 		}
 	}
 
+	/**
+	 * Resolve the {@link #getLookupPathForRequest lookup path} for the given
+	 * request and cache it in the request attribute {@link #PATH_ATTRIBUTE},
+	 * so that subsequent calls to {@link #getResolvedLookupPath} during the
+	 * same handler lookup can avoid resolving it again.
+	 * @param request current HTTP request
+	 * @return the resolved lookup path
+	 * @since 5.1.20
+	 * @see #getResolvedLookupPath
+	 */
+	public String resolveAndCacheLookupPath(HttpServletRequest request) {
+		String lookupPath = getLookupPathForRequest(request);
+		request.setAttribute(PATH_ATTRIBUTE, new ResolvedLookupPath(this, lookupPath));
+		return lookupPath;
+	}
+
+	/**
+	 * Return the lookup path previously cached by this helper through
+	 * {@link #resolveAndCacheLookupPath}, or otherwise resolve the lookup path
+	 * via {@link #getLookupPathForRequest} without caching it.
+	 * <p>Only lookup paths resolved by the same helper instance are reused,
+	 * since those resolved by differently configured helpers may differ.
+	 * @param request current HTTP request
+	 * @return the lookup path
+	 * @since 5.1.20
+	 */
+	public String getResolvedLookupPath(HttpServletRequest request) {
+		Object resolved = request.getAttribute(PATH_ATTRIBUTE);
+		if (resolved instanceof ResolvedLookupPath && ((ResolvedLookupPath) resolved).pathHelper == this) {
+			return ((ResolvedLookupPath) resolved).lookupPath;
+		}
+		return getLookupPathForRequest(request);
+	}
+
 	/**
 	 * Return the path within the servlet mapping for the given request,
 	 * i.e. the part of the request's URL beyond the part that called the servlet,
@@ -672,4 +713,26 @@ public class UrlPathHelper {
 		rawPathInstance.setReadOnly();
 	}
 
+
+	/**
+	 * Lookup path cached as request attribute, along with the helper that
+	 * resolved it.
+	 */
+	private static final class ResolvedLookupPath {
+
+		private final UrlPathHelper pathHelper;
+
+		private final String lookupPath;
+
+		ResolvedLookupPath(UrlPathHelper pathHelper, String lookupPath) {
+			this.pathHelper = pathHelper;
+			this.lookupPath = lookupPath;
+		}
+
+		@Override
+		public String toString() {
+			return this.lookupPath;
+		}
+	}
+
 }
@@ -117,6 +117,15 @@ class LiteralPathElement extends PathElement {
 		return this.text;
 	}
 
+	/**
+	 * Whether this element matches case sensitively, in which case
+	 * {@link #getChars()} holds the literal text as written in the pattern,
+	 * and otherwise its lower case form.
+	 */
+	boolean isCaseSensitive() {
+		return this.caseSensitive;
+	}
+
 
 	public String toString() {
 		return "Literal(" + String.valueOf(this.text) + ")";
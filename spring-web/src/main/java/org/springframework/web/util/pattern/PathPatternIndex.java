@@ -0,0 +1,412 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.util.pattern;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.PathContainer.Element;
+import org.springframework.http.server.PathContainer.PathSegment;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * A prefix tree over the elements of {@link PathPattern PathPatterns} that
+ * narrows down the values whose patterns may match a given path, without
+ * having to match the path against every registered pattern.
+ *
+ * <p>Each level of the tree corresponds to one element of the path, i.e. a
+ * separator or a path segment. Literal pattern segments are kept in a hash
+ * lookup, whereas captures, wildcards and regular expressions share a single
+ * branch per level, and "match the rest" elements such as {@code /**} and
+ * {@code /{*path}} end the descent. A lookup therefore takes time proportional
+ * to the depth of the path rather than to the number of registered patterns.
+ *
+ * <p>The index is conservative: the candidates it returns are guaranteed to
+ * include every value with a pattern that matches the path, but may contain
+ * values that do not match, e.g. due to a trailing separator or a regular
+ * expression that rejects the segment. Callers are expected to match the
+ * candidates as before, only against fewer of them.
+ *
+ * <p>This class is not thread-safe for modifications. Concurrent lookups are
+ * safe as long as no modifications happen at the same time.
+ *
+ * @author agent
+ * @since 5.1.20
+ * @param <T> the type of value associated with each pattern
+ */
+public class PathPatternIndex<T> {
+
+	private static final char SEPARATOR = '/';
+
+
+	private final Node<T> root = new Node<>();
+
+
+	/**
+	 * Register a value under the given pattern.
+	 * <p>A value may be registered under several patterns, and several values
+	 * may share the same pattern.
+	 * @param pattern the pattern to index
+	 * @param value the value to return for paths the pattern may match
+	 */
+	public void add(PathPattern pattern, T value) {
+		Assert.notNull(pattern, "PathPattern must not be null");
+		Assert.notNull(value, "Value must not be null");
+		Node<T> node = this.root;
+		for (PathElement element = pattern.getHeadSection(); element != null; element = element.next) {
+			if (element instanceof SeparatorPathElement) {
+				if (node.separatorChild == null) {
+					node.separatorChild = new Node<>();
+				}
+				node = node.separatorChild;
+			}
+			else if (element instanceof LiteralPathElement) {
+				LiteralPathElement literal = (LiteralPathElement) element;
+				node = (literal.isCaseSensitive() ?
+						node.getOrCreateLiteralChild(String.valueOf(literal.getChars())) :
+						node.getOrCreateCaseInsensitiveChild(toLowerCase(String.valueOf(literal.getChars()))));
+			}
+			else if (element instanceof CaptureTheRestPathElement || element instanceof WildcardTheRestPathElement) {
+				node.catchAllValues = add(node.catchAllValues, value);
+				return;
+			}
+			else if (element instanceof RegexPathElement) {
+				// May also match an empty value in place of a separator
+				if (node.regexChild == null) {
+					node.regexChild = new Node<>();
+				}
+				node = node.regexChild;
+			}
+			else {
+				// Single segment wildcard, capture variable or single char wildcard
+				if (node.wildcardChild == null) {
+					node.wildcardChild = new Node<>();
+				}
+				node = node.wildcardChild;
+			}
+		}
+		node.terminalValues = add(node.terminalValues, value);
+	}
+
+	/**
+	 * Register a value that is to be returned as a candidate for every path,
+	 * e.g. for a mapping without patterns or with a pattern that cannot be
+	 * expressed as a {@link PathPattern}.
+	 * @param value the value to return for all paths
+	 */
+	public void addCatchAll(T value) {
+		Assert.notNull(value, "Value must not be null");
+		this.root.catchAllValues = add(this.root.catchAllValues, value);
+	}
+
+	/**
+	 * Remove all registrations of the given value.
+	 * @param value the value to remove
+	 */
+	public void remove(T value) {
+		this.root.remove(value);
+	}
+
+	/**
+	 * Return the values with a pattern that may match the given path.
+	 * @param path the parsed path to look up
+	 * @return the candidate values (possibly empty), each contained once and
+	 * in no particular order
+	 */
+	public Set<T> getCandidates(PathContainer path) {
+		Set<T> result = new LinkedHashSet<>();
+		collect(this.root, path.elements(), 0, result);
+		return result;
+	}
+
+	/**
+	 * Return the values with a pattern that may match the given
+	 * {@code "/"}-separated path.
+	 * <p>In contrast to {@link #getCandidates(PathContainer)}, segments are
+	 * compared as they are, without decoding and without removing path
+	 * parameters, as appropriate for lookup paths resolved for
+	 * {@link org.springframework.util.AntPathMatcher}-style matching.
+	 * @param path the path to look up
+	 * @return the candidate values (possibly empty), each contained once and
+	 * in no particular order
+	 */
+	public Set<T> getCandidates(String path) {
+		Set<T> result = new LinkedHashSet<>();
+		collect(this.root, path, 0, result);
+		return result;
+	}
+
+	/**
+	 * Whether no values have been registered.
+	 */
+	public boolean isEmpty() {
+		return this.root.isEmpty();
+	}
+
+
+	private void collect(Node<T> node, List<Element> elements, int index, Set<T> result) {
+		addAll(result, node.catchAllValues);
+		if (index == elements.size()) {
+			collectAtEnd(node, result);
+			return;
+		}
+		Element element = elements.get(index);
+		if (element instanceof PathSegment) {
+			String value = ((PathSegment) element).valueToMatch();
+			Node<T> child = node.getLiteralChild(value);
+			if (child != null) {
+				collect(child, elements, index + 1, result);
+			}
+			child = node.getCaseInsensitiveChild(value);
+			if (child != null) {
+				collect(child, elements, index + 1, result);
+			}
+			if (node.wildcardChild != null) {
+				collect(node.wildcardChild, elements, index + 1, result);
+			}
+		}
+		else {
+			if (index + 1 == elements.size()) {
+				// Optional trailing separator
+				addAll(result, node.terminalValues);
+			}
+			if (node.separatorChild != null) {
+				collect(node.separatorChild, elements, index + 1, result);
+			}
+		}
+		if (node.regexChild != null) {
+			collect(node.regexChild, elements, index + 1, result);
+		}
+	}
+
+	private void collect(Node<T> node, String path, int index, Set<T> result) {
+		addAll(result, node.catchAllValues);
+		int length = path.length();
+		if (index == length) {
+			collectAtEnd(node, result);
+			return;
+		}
+		int next;
+		if (path.charAt(index) == SEPARATOR) {
+			next = index + 1;
+			if (next == length) {
+				// Optional trailing separator
+				addAll(result, node.terminalValues);
+			}
+			if (node.separatorChild != null) {
+				collect(node.separatorChild, path, next, result);
+			}
+		}
+		else {
+			next = path.indexOf(SEPARATOR, index);
+			if (next == -1) {
+				next = length;
+			}
+			if (node.hasLiteralChildren()) {
+				String value = path.substring(index, next);
+				Node<T> child = node.getLiteralChild(value);
+				if (child != null) {
+					collect(child, path, next, result);
+				}
+				child = node.getCaseInsensitiveChild(value);
+				if (child != null) {
+					collect(child, path, next, result);
+				}
+			}
+			if (node.wildcardChild != null) {
+				collect(node.wildcardChild, path, next, result);
+			}
+		}
+		if (node.regexChild != null) {
+			collect(node.regexChild, path, next, result);
+		}
+	}
+
+	private void collectAtEnd(Node<T> node, Set<T> result) {
+		addAll(result, node.terminalValues);
+		// A trailing wildcard or regular expression may match an empty remainder
+		if (node.wildcardChild != null) {
+			addAll(result, node.wildcardChild.terminalValues);
+			// AntPathMatcher also lets a pattern ending with "*/" match an empty
+			// segment in front of a trailing separator, e.g. "/a/*/" for "/a/"
+			if (node.wildcardChild.separatorChild != null) {
+				addAll(result, node.wildcardChild.separatorChild.terminalValues);
+			}
+		}
+		if (node.regexChild != null) {
+			addAll(result, node.regexChild.terminalValues);
+			addAll(result, node.regexChild.catchAllValues);
+		}
+	}
+
+
+	private static <T> List<T> add(@Nullable List<T> values, T value) {
+		List<T> result = (values != null ? values : new ArrayList<>(1));
+		result.add(value);
+		return result;
+	}
+
+	private static <T> void addAll(Set<T> result, @Nullable List<T> values) {
+		if (values != null) {
+			result.addAll(values);
+		}
+	}
+
+	/**
+	 * Normalize the given text for case insensitive comparison, returning
+	 * the same instance if there is nothing to change.
+	 */
+	private static String toLowerCase(String text) {
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (normalize(c) != c) {
+				char[] chars = text.toCharArray();
+				for (int j = i; j < chars.length; j++) {
+					chars[j] = normalize(chars[j]);
+				}
+				return new String(chars);
+			}
+		}
+		return text;
+	}
+
+	private static char normalize(char c) {
+		return Character.toLowerCase(Character.toUpperCase(c));
+	}
+
+
+	private static final class Node<T> {
+
+		@Nullable
+		private Map<String, Node<T>> literalChildren;
+
+		@Nullable
+		private Map<String, Node<T>> caseInsensitiveChildren;
+
+		@Nullable
+		private Node<T> separatorChild;
+
+		@Nullable
+		private Node<T> wildcardChild;
+
+		@Nullable
+		private Node<T> regexChild;
+
+		/** Values with patterns that end at this node. */
+		@Nullable
+		private List<T> terminalValues;
+
+		/** Values with patterns that match any remainder from this node on. */
+		@Nullable
+		private List<T> catchAllValues;
+
+		Node<T> getOrCreateLiteralChild(String key) {
+			if (this.literalChildren == null) {
+				this.literalChildren = new HashMap<>();
+			}
+			return this.literalChildren.computeIfAbsent(key, k -> new Node<>());
+		}
+
+		Node<T> getOrCreateCaseInsensitiveChild(String key) {
+			if (this.caseInsensitiveChildren == null) {
+				this.caseInsensitiveChildren = new HashMap<>();
+			}
+			return this.caseInsensitiveChildren.computeIfAbsent(key, k -> new Node<>());
+		}
+
+		boolean hasLiteralChildren() {
+			return (this.literalChildren != null || this.caseInsensitiveChildren != null);
+		}
+
+		@Nullable
+		Node<T> getLiteralChild(String value) {
+			return (this.literalChildren != null ? this.literalChildren.get(value) : null);
+		}
+
+		@Nullable
+		Node<T> getCaseInsensitiveChild(String value) {
+			return (this.caseInsensitiveChildren != null ? this.caseInsensitiveChildren.get(toLowerCase(value)) : null);
+		}
+
+		/**
+		 * Remove the given value from this node and its descendants,
+		 * pruning branches that end up empty.
+		 */
+		void remove(T value) {
+			this.terminalValues = removeValue(this.terminalValues, value);
+			this.catchAllValues = removeValue(this.catchAllValues, value);
+			this.literalChildren = removeValue(this.literalChildren, value);
+			this.caseInsensitiveChildren = removeValue(this.caseInsensitiveChildren, value);
+			this.separatorChild = removeValue(this.separatorChild, value);
+			this.wildcardChild = removeValue(this.wildcardChild, value);
+			this.regexChild = removeValue(this.regexChild, value);
+		}
+
+		boolean isEmpty() {
+			return (this.terminalValues == null && this.catchAllValues == null &&
+					this.literalChildren == null && this.caseInsensitiveChildren == null &&
+					this.separatorChild == null && this.wildcardChild == null && this.regexChild == null);
+		}
+
+		@Nullable
+		private static <T> List<T> removeValue(@Nullable List<T> values, T value) {
+			if (values != null) {
+				values.removeIf(value::equals);
+				if (values.isEmpty()) {
+					return null;
+				}
+			}
+			return values;
+		}
+
+		@Nullable
+		private static <T> Node<T> removeValue(@Nullable Node<T> node, T value) {
+			if (node != null) {
+				node.remove(value);
+				if (node.isEmpty()) {
+					return null;
+				}
+			}
+			return node;
+		}
+
+		@Nullable
+		private static <T> Map<String, Node<T>> removeValue(@Nullable Map<String, Node<T>> children, T value) {
+			if (children != null) {
+				for (Iterator<Node<T>> it = children.values().iterator(); it.hasNext();) {
+					Node<T> child = it.next();
+					child.remove(value);
+					if (child.isEmpty()) {
+						it.remove();
+					}
+				}
+				if (children.isEmpty()) {
+					return null;
+				}
+			}
+			return children;
+		}
+	}
+
+}
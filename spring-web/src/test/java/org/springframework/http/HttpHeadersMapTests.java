@@ -0,0 +1,188 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.junit.Test;
+
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.LinkedCaseInsensitiveMap;
+import org.springframework.util.MultiValueMap;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link HttpHeadersMap}.
+ *
+ * @author agent
+ */
+public class HttpHeadersMapTests {
+
+	private final HttpHeadersMap map = new HttpHeadersMap();
+
+
+	@Test
+	public void caseInsensitiveLookup() {
+		this.map.add("Content-Type", "text/plain");
+		this.map.add("x-custom", "foo");
+
+		assertEquals("text/plain", this.map.getFirst("content-type"));
+		assertEquals("text/plain", this.map.getFirst("CONTENT-TYPE"));
+		assertEquals(Collections.singletonList("foo"), this.map.get("X-Custom"));
+		assertTrue(this.map.containsKey("X-CUSTOM"));
+		assertFalse(this.map.containsKey("X-Custom2"));
+		assertFalse(this.map.containsKey(42));
+		assertNull(this.map.get(null));
+		assertEquals(2, this.map.size());
+	}
+
+	@Test
+	public void commonHeaderNamesInterned() {
+		this.map.set(new String("Content-Type".toCharArray()), "text/plain");
+		assertSame(HttpHeaders.CONTENT_TYPE, this.map.keySet().iterator().next());
+	}
+
+	@Test
+	public void putRetainsLastCasing() {
+		this.map.set("Accept", "text/plain");
+		this.map.set("X-Foo", "bar");
+		List<String> previous = this.map.put("accept", Collections.singletonList("text/html"));
+
+		assertEquals(Collections.singletonList("text/plain"), previous);
+		assertEquals(Arrays.asList("X-Foo", "accept"), Arrays.asList(this.map.keySet().toArray()));
+		assertEquals("text/html", this.map.getFirst("ACCEPT"));
+		assertEquals(2, this.map.size());
+	}
+
+	@Test
+	public void removeAndReinsert() {
+		for (int i = 0; i < 100; i++) {
+			this.map.add("X-Header-" + i, String.valueOf(i));
+		}
+		for (int i = 0; i < 100; i += 2) {
+			assertEquals(Collections.singletonList(String.valueOf(i)), this.map.remove("x-header-" + i));
+		}
+		assertNull(this.map.remove("x-header-0"));
+		assertEquals(50, this.map.size());
+		for (int i = 0; i < 100; i++) {
+			this.map.add("X-Other-" + i, String.valueOf(i));
+			this.map.remove("X-Other-" + i);
+		}
+		assertEquals(50, this.map.size());
+
+		Iterator<String> names = this.map.keySet().iterator();
+		for (int i = 1; i < 100; i += 2) {
+			assertEquals("X-Header-" + i, names.next());
+			assertEquals(String.valueOf(i), this.map.getFirst("x-HEADER-" + i));
+		}
+		assertFalse(names.hasNext());
+	}
+
+	@Test
+	public void iteratorRemove() {
+		this.map.add("A", "1");
+		this.map.add("B", "2");
+		this.map.add("C", "3");
+
+		Iterator<Map.Entry<String, List<String>>> iterator = this.map.entrySet().iterator();
+		iterator.next();
+		iterator.next().setValue(Collections.singletonList("20"));
+		iterator.remove();
+		iterator.next();
+		assertFalse(iterator.hasNext());
+
+		assertEquals(2, this.map.size());
+		assertFalse(this.map.containsKey("b"));
+		assertEquals(Arrays.asList("A", "C"), Arrays.asList(this.map.keySet().toArray()));
+	}
+
+	@Test(expected = ConcurrentModificationException.class)
+	public void concurrentModification() {
+		this.map.add("A", "1");
+		this.map.add("B", "2");
+		for (String name : this.map.keySet()) {
+			this.map.remove(name);
+		}
+	}
+
+	@Test
+	public void equalsLinkedCaseInsensitiveMap() {
+		MultiValueMap<String, String> other =
+				CollectionUtils.toMultiValueMap(new LinkedCaseInsensitiveMap<>(8, Locale.ENGLISH));
+		other.add("Content-Type", "text/plain");
+		other.add("Accept", "*/*");
+		this.map.add("Content-Type", "text/plain");
+		this.map.add("Accept", "*/*");
+
+		assertEquals(other, this.map);
+		assertEquals(this.map, other);
+		assertEquals(other.hashCode(), this.map.hashCode());
+		assertEquals(other.toString(), this.map.toString());
+	}
+
+	@Test
+	public void serialization() throws Exception {
+		this.map.add("Content-Type", "text/plain");
+		this.map.add("X-Foo", "a");
+		this.map.add("X-Foo", "b");
+
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+			oos.writeObject(this.map);
+		}
+		try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bos.toByteArray()))) {
+			@SuppressWarnings("unchecked")
+			MultiValueMap<String, String> copy = (MultiValueMap<String, String>) ois.readObject();
+			assertEquals(this.map, copy);
+			assertEquals(Arrays.asList("a", "b"), copy.get("x-foo"));
+		}
+	}
+
+	@Test  // compatible with earlier 5.1.x versions
+	public void serializedAsLinkedCaseInsensitiveMap() throws Exception {
+		HttpHeaders headers = new HttpHeaders();
+		headers.add("Content-Type", "text/plain");
+
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+			oos.writeObject(headers);
+		}
+		String serialized = new String(bos.toByteArray(), StandardCharsets.ISO_8859_1);
+		assertFalse(serialized.contains(HttpHeadersMap.class.getName()));
+		assertTrue(serialized.contains(LinkedCaseInsensitiveMap.class.getName()));
+
+		try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bos.toByteArray()))) {
+			HttpHeaders copy = (HttpHeaders) ois.readObject();
+			assertEquals(headers, copy);
+			assertEquals(MediaType.TEXT_PLAIN, copy.getContentType());
+			assertEquals("text/plain", copy.getFirst("content-type"));
+		}
+	}
+
+}
@@ -135,6 +135,29 @@ public class HttpHeadersTests {
 		assertEquals("Invalid Content-Type header", "text/html;charset=UTF-8", headers.getFirst("Content-Type"));
 	}
 
+	@Test
+	public void parsedValuesCachedUntilChanged() {
+		headers.set("content-type", "text/html");
+		headers.add("Accept", "text/html");
+		headers.setContentLength(42);
+		MediaType contentType = headers.getContentType();
+		List<MediaType> accept = headers.getAccept();
+		assertSame(contentType, headers.getContentType());
+		assertEquals(accept, headers.getAccept());
+		assertNotSame(accept, headers.getAccept());
+		assertEquals(42, headers.getContentLength());
+
+		headers.setContentType(MediaType.TEXT_PLAIN);
+		headers.get("accept").add("application/json");
+		headers.setContentLength(7);
+		assertEquals(MediaType.TEXT_PLAIN, headers.getContentType());
+		assertEquals(Arrays.asList(MediaType.TEXT_HTML, MediaType.APPLICATION_JSON), headers.getAccept());
+		assertEquals(7, headers.getContentLength());
+
+		headers.remove(HttpHeaders.CONTENT_TYPE);
+		assertNull(headers.getContentType());
+	}
+
 	@Test
 	public void location() throws URISyntaxException {
 		URI location = new URI("https://www.example.com/hotels");
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.http.client;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.StreamingHttpOutputMessage;
+import org.springframework.http.client.support.HttpRequestWrapper;
+import org.springframework.util.FileCopyUtils;
+import org.springframework.util.StreamUtils;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author agent
+ */
+public class InterceptingStreamingClientHttpRequestFactoryTests extends AbstractHttpRequestFactoryTestCase {
+
+	private final AtomicLong bytesWritten = new AtomicLong();
+
+	private final AtomicBoolean writtenBeforeIntercept = new AtomicBoolean();
+
+
+	@Override
+	protected ClientHttpRequestFactory createRequestFactory() {
+		HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory();
+		requestFactory.setBufferRequestBody(false);
+		List<StreamingClientHttpRequestInterceptor> interceptors = Arrays.asList(
+				(request, body, execution) -> {
+					HttpRequestWrapper wrapper = new HttpRequestWrapper(request);
+					wrapper.getHeaders().add("X-Intercepted", "true");
+					return execution.execute(wrapper, body);
+				},
+				(request, body, execution) -> {
+					this.writtenBeforeIntercept.set(this.bytesWritten.get() > 0);
+					StreamingHttpOutputMessage.Body counting = (body != null ?
+							outputStream -> body.writeTo(new CountingOutputStream(outputStream)) : null);
+					return execution.execute(request, counting);
+				});
+		return new InterceptingStreamingClientHttpRequestFactory(requestFactory, interceptors);
+	}
+
+	@Override
+	@Test
+	public void httpMethods() throws Exception {
+		super.httpMethods();
+		assertHttpMethod("patch", HttpMethod.PATCH);
+	}
+
+	@Test
+	public void streamingBody() throws Exception {
+		ClientHttpRequest request = this.factory.createRequest(new URI(baseUrl + "/echo"), HttpMethod.PUT);
+		assertTrue(request instanceof StreamingHttpOutputMessage);
+
+		byte[] body = "Hello World".getBytes("UTF-8");
+		request.getHeaders().setContentLength(body.length);
+		((StreamingHttpOutputMessage) request).setBody(outputStream -> StreamUtils.copy(body, outputStream));
+
+		ClientHttpResponse response = request.execute();
+		try {
+			assertEquals(HttpStatus.OK, response.getStatusCode());
+			assertEquals("true", response.getHeaders().getFirst("X-Intercepted"));
+			assertArrayEquals(body, FileCopyUtils.copyToByteArray(response.getBody()));
+		}
+		finally {
+			response.close();
+		}
+		assertFalse(this.writtenBeforeIntercept.get());
+		assertEquals(body.length, this.bytesWritten.get());
+	}
+
+	@Test
+	public void bufferedBodyFallback() throws Exception {
+		ClientHttpRequest request = this.factory.createRequest(new URI(baseUrl + "/echo"), HttpMethod.PUT);
+
+		byte[] body = "Hello World".getBytes("UTF-8");
+		request.getHeaders().setContentLength(body.length);
+		StreamUtils.copy(body, request.getBody());
+
+		ClientHttpResponse response = request.execute();
+		try {
+			assertEquals(HttpStatus.OK, response.getStatusCode());
+			assertArrayEquals(body, FileCopyUtils.copyToByteArray(response.getBody()));
+		}
+		finally {
+			response.close();
+		}
+		assertEquals(body.length, this.bytesWritten.get());
+	}
+
+
+	private class CountingOutputStream extends FilterOutputStream {
+
+		CountingOutputStream(OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			super.write(b);
+			bytesWritten.incrementAndGet();
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			this.out.write(b, off, len);
+			bytesWritten.addAndGet(len);
+		}
+	}
+
+}
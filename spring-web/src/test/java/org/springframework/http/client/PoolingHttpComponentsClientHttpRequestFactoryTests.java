@@ -0,0 +1,105 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.http.client;
+
+import java.net.URI;
+
+import org.apache.http.pool.PoolStats;
+import org.junit.Test;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.StreamUtils;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author agent
+ */
+public class PoolingHttpComponentsClientHttpRequestFactoryTests extends AbstractHttpRequestFactoryTestCase {
+
+	@Override
+	protected ClientHttpRequestFactory createRequestFactory() {
+		return new PoolingHttpComponentsClientHttpRequestFactory();
+	}
+
+	@Override
+	@Test
+	public void httpMethods() throws Exception {
+		super.httpMethods();
+		assertHttpMethod("patch", HttpMethod.PATCH);
+	}
+
+	@Test
+	public void connectionReuse() throws Exception {
+		PoolingHttpComponentsClientHttpRequestFactory poolingFactory =
+				(PoolingHttpComponentsClientHttpRequestFactory) this.factory;
+		URI uri = new URI(baseUrl + "/status/ok");
+
+		for (int i = 0; i < 3; i++) {
+			ClientHttpResponse response = poolingFactory.createRequest(uri, HttpMethod.GET).execute();
+			try {
+				assertEquals(HttpStatus.OK, response.getStatusCode());
+				StreamUtils.drain(response.getBody());
+			}
+			finally {
+				response.close();
+			}
+		}
+
+		PoolStats routeStats = poolingFactory.getStats(uri);
+		assertEquals(0, routeStats.getLeased());
+		assertEquals(1, routeStats.getAvailable());
+		assertEquals(PoolingHttpComponentsClientHttpRequestFactory.DEFAULT_MAX_PER_ROUTE, routeStats.getMax());
+		assertEquals(1, poolingFactory.getTotalStats().getAvailable());
+	}
+
+	@Test
+	public void maxConnectionsPerRoute() throws Exception {
+		PoolingHttpComponentsClientHttpRequestFactory poolingFactory =
+				(PoolingHttpComponentsClientHttpRequestFactory) this.factory;
+		URI uri = new URI(baseUrl + "/status/ok");
+		poolingFactory.setMaxConnections(50);
+		poolingFactory.setMaxConnectionsPerRoute(uri, 5);
+
+		assertEquals(5, poolingFactory.getStats(uri).getMax());
+		assertEquals(50, poolingFactory.getTotalStats().getMax());
+		assertEquals(PoolingHttpComponentsClientHttpRequestFactory.DEFAULT_MAX_PER_ROUTE,
+				poolingFactory.getStats(new URI("https://example.com")).getMax());
+	}
+
+	@Test
+	public void idleConnectionsEvicted() throws Exception {
+		PoolingHttpComponentsClientHttpRequestFactory poolingFactory =
+				(PoolingHttpComponentsClientHttpRequestFactory) this.factory;
+		poolingFactory.setIdleEvictionInterval(50);
+		poolingFactory.setMaxIdleTime(10);
+		URI uri = new URI(baseUrl + "/status/ok");
+
+		ClientHttpResponse response = poolingFactory.createRequest(uri, HttpMethod.GET).execute();
+		StreamUtils.drain(response.getBody());
+		response.close();
+		assertEquals(1, poolingFactory.getStats(uri).getAvailable());
+
+		long deadline = System.currentTimeMillis() + 5000;
+		while (poolingFactory.getStats(uri).getAvailable() > 0 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(20);
+		}
+		assertEquals(0, poolingFactory.getStats(uri).getAvailable());
+	}
+
+}
@@ -17,6 +17,7 @@
 package org.springframework.http.client.support;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import org.hamcrest.Matchers;
@@ -28,6 +29,10 @@ import org.springframework.http.HttpRequest;
 import org.springframework.http.client.ClientHttpRequestExecution;
 import org.springframework.http.client.ClientHttpRequestInterceptor;
 import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.InterceptingClientHttpRequestFactory;
+import org.springframework.http.client.InterceptingStreamingClientHttpRequestFactory;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.http.client.StreamingClientHttpRequestInterceptor;
 
 import static org.junit.Assert.*;
 
@@ -55,6 +60,22 @@ public class InterceptingHttpAccessorTests {
 	}
 
 
+	@Test
+	public void getRequestFactory() {
+		TestInterceptingHttpAccessor accessor = new TestInterceptingHttpAccessor();
+		assertThat(accessor.getRequestFactory(), Matchers.instanceOf(SimpleClientHttpRequestFactory.class));
+
+		StreamingClientHttpRequestInterceptor streamingInterceptor = (request, body, execution) -> null;
+		accessor.setStreamingInterceptors(Collections.singletonList(streamingInterceptor));
+		assertThat(accessor.getRequestFactory(),
+				Matchers.instanceOf(InterceptingStreamingClientHttpRequestFactory.class));
+
+		accessor.setRequestFactory(new SimpleClientHttpRequestFactory());
+		accessor.setInterceptors(Collections.singletonList(new FirstClientHttpRequestInterceptor()));
+		assertThat(accessor.getRequestFactory(), Matchers.instanceOf(InterceptingClientHttpRequestFactory.class));
+	}
+
+
 	private class TestInterceptingHttpAccessor extends InterceptingHttpAccessor {
 	}
 
@@ -41,6 +41,7 @@ import org.springframework.core.codec.AbstractDecoderTestCase;
 import org.springframework.core.codec.CodecException;
 import org.springframework.core.codec.DecodingException;
 import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
 import org.springframework.http.MediaType;
 import org.springframework.http.codec.Pojo;
 import org.springframework.util.MimeType;
@@ -292,6 +293,75 @@ public class Jackson2JsonDecoderTests extends AbstractDecoderTestCase<Jackson2Js
 	}
 
 
+	@Test
+	public void decodeStreaming() {
+		Jackson2JsonDecoder decoder = new Jackson2JsonDecoder();
+		decoder.setStreamingDecoding(true);
+		Flux<DataBuffer> input = Flux.concat(
+				stringBuffer("[{\"bar\":\"b1\",\"fo"),
+				stringBuffer("o\":\"f1\"} , {\"bar\":\"b2\",\"foo\":\"f2\\\"}\"}"),
+				stringBuffer(", null]"));
+
+		StepVerifier.create(decoder.decode(input, forClass(Pojo.class), null, emptyMap()))
+				.expectNext(pojo1)
+				.expectNext(new Pojo("f2\"}", "b2"))
+				.verifyComplete();
+
+		assertEquals(2, decoder.getDecodedValueCount());
+		assertEquals(23 + 26, decoder.getDecodedByteCount());
+	}
+
+	@Test
+	public void decodeStreamingJsonStream() {
+		this.decoder.setStreamingDecoding(true);
+		Flux<DataBuffer> input = Flux.concat(
+				stringBuffer("[1, 2]\n[3"),
+				stringBuffer("]\n[\"4\", 5"),
+				stringBuffer("6]"));
+
+		testDecodeAll(input, Integer.class, step -> step
+				.expectNext(1, 2, 3, 4, 56)
+				.verifyComplete());
+
+		input = Flux.concat(
+				stringBuffer("{\"bar\":\"b1\",\"foo\":\"f1\"}\n{\"bar\":"),
+				stringBuffer("\"b2\",\"foo\":\"f2\"}\n"));
+
+		testDecode(input, forClass(Pojo.class), step -> step
+				.expectNext(pojo1)
+				.expectNext(pojo2)
+				.verifyComplete(), APPLICATION_STREAM_JSON, null);
+	}
+
+	@Test
+	public void decodeStreamingExceedsLimit() {
+		Jackson2JsonDecoder decoder = new Jackson2JsonDecoder();
+		decoder.setStreamingDecoding(true);
+		decoder.setMaxInMemorySize(20);
+		Flux<DataBuffer> input = Flux.concat(
+				stringBuffer("[{\"bar\":\"b1\",\"foo"),
+				stringBuffer("\":\"f1\"}]"));
+
+		StepVerifier.create(decoder.decode(input, forClass(Pojo.class), null, emptyMap()))
+				.verifyError(DataBufferLimitException.class);
+	}
+
+	@Test
+	public void decodeStreamingInvalidData() {
+		Jackson2JsonDecoder decoder = new Jackson2JsonDecoder();
+		decoder.setStreamingDecoding(true);
+
+		Flux<DataBuffer> input = Flux.from(stringBuffer("{\"foofoo\": \"foofoo\", \"barbar\": \"barbar\""));
+		StepVerifier.create(decoder.decode(input, forClass(Pojo.class), null, emptyMap()))
+				.verifyError(DecodingException.class);
+
+		input = Flux.concat(stringBuffer("[{\"bar\":\"b1\",\"foo\":\"f1\"}"), stringBuffer("}]"));
+		StepVerifier.create(decoder.decode(input, forClass(Pojo.class), null, emptyMap()))
+				.expectNext(pojo1)
+				.verifyError(DecodingException.class);
+	}
+
+
 	private Mono<DataBuffer> stringBuffer(String value) {
 		return stringBuffer(value, StandardCharsets.UTF_8);
 	}
@@ -0,0 +1,353 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.http.codec.multipart;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.core.io.buffer.support.DataBufferTestUtils;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.MultipartBodyBuilder;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.mock.http.client.reactive.test.MockClientHttpRequest;
+import org.springframework.mock.http.server.reactive.test.MockServerHttpRequest;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.MultiValueMap;
+
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonMap;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.core.ResolvableType.forClass;
+import static org.springframework.core.ResolvableType.forClassWithGenerics;
+import static org.springframework.http.HttpHeaders.CONTENT_TYPE;
+import static org.springframework.http.MediaType.MULTIPART_FORM_DATA;
+
+/**
+ * Unit tests for {@link DefaultPartHttpMessageReader}.
+ *
+ * @author agent
+ */
+public class DefaultPartHttpMessageReaderTests {
+
+	private static final ResolvableType PARTS_ELEMENT_TYPE =
+			forClassWithGenerics(MultiValueMap.class, String.class, Part.class);
+
+	private final DefaultPartHttpMessageReader partReader = new DefaultPartHttpMessageReader();
+
+	private final MultipartHttpMessageReader reader = new MultipartHttpMessageReader(this.partReader);
+
+	private Path storageDirectory;
+
+
+	@Before
+	public void setup() throws IOException {
+		this.storageDirectory = Files.createTempDirectory("DefaultPartHttpMessageReaderTests");
+		this.partReader.setFileStorageDirectory(this.storageDirectory);
+	}
+
+	@After
+	public void cleanup() throws IOException {
+		FileSystemUtils.deleteRecursively(this.storageDirectory);
+	}
+
+
+	@Test
+	public void canRead() {
+		assertTrue(this.partReader.canRead(forClass(Part.class), MediaType.MULTIPART_FORM_DATA));
+		assertTrue(this.partReader.canRead(forClass(Part.class), null));
+		assertFalse(this.partReader.canRead(forClass(Part.class), MediaType.APPLICATION_FORM_URLENCODED));
+		assertFalse(this.partReader.canRead(forClass(Object.class), MediaType.MULTIPART_FORM_DATA));
+	}
+
+	@Test
+	public void resolveParts() {
+		for (int chunkSize : new int[] {1, 7, 64, 4096}) {
+			ServerHttpRequest request = generateMultipartRequest(chunkSize);
+			MultiValueMap<String, Part> parts = this.reader.readMono(PARTS_ELEMENT_TYPE, request, emptyMap()).block();
+			assertNotNull(parts);
+			assertEquals(2, parts.size());
+
+			Part part = parts.getFirst("filePart");
+			assertTrue(part instanceof FilePart);
+			assertEquals("filePart", part.name());
+			assertEquals("foo.txt", ((FilePart) part).filename());
+			assertEquals("Lorem Ipsum.", content(part));
+
+			part = parts.getFirst("textPart");
+			assertTrue(part instanceof FormFieldPart);
+			assertEquals("textPart", part.name());
+			assertEquals("sample-text", ((FormFieldPart) part).value());
+		}
+	}
+
+	@Test
+	public void preambleEpilogueAndQuotedBoundary() {
+		String body = "preamble\r\n" +
+				"--simple boundary\r\n" +
+				"Content-Disposition: form-data; name=\"empty\"\r\n" +
+				"\r\n" +
+				"\r\n" +
+				"--simple boundary  \r\n" +
+				"Content-Disposition: form-data; name=\"json\"\r\n" +
+				"Content-Type: application/json\r\n" +
+				"\r\n" +
+				"{\"text\":\"\r\n--simple\"}\r\n" +
+				"--simple boundary--\r\n" +
+				"epilogue";
+		ServerHttpRequest request = MockServerHttpRequest.post("/")
+				.contentType(new MediaType(MULTIPART_FORM_DATA, singletonMap("boundary", "\"simple boundary\"")))
+				.body(Flux.just(new DefaultDataBufferFactory().wrap(body.getBytes(StandardCharsets.UTF_8))));
+
+		StepVerifier.create(this.partReader.read(forClass(Part.class), request, emptyMap()))
+				.consumeNextWith(part -> {
+					assertTrue(part instanceof FormFieldPart);
+					assertEquals("", ((FormFieldPart) part).value());
+				})
+				.consumeNextWith(part -> {
+					assertFalse(part instanceof FormFieldPart);
+					assertEquals(MediaType.APPLICATION_JSON, part.headers().getContentType());
+					assertEquals("{\"text\":\"\r\n--simple\"}", content(part));
+				})
+				.verifyComplete();
+	}
+
+	@Test
+	public void transferTo() throws IOException {
+		ServerHttpRequest request = generateMultipartRequest(4096);
+		MultiValueMap<String, Part> parts = this.reader.readMono(PARTS_ELEMENT_TYPE, request, emptyMap()).block();
+
+		assertNotNull(parts);
+		FilePart part = (FilePart) parts.getFirst("filePart");
+		assertNotNull(part);
+
+		File dest = File.createTempFile(part.filename(), "multipart");
+		part.transferTo(dest).block(Duration.ofSeconds(5));
+
+		assertTrue(dest.exists());
+		assertEquals(12, dest.length());
+		assertTrue(dest.delete());
+	}
+
+	@Test
+	public void storeOnDisk() throws IOException {
+		this.partReader.setMaxInMemorySize(11);
+		ServerHttpRequest request = generateMultipartRequest(7);
+		MultiValueMap<String, Part> parts = this.reader.readMono(PARTS_ELEMENT_TYPE, request, emptyMap()).block();
+
+		assertNotNull(parts);
+		FilePart part = (FilePart) parts.getFirst("filePart");
+		assertNotNull(part);
+		assertEquals("Lorem Ipsum.", content(part));
+		assertEquals(1, storedFiles().size());
+
+		File dest = File.createTempFile(part.filename(), "multipart");
+		part.transferTo(dest).block(Duration.ofSeconds(5));
+		assertEquals(12, dest.length());
+		assertTrue(dest.delete());
+
+		part.delete().block(Duration.ofSeconds(5));
+		assertEquals(0, storedFiles().size());
+	}
+
+	@Test
+	public void bodyError() {
+		ServerHttpRequest request = MockServerHttpRequest.post("/")
+				.header(CONTENT_TYPE, MULTIPART_FORM_DATA.toString())
+				.body(Flux.just(new DefaultDataBufferFactory().wrap("invalid content".getBytes())));
+		StepVerifier.create(this.reader.readMono(PARTS_ELEMENT_TYPE, request, emptyMap()))
+				.verifyError(DecodingException.class);
+	}
+
+	@Test
+	public void noEndBoundary() throws Exception {
+		this.partReader.setMaxInMemorySize(5);
+		ServerHttpRequest request = generateMultipartRequest(7);
+		String body = DataBufferUtils.join(request.getBody())
+				.map(buffer -> DataBufferTestUtils.dumpString(buffer, StandardCharsets.UTF_8))
+				.block(Duration.ofSeconds(5));
+		assertNotNull(body);
+		// Truncate in the middle of the file part, after it was stored on disk
+		body = body.substring(0, body.indexOf("Lorem Ipsum.") + 8);
+		request = MockServerHttpRequest.post("/")
+				.contentType(request.getHeaders().getContentType())
+				.body(body);
+
+		StepVerifier.create(this.reader.readMono(PARTS_ELEMENT_TYPE, request, emptyMap()))
+				.consumeErrorWith(ex -> {
+					assertEquals(DecodingException.class, ex.getClass());
+					assertEquals("Could not find end of body", ex.getMessage());
+				})
+				.verify();
+
+		awaitNoStoredFiles();
+	}
+
+	@Test
+	public void readPartsWithoutDemand() {
+		ServerHttpRequest request = generateMultipartRequest(4096);
+		Mono<MultiValueMap<String, Part>> parts = this.reader.readMono(PARTS_ELEMENT_TYPE, request, emptyMap());
+		ZeroDemandSubscriber subscriber = new ZeroDemandSubscriber();
+		parts.subscribe(subscriber);
+		subscriber.cancel();
+	}
+
+	@Test
+	public void readTooManyParts() {
+		testMultipartExceptions(reader -> reader.setMaxParts(1), ex -> {
+			assertEquals(DecodingException.class, ex.getClass());
+			assertEquals("Too many parts (1 allowed)", ex.getMessage());
+		});
+	}
+
+	@Test
+	public void readTooManyPartsDeletesStoredFiles() throws Exception {
+		this.partReader.setMaxInMemorySize(4);
+		this.partReader.setMaxParts(1);
+		StepVerifier.create(this.reader.readMono(PARTS_ELEMENT_TYPE, generateMultipartRequest(7), emptyMap()))
+				.consumeErrorWith(ex -> assertEquals("Too many parts (1 allowed)", ex.getMessage()))
+				.verify();
+
+		// The file part was complete when the second part exceeded the limit
+		awaitNoStoredFiles();
+	}
+
+	@Test
+	public void readFilePartTooBig() {
+		testMultipartExceptions(reader -> {
+			reader.setMaxInMemorySize(4);
+			reader.setMaxDiskUsagePerPart(5);
+		}, ex -> {
+			assertEquals(DecodingException.class, ex.getClass());
+			assertEquals("Part[1] exceeded the disk usage limit of 5 bytes", ex.getMessage());
+		});
+	}
+
+	@Test
+	public void readFormFieldTooBig() {
+		testMultipartExceptions(reader -> reader.setMaxInMemorySize(5), ex -> {
+			assertEquals(DataBufferLimitException.class, ex.getClass());
+			assertEquals("Part[2] exceeded the in-memory limit of 5 bytes", ex.getMessage());
+		});
+	}
+
+	@Test
+	public void readPartHeadersTooBig() {
+		testMultipartExceptions(reader -> reader.setMaxHeadersSize(10), ex -> {
+			assertEquals(DataBufferLimitException.class, ex.getClass());
+			assertEquals("Part headers exceeded the memory usage limit of 10 bytes", ex.getMessage());
+		});
+	}
+
+	private void testMultipartExceptions(
+			Consumer<DefaultPartHttpMessageReader> configurer, Consumer<Throwable> assertions) {
+
+		configurer.accept(this.partReader);
+		StepVerifier.create(this.reader.readMono(PARTS_ELEMENT_TYPE, generateMultipartRequest(7), emptyMap()))
+				.consumeErrorWith(assertions)
+				.verify();
+	}
+
+	private ServerHttpRequest generateMultipartRequest(int chunkSize) {
+		MultipartBodyBuilder partsBuilder = new MultipartBodyBuilder();
+		partsBuilder.part("filePart", new ClassPathResource("org/springframework/http/codec/multipart/foo.txt"));
+		partsBuilder.part("textPart", "sample-text");
+
+		MockClientHttpRequest outputMessage = new MockClientHttpRequest(HttpMethod.POST, "/");
+		new MultipartHttpMessageWriter()
+				.write(Mono.just(partsBuilder.build()), null, MediaType.MULTIPART_FORM_DATA, outputMessage, null)
+				.block(Duration.ofSeconds(5));
+		DataBuffer body = DataBufferUtils.join(outputMessage.getBody()).block(Duration.ofSeconds(5));
+		assertNotNull(body);
+		byte[] bytes = new byte[body.readableByteCount()];
+		body.read(bytes);
+		DataBufferUtils.release(body);
+
+		List<DataBuffer> chunks = new ArrayList<>();
+		for (int offset = 0; offset < bytes.length; offset += chunkSize) {
+			int length = Math.min(chunkSize, bytes.length - offset);
+			DataBuffer chunk = new DefaultDataBufferFactory().allocateBuffer(length);
+			chunk.write(bytes, offset, length);
+			chunks.add(chunk);
+		}
+		return MockServerHttpRequest.post("/")
+				.contentType(outputMessage.getHeaders().getContentType())
+				.body(Flux.fromIterable(chunks));
+	}
+
+	private static String content(Part part) {
+		DataBuffer buffer = DataBufferUtils.join(part.content()).block(Duration.ofSeconds(5));
+		assertNotNull(buffer);
+		byte[] bytes = new byte[buffer.readableByteCount()];
+		buffer.read(bytes);
+		DataBufferUtils.release(buffer);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private void awaitNoStoredFiles() throws Exception {
+		// Temporary files are deleted asynchronously
+		for (int i = 0; i < 50 && !storedFiles().isEmpty(); i++) {
+			Thread.sleep(100);
+		}
+		assertEquals(0, storedFiles().size());
+	}
+
+	private List<Path> storedFiles() throws IOException {
+		try (Stream<Path> files = Files.list(this.storageDirectory)) {
+			return files.collect(Collectors.toList());
+		}
+	}
+
+
+	private static class ZeroDemandSubscriber extends BaseSubscriber<MultiValueMap<String, Part>> {
+
+		@Override
+		protected void hookOnSubscribe(Subscription subscription) {
+			// Just subscribe without requesting
+		}
+	}
+
+}
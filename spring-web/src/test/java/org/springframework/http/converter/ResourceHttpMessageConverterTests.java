@@ -16,9 +16,14 @@
 
 package org.springframework.http.converter;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 import java.util.Arrays;
 
 import org.junit.Rule;
@@ -27,11 +32,14 @@ import org.junit.rules.ExpectedException;
 
 import org.springframework.core.io.ByteArrayResource;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.InputStreamResource;
 import org.springframework.core.io.Resource;
 import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.MockHttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
 import org.springframework.http.MockHttpOutputMessage;
 import org.springframework.util.FileCopyUtils;
 
@@ -160,4 +168,92 @@ public class ResourceHttpMessageConverterTests {
 		assertEquals(0, outputMessage.getHeaders().getContentLength());
 	}
 
+	@Test
+	public void writeFileResourceToStreamReadsThroughChannel() throws Exception {
+		MockHttpOutputMessage outputMessage = new MockHttpOutputMessage();
+		Resource body = spy(new ClassPathResource("logo.jpg", getClass()));
+		converter.write(body, null, outputMessage);
+
+		verify(body).readableChannel();
+		verify(body, never()).getInputStream();
+		assertArrayEquals(FileCopyUtils.copyToByteArray(body.getFile()), outputMessage.getBodyAsBytes());
+	}
+
+	@Test
+	public void writeFileResourceToChannel() throws Exception {
+		ChannelOutputMessage outputMessage = new ChannelOutputMessage();
+		Resource body = spy(new ClassPathResource("logo.jpg", getClass()));
+		converter.write(body, null, outputMessage);
+
+		verify(body, never()).getInputStream();
+		assertArrayEquals(FileCopyUtils.copyToByteArray(body.getFile()), outputMessage.body.toByteArray());
+	}
+
+	@Test
+	public void writeTruncatedFileResourceToChannel() throws Exception {
+		File file = File.createTempFile("resource", ".txt");
+		try {
+			FileCopyUtils.copy(new byte[] {1, 2, 3}, file);
+			ChannelOutputMessage outputMessage = new ChannelOutputMessage();
+			outputMessage.getHeaders().setContentLength(10);
+			this.thrown.expect(IOException.class);
+			converter.write(new FileSystemResource(file), MediaType.APPLICATION_OCTET_STREAM, outputMessage);
+		}
+		finally {
+			file.delete();
+		}
+	}
+
+
+	@Test
+	public void writeTruncatedFileResourceToStream() throws Exception {
+		File file = File.createTempFile("resource", ".txt");
+		try {
+			FileCopyUtils.copy(new byte[] {1, 2, 3}, file);
+			MockHttpOutputMessage outputMessage = new MockHttpOutputMessage();
+			outputMessage.getHeaders().setContentLength(10);
+			this.thrown.expect(IOException.class);
+			converter.write(new FileSystemResource(file), MediaType.APPLICATION_OCTET_STREAM, outputMessage);
+		}
+		finally {
+			file.delete();
+		}
+	}
+
+
+	private static class ChannelOutputMessage implements HttpOutputMessage {
+
+		private final HttpHeaders headers = new HttpHeaders();
+
+		private final ChannelOutputStream body = new ChannelOutputStream();
+
+		@Override
+		public HttpHeaders getHeaders() {
+			return this.headers;
+		}
+
+		@Override
+		public OutputStream getBody() {
+			return this.body;
+		}
+	}
+
+
+	private static class ChannelOutputStream extends ByteArrayOutputStream implements WritableByteChannel {
+
+		@Override
+		public int write(ByteBuffer src) {
+			int count = src.remaining();
+			byte[] bytes = new byte[count];
+			src.get(bytes);
+			write(bytes, 0, count);
+			return count;
+		}
+
+		@Override
+		public boolean isOpen() {
+			return true;
+		}
+	}
+
 }
@@ -29,6 +29,7 @@ import org.mockito.BDDMockito;
 import org.mockito.Mockito;
 
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.io.ByteArrayResource;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.support.ResourceRegion;
@@ -109,6 +110,33 @@ public class ResourceRegionHttpMessageConverterTests {
 		assertThat(outputMessage.getBodyAsString(StandardCharsets.UTF_8), is("Framework test resource content."));
 	}
 
+	@Test
+	public void shouldWritePartialContentByteRangeFromPositionedChannel() throws Exception {
+		MockHttpOutputMessage outputMessage = new MockHttpOutputMessage();
+		Resource body = Mockito.spy(new ClassPathResource("byterangeresource.txt", getClass()));
+		ResourceRegion region = HttpRange.createByteRange(7, 15).toResourceRegion(body);
+		converter.write(region, MediaType.TEXT_PLAIN, outputMessage);
+
+		Mockito.verify(body).readableChannel();
+		Mockito.verify(body, Mockito.never()).getInputStream();
+		assertThat(outputMessage.getHeaders().get(HttpHeaders.CONTENT_RANGE).get(0), is("bytes 7-15/39"));
+		assertThat(outputMessage.getBodyAsString(StandardCharsets.UTF_8), is("Framework"));
+	}
+
+	@Test
+	public void shouldWritePartialContentByteRangeFromStream() throws Exception {
+		MockHttpOutputMessage outputMessage = new MockHttpOutputMessage();
+		Resource body = new ByteArrayResource("Spring Framework test resource content".getBytes(StandardCharsets.UTF_8));
+		ResourceRegion region = HttpRange.createByteRange(7, 15).toResourceRegion(body);
+		converter.write(region, MediaType.TEXT_PLAIN, outputMessage);
+
+		HttpHeaders headers = outputMessage.getHeaders();
+		assertThat(headers.getContentType(), is(MediaType.TEXT_PLAIN));
+		assertThat(headers.getContentLength(), is(9L));
+		assertThat(headers.get(HttpHeaders.CONTENT_RANGE).get(0), is("bytes 7-15/38"));
+		assertThat(outputMessage.getBodyAsString(StandardCharsets.UTF_8), is("Framework"));
+	}
+
 	@Test
 	public void partialContentMultipleByteRanges() throws Exception {
 		MockHttpOutputMessage outputMessage = new MockHttpOutputMessage();
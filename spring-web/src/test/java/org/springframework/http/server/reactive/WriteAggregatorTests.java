@@ -0,0 +1,308 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.http.server.reactive;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+
+import io.netty.buffer.PooledByteBufAllocator;
+import org.junit.Test;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.core.io.buffer.LeakAwareDataBufferFactory;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.lang.Nullable;
+import org.springframework.mock.web.test.MockAsyncContext;
+import org.springframework.mock.web.test.MockHttpServletRequest;
+import org.springframework.mock.web.test.MockHttpServletResponse;
+import org.springframework.util.Assert;
+
+import static org.junit.Assert.*;
+import static org.mockito.BDDMockito.*;
+
+/**
+ * Unit tests for {@link WriteAggregator}.
+ *
+ * @author agent
+ */
+public class WriteAggregatorTests {
+
+	private final DefaultDataBufferFactory bufferFactory = new DefaultDataBufferFactory();
+
+
+	@Test
+	public void coalesceWhileWritePending() {
+		Flux<DataBuffer> body = Flux.just("foo", "bar", "baz").map(this::buffer);
+		TestWriter writer = new TestWriter();
+		WriteAggregator.aggregate(Mono.just(body), this.bufferFactory, 8192, Duration.ZERO).subscribe(writer);
+
+		assertEquals(Arrays.asList("foo"), writer.writes);
+		writer.writeComplete();
+		assertEquals(Arrays.asList("foo", "barbaz", "flush", "complete"), writer.writes);
+	}
+
+	@Test
+	public void splitAtMaxBatchSize() {
+		Flux<DataBuffer> body = Flux.just("foo", "bar", "baz", "qux", "q").map(this::buffer);
+		TestWriter writer = new TestWriter();
+		WriteAggregator.aggregate(Mono.just(body), this.bufferFactory, 6, Duration.ZERO).subscribe(writer);
+
+		writer.writeComplete();
+		writer.writeComplete();
+		assertEquals(Arrays.asList("foo", "barbaz", "quxq", "flush", "complete"), writer.writes);
+	}
+
+	@Test
+	public void preserveFlushBoundaries() {
+		Flux<Flux<DataBuffer>> body = Flux.just(
+				Flux.just("a", "b").map(this::buffer),
+				Flux.just("c").map(this::buffer),
+				Flux.just("d", "e", "f").map(this::buffer));
+		TestWriter writer = new TestWriter();
+		WriteAggregator.aggregate(body, this.bufferFactory, 8192, Duration.ZERO).subscribe(writer);
+
+		for (int i = 0; i < 3; i++) {
+			writer.writeComplete();
+		}
+		assertEquals(Arrays.asList("a", "b", "flush", "c", "flush", "def", "flush", "complete"), writer.writes);
+	}
+
+	@Test
+	public void releaseOnCancel() {
+		LeakAwareDataBufferFactory leakAwareFactory =
+				new LeakAwareDataBufferFactory(new NettyDataBufferFactory(PooledByteBufAllocator.DEFAULT));
+		Flux<DataBuffer> body = Flux.just("foo", "bar", "baz")
+				.map(value -> leakAwareFactory.allocateBuffer().write(value, StandardCharsets.UTF_8));
+		TestWriter writer = new TestWriter();
+		WriteAggregator.aggregate(Mono.just(body), leakAwareFactory, 8192, Duration.ZERO).subscribe(writer);
+
+		writer.cancel();
+		assertEquals(Arrays.asList("foo"), writer.writes);
+		leakAwareFactory.checkForLeaks();
+	}
+
+	@Test
+	public void holdBackWithinLatency() {
+		Flux<DataBuffer> body = Flux.interval(Duration.ofMillis(10)).take(3).map(i -> buffer("item" + i));
+
+		StepVerifier.create(WriteAggregator.aggregate(Mono.just(body), this.bufferFactory, 8192, Duration.ofSeconds(5))
+				.concatMap(this::collect))
+				.expectNext("[item0item1item2]")
+				.verifyComplete();
+	}
+
+	@Test
+	public void writeOnLatencyElapsed() {
+		Flux<DataBuffer> body = Flux.just("foo").map(this::buffer).concatWith(Flux.never());
+
+		StepVerifier.create(WriteAggregator.aggregate(Mono.just(body), this.bufferFactory, 8192, Duration.ofMillis(50))
+				.concatMap(Flux::next)
+				.map(WriteAggregatorTests::readString))
+				.expectNext("foo")
+				.thenCancel()
+				.verify(Duration.ofSeconds(5));
+	}
+
+	@Test
+	public void propagateError() {
+		Flux<DataBuffer> body = Flux.just("foo").map(this::buffer)
+				.concatWith(Flux.error(new IllegalStateException("boo")));
+
+		StepVerifier.create(WriteAggregator.aggregate(Mono.just(body), this.bufferFactory, 8192, Duration.ZERO)
+				.concatMap(Flux::collectList))
+				.expectError(IllegalStateException.class)
+				.verify(Duration.ofSeconds(5));
+	}
+
+	@Test
+	public void disabledByDefault() {
+		HttpHandler handler = (request, response) -> Mono.empty();
+		assertEquals(0, new ServletHttpHandlerAdapter(handler).getWriteAggregationSize());
+		assertEquals(0, new UndertowHttpHandlerAdapter(handler).getWriteAggregationSize());
+	}
+
+	@Test
+	public void fewerContainerWritesWithServletResponse() throws Exception {
+		TestServletResponse aggregated = new TestServletResponse();
+		writeThroughServletResponse(aggregated, 8192);
+		TestServletResponse unaggregated = new TestServletResponse();
+		writeThroughServletResponse(unaggregated, 0);
+
+		String expected = String.join("", Collections.nCopies(20, "foo"));
+		assertEquals(expected, aggregated.outputStream.content.toString("UTF-8"));
+		assertEquals(expected, unaggregated.outputStream.content.toString("UTF-8"));
+		assertEquals(20, unaggregated.outputStream.writeCount);
+		// The first buffer, the one held by the write processor while the
+		// container is busy, and the remaining buffers joined into one write
+		assertEquals(3, aggregated.outputStream.writeCount);
+	}
+
+
+	private void writeThroughServletResponse(TestServletResponse servletResponse, int writeAggregationSize)
+			throws Exception {
+
+		MockHttpServletRequest servletRequest = new MockHttpServletRequest("GET", "/");
+		MockAsyncContext asyncContext = new MockAsyncContext(servletRequest, servletResponse);
+		ServletServerHttpRequest request = mock(ServletServerHttpRequest.class);
+		given(request.getLogPrefix()).willReturn("[test] ");
+		ServletServerHttpResponse response = new ServletServerHttpResponse(
+				servletResponse, asyncContext, this.bufferFactory, 1024, request);
+		response.setWriteAggregation(writeAggregationSize, Duration.ZERO);
+
+		AtomicBoolean completed = new AtomicBoolean();
+		Flux<DataBuffer> body = Flux.range(0, 20).map(i -> buffer("foo"));
+		response.writeWith(body).subscribe(null, null, () -> completed.set(true));
+
+		TestServletOutputStream outputStream = servletResponse.outputStream;
+		for (int i = 0; i < 100 && !completed.get(); i++) {
+			outputStream.ready = true;
+			Assert.state(outputStream.writeListener != null, "No WriteListener");
+			outputStream.writeListener.onWritePossible();
+		}
+		assertTrue(completed.get());
+	}
+
+	private DataBuffer buffer(String value) {
+		return this.bufferFactory.wrap(value.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private Mono<String> collect(Flux<DataBuffer> window) {
+		return window.map(WriteAggregatorTests::readString).collectList().map(List::toString);
+	}
+
+	private static String readString(DataBuffer buffer) {
+		byte[] bytes = new byte[buffer.readableByteCount()];
+		buffer.read(bytes);
+		DataBufferUtils.release(buffer);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+
+
+	/**
+	 * Writes one buffer at a time, and only requests the next one
+	 * once {@link #writeComplete()} is called.
+	 */
+	private static class TestWriter extends BaseSubscriber<Flux<DataBuffer>> {
+
+		private final List<String> writes = new ArrayList<>();
+
+		@Nullable
+		private BaseSubscriber<DataBuffer> windowSubscriber;
+
+		@Override
+		protected void hookOnSubscribe(Subscription subscription) {
+			request(1);
+		}
+
+		@Override
+		protected void hookOnNext(Flux<DataBuffer> window) {
+			this.windowSubscriber = new BaseSubscriber<DataBuffer>() {
+				@Override
+				protected void hookOnSubscribe(Subscription subscription) {
+					request(1);
+				}
+				@Override
+				protected void hookOnNext(DataBuffer buffer) {
+					writes.add(readString(buffer));
+				}
+				@Override
+				protected void hookOnComplete() {
+					writes.add("flush");
+					TestWriter.this.request(1);
+				}
+			};
+			window.subscribe(this.windowSubscriber);
+		}
+
+		@Override
+		protected void hookOnComplete() {
+			this.writes.add("complete");
+		}
+
+		public void writeComplete() {
+			Assert.state(this.windowSubscriber != null, "No current window");
+			this.windowSubscriber.request(1);
+		}
+	}
+
+
+	private static class TestServletResponse extends MockHttpServletResponse {
+
+		private final TestServletOutputStream outputStream = new TestServletOutputStream();
+
+		@Override
+		public ServletOutputStream getOutputStream() {
+			return this.outputStream;
+		}
+	}
+
+
+	/**
+	 * Counts the writes, and is not ready for the next write until the
+	 * test signals that the container can accept it.
+	 */
+	private static class TestServletOutputStream extends ServletOutputStream {
+
+		private final ByteArrayOutputStream content = new ByteArrayOutputStream();
+
+		private int writeCount;
+
+		private boolean ready = true;
+
+		@Nullable
+		private WriteListener writeListener;
+
+		@Override
+		public boolean isReady() {
+			return this.ready;
+		}
+
+		@Override
+		public void setWriteListener(WriteListener writeListener) {
+			this.writeListener = writeListener;
+		}
+
+		@Override
+		public void write(int b) {
+			write(new byte[] {(byte) b}, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] bytes, int off, int len) {
+			this.content.write(bytes, off, len);
+			this.writeCount++;
+			this.ready = false;
+		}
+	}
+
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.filter.reactive;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import org.junit.Test;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.test.MockServerHttpRequest;
+import org.springframework.mock.http.server.reactive.test.MockServerHttpResponse;
+import org.springframework.mock.web.test.server.MockServerWebExchange;
+import org.springframework.util.StreamUtils;
+import org.springframework.util.StringUtils;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link CompressionWebFilter}.
+ *
+ * @author agent
+ */
+public class CompressionWebFilterTests {
+
+	private static final String CONTENT = StringUtils.collectionToDelimitedString(
+			Collections.nCopies(500, "Lorem ipsum dolor sit amet"), " ");
+
+
+	private final CompressionWebFilter filter = new CompressionWebFilter();
+
+
+	@Test
+	public void gzip() throws IOException {
+		MockServerWebExchange exchange = exchange("gzip, deflate");
+		write(exchange, MediaType.TEXT_PLAIN, chunks(CONTENT, 100));
+
+		HttpHeaders headers = exchange.getResponse().getHeaders();
+		assertEquals("gzip", headers.getFirst(HttpHeaders.CONTENT_ENCODING));
+		assertEquals(Collections.singletonList(HttpHeaders.ACCEPT_ENCODING), headers.getVary());
+		byte[] body = body(exchange.getResponse());
+		assertTrue(body.length < CONTENT.length() / 10);
+		assertEquals(CONTENT, read(new GZIPInputStream(new ByteArrayInputStream(body))));
+	}
+
+	@Test
+	public void deflate() throws IOException {
+		MockServerWebExchange exchange = exchange("deflate, gzip;q=0.5");
+		write(exchange, MediaType.APPLICATION_JSON, chunks(CONTENT, 100));
+
+		assertEquals("deflate", exchange.getResponse().getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+		byte[] body = body(exchange.getResponse());
+		assertEquals(CONTENT, read(new InflaterInputStream(new ByteArrayInputStream(body))));
+	}
+
+	@Test
+	public void selectCoding() {
+		assertEquals("gzip", CompressionWebFilter.selectCoding(Collections.singletonList("deflate, gzip")));
+		assertEquals("gzip", CompressionWebFilter.selectCoding(Arrays.asList("br", "*")));
+		assertEquals("deflate", CompressionWebFilter.selectCoding(Collections.singletonList("gzip;q=0, deflate")));
+		assertNull(CompressionWebFilter.selectCoding(Collections.singletonList("identity, br")));
+		assertNull(CompressionWebFilter.selectCoding(Collections.singletonList("gzip;q=0")));
+		assertNull(CompressionWebFilter.selectCoding(null));
+	}
+
+	@Test
+	public void noAcceptEncoding() {
+		MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/"));
+		write(exchange, MediaType.TEXT_PLAIN, chunks(CONTENT, 100));
+
+		HttpHeaders headers = exchange.getResponse().getHeaders();
+		assertFalse(headers.containsKey(HttpHeaders.CONTENT_ENCODING));
+		assertEquals(Collections.singletonList(HttpHeaders.ACCEPT_ENCODING), headers.getVary());
+		assertEquals(CONTENT, new String(body(exchange.getResponse()), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void belowMinResponseSize() {
+		MockServerWebExchange exchange = exchange("gzip");
+		write(exchange, MediaType.TEXT_PLAIN, Mono.just(buffer("Hello")));
+
+		HttpHeaders headers = exchange.getResponse().getHeaders();
+		assertFalse(headers.containsKey(HttpHeaders.CONTENT_ENCODING));
+		assertEquals(Collections.singletonList(HttpHeaders.ACCEPT_ENCODING), headers.getVary());
+		assertEquals("Hello", new String(body(exchange.getResponse()), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void partialContent() {
+		MockServerWebExchange exchange = exchange("gzip");
+		WebFilterChain chain = filteredExchange -> {
+			filteredExchange.getResponse().setStatusCode(HttpStatus.PARTIAL_CONTENT);
+			filteredExchange.getResponse().getHeaders().setContentType(MediaType.TEXT_PLAIN);
+			return filteredExchange.getResponse().writeWith(chunks(CONTENT, 100));
+		};
+		this.filter.filter(exchange, chain).block(Duration.ofSeconds(5));
+
+		HttpHeaders headers = exchange.getResponse().getHeaders();
+		assertFalse(headers.containsKey(HttpHeaders.CONTENT_ENCODING));
+		assertEquals(Collections.singletonList(HttpHeaders.ACCEPT_ENCODING), headers.getVary());
+		assertEquals(CONTENT.length(), body(exchange.getResponse()).length);
+	}
+
+	@Test
+	public void contentRange() {
+		MockServerWebExchange exchange = exchange("gzip");
+		WebFilterChain chain = filteredExchange -> {
+			HttpHeaders headers = filteredExchange.getResponse().getHeaders();
+			headers.setContentType(MediaType.TEXT_PLAIN);
+			headers.set(HttpHeaders.CONTENT_RANGE, "bytes 0-" + (CONTENT.length() - 1) + "/" + CONTENT.length());
+			return filteredExchange.getResponse().writeWith(chunks(CONTENT, 100));
+		};
+		this.filter.filter(exchange, chain).block(Duration.ofSeconds(5));
+
+		assertFalse(exchange.getResponse().getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING));
+		assertEquals(CONTENT.length(), body(exchange.getResponse()).length);
+	}
+
+	@Test
+	public void excludedMediaType() {
+		MockServerWebExchange exchange = exchange("gzip");
+		write(exchange, MediaType.IMAGE_PNG, chunks(CONTENT, 100));
+
+		assertFalse(exchange.getResponse().getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING));
+		assertFalse(exchange.getResponse().getHeaders().containsKey(HttpHeaders.VARY));
+		assertEquals(CONTENT.length(), body(exchange.getResponse()).length);
+	}
+
+	@Test
+	public void alreadyEncoded() {
+		MockServerWebExchange exchange = exchange("gzip");
+		WebFilterChain chain = filteredExchange -> {
+			filteredExchange.getResponse().getHeaders().set(HttpHeaders.CONTENT_ENCODING, "br");
+			filteredExchange.getResponse().getHeaders().setContentType(MediaType.TEXT_PLAIN);
+			return filteredExchange.getResponse().writeWith(chunks(CONTENT, 100));
+		};
+		this.filter.filter(exchange, chain).block(Duration.ofSeconds(5));
+
+		assertEquals("br", exchange.getResponse().getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+		assertEquals(CONTENT.length(), body(exchange.getResponse()).length);
+	}
+
+	@Test
+	public void flushEachEventWhenStreaming() throws Exception {
+		MockServerWebExchange exchange = exchange("gzip");
+		List<DataBuffer> written = new ArrayList<>();
+		exchange.getResponse().setWriteHandler(body -> {
+			body.subscribe(written::add);
+			return Mono.never();
+		});
+		Flux<Flux<DataBuffer>> events = Flux.just(Flux.just(buffer("data:foo\n\n")), Flux.never());
+		WebFilterChain chain = filteredExchange -> {
+			filteredExchange.getResponse().getHeaders().setContentType(MediaType.TEXT_EVENT_STREAM);
+			return filteredExchange.getResponse().writeAndFlushWith(events);
+		};
+		this.filter.filter(exchange, chain).subscribe();
+
+		// The stream is not finished, but everything written so far must be decompressible
+		byte[] bytes = toByteArray(written);
+		assertEquals(0x1f, bytes[0]);
+		Inflater inflater = new Inflater(true);
+		inflater.setInput(bytes, 10, bytes.length - 10);
+		byte[] result = new byte[100];
+		int count = inflater.inflate(result);
+		inflater.end();
+		assertEquals("data:foo\n\n", new String(result, 0, count, StandardCharsets.UTF_8));
+	}
+
+
+	private MockServerWebExchange exchange(String acceptEncoding) {
+		return MockServerWebExchange.from(MockServerHttpRequest.get("/")
+				.header(HttpHeaders.ACCEPT_ENCODING, acceptEncoding));
+	}
+
+	private void write(ServerWebExchange exchange, MediaType contentType, Publisher<DataBuffer> body) {
+		WebFilterChain chain = filteredExchange -> {
+			filteredExchange.getResponse().getHeaders().setContentType(contentType);
+			return filteredExchange.getResponse().writeWith(body);
+		};
+		this.filter.filter(exchange, chain).block(Duration.ofSeconds(5));
+	}
+
+	private Flux<DataBuffer> chunks(String content, int chunkSize) {
+		List<DataBuffer> chunks = new ArrayList<>();
+		for (int i = 0; i < content.length(); i += chunkSize) {
+			chunks.add(buffer(content.substring(i, Math.min(i + chunkSize, content.length()))));
+		}
+		return Flux.fromIterable(chunks);
+	}
+
+	private DataBuffer buffer(String value) {
+		return new DefaultDataBufferFactory().wrap(value.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private byte[] body(MockServerHttpResponse response) {
+		List<DataBuffer> buffers = response.getBody().collectList().block(Duration.ofSeconds(5));
+		assertNotNull(buffers);
+		return toByteArray(buffers);
+	}
+
+	private static byte[] toByteArray(List<DataBuffer> buffers) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		for (DataBuffer buffer : buffers) {
+			byte[] bytes = new byte[buffer.readableByteCount()];
+			buffer.read(bytes);
+			DataBufferUtils.release(buffer);
+			out.write(bytes, 0, bytes.length);
+		}
+		return out.toByteArray();
+	}
+
+	private static String read(InputStream inputStream) throws IOException {
+		return StreamUtils.copyToString(inputStream, StandardCharsets.UTF_8);
+	}
+
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.util;
+
+import org.junit.Test;
+
+import org.springframework.http.server.RequestPath;
+import org.springframework.mock.web.test.MockHttpServletRequest;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link ServletRequestPathUtils}.
+ *
+ * @author agent
+ */
+public class ServletRequestPathUtilsTests {
+
+	@Test
+	public void parseAndCache() {
+		// basic
+		testParseAndCache("/app/servlet/a/b/c", "/app", "/servlet", "/a/b/c");
+
+		// contextPath only, servletPath only, multi-segment contextPath and servletPath
+		testParseAndCache("/app/a/b/c", "/app", "", "/a/b/c");
+		testParseAndCache("/servlet/a/b/c", "", "/servlet", "/a/b/c");
+		testParseAndCache("/app1/app2/servlet1/servlet2/a", "/app1/app2", "/servlet1/servlet2", "/a");
+
+		// trailing slash
+		testParseAndCache("/app/servlet/a/", "/app", "/servlet", "/a/");
+		testParseAndCache("/app/servlet/a//", "/app", "/servlet", "/a//");
+
+		// encoded servlet path
+		testParseAndCache("/app/serv%20let/a", "/app", "/serv let", "/a");
+	}
+
+	@Test
+	public void parseWithoutPathInfo() {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/app/a/b");
+		request.setContextPath("/app");
+		request.setServletPath("/a/b");
+
+		RequestPath requestPath = ServletRequestPathUtils.parseAndCache(request);
+		assertEquals("/app", requestPath.contextPath().value());
+		assertEquals("/a/b", requestPath.pathWithinApplication().value());
+	}
+
+	@Test
+	public void parseWithServletPathParameters() {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/app/servlet;a=b/c");
+		request.setContextPath("/app");
+		request.setServletPath("/servlet");
+		request.setPathInfo("/c");
+
+		RequestPath requestPath = ServletRequestPathUtils.parseAndCache(request);
+		assertEquals("/app", requestPath.contextPath().value());
+		assertEquals("/servlet;a=b/c", requestPath.pathWithinApplication().value());
+	}
+
+	@Test
+	public void parseIncludeRequest() {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/app/servlet/a");
+		request.setContextPath("/app");
+		request.setServletPath("/servlet");
+		request.setPathInfo("/a");
+		request.setAttribute(WebUtils.INCLUDE_REQUEST_URI_ATTRIBUTE, "/app/b/c");
+		request.setAttribute(WebUtils.INCLUDE_CONTEXT_PATH_ATTRIBUTE, "/app");
+		request.setAttribute(WebUtils.INCLUDE_SERVLET_PATH_ATTRIBUTE, "/b/c");
+
+		RequestPath requestPath = ServletRequestPathUtils.parseAndCache(request);
+		assertEquals("/app/b/c", requestPath.value());
+		assertEquals("/b/c", requestPath.pathWithinApplication().value());
+	}
+
+	@Test
+	public void setAndClear() {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/a");
+		assertFalse(ServletRequestPathUtils.hasParsedRequestPath(request));
+
+		RequestPath requestPath = ServletRequestPathUtils.parseAndCache(request);
+		assertTrue(ServletRequestPathUtils.hasParsedRequestPath(request));
+		assertSame(requestPath, ServletRequestPathUtils.getParsedRequestPath(request));
+
+		ServletRequestPathUtils.setParsedRequestPath(null, request);
+		assertFalse(ServletRequestPathUtils.hasParsedRequestPath(request));
+		ServletRequestPathUtils.setParsedRequestPath(requestPath, request);
+		assertSame(requestPath, ServletRequestPathUtils.getParsedRequestPath(request));
+		ServletRequestPathUtils.clearParsedRequestPath(request);
+		assertFalse(ServletRequestPathUtils.hasParsedRequestPath(request));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void getParsedRequestPathWithoutParsing() {
+		ServletRequestPathUtils.getParsedRequestPath(new MockHttpServletRequest("GET", "/a"));
+	}
+
+	private void testParseAndCache(
+			String requestUri, String contextPath, String servletPath, String pathWithinApplication) {
+
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", requestUri);
+		request.setContextPath(contextPath);
+		request.setServletPath(servletPath);
+		request.setPathInfo(pathWithinApplication);
+
+		RequestPath requestPath = ServletRequestPathUtils.parseAndCache(request);
+
+		assertEquals(requestUri, requestPath.value());
+		assertEquals(contextPath, requestPath.contextPath().value());
+		assertEquals(pathWithinApplication, requestPath.pathWithinApplication().value());
+	}
+
+}
@@ -49,6 +49,18 @@ public class UrlPathHelperTests {
 		assertEquals("Incorrect path returned", "/welcome.html", helper.getPathWithinApplication(request));
 	}
 
+	@Test
+	public void resolveAndCacheLookupPath() {
+		request.setContextPath("/petclinic");
+		request.setRequestURI("/petclinic/welcome.html");
+
+		assertEquals("/welcome.html", helper.resolveAndCacheLookupPath(request));
+		request.setRequestURI("/petclinic/other.html");
+		assertEquals("/welcome.html", helper.getResolvedLookupPath(request));
+		assertEquals("/other.html", new UrlPathHelper().getResolvedLookupPath(request));
+		assertEquals("/other.html", helper.getLookupPathForRequest(request));
+	}
+
 	@Test
 	public void getPathWithinApplicationForRootWithNoLeadingSlash() {
 		request.setContextPath("/petclinic");
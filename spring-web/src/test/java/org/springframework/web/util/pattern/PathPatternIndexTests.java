@@ -0,0 +1,173 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.util.pattern;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import org.springframework.http.server.PathContainer;
+import org.springframework.util.AntPathMatcher;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link PathPatternIndex}.
+ *
+ * @author agent
+ */
+public class PathPatternIndexTests {
+
+	private static final List<String> PATTERNS = Arrays.asList(
+			"", "/", "/foo", "/foo/", "/foo/bar", "/foo/*", "/foo/{id}", "/foo/{id}/bar", "/foo/**",
+			"/foo/{*rest}", "/foo/b?r", "/foo/ba*", "/foo/{name}.{ext}", "/foo/{id:[0-9]*}/baz", "/**",
+			"/bar/{a}/{b}", "/bar//baz", "/Foo/Bar", "/{x:.*}/qux");
+
+	private static final List<String> PATHS = Arrays.asList(
+			"", "/", "//", "/foo", "/foo/", "/foo//", "/foo/bar", "/foo/bar/", "/foo/baz", "/foo/123/bar",
+			"/foo/a.b", "/foo/a.b/", "/foo//baz", "/foo/a/b/c", "/bar", "/bar/1/2", "/bar/1/2/", "/bar//baz",
+			"/FOO/BAR", "/Foo/Bar", "/foo;a=b/bar", "/foo/%62ar", "/qux", "//qux", "/a/qux", "/other");
+
+
+	private final PathPatternIndex<String> index = new PathPatternIndex<>();
+
+
+	@Test
+	public void literalLookup() {
+		PathPatternParser parser = new PathPatternParser();
+		this.index.add(parser.parse("/foo/bar"), "foobar");
+		this.index.add(parser.parse("/foo/baz"), "foobaz");
+		this.index.add(parser.parse("/foo/{id}"), "id");
+		this.index.add(parser.parse("/bar/**"), "bar");
+
+		assertEquals(set("foobar", "id"), this.index.getCandidates(PathContainer.parsePath("/foo/bar")));
+		assertEquals(set("foobaz", "id"), this.index.getCandidates(PathContainer.parsePath("/foo/baz/")));
+		assertEquals(set("id"), this.index.getCandidates(PathContainer.parsePath("/foo/qux")));
+		assertEquals(set("bar"), this.index.getCandidates(PathContainer.parsePath("/bar/a/b/c")));
+		assertEquals(set("bar"), this.index.getCandidates(PathContainer.parsePath("/bar")));
+		assertEquals(Collections.emptySet(), this.index.getCandidates(PathContainer.parsePath("/foo/bar/baz")));
+		assertEquals(Collections.emptySet(), this.index.getCandidates(PathContainer.parsePath("/qux")));
+	}
+
+	@Test
+	public void candidatesIncludeAllMatches() {
+		PathPatternParser parser = new PathPatternParser();
+		assertCandidatesIncludeAllMatches(parser);
+		parser.setMatchOptionalTrailingSeparator(false);
+		assertCandidatesIncludeAllMatches(parser);
+		parser.setCaseSensitive(false);
+		assertCandidatesIncludeAllMatches(parser);
+	}
+
+	@Test
+	public void caseInsensitiveLookup() {
+		PathPatternParser parser = new PathPatternParser();
+		parser.setCaseSensitive(false);
+		this.index.add(parser.parse("/Foo/Bar"), "foobar");
+
+		assertEquals(set("foobar"), this.index.getCandidates(PathContainer.parsePath("/FOO/bar")));
+		assertEquals(set("foobar"), this.index.getCandidates("/foo/BAR"));
+		assertEquals(Collections.emptySet(), this.index.getCandidates("/foo/baz"));
+	}
+
+	@Test
+	public void stringLookupComparesRawSegments() {
+		PathPatternParser parser = new PathPatternParser();
+		this.index.add(parser.parse("/foo/bar"), "foobar");
+		this.index.add(parser.parse("/foo/{id}/baz"), "baz");
+		this.index.add(parser.parse("/foo/a;b"), "semicolon");
+
+		assertEquals(set("foobar"), this.index.getCandidates("/foo/bar"));
+		assertEquals(set("foobar"), this.index.getCandidates("/foo/bar/"));
+		assertEquals(set("baz"), this.index.getCandidates("/foo/bar/baz"));
+		assertEquals(set("semicolon"), this.index.getCandidates("/foo/a;b"));
+		assertEquals(Collections.emptySet(), this.index.getCandidates("/foo/%62ar"));
+		assertEquals(Collections.emptySet(), this.index.getCandidates("/foo"));
+	}
+
+	@Test
+	public void stringLookupWithWildcardBeforeTrailingSeparator() {
+		// AntPathMatcher matches an empty segment for a "*" in front of a trailing separator
+		AntPathMatcher pathMatcher = new AntPathMatcher();
+		PathPatternParser parser = new PathPatternParser();
+		String[][] patternsAndPaths = {
+				{"/a/*/", "/a/"}, {"/{x}/*/", "/a/"}, {"/b*/*/", "/b/"}, {"/*/*/", "/1/"}, {"/*/", "/"}};
+		for (String[] patternAndPath : patternsAndPaths) {
+			this.index.add(parser.parse(patternAndPath[0]), patternAndPath[0]);
+		}
+		for (String[] patternAndPath : patternsAndPaths) {
+			assertTrue(pathMatcher.match(patternAndPath[0], patternAndPath[1]));
+			assertTrue("Pattern '" + patternAndPath[0] + "' should be a candidate for '" + patternAndPath[1] + "'",
+					this.index.getCandidates(patternAndPath[1]).contains(patternAndPath[0]));
+		}
+		assertEquals(Collections.emptySet(), this.index.getCandidates("/a/b/c/"));
+	}
+
+	@Test
+	public void catchAll() {
+		this.index.add(new PathPatternParser().parse("/foo"), "foo");
+		this.index.addCatchAll("all");
+
+		assertEquals(set("foo", "all"), this.index.getCandidates("/foo"));
+		assertEquals(set("all"), this.index.getCandidates("/bar/baz"));
+	}
+
+	@Test
+	public void remove() {
+		PathPatternParser parser = new PathPatternParser();
+		this.index.add(parser.parse("/foo/bar"), "foobar");
+		this.index.add(parser.parse("/foo/{id}"), "id");
+		this.index.add(parser.parse("/foo/*/baz"), "id");
+		this.index.addCatchAll("all");
+
+		this.index.remove("id");
+		assertEquals(set("foobar", "all"), this.index.getCandidates("/foo/bar"));
+		assertEquals(set("all"), this.index.getCandidates("/foo/bar/baz"));
+
+		this.index.remove("foobar");
+		this.index.remove("all");
+		assertTrue(this.index.isEmpty());
+	}
+
+
+	private void assertCandidatesIncludeAllMatches(PathPatternParser parser) {
+		PathPatternIndex<String> index = new PathPatternIndex<>();
+		for (String pattern : PATTERNS) {
+			index.add(parser.parse(pattern), pattern);
+		}
+		for (String path : PATHS) {
+			PathContainer container = PathContainer.parsePath(path);
+			Set<String> candidates = index.getCandidates(container);
+			for (String pattern : PATTERNS) {
+				if (parser.parse(pattern).matches(container)) {
+					assertTrue("Pattern '" + pattern + "' should be a candidate for '" + path + "'",
+							candidates.contains(pattern));
+				}
+			}
+			assertTrue("Too many candidates for '" + path + "': " + candidates, candidates.size() < PATTERNS.size());
+		}
+	}
+
+	private static Set<String> set(String... values) {
+		return new HashSet<>(Arrays.asList(values));
+	}
+
+}
@@ -0,0 +1,616 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.reactive.function.client;
+
+import java.net.URI;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.LimitedDataBufferList;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseCookie;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.util.StringUtils;
+import org.springframework.web.reactive.function.BodyExtractors;
+
+/**
+ * {@link ExchangeFilterFunction} that coalesces identical, concurrent GET
+ * requests into a single exchange, and optionally caches responses as per
+ * their HTTP caching headers.
+ *
+ * <p>Requests are identical when they have the same URL, headers, and
+ * cookies. The response of an exchange that is shared by several requests,
+ * or that is to be cached, is aggregated in memory as {@link DataBuffer}s,
+ * and each request receives a {@link ClientResponse} with retained slices
+ * of those buffers. Other responses are streamed through to the request
+ * that initiated the exchange, as are responses with a "Content-Length"
+ * over the {@link #setMaxInMemorySize(int) maxInMemorySize} and streaming
+ * responses such as "text/event-stream". Any other request that joined such
+ * an exchange performs an exchange of its own.
+ *
+ * <p>When a {@link #setCacheSize(int) cache size} is set, successful
+ * responses are kept in a bounded, least recently used cache, and served
+ * while fresh as per their "Cache-Control" (or "Expires") header. Once stale,
+ * entries with an "ETag" or "Last-Modified" header are revalidated with a
+ * conditional request, and served again if the server responds with 304
+ * (Not Modified). The "no-store" and "no-cache" directives are honored in
+ * both requests and responses. Since the cache belongs to the client, it is
+ * a private cache in terms of RFC 7234, and responses with "private" are
+ * cached too.
+ *
+ * @author agent
+ * @since 5.1.20
+ */
+public class CoalescingExchangeFilterFunction implements ExchangeFilterFunction {
+
+	private final Map<Key, InFlight> inFlight = new ConcurrentHashMap<>();
+
+	private final Map<Key, SharedResponse> cache = new LinkedHashMap<>(16, 0.75f, true);
+
+	private int maxInMemorySize = 256 * 1024;
+
+	private int cacheSize = 0;
+
+	private Clock clock = Clock.systemUTC();
+
+
+	/**
+	 * Set the maximum number of bytes of a response body to aggregate for
+	 * sharing or caching. A response with a larger "Content-Length" is not
+	 * aggregated but streamed through to one request. A response without
+	 * "Content-Length" that turns out to be larger is discarded, and each
+	 * request that joined the exchange performs an exchange of its own.
+	 * <p>By default this is set to 256K.
+	 */
+	public void setMaxInMemorySize(int maxInMemorySize) {
+		Assert.isTrue(maxInMemorySize > 0, "'maxInMemorySize' must be positive");
+		this.maxInMemorySize = maxInMemorySize;
+	}
+
+	/**
+	 * Return the configured maximum in-memory size of a response body.
+	 */
+	public int getMaxInMemorySize() {
+		return this.maxInMemorySize;
+	}
+
+	/**
+	 * Set the maximum number of responses to cache.
+	 * <p>By default this is set to 0, i.e. responses are shared between
+	 * concurrent requests only, and not cached.
+	 */
+	public void setCacheSize(int cacheSize) {
+		Assert.isTrue(cacheSize >= 0, "'cacheSize' must not be negative");
+		synchronized (this.cache) {
+			this.cacheSize = cacheSize;
+			evict();
+		}
+	}
+
+	/**
+	 * Return the configured maximum number of cached responses.
+	 */
+	public int getCacheSize() {
+		return this.cacheSize;
+	}
+
+	/**
+	 * Set the clock to use for determining the freshness of cached responses.
+	 * <p>By default this is {@link Clock#systemUTC()}.
+	 */
+	public void setClock(Clock clock) {
+		Assert.notNull(clock, "Clock must not be null");
+		this.clock = clock;
+	}
+
+	/**
+	 * Return the configured clock.
+	 */
+	public Clock getClock() {
+		return this.clock;
+	}
+
+	/**
+	 * Remove all cached responses, releasing their buffers.
+	 */
+	public void clearCache() {
+		synchronized (this.cache) {
+			this.cache.values().forEach(SharedResponse::release);
+			this.cache.clear();
+		}
+	}
+
+
+	@Override
+	public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+		if (request.method() != HttpMethod.GET || hasDirective(request.headers(), "no-store")) {
+			return next.exchange(request);
+		}
+		return Mono.defer(() -> {
+			Key key = new Key(request);
+			SharedResponse cached = (isCacheable(request) ? getCached(key) : null);
+			if (cached != null && cached.isFresh(this.clock.millis()) &&
+					!hasDirective(request.headers(), "no-cache")) {
+				ClientResponse response = cached.createResponse();
+				if (response != null) {
+					return Mono.just(response);
+				}
+			}
+			InFlight shared = this.inFlight.computeIfAbsent(key, k -> new InFlight(k, request, cached, next));
+			shared.join();
+			return shared.getResponse().flatMap(source -> {
+				ClientResponse response = source.createResponse();
+				// Released in the meantime, or not shared: exchange on its own
+				return (response != null ? Mono.just(response) : next.exchange(request));
+			});
+		});
+	}
+
+	private boolean isCacheable(ClientRequest request) {
+		HttpHeaders headers = request.headers();
+		return (this.cacheSize > 0 && !headers.containsKey(HttpHeaders.IF_NONE_MATCH) &&
+				!headers.containsKey(HttpHeaders.IF_MODIFIED_SINCE) && !headers.containsKey(HttpHeaders.RANGE));
+	}
+
+	@Nullable
+	private SharedResponse getCached(Key key) {
+		synchronized (this.cache) {
+			return this.cache.get(key);
+		}
+	}
+
+	private void store(Key key, SharedResponse response) {
+		synchronized (this.cache) {
+			if (this.cacheSize == 0) {
+				return;
+			}
+			response.setCached(true);
+			SharedResponse previous = this.cache.put(key, response);
+			if (previous != null && previous != response) {
+				previous.release();
+			}
+			evict();
+		}
+	}
+
+	private void remove(Key key) {
+		synchronized (this.cache) {
+			SharedResponse previous = this.cache.remove(key);
+			if (previous != null) {
+				previous.release();
+			}
+		}
+	}
+
+	private void evict() {
+		Iterator<SharedResponse> iterator = this.cache.values().iterator();
+		while (this.cache.size() > this.cacheSize && iterator.hasNext()) {
+			iterator.next().release();
+			iterator.remove();
+		}
+	}
+
+
+	private static boolean hasDirective(HttpHeaders headers, String directive) {
+		for (String value : headers.getValuesAsList(HttpHeaders.CACHE_CONTROL)) {
+			int index = value.indexOf('=');
+			String name = (index != -1 ? value.substring(0, index) : value).trim();
+			if (name.equalsIgnoreCase(directive)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static long getSecondsDirective(HttpHeaders headers, String directive) {
+		for (String value : headers.getValuesAsList(HttpHeaders.CACHE_CONTROL)) {
+			int index = value.indexOf('=');
+			if (index != -1 && value.substring(0, index).trim().equalsIgnoreCase(directive)) {
+				try {
+					return Long.parseLong(StringUtils.trimTrailingCharacter(
+							StringUtils.trimLeadingCharacter(value.substring(index + 1).trim(), '"'), '"'));
+				}
+				catch (NumberFormatException ex) {
+					return -1;
+				}
+			}
+		}
+		return -1;
+	}
+
+	private static long getDate(HttpHeaders headers, String headerName) {
+		try {
+			return headers.getFirstDate(headerName);
+		}
+		catch (IllegalArgumentException ex) {
+			return -1;
+		}
+	}
+
+	private static long determineFreshnessLifetime(HttpHeaders headers, long responseTime) {
+		if (hasDirective(headers, "no-cache")) {
+			return 0;
+		}
+		long maxAge = getSecondsDirective(headers, "max-age");
+		if (maxAge >= 0) {
+			return TimeUnit.SECONDS.toMillis(maxAge);
+		}
+		long expires = headers.getExpires();
+		if (expires != -1) {
+			long date = getDate(headers, HttpHeaders.DATE);
+			return Math.max(0, expires - (date != -1 ? date : responseTime));
+		}
+		return 0;
+	}
+
+	/**
+	 * Whether a response may be cached, and is worth caching.
+	 */
+	private static boolean isStorable(int statusCode, HttpHeaders headers, long freshnessLifetime) {
+		return (statusCode == HttpStatus.OK.value() && !hasDirective(headers, "no-store") &&
+				!headers.getVary().contains("*") &&
+				(freshnessLifetime > 0 || headers.getETag() != null || headers.containsKey(HttpHeaders.LAST_MODIFIED)));
+	}
+
+
+	/**
+	 * The identity of a request for coalescing and caching purposes.
+	 */
+	private static final class Key {
+
+		private final URI url;
+
+		private final HttpHeaders headers;
+
+		private final MultiValueMap<String, String> cookies;
+
+		private final int hashCode;
+
+		Key(ClientRequest request) {
+			this.url = request.url();
+			this.headers = request.headers();
+			this.cookies = request.cookies();
+			this.hashCode = this.url.hashCode() * 31 + this.headers.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof Key)) {
+				return false;
+			}
+			Key otherKey = (Key) other;
+			return (this.url.equals(otherKey.url) && this.headers.equals(otherKey.headers) &&
+					this.cookies.equals(otherKey.cookies));
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hashCode;
+		}
+	}
+
+
+	/**
+	 * A single exchange shared by all requests with the same key, while in flight.
+	 */
+	private final class InFlight {
+
+		private final Key key;
+
+		private final Mono<ResponseSource> response;
+
+		private final AtomicInteger requests = new AtomicInteger();
+
+		@Nullable
+		private volatile ResponseSource result;
+
+		InFlight(Key key, ClientRequest request, @Nullable SharedResponse cached, ExchangeFunction next) {
+			this.key = key;
+			ClientRequest requestToUse = (cached != null ? cached.createConditionalRequest(request) : request);
+			this.response = next.exchange(requestToUse)
+					.flatMap(response -> handleResponse(response, cached, isCacheable(request)))
+					.doOnNext(sharedResponse -> this.result = sharedResponse)
+					.doFinally(signal -> complete())
+					.cache();
+		}
+
+		/**
+		 * Register one more request for this exchange.
+		 */
+		void join() {
+			this.requests.incrementAndGet();
+		}
+
+		Mono<ResponseSource> getResponse() {
+			return this.response;
+		}
+
+		private Mono<ResponseSource> handleResponse(
+				ClientResponse response, @Nullable SharedResponse cached, boolean cacheable) {
+
+			long now = clock.millis();
+			if (cached != null && response.rawStatusCode() == HttpStatus.NOT_MODIFIED.value()) {
+				return response.bodyToMono(Void.class).then(Mono.fromCallable(() -> {
+					cached.revalidate(response.headers().asHttpHeaders(), now);
+					return cached;
+				}));
+			}
+			HttpHeaders headers = response.headers().asHttpHeaders();
+			boolean storable = (cacheable && isStorable(response.rawStatusCode(), headers,
+					determineFreshnessLifetime(headers, now)));
+			if (!canAggregate(headers) || (!storable && this.requests.get() <= 1)) {
+				if (cached != null) {
+					remove(this.key);
+				}
+				return Mono.just(new UnsharedResponse(response));
+			}
+			return aggregate(response)
+					.map(sharedResponse -> {
+						if (storable) {
+							store(this.key, sharedResponse);
+						}
+						else if (cached != null) {
+							remove(this.key);
+						}
+						return (ResponseSource) sharedResponse;
+					})
+					.onErrorResume(DataBufferLimitException.class, ex -> {
+						if (cached != null) {
+							remove(this.key);
+						}
+						return Mono.just(new UnsharedResponse(null));
+					});
+		}
+
+		private boolean canAggregate(HttpHeaders headers) {
+			if (headers.getContentLength() > maxInMemorySize) {
+				return false;
+			}
+			MediaType contentType;
+			try {
+				contentType = headers.getContentType();
+			}
+			catch (InvalidMediaTypeException ex) {
+				return true;
+			}
+			return (contentType == null || !(MediaType.TEXT_EVENT_STREAM.isCompatibleWith(contentType) ||
+					MediaType.APPLICATION_STREAM_JSON.isCompatibleWith(contentType)));
+		}
+
+		private Mono<SharedResponse> aggregate(ClientResponse response) {
+			long responseTime = clock.millis();
+			LimitedDataBufferList buffers = new LimitedDataBufferList(maxInMemorySize);
+			return response.body(BodyExtractors.toDataBuffers())
+					.doOnNext(buffers::add)
+					.doOnError(ex -> buffers.forEach(DataBufferUtils::release))
+					.doOnCancel(() -> buffers.forEach(DataBufferUtils::release))
+					.then(Mono.fromCallable(() -> new SharedResponse(response, buffers, responseTime)));
+		}
+
+		private void complete() {
+			inFlight.remove(this.key, this);
+			ResponseSource result = this.result;
+			if (result != null) {
+				result.releaseUnlessCached();
+			}
+		}
+	}
+
+
+	/**
+	 * The outcome of an exchange, from which each coalesced request obtains
+	 * its response.
+	 */
+	private interface ResponseSource {
+
+		/**
+		 * Create a response for one of the coalesced requests, or return
+		 * {@code null} if that request needs to exchange on its own.
+		 */
+		@Nullable
+		ClientResponse createResponse();
+
+		/**
+		 * Release the resources held for the coalesced requests, once these
+		 * have obtained their responses, unless still needed by the cache.
+		 */
+		void releaseUnlessCached();
+	}
+
+
+	/**
+	 * A response streamed through to the first of the coalesced requests,
+	 * leaving any others to exchange on their own.
+	 */
+	private static final class UnsharedResponse implements ResponseSource {
+
+		@Nullable
+		private ClientResponse response;
+
+		UnsharedResponse(@Nullable ClientResponse response) {
+			this.response = response;
+		}
+
+		@Override
+		@Nullable
+		public synchronized ClientResponse createResponse() {
+			ClientResponse response = this.response;
+			this.response = null;
+			return response;
+		}
+
+		@Override
+		public void releaseUnlessCached() {
+			ClientResponse response = createResponse();
+			if (response != null) {
+				response.bodyToMono(Void.class).subscribe();
+			}
+		}
+	}
+
+
+	/**
+	 * An aggregated response, shared by coalesced requests, and possibly cached.
+	 */
+	private static final class SharedResponse implements ResponseSource {
+
+		private final ExchangeStrategies strategies;
+
+		private final int statusCode;
+
+		private final HttpHeaders headers;
+
+		private final MultiValueMap<String, ResponseCookie> cookies;
+
+		private final List<DataBuffer> body;
+
+		private long responseTime;
+
+		private long freshnessLifetime;
+
+		private boolean cached;
+
+		private boolean released;
+
+		SharedResponse(ClientResponse response, List<DataBuffer> body, long responseTime) {
+			this.strategies = response.strategies();
+			this.statusCode = response.rawStatusCode();
+			this.headers = new HttpHeaders();
+			this.headers.putAll(response.headers().asHttpHeaders());
+			this.cookies = new LinkedMultiValueMap<>(response.cookies());
+			this.body = body;
+			this.responseTime = responseTime;
+			this.freshnessLifetime = determineFreshnessLifetime(this.headers, responseTime);
+		}
+
+		synchronized boolean isFresh(long now) {
+			long age = Math.max(0, now - this.responseTime) + parseAge();
+			return (this.freshnessLifetime > age);
+		}
+
+		private long parseAge() {
+			String age = this.headers.getFirst("Age");
+			if (age != null) {
+				try {
+					return TimeUnit.SECONDS.toMillis(Long.parseLong(age.trim()));
+				}
+				catch (NumberFormatException ex) {
+					// ignore
+				}
+			}
+			return 0;
+		}
+
+		synchronized ClientRequest createConditionalRequest(ClientRequest request) {
+			String etag = this.headers.getETag();
+			String lastModified = this.headers.getFirst(HttpHeaders.LAST_MODIFIED);
+			if (etag == null && lastModified == null) {
+				return request;
+			}
+			return ClientRequest.from(request)
+					.headers(headers -> {
+						if (etag != null) {
+							headers.set(HttpHeaders.IF_NONE_MATCH, etag);
+						}
+						if (lastModified != null) {
+							headers.set(HttpHeaders.IF_MODIFIED_SINCE, lastModified);
+						}
+					})
+					.build();
+		}
+
+		/**
+		 * Update the headers and freshness after a 304 (Not Modified) response.
+		 */
+		synchronized void revalidate(HttpHeaders notModifiedHeaders, long now) {
+			for (String headerName : new String[] {HttpHeaders.CACHE_CONTROL, HttpHeaders.EXPIRES,
+					HttpHeaders.DATE, HttpHeaders.ETAG, HttpHeaders.LAST_MODIFIED, HttpHeaders.VARY}) {
+				List<String> values = notModifiedHeaders.get(headerName);
+				if (values != null) {
+					this.headers.put(headerName, values);
+				}
+			}
+			this.headers.remove("Age");
+			this.responseTime = now;
+			this.freshnessLifetime = determineFreshnessLifetime(this.headers, now);
+		}
+
+		/**
+		 * Create a response with retained slices of the body buffers, or
+		 * return {@code null} if the buffers have already been released.
+		 */
+		@Override
+		@Nullable
+		public synchronized ClientResponse createResponse() {
+			if (this.released) {
+				return null;
+			}
+			List<DataBuffer> slices = new ArrayList<>(this.body.size());
+			for (DataBuffer buffer : this.body) {
+				slices.add(DataBufferUtils.retain(buffer.slice(buffer.readPosition(), buffer.readableByteCount())));
+			}
+			return ClientResponse.create(this.statusCode, this.strategies)
+					.headers(headers -> headers.putAll(this.headers))
+					.cookies(cookies -> cookies.putAll(this.cookies))
+					.body(Flux.fromIterable(slices))
+					.build();
+		}
+
+		synchronized void setCached(boolean cached) {
+			this.cached = cached;
+		}
+
+		@Override
+		public synchronized void releaseUnlessCached() {
+			if (!this.cached) {
+				release();
+			}
+		}
+
+		synchronized void release() {
+			if (!this.released) {
+				this.released = true;
+				this.cached = false;
+				this.body.forEach(DataBufferUtils::release);
+			}
+		}
+	}
+
+}
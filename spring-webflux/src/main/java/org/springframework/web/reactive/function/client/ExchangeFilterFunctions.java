@@ -17,18 +17,23 @@
 package org.springframework.web.reactive.function.client;
 
 import java.nio.charset.Charset;
+import java.time.Duration;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
 
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
 
 import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.client.reactive.ClientHttpObservation;
+import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
 import org.springframework.web.reactive.function.BodyExtractors;
 
@@ -87,6 +92,34 @@ public abstract class ExchangeFilterFunctions {
 						Mono.error(exceptionFunction.apply(response)) : Mono.just(response)));
 	}
 
+	/**
+	 * Return a filter that records the timings of each exchange with the given
+	 * recorder, once the response body has been consumed, or when the exchange
+	 * fails or is cancelled. An exchange whose response body has not been
+	 * subscribed to by the time the response is emitted is recorded right then,
+	 * without a body phase.
+	 * <p>Samples are tagged with the URI template of requests created through
+	 * {@link WebClient} with a template (or {@link ExchangeSample#NO_URI_TEMPLATE}
+	 * otherwise), the HTTP method, and the response status. Connect and time to first byte phases
+	 * are reported by connectors that support {@link ClientHttpObservation},
+	 * such as the Reactor Netty and Jetty connectors.
+	 * @param recorder the recorder to pass samples to
+	 * @return the filter to record metrics with
+	 * @since 5.1.20
+	 * @see HistogramExchangeMetricsRecorder
+	 */
+	public static ExchangeFilterFunction recordMetrics(ExchangeMetricsRecorder recorder) {
+		Assert.notNull(recorder, "ExchangeMetricsRecorder must not be null");
+		return (request, next) -> Mono.defer(() -> {
+			ExchangeRecording recording = new ExchangeRecording(request, recorder);
+			return next.exchange(request)
+					.map(recording::onResponse)
+					.doOnError(ex -> recording.record(null, ex, false))
+					.doFinally(signal -> recording.onExchangeFinally())
+					.subscriberContext(recording.observation::addTo);
+		});
+	}
+
 	/**
 	 * Return a filter that applies HTTP Basic Authentication to the request
 	 * headers via {@link HttpHeaders#setBasicAuth(String, String)}.
@@ -188,4 +221,62 @@ public abstract class ExchangeFilterFunctions {
 		}
 	}
 
+
+	/**
+	 * Tracks a single exchange for {@link #recordMetrics}, recording it once.
+	 */
+	private static final class ExchangeRecording {
+
+		private final ClientHttpObservation observation = new ClientHttpObservation();
+
+		private final ClientRequest request;
+
+		private final ExchangeMetricsRecorder recorder;
+
+		private final AtomicBoolean recorded = new AtomicBoolean();
+
+		@Nullable
+		private volatile Integer status;
+
+		private volatile boolean bodySubscribed;
+
+		ExchangeRecording(ClientRequest request, ExchangeMetricsRecorder recorder) {
+			this.request = request;
+			this.recorder = recorder;
+		}
+
+		ClientResponse onResponse(ClientResponse response) {
+			this.observation.responseReceived();
+			Integer status = response.rawStatusCode();
+			this.status = status;
+			Flux<DataBuffer> body = response.body(BodyExtractors.toDataBuffers())
+					.doOnSubscribe(subscription -> this.bodySubscribed = true)
+					.doOnError(ex -> record(status, ex, false))
+					.doFinally(signal -> record(status, null, signal == SignalType.ON_COMPLETE));
+			return ClientResponse.from(response).body(body).build();
+		}
+
+		void onExchangeFinally() {
+			// No response, or a response whose body was not consumed right away
+			if (!this.bodySubscribed) {
+				record(this.status, null, false);
+			}
+		}
+
+		void record(@Nullable Integer status, @Nullable Throwable ex, boolean bodyComplete) {
+			if (!this.recorded.compareAndSet(false, true)) {
+				return;
+			}
+			Duration total = Duration.ofNanos(System.nanoTime() - this.observation.getStartNanos());
+			this.recorder.record(new ExchangeSample(getUriTemplate(), this.request.method(), status, ex,
+					this.observation.getConnectDuration(), this.observation.getTimeToFirstByte(),
+					(bodyComplete ? total : null), total));
+		}
+
+		private String getUriTemplate() {
+			Object uriTemplate = this.request.attribute(DefaultWebClient.URI_TEMPLATE_ATTRIBUTE).orElse(null);
+			return (uriTemplate != null ? uriTemplate.toString() : ExchangeSample.NO_URI_TEMPLATE);
+		}
+	}
+
 }
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.reactive.function.client;
+
+/**
+ * Strategy to record the {@link ExchangeSample samples} of completed
+ * exchanges, for use with {@link ExchangeFilterFunctions#recordMetrics}.
+ *
+ * <p>Implementations are invoked on the thread that completes the exchange,
+ * typically an event loop thread, and must not block.
+ *
+ * @author agent
+ * @since 5.1.20
+ * @see HistogramExchangeMetricsRecorder
+ */
+@FunctionalInterface
+public interface ExchangeMetricsRecorder {
+
+	/**
+	 * Record the given sample.
+	 * @param sample the timings and tags of a completed exchange
+	 */
+	void record(ExchangeSample sample);
+
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.reactive.function.client;
+
+import java.time.Duration;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.lang.Nullable;
+
+/**
+ * Timings and tags of a completed exchange, as recorded by
+ * {@link ExchangeFilterFunctions#recordMetrics}.
+ *
+ * <p>Phase durations are measured from the start of the exchange, and are
+ * {@code null} when the phase was not reached, or when the connector does
+ * not report it.
+ *
+ * @author agent
+ * @since 5.1.20
+ */
+public final class ExchangeSample {
+
+	/**
+	 * The {@link #getUriTemplate() URI template} of requests not created
+	 * through {@link WebClient} with a template.
+	 */
+	public static final String NO_URI_TEMPLATE = "none";
+
+
+	private final String uriTemplate;
+
+	private final HttpMethod method;
+
+	@Nullable
+	private final Integer status;
+
+	@Nullable
+	private final Throwable exception;
+
+	@Nullable
+	private final Duration connect;
+
+	@Nullable
+	private final Duration timeToFirstByte;
+
+	@Nullable
+	private final Duration bodyComplete;
+
+	private final Duration total;
+
+
+	ExchangeSample(String uriTemplate, HttpMethod method, @Nullable Integer status, @Nullable Throwable exception,
+			@Nullable Duration connect, @Nullable Duration timeToFirstByte, @Nullable Duration bodyComplete,
+			Duration total) {
+
+		this.uriTemplate = uriTemplate;
+		this.method = method;
+		this.status = status;
+		this.exception = exception;
+		this.connect = connect;
+		this.timeToFirstByte = timeToFirstByte;
+		this.bodyComplete = bodyComplete;
+		this.total = total;
+	}
+
+
+	/**
+	 * Return the URI template of the request, if created through
+	 * {@link WebClient} with a template, or {@link #NO_URI_TEMPLATE} otherwise.
+	 * The URI path is not used in its place since it would create a separate
+	 * tag value for every distinct URI.
+	 */
+	public String getUriTemplate() {
+		return this.uriTemplate;
+	}
+
+	/**
+	 * Return the HTTP method of the request.
+	 */
+	public HttpMethod getMethod() {
+		return this.method;
+	}
+
+	/**
+	 * Return the raw status code of the response, or {@code null} if no
+	 * response was received.
+	 */
+	@Nullable
+	public Integer getStatus() {
+		return this.status;
+	}
+
+	/**
+	 * Return the exception the exchange or the response body failed with, if any.
+	 */
+	@Nullable
+	public Throwable getException() {
+		return this.exception;
+	}
+
+	/**
+	 * Return the time until a connection was acquired, including DNS
+	 * resolution, connection establishment, and connection pool wait time.
+	 */
+	@Nullable
+	public Duration getConnect() {
+		return this.connect;
+	}
+
+	/**
+	 * Return the time until the response status and headers were received.
+	 */
+	@Nullable
+	public Duration getTimeToFirstByte() {
+		return this.timeToFirstByte;
+	}
+
+	/**
+	 * Return the time it took to read and decode the response body after
+	 * the response status and headers were received.
+	 */
+	@Nullable
+	public Duration getBody() {
+		return (this.bodyComplete != null && this.timeToFirstByte != null ?
+				this.bodyComplete.minus(this.timeToFirstByte) : null);
+	}
+
+	/**
+	 * Return the total time of the exchange, until the response body was
+	 * consumed or the exchange failed or was cancelled.
+	 */
+	public Duration getTotal() {
+		return this.total;
+	}
+
+
+	@Override
+	public String toString() {
+		return this.method + " " + this.uriTemplate + " " + (this.status != null ? this.status : "-") +
+				" connect=" + this.connect + ", timeToFirstByte=" + this.timeToFirstByte +
+				", body=" + getBody() + ", total=" + this.total;
+	}
+
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.reactive.function.client;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.ObjectUtils;
+
+/**
+ * {@link ExchangeMetricsRecorder} that keeps an in-memory latency
+ * {@link Histogram} per {@link Key tag combination} and {@link Phase phase}.
+ *
+ * <p>Histograms use logarithmic buckets with 8 linear sub-buckets each, so
+ * that recorded values, and therefore percentiles, are accurate to within
+ * 12.5%, at a fixed memory cost per histogram and without locking.
+ *
+ * @author agent
+ * @since 5.1.20
+ */
+public class HistogramExchangeMetricsRecorder implements ExchangeMetricsRecorder {
+
+	/**
+	 * The phases of an exchange that are recorded.
+	 */
+	public enum Phase {
+
+		/** Time until a connection was acquired, see {@link ExchangeSample#getConnect()}. */
+		CONNECT,
+
+		/** Time until the response headers were received, see {@link ExchangeSample#getTimeToFirstByte()}. */
+		FIRST_BYTE,
+
+		/** Time to read and decode the response body, see {@link ExchangeSample#getBody()}. */
+		BODY,
+
+		/** Total time of the exchange, see {@link ExchangeSample#getTotal()}. */
+		TOTAL
+	}
+
+
+	private final Map<Key, Histogram[]> histograms = new ConcurrentHashMap<>();
+
+
+	@Override
+	public void record(ExchangeSample sample) {
+		Key key = new Key(sample.getUriTemplate(), sample.getMethod(), sample.getStatus());
+		Histogram[] phases = this.histograms.computeIfAbsent(key, k -> createHistograms());
+		record(phases[Phase.CONNECT.ordinal()], sample.getConnect());
+		record(phases[Phase.FIRST_BYTE.ordinal()], sample.getTimeToFirstByte());
+		record(phases[Phase.BODY.ordinal()], sample.getBody());
+		record(phases[Phase.TOTAL.ordinal()], sample.getTotal());
+	}
+
+	private static Histogram[] createHistograms() {
+		Histogram[] phases = new Histogram[Phase.values().length];
+		for (int i = 0; i < phases.length; i++) {
+			phases[i] = new Histogram();
+		}
+		return phases;
+	}
+
+	private static void record(Histogram histogram, @Nullable Duration duration) {
+		if (duration != null) {
+			histogram.record(duration.toNanos());
+		}
+	}
+
+	/**
+	 * Return the tag combinations recorded so far.
+	 */
+	public Set<Key> getKeys() {
+		return Collections.unmodifiableSet(this.histograms.keySet());
+	}
+
+	/**
+	 * Return the histogram for the given tags and phase, or {@code null}
+	 * if nothing was recorded for the tags.
+	 */
+	@Nullable
+	public Histogram getHistogram(Key key, Phase phase) {
+		Histogram[] phases = this.histograms.get(key);
+		return (phases != null ? phases[phase.ordinal()] : null);
+	}
+
+	/**
+	 * Remove all recorded values.
+	 */
+	public void reset() {
+		this.histograms.clear();
+	}
+
+
+	/**
+	 * The tags of a recorded exchange.
+	 */
+	public static final class Key {
+
+		private final String uriTemplate;
+
+		private final HttpMethod method;
+
+		@Nullable
+		private final Integer status;
+
+		public Key(String uriTemplate, HttpMethod method, @Nullable Integer status) {
+			Assert.notNull(uriTemplate, "URI template must not be null");
+			Assert.notNull(method, "HttpMethod must not be null");
+			this.uriTemplate = uriTemplate;
+			this.method = method;
+			this.status = status;
+		}
+
+		public String getUriTemplate() {
+			return this.uriTemplate;
+		}
+
+		public HttpMethod getMethod() {
+			return this.method;
+		}
+
+		/**
+		 * Return the response status, or {@code null} for exchanges that
+		 * failed or were cancelled before a response was received.
+		 */
+		@Nullable
+		public Integer getStatus() {
+			return this.status;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof Key)) {
+				return false;
+			}
+			Key otherKey = (Key) other;
+			return (this.uriTemplate.equals(otherKey.uriTemplate) && this.method == otherKey.method &&
+					ObjectUtils.nullSafeEquals(this.status, otherKey.status));
+		}
+
+		@Override
+		public int hashCode() {
+			return (this.uriTemplate.hashCode() * 31 + this.method.hashCode()) * 31 +
+					ObjectUtils.nullSafeHashCode(this.status);
+		}
+
+		@Override
+		public String toString() {
+			return this.method + " " + this.uriTemplate + " " + (this.status != null ? this.status : "-");
+		}
+	}
+
+
+	/**
+	 * Lock-free latency histogram over nanosecond values.
+	 */
+	public static final class Histogram {
+
+		private static final int SUB_BUCKET_BITS = 3;
+
+		private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+		private final AtomicLongArray buckets = new AtomicLongArray((64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS);
+
+		private final LongAdder count = new LongAdder();
+
+		private final LongAdder sum = new LongAdder();
+
+		private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+		void record(long nanos) {
+			long value = Math.max(nanos, 0);
+			this.buckets.incrementAndGet(bucketIndex(value));
+			this.count.increment();
+			this.sum.add(value);
+			this.max.accumulate(value);
+		}
+
+		/**
+		 * Return the number of recorded values.
+		 */
+		public long getCount() {
+			return this.count.sum();
+		}
+
+		/**
+		 * Return the mean of the recorded values.
+		 */
+		public Duration getMean() {
+			long count = this.count.sum();
+			return Duration.ofNanos(count > 0 ? this.sum.sum() / count : 0);
+		}
+
+		/**
+		 * Return the largest recorded value.
+		 */
+		public Duration getMax() {
+			return Duration.ofNanos(this.max.get());
+		}
+
+		/**
+		 * Return the value at the given percentile, within the precision
+		 * of the histogram buckets.
+		 * @param percentile the percentile between 0.0 and 1.0, e.g. 0.99
+		 */
+		public Duration getPercentile(double percentile) {
+			Assert.isTrue(percentile >= 0 && percentile <= 1, "Percentile must be between 0.0 and 1.0");
+			long count = this.count.sum();
+			if (count == 0) {
+				return Duration.ZERO;
+			}
+			long rank = Math.max(1, (long) Math.ceil(percentile * count));
+			long seen = 0;
+			for (int i = 0; i < this.buckets.length(); i++) {
+				seen += this.buckets.get(i);
+				if (seen >= rank) {
+					return Duration.ofNanos(Math.min(bucketUpperBound(i), this.max.get()));
+				}
+			}
+			return getMax();
+		}
+
+		static int bucketIndex(long value) {
+			if (value < SUB_BUCKETS) {
+				return (int) value;
+			}
+			int exponent = 63 - Long.numberOfLeadingZeros(value);
+			int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+			return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+		}
+
+		static long bucketUpperBound(int index) {
+			if (index < SUB_BUCKETS) {
+				return index;
+			}
+			int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+			long subBucket = index % SUB_BUCKETS;
+			long lowerBound = (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+			return lowerBound + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+		}
+	}
+
+}
@@ -37,6 +37,7 @@ import reactor.core.publisher.Mono;
 import org.springframework.aop.support.AopUtils;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.core.MethodIntrospector;
+import org.springframework.http.server.PathContainer;
 import org.springframework.http.server.RequestPath;
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
@@ -47,6 +48,8 @@ import org.springframework.web.method.HandlerMethod;
 import org.springframework.web.reactive.HandlerMapping;
 import org.springframework.web.reactive.handler.AbstractHandlerMapping;
 import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternIndex;
 
 /**
  * Abstract base class for {@link HandlerMapping} implementations that define
@@ -315,7 +318,12 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 	@Nullable
 	protected HandlerMethod lookupHandlerMethod(ServerWebExchange exchange) throws Exception {
 		List<Match> matches = new ArrayList<>();
-		addMatchingMappings(this.mappingRegistry.getMappings().keySet(), matches, exchange);
+		Collection<T> candidates = this.mappingRegistry.getMappingsByPathIndex(
+				exchange.getRequest().getPath().pathWithinApplication());
+		if (candidates == null) {
+			candidates = this.mappingRegistry.getMappings().keySet();
+		}
+		addMatchingMappings(candidates, matches, exchange);
 
 		if (!matches.isEmpty()) {
 			Comparator<Match> comparator = new MatchComparator(getMappingComparator(exchange));
@@ -410,6 +418,24 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 	@Nullable
 	protected abstract T getMappingForMethod(Method method, Class<?> handlerType);
 
+	/**
+	 * Return the path patterns of the given mapping, provided that the mapping
+	 * can only match requests with a path that matches one of them. Mappings
+	 * are indexed by these patterns, so that a lookup only checks the mappings
+	 * with a pattern that may match the request path rather than going through
+	 * all mappings.
+	 * <p>The default implementation returns {@code null}.
+	 * @param mapping the mapping to get the patterns for
+	 * @return the path patterns, an empty set if the mapping matches any path,
+	 * or {@code null} if the mapping cannot be indexed by its path patterns
+	 * @since 5.1.20
+	 * @see PathPatternIndex
+	 */
+	@Nullable
+	protected Set<PathPattern> getMappingPathPatterns(T mapping) {
+		return null;
+	}
+
 	/**
 	 * Check if a mapping matches the current request and return a (potentially
 	 * new) mapping with conditions relevant to the current request.
@@ -443,6 +469,10 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 
 		private final Map<HandlerMethod, CorsConfiguration> corsLookup = new ConcurrentHashMap<>();
 
+		private final PathPatternIndex<T> pathIndex = new PathPatternIndex<>();
+
+		private int indexedMappingCount;
+
 		private final ReentrantReadWriteLock readWriteLock = new ReentrantReadWriteLock();
 
 		/**
@@ -453,6 +483,17 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 			return this.mappingLookup;
 		}
 
+		/**
+		 * Return the mappings with a pattern that may match the given path,
+		 * or {@code null} if mappings are not indexed. Not thread-safe.
+		 * @see #acquireReadLock()
+		 * @see #getMappingPathPatterns(Object)
+		 */
+		@Nullable
+		public Set<T> getMappingsByPathIndex(PathContainer path) {
+			return (this.indexedMappingCount > 0 ? this.pathIndex.getCandidates(path) : null);
+		}
+
 		/**
 		 * Return CORS configuration. Thread-safe for concurrent use.
 		 */
@@ -482,6 +523,7 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 				assertUniqueMethodMapping(handlerMethod, mapping);
 
 				this.mappingLookup.put(mapping, handlerMethod);
+				addToPathIndex(mapping);
 
 				CorsConfiguration corsConfig = initCorsConfiguration(handler, method, mapping);
 				if (corsConfig != null) {
@@ -495,6 +537,18 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 			}
 		}
 
+		private void addToPathIndex(T mapping) {
+			Set<PathPattern> patterns = getMappingPathPatterns(mapping);
+			if (patterns == null || patterns.isEmpty()) {
+				this.pathIndex.addCatchAll(mapping);
+				return;
+			}
+			for (PathPattern pattern : patterns) {
+				this.pathIndex.add(pattern, mapping);
+			}
+			this.indexedMappingCount++;
+		}
+
 		private void assertUniqueMethodMapping(HandlerMethod newHandlerMethod, T mapping) {
 			// 找到已存在的 method
 			HandlerMethod handlerMethod = this.mappingLookup.get(mapping);
@@ -516,6 +570,11 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 				}
 
 				this.mappingLookup.remove(definition.getMapping());
+				this.pathIndex.remove(definition.getMapping());
+				Set<PathPattern> patterns = getMappingPathPatterns(definition.getMapping());
+				if (patterns != null && !patterns.isEmpty()) {
+					this.indexedMappingCount--;
+				}
 				this.corsLookup.remove(definition.getHandlerMethod());
 			}
 			finally {
@@ -0,0 +1,270 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.reactive.function.client;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.junit.After;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.LeakAwareDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.BodyExtractors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link CoalescingExchangeFilterFunction}.
+ *
+ * @author agent
+ */
+public class CoalescingExchangeFilterFunctionTests {
+
+	private static final URI URL = URI.create("https://example.com/config");
+
+
+	private final CoalescingExchangeFilterFunction filter = new CoalescingExchangeFilterFunction();
+
+	private final LeakAwareDataBufferFactory bufferFactory = new LeakAwareDataBufferFactory();
+
+	private final List<ClientRequest> exchanged = new CopyOnWriteArrayList<>();
+
+	private Instant now = Instant.parse("2020-01-01T00:00:00Z");
+
+
+	@After
+	public void checkForLeaks() {
+		this.filter.clearCache();
+		this.bufferFactory.checkForLeaks();
+	}
+
+
+	@Test
+	public void coalesceConcurrentRequests() {
+		ExchangeFunction next = exchange(request -> response(HttpStatus.OK, "foo", headers -> {}),
+				Duration.ofMillis(100));
+
+		Flux<String> result = Flux.merge(
+				exchangeForBody(get(), next), exchangeForBody(get(), next), exchangeForBody(get(), next));
+
+		StepVerifier.create(result).expectNext("foo", "foo", "foo").verifyComplete();
+		assertEquals(1, this.exchanged.size());
+
+		StepVerifier.create(exchangeForBody(get(), next)).expectNext("foo").verifyComplete();
+		assertEquals(2, this.exchanged.size());
+	}
+
+	@Test
+	public void doNotCoalesceDifferentRequests() {
+		ExchangeFunction next = exchange(request -> response(HttpStatus.OK, "foo", headers -> {}),
+				Duration.ofMillis(100));
+		ClientRequest other = ClientRequest.create(HttpMethod.GET, URL).header(HttpHeaders.ACCEPT, "text/plain").build();
+		ClientRequest post = ClientRequest.create(HttpMethod.POST, URL).build();
+
+		Flux<String> result = Flux.merge(exchangeForBody(get(), next), exchangeForBody(other, next),
+				exchangeForBody(post, next), exchangeForBody(post, next));
+
+		StepVerifier.create(result).expectNextCount(4).verifyComplete();
+		assertEquals(4, this.exchanged.size());
+	}
+
+	@Test
+	public void cacheFreshResponse() {
+		this.filter.setCacheSize(10);
+		ExchangeFunction next = exchange(request -> response(HttpStatus.OK, "foo",
+				headers -> headers.setCacheControl("max-age=60")), Duration.ZERO);
+
+		StepVerifier.create(exchangeForBody(get(), next)).expectNext("foo").verifyComplete();
+		this.now = this.now.plusSeconds(59);
+		StepVerifier.create(exchangeForBody(get(), next)).expectNext("foo").verifyComplete();
+		assertEquals(1, this.exchanged.size());
+
+		this.now = this.now.plusSeconds(1);
+		StepVerifier.create(exchangeForBody(get(), next)).expectNext("foo").verifyComplete();
+		assertEquals(2, this.exchanged.size());
+	}
+
+	@Test
+	public void revalidateWithETag() {
+		this.filter.setCacheSize(10);
+		ExchangeFunction next = exchange(request -> {
+			if ("\"v1\"".equals(request.headers().getFirst(HttpHeaders.IF_NONE_MATCH))) {
+				return response(HttpStatus.NOT_MODIFIED, "", headers -> headers.setCacheControl("no-cache"));
+			}
+			return response(HttpStatus.OK, "foo", headers -> {
+				headers.setCacheControl("no-cache");
+				headers.setETag("\"v1\"");
+			});
+		}, Duration.ZERO);
+
+		StepVerifier.create(exchangeForBody(get(), next)).expectNext("foo").verifyComplete();
+		StepVerifier.create(this.filter.filter(get(), next).flatMap(response -> {
+					assertEquals(HttpStatus.OK, response.statusCode());
+					assertEquals("\"v1\"", response.headers().asHttpHeaders().getETag());
+					return response.bodyToMono(String.class);
+				}))
+				.expectNext("foo")
+				.verifyComplete();
+
+		assertEquals(2, this.exchanged.size());
+		assertNull(this.exchanged.get(0).headers().getFirst(HttpHeaders.IF_NONE_MATCH));
+		assertEquals("\"v1\"", this.exchanged.get(1).headers().getFirst(HttpHeaders.IF_NONE_MATCH));
+	}
+
+	@Test
+	public void doNotCacheNoStore() {
+		this.filter.setCacheSize(10);
+		ExchangeFunction next = exchange(request -> response(HttpStatus.OK, "foo",
+				headers -> headers.setCacheControl("no-store, max-age=60")), Duration.ZERO);
+
+		StepVerifier.create(exchangeForBody(get(), next)).expectNext("foo").verifyComplete();
+		StepVerifier.create(exchangeForBody(get(), next)).expectNext("foo").verifyComplete();
+		assertEquals(2, this.exchanged.size());
+	}
+
+	@Test
+	public void bypassCacheWithNoCacheRequest() {
+		this.filter.setCacheSize(10);
+		ExchangeFunction next = exchange(request -> response(HttpStatus.OK, "foo",
+				headers -> headers.setCacheControl("max-age=60")), Duration.ZERO);
+		ClientRequest noCache = ClientRequest.from(get()).header(HttpHeaders.CACHE_CONTROL, "no-cache").build();
+
+		StepVerifier.create(exchangeForBody(noCache, next)).expectNext("foo").verifyComplete();
+		StepVerifier.create(exchangeForBody(noCache, next)).expectNext("foo").verifyComplete();
+		assertEquals(2, this.exchanged.size());
+	}
+
+	@Test
+	public void evictLeastRecentlyUsed() {
+		this.filter.setCacheSize(1);
+		ExchangeFunction next = exchange(request -> response(HttpStatus.OK, request.url().getPath(),
+				headers -> headers.setCacheControl("max-age=60")), Duration.ZERO);
+		ClientRequest other = ClientRequest.create(HttpMethod.GET, URI.create("https://example.com/other")).build();
+
+		StepVerifier.create(exchangeForBody(get(), next)).expectNext("/config").verifyComplete();
+		StepVerifier.create(exchangeForBody(other, next)).expectNext("/other").verifyComplete();
+		StepVerifier.create(exchangeForBody(get(), next)).expectNext("/config").verifyComplete();
+		assertEquals(3, this.exchanged.size());
+	}
+
+	@Test
+	public void streamWhenNotShared() {
+		ExchangeFunction next = exchange(request -> ClientResponse.create(HttpStatus.OK)
+				.headers(headers -> headers.setContentType(MediaType.TEXT_PLAIN))
+				.body(Flux.concat(Flux.just(buffer("foo")), Flux.never()))
+				.build(), Duration.ZERO);
+
+		StepVerifier.create(exchangeForFirstBuffer(get(), next))
+				.consumeNextWith(DataBufferUtils::release)
+				.verifyComplete();
+		assertEquals(1, this.exchanged.size());
+	}
+
+	@Test
+	public void streamEventStream() {
+		ExchangeFunction next = exchange(request -> ClientResponse.create(HttpStatus.OK)
+				.headers(headers -> headers.setContentType(MediaType.TEXT_EVENT_STREAM))
+				.body(Flux.concat(Flux.just(buffer("data:foo\n\n")), Flux.never()))
+				.build(), Duration.ofMillis(100));
+
+		Flux<DataBuffer> result = Flux.merge(exchangeForFirstBuffer(get(), next), exchangeForFirstBuffer(get(), next));
+
+		StepVerifier.create(result)
+				.consumeNextWith(DataBufferUtils::release)
+				.consumeNextWith(DataBufferUtils::release)
+				.verifyComplete();
+		// Streamed through to the first request, the second one exchanged on its own
+		assertEquals(2, this.exchanged.size());
+	}
+
+	@Test
+	public void overMaxInMemorySize() {
+		this.filter.setMaxInMemorySize(2);
+		ExchangeFunction next = exchange(request -> response(HttpStatus.OK, "foo", headers -> {}),
+				Duration.ofMillis(100));
+
+		Flux<String> result = Flux.merge(exchangeForBody(get(), next), exchangeForBody(get(), next));
+
+		StepVerifier.create(result).expectNext("foo", "foo").verifyComplete();
+		// The shared response was discarded, and each request exchanged on its own
+		assertEquals(3, this.exchanged.size());
+	}
+
+	@Test
+	public void overMaxInMemorySizeWithContentLength() {
+		this.filter.setMaxInMemorySize(2);
+		ExchangeFunction next = exchange(request -> response(HttpStatus.OK, "foo",
+				headers -> headers.setContentLength(3)), Duration.ofMillis(100));
+
+		Flux<String> result = Flux.merge(exchangeForBody(get(), next), exchangeForBody(get(), next));
+
+		StepVerifier.create(result).expectNext("foo", "foo").verifyComplete();
+		// Streamed through to the first request, the second one exchanged on its own
+		assertEquals(2, this.exchanged.size());
+	}
+
+
+	private ClientRequest get() {
+		return ClientRequest.create(HttpMethod.GET, URL).build();
+	}
+
+	private Mono<String> exchangeForBody(ClientRequest request, ExchangeFunction next) {
+		this.filter.setClock(Clock.fixed(this.now, ZoneId.of("UTC")));
+		return this.filter.filter(request, next).flatMap(response -> response.bodyToMono(String.class));
+	}
+
+	private Flux<DataBuffer> exchangeForFirstBuffer(ClientRequest request, ExchangeFunction next) {
+		return this.filter.filter(request, next)
+				.flatMapMany(response -> response.body(BodyExtractors.toDataBuffers()))
+				.take(1);
+	}
+
+	private ExchangeFunction exchange(Function<ClientRequest, ClientResponse> handler, Duration delay) {
+		return request -> Mono.delay(delay).map(l -> {
+			this.exchanged.add(request);
+			return handler.apply(request);
+		});
+	}
+
+	private ClientResponse response(HttpStatus status, String body, Consumer<HttpHeaders> headers) {
+		return ClientResponse.create(status).headers(headers).body(Flux.just(buffer(body))).build();
+	}
+
+	private DataBuffer buffer(String value) {
+		DataBuffer buffer = this.bufferFactory.allocateBuffer();
+		buffer.write(value.getBytes(StandardCharsets.UTF_8));
+		return buffer;
+	}
+
+}
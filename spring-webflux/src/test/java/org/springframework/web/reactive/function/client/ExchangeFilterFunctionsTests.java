@@ -18,6 +18,8 @@ package org.springframework.web.reactive.function.client;
 
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.junit.Test;
 import reactor.core.publisher.Flux;
@@ -213,6 +215,102 @@ public class ExchangeFilterFunctionsTests {
 
 	}
 
+	@Test
+	public void recordMetrics() {
+		List<ExchangeSample> samples = new ArrayList<>();
+		ClientRequest request = ClientRequest.create(HttpMethod.GET, URI.create("https://example.com/users/1"))
+				.attribute(DefaultWebClient.URI_TEMPLATE_ATTRIBUTE, "/users/{id}")
+				.build();
+		ClientResponse response = ClientResponse.create(HttpStatus.OK)
+				.body(Flux.just(dataBuffer("foo", new DefaultDataBufferFactory())))
+				.build();
+
+		Mono<ClientResponse> result = ExchangeFilterFunctions.recordMetrics(samples::add)
+				.filter(request, req -> Mono.just(response));
+
+		StepVerifier.create(result.flatMap(res -> {
+					assertTrue(samples.isEmpty());
+					return res.bodyToMono(String.class);
+				}))
+				.expectNext("foo")
+				.verifyComplete();
+
+		assertEquals(1, samples.size());
+		ExchangeSample sample = samples.get(0);
+		assertEquals("/users/{id}", sample.getUriTemplate());
+		assertEquals(HttpMethod.GET, sample.getMethod());
+		assertEquals(Integer.valueOf(200), sample.getStatus());
+		assertNull(sample.getException());
+		assertNull(sample.getConnect());
+		assertNotNull(sample.getTimeToFirstByte());
+		assertNotNull(sample.getBody());
+		assertTrue(sample.getTotal().compareTo(sample.getTimeToFirstByte()) >= 0);
+	}
+
+	@Test
+	public void recordMetricsOnError() {
+		List<ExchangeSample> samples = new ArrayList<>();
+		ClientRequest request = ClientRequest.create(HttpMethod.POST, URI.create("https://example.com/users")).build();
+		IllegalStateException exception = new IllegalStateException();
+
+		Mono<ClientResponse> result = ExchangeFilterFunctions.recordMetrics(samples::add)
+				.filter(request, req -> Mono.error(exception));
+
+		StepVerifier.create(result).expectErrorMatches(ex -> ex == exception).verify();
+
+		assertEquals(1, samples.size());
+		ExchangeSample sample = samples.get(0);
+		assertEquals(ExchangeSample.NO_URI_TEMPLATE, sample.getUriTemplate());
+		assertNull(sample.getStatus());
+		assertSame(exception, sample.getException());
+		assertNull(sample.getTimeToFirstByte());
+		assertNull(sample.getBody());
+	}
+
+	@Test
+	public void recordMetricsWhenBodyNotConsumed() {
+		List<ExchangeSample> samples = new ArrayList<>();
+		ClientRequest request = ClientRequest.create(HttpMethod.GET, URI.create("https://example.com/users/1")).build();
+		ClientResponse response = ClientResponse.create(HttpStatus.OK)
+				.body(Flux.just(dataBuffer("foo", new DefaultDataBufferFactory())))
+				.build();
+
+		Mono<ClientResponse> result = ExchangeFilterFunctions.recordMetrics(samples::add)
+				.filter(request, req -> Mono.just(response));
+
+		StepVerifier.create(result).expectNextCount(1).verifyComplete();
+
+		assertEquals(1, samples.size());
+		ExchangeSample sample = samples.get(0);
+		assertEquals(ExchangeSample.NO_URI_TEMPLATE, sample.getUriTemplate());
+		assertEquals(Integer.valueOf(200), sample.getStatus());
+		assertNotNull(sample.getTimeToFirstByte());
+		assertNull(sample.getBody());
+	}
+
+	@Test
+	public void recordMetricsWhenBodyCancelled() {
+		List<ExchangeSample> samples = new ArrayList<>();
+		ClientRequest request = ClientRequest.create(HttpMethod.GET, URI.create("https://example.com/users/1")).build();
+		ClientResponse response = ClientResponse.create(HttpStatus.OK)
+				.body(Flux.just(dataBuffer("foo", new DefaultDataBufferFactory()),
+						dataBuffer("bar", new DefaultDataBufferFactory())))
+				.build();
+
+		Mono<ClientResponse> result = ExchangeFilterFunctions.recordMetrics(samples::add)
+				.filter(request, req -> Mono.just(response));
+
+		StepVerifier.create(result.flatMapMany(res -> res.body(BodyExtractors.toDataBuffers())).take(1))
+				.consumeNextWith(DataBufferUtils::release)
+				.verifyComplete();
+
+		assertEquals(1, samples.size());
+		ExchangeSample sample = samples.get(0);
+		assertEquals(Integer.valueOf(200), sample.getStatus());
+		assertNull(sample.getException());
+		assertNull(sample.getBody());
+	}
+
 	private String string(DataBuffer buffer) {
 		String value = DataBufferTestUtils.dumpString(buffer, StandardCharsets.UTF_8);
 		DataBufferUtils.release(buffer);
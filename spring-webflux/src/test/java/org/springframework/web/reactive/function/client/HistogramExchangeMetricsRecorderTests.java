@@ -0,0 +1,100 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.reactive.function.client;
+
+import java.time.Duration;
+
+import org.junit.Test;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.web.reactive.function.client.HistogramExchangeMetricsRecorder.Histogram;
+import org.springframework.web.reactive.function.client.HistogramExchangeMetricsRecorder.Key;
+import org.springframework.web.reactive.function.client.HistogramExchangeMetricsRecorder.Phase;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link HistogramExchangeMetricsRecorder}.
+ *
+ * @author agent
+ */
+public class HistogramExchangeMetricsRecorderTests {
+
+	private final HistogramExchangeMetricsRecorder recorder = new HistogramExchangeMetricsRecorder();
+
+
+	@Test
+	public void recordByKeyAndPhase() {
+		this.recorder.record(sample("/users/{id}", 200, 10));
+		this.recorder.record(sample("/users/{id}", 200, 20));
+		this.recorder.record(sample("/users/{id}", 404, 5));
+		this.recorder.record(new ExchangeSample("/users/{id}", HttpMethod.GET, null, new IllegalStateException(),
+				null, null, null, Duration.ofMillis(1)));
+
+		assertEquals(3, this.recorder.getKeys().size());
+
+		Key ok = new Key("/users/{id}", HttpMethod.GET, 200);
+		assertEquals(2, this.recorder.getHistogram(ok, Phase.TOTAL).getCount());
+		assertEquals(2, this.recorder.getHistogram(ok, Phase.BODY).getCount());
+		assertEquals(Duration.ofMillis(20), this.recorder.getHistogram(ok, Phase.TOTAL).getMax());
+		assertEquals(Duration.ofMillis(15), this.recorder.getHistogram(ok, Phase.TOTAL).getMean());
+
+		Key failed = new Key("/users/{id}", HttpMethod.GET, null);
+		assertEquals(1, this.recorder.getHistogram(failed, Phase.TOTAL).getCount());
+		assertEquals(0, this.recorder.getHistogram(failed, Phase.FIRST_BYTE).getCount());
+
+		assertNull(this.recorder.getHistogram(new Key("/other", HttpMethod.GET, 200), Phase.TOTAL));
+		this.recorder.reset();
+		assertTrue(this.recorder.getKeys().isEmpty());
+	}
+
+	@Test
+	public void percentiles() {
+		Key key = new Key("/", HttpMethod.GET, 200);
+		for (int i = 1; i <= 1000; i++) {
+			this.recorder.record(sample("/", 200, i));
+		}
+		Histogram histogram = this.recorder.getHistogram(key, Phase.TOTAL);
+		assertEquals(1000, histogram.getCount());
+		assertWithinPrecision(Duration.ofMillis(500), histogram.getPercentile(0.5));
+		assertWithinPrecision(Duration.ofMillis(990), histogram.getPercentile(0.99));
+		assertEquals(Duration.ofMillis(1000), histogram.getPercentile(1.0));
+		assertWithinPrecision(Duration.ofMillis(1), histogram.getPercentile(0.0));
+	}
+
+	@Test
+	public void bucketBounds() {
+		for (long value : new long[] {0, 1, 7, 8, 9, 15, 16, 17, 1000, 123456789, Long.MAX_VALUE}) {
+			int index = Histogram.bucketIndex(value);
+			assertTrue(value <= Histogram.bucketUpperBound(index));
+			assertTrue(index == 0 || value > Histogram.bucketUpperBound(index - 1));
+		}
+	}
+
+
+	private ExchangeSample sample(String uriTemplate, int status, long totalMillis) {
+		Duration total = Duration.ofMillis(totalMillis);
+		return new ExchangeSample(uriTemplate, HttpMethod.GET, status, null,
+				total.dividedBy(4), total.dividedBy(2), total, total);
+	}
+
+	private static void assertWithinPrecision(Duration expected, Duration actual) {
+		double ratio = (double) actual.toNanos() / expected.toNanos();
+		assertTrue("Expected " + expected + " but was " + actual, ratio >= 1 && ratio <= 1.125);
+	}
+
+}
@@ -25,6 +25,7 @@ import java.nio.file.Files;
 import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Consumer;
 import java.util.zip.CRC32;
 
@@ -133,6 +134,27 @@ public class WebClientIntegrationTests {
 		});
 	}
 
+	@Test
+	public void shouldRecordMetrics() {
+		prepareResponse(response -> response.setBody("Hello Spring!"));
+		List<ExchangeSample> samples = new CopyOnWriteArrayList<>();
+		WebClient client = this.webClient.mutate().filter(ExchangeFilterFunctions.recordMetrics(samples::add)).build();
+
+		Mono<String> result = client.get().uri("/greeting/{name}", "Spring").retrieve().bodyToMono(String.class);
+
+		StepVerifier.create(result).expectNext("Hello Spring!").expectComplete().verify(Duration.ofSeconds(3));
+
+		assertEquals(1, samples.size());
+		ExchangeSample sample = samples.get(0);
+		assertEquals("/greeting/{name}", sample.getUriTemplate());
+		assertEquals(Integer.valueOf(200), sample.getStatus());
+		assertNotNull(sample.getConnect());
+		assertNotNull(sample.getTimeToFirstByte());
+		assertTrue(sample.getConnect().compareTo(sample.getTimeToFirstByte()) <= 0);
+		assertNotNull(sample.getBody());
+		expectRequestCount(1);
+	}
+
 	@Test
 	public void shouldReceivePlainText() {
 		prepareResponse(response -> response.setBody("Hello Spring!"));
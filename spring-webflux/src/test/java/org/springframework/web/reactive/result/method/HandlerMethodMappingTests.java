@@ -17,7 +17,9 @@
 package org.springframework.web.reactive.result.method;
 
 import java.lang.reflect.Method;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.Set;
 
 import org.hamcrest.Matchers;
 import org.junit.Before;
@@ -101,6 +103,26 @@ public class HandlerMethodMappingTests {
 		StepVerifier.create(result).expectError(IllegalStateException.class).verify();
 	}
 
+	@Test
+	public void pathPatternIndex() throws Exception {
+		this.mapping.registerMapping("/foo/{id}", this.handler, this.method1);
+		this.mapping.registerMapping("/bar/**", this.handler, this.method2);
+
+		assertEquals(Collections.singleton("/foo/{id}"),
+				this.mapping.getMappingRegistry().getMappingsByPathIndex(PathContainer.parsePath("/foo/1")));
+		assertEquals(Collections.singleton("/bar/**"),
+				this.mapping.getMappingRegistry().getMappingsByPathIndex(PathContainer.parsePath("/bar/1/2")));
+		assertEquals(Collections.emptySet(),
+				this.mapping.getMappingRegistry().getMappingsByPathIndex(PathContainer.parsePath("/baz")));
+
+		MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/foo/1"));
+		assertEquals(this.method1, ((HandlerMethod) this.mapping.getHandler(exchange).block()).getMethod());
+
+		this.mapping.unregisterMapping("/foo/{id}");
+		assertEquals(Collections.emptySet(),
+				this.mapping.getMappingRegistry().getMappingsByPathIndex(PathContainer.parsePath("/foo/1")));
+	}
+
 	@Test
 	public void registerMapping() throws Exception {
 		String key1 = "/foo";
@@ -155,6 +177,11 @@ public class HandlerMethodMappingTests {
 			return methodName.startsWith("handler") ? methodName : null;
 		}
 
+		@Override
+		protected Set<PathPattern> getMappingPathPatterns(String pattern) {
+			return Collections.singleton(this.parser.parse(pattern));
+		}
+
 		@Override
 		protected String getMatchingMapping(String pattern, ServerWebExchange exchange) {
 			PathContainer lookupPath = exchange.getRequest().getPath().pathWithinApplication();
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.servlet.mvc.method.annotation;
+
+import java.lang.reflect.Method;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.util.ClassUtils;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.context.support.StaticWebApplicationContext;
+import org.springframework.web.servlet.HandlerExecutionChain;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+
+/**
+ * Benchmarks for {@link RequestMappingHandlerMapping#getHandler}, exercising
+ * {@code AbstractHandlerMethodMapping#lookupHandlerMethod} for direct URL
+ * matches as well as for URI template matches with a growing number of
+ * registered mappings.
+ *
+ * <p>Typically run with {@code "./gradlew :spring-webmvc:jmh"}.
+ *
+ * @author agent
+ */
+@BenchmarkMode(Mode.Throughput)
+public class RequestMappingHandlerMappingBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class MappingData {
+
+		@Param({"10", "1500"})
+		public int mappingCount;
+
+		public RequestMappingHandlerMapping handlerMapping;
+
+		public MockHttpServletRequest directRequest;
+
+		public MockHttpServletRequest templateRequest;
+
+		public MockHttpServletRequest unmatchedRequest;
+
+		@Setup(Level.Trial)
+		public void setup() throws Exception {
+			StaticWebApplicationContext context = new StaticWebApplicationContext();
+			context.refresh();
+			this.handlerMapping = new RequestMappingHandlerMapping();
+			this.handlerMapping.setApplicationContext(context);
+			this.handlerMapping.afterPropertiesSet();
+
+			Controller controller = new Controller();
+			Method method = ClassUtils.getMethod(Controller.class, "handle");
+			for (int i = 0; i < this.mappingCount; i++) {
+				this.handlerMapping.registerMapping(RequestMappingInfo.paths("/static/resource" + i)
+						.methods(RequestMethod.GET).build(), controller, method);
+				this.handlerMapping.registerMapping(RequestMappingInfo.paths("/api/resource" + i + "/{id}")
+						.methods(RequestMethod.GET).build(), controller, method);
+			}
+
+			int last = this.mappingCount - 1;
+			this.directRequest = new MockHttpServletRequest("GET", "/static/resource" + last);
+			this.templateRequest = new MockHttpServletRequest("GET", "/api/resource" + last + "/42");
+			this.unmatchedRequest = new MockHttpServletRequest("GET", "/nothing/here");
+		}
+	}
+
+
+	@Benchmark
+	public HandlerExecutionChain directMatch(MappingData data) throws Exception {
+		return data.handlerMapping.getHandler(data.directRequest);
+	}
+
+	@Benchmark
+	public HandlerExecutionChain templateMatch(MappingData data) throws Exception {
+		return data.handlerMapping.getHandler(data.templateRequest);
+	}
+
+	@Benchmark
+	public HandlerExecutionChain noMatch(MappingData data) throws Exception {
+		return data.handlerMapping.getHandler(data.unmatchedRequest);
+	}
+
+
+	public static class Controller {
+
+		public String handle() {
+			return "handled";
+		}
+	}
+
+}
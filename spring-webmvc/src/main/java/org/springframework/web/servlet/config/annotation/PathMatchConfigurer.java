@@ -23,6 +23,7 @@ import java.util.function.Predicate;
 import org.springframework.lang.Nullable;
 import org.springframework.util.PathMatcher;
 import org.springframework.web.util.UrlPathHelper;
+import org.springframework.web.util.pattern.PathPatternParser;
 
 /**
  * Helps with configuring HandlerMappings path matching options such as trailing
@@ -42,6 +43,9 @@ import org.springframework.web.util.UrlPathHelper;
  */
 public class PathMatchConfigurer {
 
+	@Nullable
+	private PathPatternParser patternParser;
+
 	@Nullable
 	private Boolean suffixPatternMatch;
 
@@ -61,6 +65,22 @@ public class PathMatchConfigurer {
 	private Map<String, Predicate<Class<?>>> pathPrefixes;
 
 
+	/**
+	 * Enable use of parsed {@link org.springframework.web.util.pattern.PathPattern}s
+	 * as described in {@link org.springframework.web.servlet.handler.AbstractHandlerMapping#setPatternParser}
+	 * for request mappings, view controllers, resource handlers, and CORS mappings.
+	 * <p><strong>Note:</strong> This is mutually exclusive with the use of
+	 * {@link #setUrlPathHelper(UrlPathHelper)} and {@link #setPathMatcher(PathMatcher)}
+	 * for handler mapping purposes, and suffix pattern matching does not apply.
+	 * <p>By default this is not set.
+	 * @param patternParser the parser to pre-parse patterns with
+	 * @since 5.1.20
+	 */
+	public PathMatchConfigurer setPatternParser(PathPatternParser patternParser) {
+		this.patternParser = patternParser;
+		return this;
+	}
+
 	/**
 	 * Whether to use suffix pattern match (".*") when matching patterns to
 	 * requests. If enabled a method mapped to "/users" also matches to "/users.*".
@@ -137,6 +157,15 @@ public class PathMatchConfigurer {
 	}
 
 
+	/**
+	 * Return the {@link #setPatternParser configured} {@code PathPatternParser}, if any.
+	 * @since 5.1.20
+	 */
+	@Nullable
+	public PathPatternParser getPatternParser() {
+		return this.patternParser;
+	}
+
 	@Nullable
 	public Boolean isUseSuffixPatternMatch() {
 		return this.suffixPatternMatch;
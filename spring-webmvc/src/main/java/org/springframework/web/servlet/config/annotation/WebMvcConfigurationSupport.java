@@ -98,6 +98,7 @@ import org.springframework.web.servlet.resource.ResourceUrlProviderExposingInter
 import org.springframework.web.servlet.view.InternalResourceViewResolver;
 import org.springframework.web.servlet.view.ViewResolverComposite;
 import org.springframework.web.util.UrlPathHelper;
+import org.springframework.web.util.pattern.PathPatternParser;
 
 /**
  * This is the main class providing the configuration behind the MVC Java config.
@@ -291,6 +292,11 @@ public class WebMvcConfigurationSupport implements ApplicationContextAware, Serv
 		// getPathMatchConfigurer(...) 获取PathMatch配置，往下看
 		PathMatchConfigurer configurer = getPathMatchConfigurer();
 
+		PathPatternParser patternParser = configurer.getPatternParser();
+		if (patternParser != null) {
+			mapping.setPatternParser(patternParser);
+		}
+
 		Boolean useSuffixPatternMatch = configurer.isUseSuffixPatternMatch();
 		if (useSuffixPatternMatch != null) {
 			mapping.setUseSuffixPatternMatch(useSuffixPatternMatch);
@@ -467,6 +473,7 @@ public class WebMvcConfigurationSupport implements ApplicationContextAware, Serv
 		if (handlerMapping == null) {
 			return null;
 		}
+		initPatternParser(handlerMapping);
 		handlerMapping.setPathMatcher(mvcPathMatcher());
 		handlerMapping.setUrlPathHelper(mvcUrlPathHelper());
 		handlerMapping.setInterceptors(getInterceptors());
@@ -474,6 +481,13 @@ public class WebMvcConfigurationSupport implements ApplicationContextAware, Serv
 		return handlerMapping;
 	}
 
+	private void initPatternParser(AbstractHandlerMapping handlerMapping) {
+		PathPatternParser patternParser = getPathMatchConfigurer().getPatternParser();
+		if (patternParser != null) {
+			handlerMapping.setPatternParser(patternParser);
+		}
+	}
+
 	/**
 	 * Override this method to add view controllers.
 	 * @see ViewControllerRegistry
@@ -489,6 +503,7 @@ public class WebMvcConfigurationSupport implements ApplicationContextAware, Serv
 	public BeanNameUrlHandlerMapping beanNameHandlerMapping() {
 		BeanNameUrlHandlerMapping mapping = new BeanNameUrlHandlerMapping();
 		mapping.setOrder(2);
+		initPatternParser(mapping);
 		mapping.setInterceptors(getInterceptors());
 		mapping.setCorsConfigurations(getCorsConfigurations());
 		return mapping;
@@ -518,6 +533,7 @@ public class WebMvcConfigurationSupport implements ApplicationContextAware, Serv
 		}
 
 		//设置handlerMapping的path匹配器（一般是ant规则），urlPath工具，拦截器，cors配置。
+		initPatternParser(handlerMapping);
 		handlerMapping.setPathMatcher(mvcPathMatcher());
 		handlerMapping.setUrlPathHelper(mvcUrlPathHelper());
 		handlerMapping.setInterceptors(getInterceptors());
@@ -30,6 +30,7 @@ import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.BeanFactoryUtils;
 import org.springframework.beans.factory.BeanNameAware;
 import org.springframework.core.Ordered;
+import org.springframework.http.server.RequestPath;
 import org.springframework.lang.Nullable;
 import org.springframework.util.AntPathMatcher;
 import org.springframework.util.Assert;
@@ -48,7 +49,9 @@ import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 import org.springframework.web.servlet.HandlerExecutionChain;
 import org.springframework.web.servlet.HandlerInterceptor;
 import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.util.ServletRequestPathUtils;
 import org.springframework.web.util.UrlPathHelper;
+import org.springframework.web.util.pattern.PathPatternParser;
 
 /**
  * Abstract base class for {@link org.springframework.web.servlet.HandlerMapping}
@@ -76,6 +79,9 @@ public abstract class AbstractHandlerMapping extends WebApplicationObjectSupport
 	@Nullable
 	private Object defaultHandler;
 
+	@Nullable
+	private PathPatternParser patternParser;
+
 	private UrlPathHelper urlPathHelper = new UrlPathHelper();
 
 	private PathMatcher pathMatcher = new AntPathMatcher();
@@ -112,6 +118,44 @@ public abstract class AbstractHandlerMapping extends WebApplicationObjectSupport
 		return this.defaultHandler;
 	}
 
+	/**
+	 * Enable use of pre-parsed {@link org.springframework.web.util.pattern.PathPattern}s
+	 * as an alternative to String pattern matching with {@link PathMatcher}.
+	 * The syntax is largely the same but the {@code PathPattern} syntax is more
+	 * tailored for web applications, and its implementation is more efficient.
+	 * <p>This property is mutually exclusive with the following others which
+	 * are effectively ignored when this is set:
+	 * <ul>
+	 * <li>{@link #setAlwaysUseFullPath} -- {@code PathPatterns} always use the
+	 * full path within the application, minus the servlet path of a Servlet
+	 * mapped by prefix.
+	 * <li>{@link #setUrlDecode} -- {@code PathPatterns} match against the
+	 * encoded path and decode path segments individually.
+	 * <li>{@link #setRemoveSemicolonContent} -- {@code PathPatterns} ignore
+	 * semicolon content in path segments for matching purposes.
+	 * <li>{@link #setPathMatcher} -- patterns are parsed with the given parser.
+	 * </ul>
+	 * <p>By default this is not set.
+	 * @param patternParser the parser to use
+	 * @since 5.1.20
+	 */
+	public void setPatternParser(PathPatternParser patternParser) {
+		this.patternParser = patternParser;
+		if (this.corsConfigurationSource instanceof UrlBasedCorsConfigurationSource) {
+			((UrlBasedCorsConfigurationSource) this.corsConfigurationSource).setPatternParser(patternParser);
+		}
+	}
+
+	/**
+	 * Return the {@link #setPatternParser(PathPatternParser) configured}
+	 * {@code PathPatternParser}, or {@code null}.
+	 * @since 5.1.20
+	 */
+	@Nullable
+	public PathPatternParser getPatternParser() {
+		return this.patternParser;
+	}
+
 	/**
 	 * Shortcut to same property on underlying {@link #setUrlPathHelper UrlPathHelper}.
 	 * @see org.springframework.web.util.UrlPathHelper#setAlwaysUseFullPath(boolean)
@@ -213,6 +257,9 @@ public abstract class AbstractHandlerMapping extends WebApplicationObjectSupport
 		source.setCorsConfigurations(corsConfigurations);
 		source.setPathMatcher(this.pathMatcher);
 		source.setUrlPathHelper(this.urlPathHelper);
+		if (this.patternParser != null) {
+			source.setPatternParser(this.patternParser);
+		}
 		this.corsConfigurationSource = source;
 	}
 
@@ -412,47 +459,106 @@ public abstract class AbstractHandlerMapping extends WebApplicationObjectSupport
 	@Override
 	@Nullable
 	public final HandlerExecutionChain getHandler(HttpServletRequest request) throws Exception {
-		// 1. 调用具体的实现去获取handler
-		Object handler = getHandlerInternal(request);
-		// 如果为空使用默认的
-		if (handler == null) {
-			handler = getDefaultHandler();
-		}
-		// 没有默认的返回空
-		if (handler == null) {
-			return null;
-		}
-		// Bean name or resolved handler?
-		// 尝试通过BeanName去获取handler
-		if (handler instanceof String) {
-			String handlerName = (String) handler;
-			handler = obtainApplicationContext().getBean(handlerName);
-		}
+		// 查找过程中缓存的 lookupPath 在构建 executionChain 和处理 cors 时继续使用，结束后再恢复
+		Object previousLookupPath = request.getAttribute(UrlPathHelper.PATH_ATTRIBUTE);
+		try {
+			// 1. 调用具体的实现去获取handler
+			Object handler = getHandlerInternal(request);
+			// 如果为空使用默认的
+			if (handler == null) {
+				handler = getDefaultHandler();
+			}
+			// 没有默认的返回空
+			if (handler == null) {
+				return null;
+			}
+			// Bean name or resolved handler?
+			// 尝试通过BeanName去获取handler
+			if (handler instanceof String) {
+				String handlerName = (String) handler;
+				handler = obtainApplicationContext().getBean(handlerName);
+			}
 
-		// 2. 获取 executionChain，其实就是找到 uri 对应的 Interceptors,
-		// 然后与上面找到的handler一起封装到HandlerExecutionChain对象中
-		// 这里的Interceptors，也是在WebMvcConfigurationSupport中配置的
-		HandlerExecutionChain executionChain = getHandlerExecutionChain(handler, request);
+			// 2. 获取 executionChain，其实就是找到 uri 对应的 Interceptors,
+			// 然后与上面找到的handler一起封装到HandlerExecutionChain对象中
+			// 这里的Interceptors，也是在WebMvcConfigurationSupport中配置的
+			HandlerExecutionChain executionChain = getHandlerExecutionChain(handler, request);
 
-		if (logger.isTraceEnabled()) {
-			logger.trace("Mapped to " + handler);
+			if (logger.isTraceEnabled()) {
+				logger.trace("Mapped to " + handler);
+			}
+			else if (logger.isDebugEnabled() && !request.getDispatcherType().equals(DispatcherType.ASYNC)) {
+				logger.debug("Mapped to " + executionChain.getHandler());
+			}
+
+			// 3. 处理路域相关的配置：CorsHandlerExecutionChain
+			// 这里可以看到，所谓的cors跨域配置，也是由拦截器实现的
+			if (CorsUtils.isCorsRequest(request)) {
+				// 获取跨域配置
+				CorsConfiguration globalConfig = this.corsConfigurationSource.getCorsConfiguration(request);
+				CorsConfiguration handlerConfig = getCorsConfiguration(handler, request);
+				CorsConfiguration config = (globalConfig != null ? globalConfig.combine(handlerConfig) : handlerConfig);
+				// 将跨域相关的配置添加到 Interceptors，加到拦截器List的第一个中
+				executionChain = getCorsHandlerExecutionChain(request, executionChain, config);
+			}
+
+			return executionChain;
 		}
-		else if (logger.isDebugEnabled() && !request.getDispatcherType().equals(DispatcherType.ASYNC)) {
-			logger.debug("Mapped to " + executionChain.getHandler());
+		finally {
+			if (previousLookupPath != null) {
+				request.setAttribute(UrlPathHelper.PATH_ATTRIBUTE, previousLookupPath);
+			}
+			else {
+				request.removeAttribute(UrlPathHelper.PATH_ATTRIBUTE);
+			}
 		}
+	}
 
-		// 3. 处理路域相关的配置：CorsHandlerExecutionChain
-		// 这里可以看到，所谓的cors跨域配置，也是由拦截器实现的
-		if (CorsUtils.isCorsRequest(request)) {
-			// 获取跨域配置
-			CorsConfiguration globalConfig = this.corsConfigurationSource.getCorsConfiguration(request);
-			CorsConfiguration handlerConfig = getCorsConfiguration(handler, request);
-			CorsConfiguration config = (globalConfig != null ? globalConfig.combine(handlerConfig) : handlerConfig);
-			// 将跨域相关的配置添加到 Interceptors，加到拦截器List的第一个中
-			executionChain = getCorsHandlerExecutionChain(request, executionChain, config);
+	/**
+	 * Return "true" if this {@code HandlerMapping} has been
+	 * {@link #setPatternParser enabled} to use parsed {@code PathPattern}s.
+	 * @since 5.1.20
+	 */
+	@Override
+	public boolean usesPathPatterns() {
+		return (getPatternParser() != null);
+	}
+
+	/**
+	 * Initialize the path to use for request mapping.
+	 * <p>When parsed patterns are {@link #usesPathPatterns() enabled} a parsed
+	 * {@code RequestPath} is expected to have been
+	 * {@link ServletRequestPathUtils#parseAndCache(HttpServletRequest) parsed}
+	 * externally by the {@link org.springframework.web.servlet.DispatcherServlet};
+	 * it is parsed here if not. The returned path is then the encoded path
+	 * within the application, with semicolon content removed.
+	 * <p>Otherwise for String pattern matching via {@code PathMatcher} the
+	 * path is {@link UrlPathHelper#resolveAndCacheLookupPath resolved} by this
+	 * method and cached for the duration of the handler lookup.
+	 * @param request the current request
+	 * @return the lookup path
+	 * @since 5.1.20
+	 */
+	protected String initLookupPath(HttpServletRequest request) {
+		if (usesPathPatterns()) {
+			String lookupPath = getParsedRequestPath(request).pathWithinApplication().value();
+			return UrlPathHelper.defaultInstance.removeSemicolonContent(lookupPath);
+		}
+		else {
+			return getUrlPathHelper().resolveAndCacheLookupPath(request);
 		}
+	}
 
-		return executionChain;
+	/**
+	 * Return the {@code RequestPath} parsed and cached for the current request,
+	 * parsing it first if the {@code DispatcherServlet} did not.
+	 * @param request the current request
+	 * @since 5.1.20
+	 */
+	protected RequestPath getParsedRequestPath(HttpServletRequest request) {
+		return (ServletRequestPathUtils.hasParsedRequestPath(request) ?
+				ServletRequestPathUtils.getParsedRequestPath(request) :
+				ServletRequestPathUtils.parseAndCache(request));
 	}
 
 	/**
@@ -499,7 +605,8 @@ public abstract class AbstractHandlerMapping extends WebApplicationObjectSupport
 				(HandlerExecutionChain) handler : new HandlerExecutionChain(handler));
 
 		// 获取当前的请求路径
-		String lookupPath = this.urlPathHelper.getLookupPathForRequest(request);
+		String lookupPath = (usesPathPatterns() ? initLookupPath(request) :
+				this.urlPathHelper.getResolvedLookupPath(request));
 		for (HandlerInterceptor interceptor : this.adaptedInterceptors) {
 			if (interceptor instanceof MappedInterceptor) {
 				MappedInterceptor mappedInterceptor = (MappedInterceptor) interceptor;
@@ -39,15 +39,21 @@ import org.springframework.aop.support.AopUtils;
 import org.springframework.beans.factory.BeanFactoryUtils;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.core.MethodIntrospector;
+import org.springframework.http.server.PathContainer;
 import org.springframework.lang.Nullable;
+import org.springframework.util.AntPathMatcher;
 import org.springframework.util.Assert;
 import org.springframework.util.ClassUtils;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
+import org.springframework.util.PathMatcher;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsUtils;
 import org.springframework.web.method.HandlerMethod;
 import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.util.pattern.PathPatternIndex;
+import org.springframework.web.util.pattern.PathPatternParser;
+import org.springframework.web.util.pattern.PatternParseException;
 
 /**
  * Abstract base class for {@link HandlerMapping} implementations that define
@@ -381,8 +387,8 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 	 */
 	@Override
 	protected HandlerMethod getHandlerInternal(HttpServletRequest request) throws Exception {
-		// 获取请求的url
-		String lookupPath = getUrlPathHelper().getLookupPathForRequest(request);
+		// 获取请求的url，并缓存在 request 属性中，避免每个 mapping 匹配时重复解析
+		String lookupPath = initLookupPath(request);
 		this.mappingRegistry.acquireReadLock();
 		try {
 			// 在这里查找uri对应的handlerMethod
@@ -434,10 +440,16 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 			addMatchingMappings(directPathMatches, matches, request);
 		}
 		if (matches.isEmpty()) {
-			// No choice but to go through all mappings...
-			// 如果通过url没找到，则遍历所有的 mappings 匹配，匹配类似于 /test/{name} 的url
-			// mappings也是一个map，key是RequestMappingInfo， value是HandlerMethod
-			addMatchingMappings(this.mappingRegistry.getMappings().keySet(), matches, request);
+			// 如果通过url没找到，则从 path pattern 索引中取出可能匹配的 mappings，匹配类似于 /test/{name} 的url
+			Collection<T> candidates = (usesPathPatterns() ?
+					this.mappingRegistry.getMappingsByPathIndex(getParsedRequestPath(request).pathWithinApplication()) :
+					this.mappingRegistry.getMappingsByPathIndex(lookupPath));
+			if (candidates == null) {
+				// No choice but to go through all mappings...
+				// 没有索引时遍历所有的 mappings，mappings也是一个map，key是RequestMappingInfo， value是HandlerMethod
+				candidates = this.mappingRegistry.getMappings().keySet();
+			}
+			addMatchingMappings(candidates, matches, request);
 		}
 
 		// 找到最佳匹配的mapping,返回其对应的HandlerMethod
@@ -548,6 +560,46 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 	 */
 	protected abstract Set<String> getMappingPathPatterns(T mapping);
 
+	/**
+	 * Whether the {@link #getMappingPathPatterns path patterns} of a mapping,
+	 * as interpreted by the configured {@link #getPathMatcher() PathMatcher},
+	 * cover all lookup paths the mapping can match. If so, mappings are indexed
+	 * by their patterns, and a lookup without a direct URL match only checks
+	 * the mappings with a pattern that may match the lookup path rather than
+	 * going through all mappings.
+	 * <p>The index is only used with an {@link AntPathMatcher} that uses "/" as
+	 * separator and does not trim tokens, or with the configured
+	 * {@link #setPatternParser PathPatternParser}. The default implementation
+	 * returns {@code false}.
+	 * @since 5.1.20
+	 * @see PathPatternIndex
+	 */
+	protected boolean usePathPatternIndex() {
+		return false;
+	}
+
+	/**
+	 * Create the parser for indexing mapping path patterns, or return
+	 * {@code null} if the patterns cannot be indexed.
+	 */
+	@Nullable
+	private PathPatternParser createPathPatternIndexParser() {
+		if (!usePathPatternIndex()) {
+			return null;
+		}
+		if (usesPathPatterns()) {
+			return getPatternParser();
+		}
+		PathMatcher pathMatcher = getPathMatcher();
+		if (pathMatcher.getClass() != AntPathMatcher.class ||
+				pathMatcher.match("/a/*", "/a/b/c") || pathMatcher.match("/a", "/ a")) {
+			return null;
+		}
+		PathPatternParser parser = new PathPatternParser();
+		parser.setCaseSensitive(!pathMatcher.match("/a", "/A"));
+		return parser;
+	}
+
 	/**
 	 * Check if a mapping matches the current request and return a (potentially
 	 * new) mapping with conditions relevant to the current request.
@@ -584,6 +636,15 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 
 		private final Map<HandlerMethod, CorsConfiguration> corsLookup = new ConcurrentHashMap<>();
 
+		// 按 path pattern 的路径段建立的前缀树索引，在第一次注册时根据 PathMatcher 决定是否启用
+		@Nullable
+		private PathPatternIndex<T> pathIndex;
+
+		@Nullable
+		private PathPatternParser pathIndexParser;
+
+		private boolean pathIndexInitialized;
+
 		private final ReentrantReadWriteLock readWriteLock = new ReentrantReadWriteLock();
 
 		/**
@@ -603,6 +664,41 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 			return this.urlLookup.get(urlPath);
 		}
 
+		/**
+		 * Return the mappings with a pattern that may match the given lookup
+		 * path, or {@code null} if mappings are not indexed. Not thread-safe.
+		 * @see #acquireReadLock()
+		 * @see #usePathPatternIndex()
+		 */
+		@Nullable
+		public Set<T> getMappingsByPathIndex(String lookupPath) {
+			if (this.pathIndex == null || lookupPath.contains("//")) {
+				// AntPathMatcher 会忽略空的路径段，这种路径不走索引
+				return null;
+			}
+			Set<T> candidates = this.pathIndex.getCandidates(lookupPath);
+			// 后缀匹配，如 /users.json 匹配 /users：按最后一段中每个 '.' 之前的前缀再查一次
+			int dotIndex = lookupPath.indexOf('.', lookupPath.lastIndexOf('/') + 1);
+			while (dotIndex != -1) {
+				candidates.addAll(this.pathIndex.getCandidates(lookupPath.substring(0, dotIndex)));
+				dotIndex = lookupPath.indexOf('.', dotIndex + 1);
+			}
+			return candidates;
+		}
+
+		/**
+		 * Return the mappings with a pattern that may match the given path
+		 * within the application, or {@code null} if mappings are not indexed.
+		 * Not thread-safe.
+		 * @since 5.1.20
+		 * @see #acquireReadLock()
+		 * @see #usesPathPatterns()
+		 */
+		@Nullable
+		public Set<T> getMappingsByPathIndex(PathContainer path) {
+			return (this.pathIndex != null ? this.pathIndex.getCandidates(path) : null);
+		}
+
 		/**
 		 * Return handler methods by mapping name. Thread-safe for concurrent use.
 		 */
@@ -646,6 +742,7 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 				// 2. 放入 mappingLookup 中，类型为 LinkedHashMap
 				// 这是springmvc中一个重要的map
 				this.mappingLookup.put(mapping, handlerMethod);
+				addToPathIndex(mapping);
 
 				// 3. 获取url，放入urlLookup，类型为MultiValueMap，这个map 同一key可以有多个value
 				// 这是springmvc中另一个重要的map
@@ -702,6 +799,35 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 			return urls;
 		}
 
+		private void addToPathIndex(T mapping) {
+			if (!this.pathIndexInitialized) {
+				this.pathIndexParser = createPathPatternIndexParser();
+				this.pathIndex = (this.pathIndexParser != null ? new PathPatternIndex<>() : null);
+				this.pathIndexInitialized = true;
+			}
+			if (this.pathIndex == null || this.pathIndexParser == null) {
+				return;
+			}
+			Set<String> patterns = getMappingPathPatterns(mapping);
+			if (patterns.isEmpty()) {
+				this.pathIndex.addCatchAll(mapping);
+			}
+			for (String pattern : patterns) {
+				// PathPattern 只把结尾的 /** 当作多级路径匹配，像 /a/**/b 这样的 pattern 按 /a/** 建立索引
+				int doubleWildcardIndex = pattern.indexOf("/**/");
+				if (doubleWildcardIndex != -1) {
+					pattern = pattern.substring(0, doubleWildcardIndex + 3);
+				}
+				try {
+					this.pathIndex.add(this.pathIndexParser.parse(pattern), mapping);
+				}
+				catch (PatternParseException ex) {
+					// 无法用 PathPattern 表示的 pattern，对所有路径都作为候选
+					this.pathIndex.addCatchAll(mapping);
+				}
+			}
+		}
+
 		private void addMappingName(String name, HandlerMethod handlerMethod) {
 			List<HandlerMethod> oldList = this.nameLookup.get(name);
 			if (oldList == null) {
@@ -729,6 +855,9 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 				}
 
 				this.mappingLookup.remove(definition.getMapping());
+				if (this.pathIndex != null) {
+					this.pathIndex.remove(definition.getMapping());
+				}
 
 				for (String url : definition.getDirectUrls()) {
 					List<T> list = this.urlLookup.get(url);
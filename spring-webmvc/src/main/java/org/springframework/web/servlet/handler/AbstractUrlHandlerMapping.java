@@ -28,10 +28,14 @@ import javax.servlet.http.HttpServletResponse;
 
 import org.springframework.beans.BeansException;
 import org.springframework.context.ApplicationContext;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.RequestPath;
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
 import org.springframework.util.CollectionUtils;
 import org.springframework.web.servlet.HandlerExecutionChain;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
 
 /**
  * Abstract base class for URL-mapped {@link org.springframework.web.servlet.HandlerMapping}
@@ -48,6 +52,10 @@ import org.springframework.web.servlet.HandlerExecutionChain;
  * current request path. The most exact match is defined as the longest
  * path pattern that matches the current request path.
  *
+ * <p>Alternatively, if a {@link #setPatternParser PathPatternParser} is set,
+ * URL paths are parsed to {@link PathPattern}s and matched against the
+ * parsed request path, with the most specific pattern winning.
+ *
  * @author Juergen Hoeller
  * @author Arjen Poutsma
  * @since 16.04.2003
@@ -63,6 +71,17 @@ public abstract class AbstractUrlHandlerMapping extends AbstractHandlerMapping i
 
 	private final Map<String, Object> handlerMap = new LinkedHashMap<>();
 
+	private final Map<PathPattern, Object> pathPatternHandlerMap = new LinkedHashMap<>();
+
+
+	@Override
+	public void setPatternParser(PathPatternParser patternParser) {
+		Assert.state(this.handlerMap.isEmpty(),
+				"PathPatternParser must be set before the initialization of " +
+						"the handler map via ApplicationContextAware#setApplicationContext.");
+		super.setPatternParser(patternParser);
+	}
+
 
 	/**
 	 * Set the root handler for this handler mapping, that is,
@@ -120,9 +139,18 @@ public abstract class AbstractUrlHandlerMapping extends AbstractHandlerMapping i
 	@Override
 	@Nullable
 	protected Object getHandlerInternal(HttpServletRequest request) throws Exception {
-		String lookupPath = getUrlPathHelper().getLookupPathForRequest(request);
-		///查找请求路径对应的HandlerMethod实例
-		Object handler = lookupHandler(lookupPath, request);
+		String lookupPath;
+		Object handler;
+		if (usesPathPatterns()) {
+			RequestPath path = getParsedRequestPath(request);
+			lookupPath = initLookupPath(request);
+			handler = lookupHandler(path, lookupPath, request);
+		}
+		else {
+			lookupPath = initLookupPath(request);
+			///查找请求路径对应的HandlerMethod实例
+			handler = lookupHandler(lookupPath, request);
+		}
 		if (handler == null) {
 			// We need to care for the default handler directly, since we need to
 			// expose the PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE for it as well.
@@ -163,18 +191,9 @@ public abstract class AbstractUrlHandlerMapping extends AbstractHandlerMapping i
 	@Nullable
 	protected Object lookupHandler(String urlPath, HttpServletRequest request) throws Exception {
 		// Direct match?
-		// 从Map中根据url找到handler
-		Object handler = this.handlerMap.get(urlPath);
+		Object handler = getDirectMatch(urlPath, request);
 		if (handler != null) {
-			// Bean name or resolved handler?
-			//查找handler的bean
-			if (handler instanceof String) {
-				String handlerName = (String) handler;
-				handler = obtainApplicationContext().getBean(handlerName);
-			}
-			validateHandler(handler, request);
-			//构建HandlerInterceptor
-			return buildPathExposingHandler(handler, urlPath, urlPath, null);
+			return handler;
 		}
 
 		// Pattern match?
@@ -239,6 +258,85 @@ public abstract class AbstractUrlHandlerMapping extends AbstractHandlerMapping i
 		return null;
 	}
 
+	/**
+	 * Look up a handler instance for the given URL path, when parsed
+	 * {@code PathPattern}s are {@link #usesPathPatterns() enabled}.
+	 * <p>Supports direct matches, and {@link PathPattern} matches for which the
+	 * most specific pattern, as per {@link PathPattern#SPECIFICITY_COMPARATOR},
+	 * wins. The path within the mapping is exposed decoded, consistent with
+	 * the default {@link org.springframework.web.util.UrlPathHelper}.
+	 * @param path the parsed request path
+	 * @param lookupPath the String lookupPath for checking direct hits
+	 * @param request current HTTP request
+	 * @return a matching handler, or {@code null} if not found
+	 * @since 5.1.20
+	 */
+	@Nullable
+	protected Object lookupHandler(RequestPath path, String lookupPath, HttpServletRequest request)
+			throws Exception {
+
+		Object handler = getDirectMatch(lookupPath, request);
+		if (handler != null) {
+			return handler;
+		}
+
+		PathContainer pathWithinApplication = path.pathWithinApplication();
+		List<PathPattern> matches = null;
+		for (PathPattern pattern : this.pathPatternHandlerMap.keySet()) {
+			if (pattern.matches(pathWithinApplication)) {
+				matches = (matches != null ? matches : new ArrayList<>());
+				matches.add(pattern);
+			}
+		}
+		if (matches == null) {
+			return null;
+		}
+		if (matches.size() > 1) {
+			matches.sort(PathPattern.SPECIFICITY_COMPARATOR);
+			if (logger.isTraceEnabled()) {
+				logger.trace("Matching patterns " + matches);
+			}
+		}
+		PathPattern pattern = matches.get(0);
+		handler = this.pathPatternHandlerMap.get(pattern);
+		if (handler instanceof String) {
+			String handlerName = (String) handler;
+			handler = obtainApplicationContext().getBean(handlerName);
+		}
+		validateHandler(handler, request);
+		PathPattern.PathMatchInfo matchInfo = pattern.matchAndExtract(pathWithinApplication);
+		Map<String, String> uriTemplateVariables = (matchInfo != null ? matchInfo.getUriVariables() : null);
+		String pathWithinMapping = decodedValue(pattern.extractPathWithinPattern(pathWithinApplication));
+		return buildPathExposingHandler(handler, pattern.getPatternString(), pathWithinMapping, uriTemplateVariables);
+	}
+
+	@Nullable
+	private Object getDirectMatch(String urlPath, HttpServletRequest request) throws Exception {
+		// 从Map中根据url找到handler
+		Object handler = this.handlerMap.get(urlPath);
+		if (handler != null) {
+			// Bean name or resolved handler?
+			//查找handler的bean
+			if (handler instanceof String) {
+				String handlerName = (String) handler;
+				handler = obtainApplicationContext().getBean(handlerName);
+			}
+			validateHandler(handler, request);
+			//构建HandlerInterceptor
+			return buildPathExposingHandler(handler, urlPath, urlPath, null);
+		}
+		return null;
+	}
+
+	private static String decodedValue(PathContainer path) {
+		StringBuilder builder = new StringBuilder(path.value().length());
+		for (PathContainer.Element element : path.elements()) {
+			builder.append(element instanceof PathContainer.PathSegment ?
+					((PathContainer.PathSegment) element).valueToMatch() : element.value());
+		}
+		return builder.toString();
+	}
+
 	/**
 	 * Validate the given handler against the current request.
 	 * <p>The default implementation is empty. Can be overridden in subclasses,
@@ -298,6 +396,12 @@ public abstract class AbstractUrlHandlerMapping extends AbstractHandlerMapping i
 	@Override
 	@Nullable
 	public RequestMatchResult match(HttpServletRequest request, String pattern) {
+		PathPatternParser parser = getPatternParser();
+		if (parser != null) {
+			PathContainer path = getParsedRequestPath(request).pathWithinApplication();
+			PathPattern pathPattern = parser.parse(pattern);
+			return (pathPattern.matches(path) ? new RequestMatchResult(pathPattern, path) : null);
+		}
 		String lookupPath = getUrlPathHelper().getLookupPathForRequest(request);
 		if (getPathMatcher().match(pattern, lookupPath)) {
 			return new RequestMatchResult(pattern, lookupPath, getPathMatcher());
@@ -369,6 +473,10 @@ public abstract class AbstractUrlHandlerMapping extends AbstractHandlerMapping i
 			}
 			else {
 				this.handlerMap.put(urlPath, resolvedHandler);
+				PathPatternParser parser = getPatternParser();
+				if (parser != null) {
+					this.pathPatternHandlerMap.put(parser.parse(urlPath), resolvedHandler);
+				}
 				if (logger.isTraceEnabled()) {
 					logger.trace("Mapped [" + urlPath + "] onto " + getHandlerDescription(handler));
 				}
@@ -391,6 +499,15 @@ public abstract class AbstractUrlHandlerMapping extends AbstractHandlerMapping i
 		return Collections.unmodifiableMap(this.handlerMap);
 	}
 
+	/**
+	 * Identical to {@link #getHandlerMap()} but populated when parsed patterns
+	 * are {@link #usesPathPatterns() enabled}; otherwise empty.
+	 * @since 5.1.20
+	 */
+	public final Map<PathPattern, Object> getPathPatternHandlerMap() {
+		return Collections.unmodifiableMap(this.pathPatternHandlerMap);
+	}
+
 	/**
 	 * Indicates whether this handler mapping support type-level mappings. Default to {@code false}.
 	 */
@@ -23,6 +23,7 @@ import javax.servlet.http.HttpServletRequest;
 
 import org.springframework.http.HttpMethod;
 import org.springframework.lang.Nullable;
+import org.springframework.util.ObjectUtils;
 import org.springframework.util.PathMatcher;
 import org.springframework.util.StringUtils;
 import org.springframework.web.accept.ContentNegotiationManager;
@@ -30,17 +31,20 @@ import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.servlet.mvc.condition.ConsumesRequestCondition;
 import org.springframework.web.servlet.mvc.condition.HeadersRequestCondition;
 import org.springframework.web.servlet.mvc.condition.ParamsRequestCondition;
+import org.springframework.web.servlet.mvc.condition.PathPatternsRequestCondition;
 import org.springframework.web.servlet.mvc.condition.PatternsRequestCondition;
 import org.springframework.web.servlet.mvc.condition.ProducesRequestCondition;
 import org.springframework.web.servlet.mvc.condition.RequestCondition;
 import org.springframework.web.servlet.mvc.condition.RequestConditionHolder;
 import org.springframework.web.servlet.mvc.condition.RequestMethodsRequestCondition;
 import org.springframework.web.util.UrlPathHelper;
+import org.springframework.web.util.pattern.PathPatternParser;
 
 /**
  * Request mapping information. Encapsulates the following request mapping conditions:
  * <ol>
- * <li>{@link PatternsRequestCondition}
+ * <li>{@link PatternsRequestCondition}, or {@link PathPatternsRequestCondition}
+ * for mappings built with a {@link PathPatternParser}
  * <li>{@link RequestMethodsRequestCondition}
  * <li>{@link ParamsRequestCondition}
  * <li>{@link HeadersRequestCondition}
@@ -59,6 +63,9 @@ public final class RequestMappingInfo implements RequestCondition<RequestMapping
 	@Nullable
 	private final String name;
 
+	@Nullable
+	private final PathPatternsRequestCondition pathPatternsCondition;
+
 	private final PatternsRequestCondition patternsCondition;
 
 	private final RequestMethodsRequestCondition methodsCondition;
@@ -80,7 +87,23 @@ public final class RequestMappingInfo implements RequestCondition<RequestMapping
 			@Nullable HeadersRequestCondition headers, @Nullable ConsumesRequestCondition consumes,
 			@Nullable ProducesRequestCondition produces, @Nullable RequestCondition<?> custom) {
 
+		this(name, null, patterns, methods, params, headers, consumes, produces, custom);
+	}
+
+	/**
+	 * Creates a new instance with the given request conditions, matching
+	 * requests by parsed path patterns if {@code pathPatterns} is not null.
+	 * The {@code patterns} condition then carries the same pattern Strings
+	 * for informational purposes.
+	 */
+	private RequestMappingInfo(@Nullable String name, @Nullable PathPatternsRequestCondition pathPatterns,
+			@Nullable PatternsRequestCondition patterns, @Nullable RequestMethodsRequestCondition methods,
+			@Nullable ParamsRequestCondition params, @Nullable HeadersRequestCondition headers,
+			@Nullable ConsumesRequestCondition consumes, @Nullable ProducesRequestCondition produces,
+			@Nullable RequestCondition<?> custom) {
+
 		this.name = (StringUtils.hasText(name) ? name : null);
+		this.pathPatternsCondition = pathPatterns;
 		this.patternsCondition = (patterns != null ? patterns : new PatternsRequestCondition());
 		this.methodsCondition = (methods != null ? methods : new RequestMethodsRequestCondition());
 		this.paramsCondition = (params != null ? params : new ParamsRequestCondition());
@@ -105,8 +128,9 @@ public final class RequestMappingInfo implements RequestCondition<RequestMapping
 	 * Re-create a RequestMappingInfo with the given custom request condition.
 	 */
 	public RequestMappingInfo(RequestMappingInfo info, @Nullable RequestCondition<?> customRequestCondition) {
-		this(info.name, info.patternsCondition, info.methodsCondition, info.paramsCondition, info.headersCondition,
-				info.consumesCondition, info.producesCondition, customRequestCondition);
+		this(info.name, info.pathPatternsCondition, info.patternsCondition, info.methodsCondition,
+				info.paramsCondition, info.headersCondition, info.consumesCondition, info.producesCondition,
+				customRequestCondition);
 	}
 
 
@@ -118,6 +142,18 @@ public final class RequestMappingInfo implements RequestCondition<RequestMapping
 		return this.name;
 	}
 
+	/**
+	 * Return the parsed URL patterns of this {@link RequestMappingInfo}, if it
+	 * was built with a {@link BuilderConfiguration#setPatternParser PathPatternParser}.
+	 * In that case, requests are matched with these patterns, while
+	 * {@link #getPatternsCondition()} holds the same patterns as Strings.
+	 * @since 5.1.20
+	 */
+	@Nullable
+	public PathPatternsRequestCondition getPathPatternsCondition() {
+		return this.pathPatternsCondition;
+	}
+
 	/**
 	 * Return the URL patterns of this {@link RequestMappingInfo};
 	 * or instance with 0 patterns (never {@code null}).
@@ -183,6 +219,7 @@ public final class RequestMappingInfo implements RequestCondition<RequestMapping
 	@Override
 	public RequestMappingInfo combine(RequestMappingInfo other) {
 		String name = combineNames(other);
+		PathPatternsRequestCondition pathPatterns = combinePathPatterns(other);
 		PatternsRequestCondition patterns = this.patternsCondition.combine(other.patternsCondition);
 		RequestMethodsRequestCondition methods = this.methodsCondition.combine(other.methodsCondition);
 		ParamsRequestCondition params = this.paramsCondition.combine(other.paramsCondition);
@@ -191,10 +228,32 @@ public final class RequestMappingInfo implements RequestCondition<RequestMapping
 		ProducesRequestCondition produces = this.producesCondition.combine(other.producesCondition);
 		RequestConditionHolder custom = this.customConditionHolder.combine(other.customConditionHolder);
 
-		return new RequestMappingInfo(name, patterns,
+		return new RequestMappingInfo(name, pathPatterns, patterns,
 				methods, params, headers, consumes, produces, custom.getCondition());
 	}
 
+	@Nullable
+	private PathPatternsRequestCondition combinePathPatterns(RequestMappingInfo other) {
+		if (this.pathPatternsCondition != null && other.pathPatternsCondition != null) {
+			return this.pathPatternsCondition.combine(other.pathPatternsCondition);
+		}
+		else if (this.pathPatternsCondition != null) {
+			PathPatternParser parser = this.pathPatternsCondition.getParser();
+			return this.pathPatternsCondition.combine(parsePatterns(parser, other.patternsCondition));
+		}
+		else if (other.pathPatternsCondition != null) {
+			PathPatternParser parser = other.pathPatternsCondition.getParser();
+			return parsePatterns(parser, this.patternsCondition).combine(other.pathPatternsCondition);
+		}
+		return null;
+	}
+
+	private static PathPatternsRequestCondition parsePatterns(
+			PathPatternParser parser, PatternsRequestCondition patternsCondition) {
+
+		return new PathPatternsRequestCondition(parser, StringUtils.toStringArray(patternsCondition.getPatterns()));
+	}
+
 	@Nullable
 	private String combineNames(RequestMappingInfo other) {
 		if (this.name != null && other.name != null) {
@@ -243,16 +302,29 @@ public final class RequestMappingInfo implements RequestCondition<RequestMapping
 		if (produces == null) {
 			return null;
 		}
-		PatternsRequestCondition patterns = this.patternsCondition.getMatchingCondition(request);
-		if (patterns == null) {
-			return null;
+		PathPatternsRequestCondition pathPatterns = null;
+		PatternsRequestCondition patterns;
+		if (this.pathPatternsCondition != null) {
+			pathPatterns = this.pathPatternsCondition.getMatchingCondition(request);
+			if (pathPatterns == null) {
+				return null;
+			}
+			patterns = (pathPatterns.getPatterns().size() == this.pathPatternsCondition.getPatterns().size() ?
+					this.patternsCondition :
+					new PatternsRequestCondition(StringUtils.toStringArray(pathPatterns.getPatternValues())));
+		}
+		else {
+			patterns = this.patternsCondition.getMatchingCondition(request);
+			if (patterns == null) {
+				return null;
+			}
 		}
 		RequestConditionHolder custom = this.customConditionHolder.getMatchingCondition(request);
 		if (custom == null) {
 			return null;
 		}
 
-		return new RequestMappingInfo(this.name, patterns,
+		return new RequestMappingInfo(this.name, pathPatterns, patterns,
 				methods, params, headers, consumes, produces, custom.getCondition());
 	}
 
@@ -276,7 +348,12 @@ public final class RequestMappingInfo implements RequestCondition<RequestMapping
 				return result;
 			}
 		}
-		result = this.patternsCondition.compareTo(other.getPatternsCondition(), request);
+		if (this.pathPatternsCondition != null && other.pathPatternsCondition != null) {
+			result = this.pathPatternsCondition.compareTo(other.pathPatternsCondition, request);
+		}
+		else {
+			result = this.patternsCondition.compareTo(other.getPatternsCondition(), request);
+		}
 		if (result != 0) {
 			return result;
 		}
@@ -318,6 +395,7 @@ public final class RequestMappingInfo implements RequestCondition<RequestMapping
 		}
 		RequestMappingInfo otherInfo = (RequestMappingInfo) other;
 		return (this.patternsCondition.equals(otherInfo.patternsCondition) &&
+				ObjectUtils.nullSafeEquals(this.pathPatternsCondition, otherInfo.pathPatternsCondition) &&
 				this.methodsCondition.equals(otherInfo.methodsCondition) &&
 				this.paramsCondition.equals(otherInfo.paramsCondition) &&
 				this.headersCondition.equals(otherInfo.headersCondition) &&
@@ -525,8 +603,12 @@ public final class RequestMappingInfo implements RequestCondition<RequestMapping
 					this.options.useSuffixPatternMatch(), this.options.useTrailingSlashMatch(),
 					this.options.getFileExtensions());
 
+			PathPatternParser parser = this.options.getPatternParser();
+			PathPatternsRequestCondition pathPatternsCondition = (parser != null ?
+					new PathPatternsRequestCondition(parser, this.paths) : null);
+
 			// 调用 RequestMappingInfo 构造方法
-			return new RequestMappingInfo(this.mappingName, patternsCondition,
+			return new RequestMappingInfo(this.mappingName, pathPatternsCondition, patternsCondition,
 					new RequestMethodsRequestCondition(this.methods),
 					new ParamsRequestCondition(this.params),
 					new HeadersRequestCondition(this.headers),
@@ -546,6 +628,9 @@ public final class RequestMappingInfo implements RequestCondition<RequestMapping
 	 */
 	public static class BuilderConfiguration {
 
+		@Nullable
+		private PathPatternParser patternParser;
+
 		@Nullable
 		private UrlPathHelper urlPathHelper;
 
@@ -561,6 +646,27 @@ public final class RequestMappingInfo implements RequestCondition<RequestMapping
 		@Nullable
 		private ContentNegotiationManager contentNegotiationManager;
 
+		/**
+		 * Enable use of parsed {@link org.springframework.web.util.pattern.PathPattern}s
+		 * through a {@link PathPatternsRequestCondition}, in place of String pattern
+		 * matching with a {@link PathMatcher}. Suffix pattern matching does not
+		 * apply, and trailing slash matching is controlled through the parser.
+		 * <p>By default this is not set.
+		 * @since 5.1.20
+		 */
+		public void setPatternParser(@Nullable PathPatternParser patternParser) {
+			this.patternParser = patternParser;
+		}
+
+		/**
+		 * Return the {@link PathPatternParser} to use, if any.
+		 * @since 5.1.20
+		 */
+		@Nullable
+		public PathPatternParser getPatternParser() {
+			return this.patternParser;
+		}
+
 		/**
 		 * Set a custom UrlPathHelper to use for the PatternsRequestCondition.
 		 * <p>By default this is not set.
@@ -45,7 +45,9 @@ import org.springframework.web.method.HandlerMethod;
 import org.springframework.web.servlet.HandlerMapping;
 import org.springframework.web.servlet.handler.AbstractHandlerMethodMapping;
 import org.springframework.web.servlet.mvc.condition.NameValueExpression;
+import org.springframework.web.servlet.mvc.condition.PathPatternsRequestCondition;
 import org.springframework.web.util.WebUtils;
+import org.springframework.web.util.pattern.PathPattern;
 
 /**
  * Abstract base class for classes for which {@link RequestMappingInfo} defines
@@ -88,6 +90,18 @@ public abstract class RequestMappingInfoHandlerMapping extends AbstractHandlerMe
 		return info.getPatternsCondition().getPatterns();
 	}
 
+	/**
+	 * Index mappings by their URL patterns, assuming that all registered
+	 * {@link RequestMappingInfo RequestMappingInfos} interpret their patterns
+	 * through the {@link #getPathMatcher() PathMatcher} of this handler mapping
+	 * or through a default {@code AntPathMatcher}.
+	 * @since 5.1.20
+	 */
+	@Override
+	protected boolean usePathPatternIndex() {
+		return true;
+	}
+
 	/**
 	 * Check if the given RequestMappingInfo matches the current request and
 	 * return a (potentially new) instance with conditions that match the
@@ -117,6 +131,20 @@ public abstract class RequestMappingInfoHandlerMapping extends AbstractHandlerMe
 	protected void handleMatch(RequestMappingInfo info, String lookupPath, HttpServletRequest request) {
 		super.handleMatch(info, lookupPath, request);
 
+		if (info.getPathPatternsCondition() != null) {
+			extractMatchDetails(info.getPathPatternsCondition(), request);
+		}
+		else {
+			extractMatchDetails(info, lookupPath, request);
+		}
+
+		if (!info.getProducesCondition().getProducibleMediaTypes().isEmpty()) {
+			Set<MediaType> mediaTypes = info.getProducesCondition().getProducibleMediaTypes();
+			request.setAttribute(PRODUCIBLE_MEDIA_TYPES_ATTRIBUTE, mediaTypes);
+		}
+	}
+
+	private void extractMatchDetails(RequestMappingInfo info, String lookupPath, HttpServletRequest request) {
 		String bestPattern;
 		Map<String, String> uriVariables;
 
@@ -139,10 +167,22 @@ public abstract class RequestMappingInfoHandlerMapping extends AbstractHandlerMe
 
 		Map<String, String> decodedUriVariables = getUrlPathHelper().decodePathVariables(request, uriVariables);
 		request.setAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE, decodedUriVariables);
+	}
 
-		if (!info.getProducesCondition().getProducibleMediaTypes().isEmpty()) {
-			Set<MediaType> mediaTypes = info.getProducesCondition().getProducibleMediaTypes();
-			request.setAttribute(PRODUCIBLE_MEDIA_TYPES_ATTRIBUTE, mediaTypes);
+	private void extractMatchDetails(PathPatternsRequestCondition condition, HttpServletRequest request) {
+		PathPattern bestPattern = condition.getFirstPattern();
+		request.setAttribute(BEST_MATCHING_PATTERN_ATTRIBUTE, bestPattern.getPatternString());
+		// PathPattern 匹配时已按路径段解码 URI 变量，并提取了矩阵变量
+		PathPattern.PathMatchInfo matchInfo = (condition.isEmptyPathMapping() ? null :
+				bestPattern.matchAndExtract(getParsedRequestPath(request).pathWithinApplication()));
+		if (matchInfo == null) {
+			request.setAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE, Collections.emptyMap());
+			return;
+		}
+		request.setAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE, matchInfo.getUriVariables());
+		Map<String, MultiValueMap<String, String>> matrixVars = matchInfo.getMatrixVariables();
+		if (!matrixVars.isEmpty()) {
+			request.setAttribute(HandlerMapping.MATRIX_VARIABLES_ATTRIBUTE, matrixVars);
 		}
 	}
 
@@ -243,7 +283,9 @@ public abstract class RequestMappingInfoHandlerMapping extends AbstractHandlerMe
 
 		public PartialMatchHelper(Set<RequestMappingInfo> infos, HttpServletRequest request) {
 			for (RequestMappingInfo info : infos) {
-				if (info.getPatternsCondition().getMatchingCondition(request) != null) {
+				PathPatternsRequestCondition pathPatterns = info.getPathPatternsCondition();
+				if (pathPatterns != null ? pathPatterns.getMatchingCondition(request) != null :
+						info.getPatternsCondition().getMatchingCondition(request) != null) {
 					this.partialMatches.add(new PartialMatch(info, request));
 				}
 			}
@@ -21,6 +21,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.net.URL;
+import java.nio.channels.ReadableByteChannel;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -205,6 +206,11 @@ public class EncodedResourceResolver extends AbstractResourceResolver {
 			return this.encoded.getInputStream();
 		}
 
+		@Override
+		public ReadableByteChannel readableChannel() throws IOException {
+			return this.encoded.readableChannel();
+		}
+
 		@Override
 		public boolean exists() {
 			return this.encoded.exists();
@@ -21,6 +21,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.net.URL;
+import java.nio.channels.ReadableByteChannel;
 import java.util.List;
 
 import javax.servlet.http.HttpServletRequest;
@@ -100,6 +101,11 @@ public class GzipResourceResolver extends AbstractResourceResolver {
 			return this.gzipped.getInputStream();
 		}
 
+		@Override
+		public ReadableByteChannel readableChannel() throws IOException {
+			return this.gzipped.readableChannel();
+		}
+
 		@Override
 		public boolean exists() {
 			return this.gzipped.exists();
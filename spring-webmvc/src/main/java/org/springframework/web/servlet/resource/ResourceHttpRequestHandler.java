@@ -16,18 +16,23 @@
 
 package org.springframework.web.servlet.resource;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import javax.servlet.ServletException;
+import javax.servlet.ServletResponseWrapper;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
@@ -37,8 +42,10 @@ import org.apache.commons.logging.LogFactory;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.EmbeddedValueResolverAware;
+import org.springframework.core.io.ByteArrayResource;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.UrlResource;
+import org.springframework.core.io.support.ResourceRegion;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpRange;
@@ -53,6 +60,7 @@ import org.springframework.util.CollectionUtils;
 import org.springframework.util.ObjectUtils;
 import org.springframework.util.ResourceUtils;
 import org.springframework.util.StringUtils;
+import org.springframework.util.StreamUtils;
 import org.springframework.util.StringValueResolver;
 import org.springframework.web.HttpRequestHandler;
 import org.springframework.web.accept.ContentNegotiationManager;
@@ -88,6 +96,14 @@ import org.springframework.web.util.UrlPathHelper;
  * (if present) so that a {@code 304} status code will be returned as appropriate,
  * avoiding unnecessary overhead for resources that are already cached by the client.
  *
+ * <p>File-based resources are read through their {@code FileChannel} by the
+ * message converters, positioned at the start of the requested range instead
+ * of skipping through an input stream, and copied to the response through a
+ * reused buffer. If {@link #setUseSendfile enabled} on Servlet containers that
+ * advertise it (i.e. Tomcat), full responses and single-range responses are
+ * handed over to the container's sendfile support instead. Small resources
+ * may optionally be kept in memory, see {@link #setContentCacheLimit}.
+ *
  * @author Keith Donald
  * @author Jeremy Grelle
  * @author Juergen Hoeller
@@ -103,6 +119,20 @@ public class ResourceHttpRequestHandler extends WebContentGenerator
 
 	private static final String URL_RESOURCE_CHARSET_PREFIX = "[charset=";
 
+	private static final String SENDFILE_SUPPORT_ATTRIBUTE = "org.apache.tomcat.sendfile.support";
+
+	private static final String SENDFILE_FILENAME_ATTRIBUTE = "org.apache.tomcat.sendfile.filename";
+
+	private static final String SENDFILE_START_ATTRIBUTE = "org.apache.tomcat.sendfile.start";
+
+	private static final String SENDFILE_END_ATTRIBUTE = "org.apache.tomcat.sendfile.end";
+
+	/** Below this size, a regular write is cheaper than setting up a sendfile transfer. */
+	private static final long SENDFILE_MIN_SIZE = 48 * 1024;
+
+	/** Default maximum size of a resource kept in the content cache: 16 KB. */
+	public static final long DEFAULT_CONTENT_CACHE_MAX_RESOURCE_SIZE = 16 * 1024;
+
 
 	private final List<String> locationValues = new ArrayList<>(4);
 
@@ -141,6 +171,31 @@ public class ResourceHttpRequestHandler extends WebContentGenerator
 	@Nullable
 	private StringValueResolver embeddedValueResolver;
 
+	private boolean useSendfile = false;
+
+	private volatile int contentCacheLimit = 0;
+
+	private long contentCacheMaxResourceSize = DEFAULT_CONTENT_CACHE_MAX_RESOURCE_SIZE;
+
+	/** Fast access cache for resource content, keyed by resource URL. */
+	private final Map<String, CachedContent> contentAccessCache = new ConcurrentHashMap<>(64);
+
+	/** Map from resource URL to content, synchronized for eviction in LRU order. */
+	@SuppressWarnings("serial")
+	private final Map<String, CachedContent> contentCreationCache =
+			new LinkedHashMap<String, CachedContent>(64, 0.75f, true) {
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, CachedContent> eldest) {
+					if (size() > getContentCacheLimit()) {
+						contentAccessCache.remove(eldest.getKey());
+						return true;
+					}
+					else {
+						return false;
+					}
+				}
+			};
+
 
 	public ResourceHttpRequestHandler() {
 		super(HttpMethod.GET.name(), HttpMethod.HEAD.name());
@@ -312,6 +367,79 @@ public class ResourceHttpRequestHandler extends WebContentGenerator
 		return this.urlPathHelper;
 	}
 
+	/**
+	 * Whether to hand file-based resources over to the Servlet container's
+	 * sendfile support, if advertised through the
+	 * {@code "org.apache.tomcat.sendfile.support"} request attribute.
+	 * <p>This applies to GET requests for the full content or a single range of
+	 * at least 48 KB, and only if the response is not wrapped, since a response
+	 * wrapper would not see the content. Multipart range responses are always
+	 * written by the message converter.
+	 * <p>Default is {@code false}.
+	 * @since 5.1.20
+	 */
+	public void setUseSendfile(boolean useSendfile) {
+		this.useSendfile = useSendfile;
+	}
+
+	/**
+	 * Whether container sendfile support is used when available.
+	 * @since 5.1.20
+	 */
+	public boolean isUseSendfile() {
+		return this.useSendfile;
+	}
+
+	/**
+	 * Set the maximum number of small resources to keep in memory, avoiding
+	 * to open and read the same files over and over again. Cached content is
+	 * refreshed when the {@link Resource#lastModified() last-modified} timestamp
+	 * or the length of the resource changes.
+	 * <p>Default is 0, i.e. no content caching.
+	 * @since 5.1.20
+	 * @see #setContentCacheMaxResourceSize
+	 */
+	public void setContentCacheLimit(int contentCacheLimit) {
+		this.contentCacheLimit = contentCacheLimit;
+		clearContentCache();
+	}
+
+	/**
+	 * Return the maximum number of resources kept in the content cache.
+	 * @since 5.1.20
+	 */
+	public int getContentCacheLimit() {
+		return this.contentCacheLimit;
+	}
+
+	/**
+	 * Set the maximum size in bytes of a resource to be kept in the content cache.
+	 * <p>Default is 16 KB.
+	 * @since 5.1.20
+	 */
+	public void setContentCacheMaxResourceSize(long contentCacheMaxResourceSize) {
+		this.contentCacheMaxResourceSize = contentCacheMaxResourceSize;
+	}
+
+	/**
+	 * Return the maximum size of a resource to be kept in the content cache.
+	 * @since 5.1.20
+	 */
+	public long getContentCacheMaxResourceSize() {
+		return this.contentCacheMaxResourceSize;
+	}
+
+	/**
+	 * Clear the content cache, e.g. after resources have been replaced in place.
+	 * @since 5.1.20
+	 */
+	public void clearContentCache() {
+		synchronized (this.contentCreationCache) {
+			this.contentAccessCache.clear();
+			this.contentCreationCache.clear();
+		}
+	}
+
 	@Override
 	public void setEmbeddedValueResolver(StringValueResolver resolver) {
 		this.embeddedValueResolver = resolver;
@@ -480,10 +608,14 @@ public class ResourceHttpRequestHandler extends WebContentGenerator
 		setHeaders(response, resource, mediaType);
 
 		// Content phase
-		ServletServerHttpResponse outputMessage = new ServletServerHttpResponse(response);
 		if (request.getHeader(HttpHeaders.RANGE) == null) {
+			if (HttpMethod.GET.matches(request.getMethod()) && applySendfile(request, response, resource, null)) {
+				logger.trace("Resource content handed over to container sendfile support");
+				return;
+			}
 			Assert.state(this.resourceHttpMessageConverter != null, "Not initialized");
-			this.resourceHttpMessageConverter.write(resource, mediaType, outputMessage);
+			ServletServerHttpResponse outputMessage = new ServletServerHttpResponse(response);
+			this.resourceHttpMessageConverter.write(getCachedContent(resource), mediaType, outputMessage);
 		}
 		else {
 			Assert.state(this.resourceRegionHttpMessageConverter != null, "Not initialized");
@@ -491,9 +623,19 @@ public class ResourceHttpRequestHandler extends WebContentGenerator
 			try {
 				List<HttpRange> httpRanges = inputMessage.getHeaders().getRange();
 				response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+				List<ResourceRegion> regions = HttpRange.toResourceRegions(httpRanges, resource);
+				if (regions.size() == 1 && HttpMethod.GET.matches(request.getMethod()) &&
+						applySendfile(request, response, resource, regions.get(0))) {
+					logger.trace("Resource range handed over to container sendfile support");
+					return;
+				}
+				Resource content = getCachedContent(resource);
+				if (content != resource) {
+					regions = HttpRange.toResourceRegions(httpRanges, content);
+				}
 				//写出去
-				this.resourceRegionHttpMessageConverter.write(
-						HttpRange.toResourceRegions(httpRanges, resource), mediaType, outputMessage);
+				ServletServerHttpResponse outputMessage = new ServletServerHttpResponse(response);
+				this.resourceRegionHttpMessageConverter.write(regions, mediaType, outputMessage);
 			}
 			catch (IllegalArgumentException ex) {
 				response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + resource.contentLength());
@@ -502,6 +644,81 @@ public class ResourceHttpRequestHandler extends WebContentGenerator
 		}
 	}
 
+	/**
+	 * Let the Servlet container write the content of a file-based resource,
+	 * or a single range of it, through its sendfile support, if available.
+	 * @param region the requested range, or {@code null} for the full content
+	 * @return {@code true} if the container takes care of writing the content
+	 */
+	private boolean applySendfile(HttpServletRequest request, HttpServletResponse response, Resource resource,
+			@Nullable ResourceRegion region) throws IOException {
+
+		if (!this.useSendfile || !resource.isFile() || response instanceof ServletResponseWrapper ||
+				!Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTRIBUTE))) {
+			return false;
+		}
+		long length = resource.contentLength();
+		long start = 0;
+		long end = length;
+		if (region != null) {
+			start = region.getPosition();
+			end = Math.min(start + region.getCount(), length);
+		}
+		if (end - start < SENDFILE_MIN_SIZE) {
+			return false;
+		}
+		if (region != null) {
+			response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + '-' + (end - 1) + '/' + length);
+			response.setContentLengthLong(end - start);
+		}
+		File file = resource.getFile();
+		request.setAttribute(SENDFILE_FILENAME_ATTRIBUTE, file.getCanonicalPath());
+		request.setAttribute(SENDFILE_START_ATTRIBUTE, start);
+		// Tomcat expects the end position to be exclusive
+		request.setAttribute(SENDFILE_END_ATTRIBUTE, end);
+		return true;
+	}
+
+	/**
+	 * Return an in-memory copy of the given resource if content caching is
+	 * enabled and the resource is small enough, or the resource itself otherwise.
+	 */
+	private Resource getCachedContent(Resource resource) throws IOException {
+		if (this.contentCacheLimit <= 0 || resource instanceof ByteArrayResource) {
+			return resource;
+		}
+		String key;
+		long lastModified;
+		long length;
+		try {
+			key = resource.getURL().toExternalForm();
+			lastModified = resource.lastModified();
+			length = resource.contentLength();
+		}
+		catch (IOException ex) {
+			// No stable identity or metadata for this resource
+			return resource;
+		}
+		if (length > this.contentCacheMaxResourceSize) {
+			return resource;
+		}
+		CachedContent content = this.contentAccessCache.get(key);
+		if (content == null || content.lastModified != lastModified || content.bytes.length != length) {
+			try (InputStream in = resource.getInputStream()) {
+				content = new CachedContent(lastModified, StreamUtils.copyToByteArray(in));
+			}
+			if (content.bytes.length != length) {
+				// Changed while reading, serve as is and try again next time
+				return new ByteArrayResource(content.bytes, resource.getDescription());
+			}
+			synchronized (this.contentCreationCache) {
+				this.contentAccessCache.put(key, content);
+				this.contentCreationCache.put(key, content);
+			}
+		}
+		return new ByteArrayResource(content.bytes, resource.getDescription());
+	}
+
 	@Nullable
 	protected Resource getResource(HttpServletRequest request) throws IOException {
 		String path = (String) request.getAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE);
@@ -727,4 +944,21 @@ public class ResourceHttpRequestHandler extends WebContentGenerator
 		return Collections.emptyList();
 	}
 
+
+	/**
+	 * In-memory content of a small resource, along with the last-modified
+	 * timestamp it was read at.
+	 */
+	private static final class CachedContent {
+
+		final long lastModified;
+
+		final byte[] bytes;
+
+		CachedContent(long lastModified, byte[] bytes) {
+			this.lastModified = lastModified;
+			this.bytes = bytes;
+		}
+	}
+
 }
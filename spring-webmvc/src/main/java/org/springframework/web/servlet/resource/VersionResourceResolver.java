@@ -21,6 +21,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.net.URL;
+import java.nio.channels.ReadableByteChannel;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
@@ -309,6 +310,11 @@ public class VersionResourceResolver extends AbstractResourceResolver {
 			return this.original.getInputStream();
 		}
 
+		@Override
+		public ReadableByteChannel readableChannel() throws IOException {
+			return this.original.readableChannel();
+		}
+
 		@Override
 		public HttpHeaders getResponseHeaders() {
 			HttpHeaders headers = (this.original instanceof HttpResource ?
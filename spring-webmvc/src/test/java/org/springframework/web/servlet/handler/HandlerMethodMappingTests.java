@@ -17,8 +17,10 @@
 package org.springframework.web.servlet.handler;
 
 import java.lang.reflect.Method;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -40,8 +42,10 @@ import org.springframework.web.servlet.HandlerMapping;
 import org.springframework.web.util.UrlPathHelper;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 
 /**
@@ -227,6 +231,41 @@ public class HandlerMethodMappingTests {
 		assertNull(this.mapping.getMappingRegistry().getCorsConfiguration(handlerMethod));
 	}
 
+	@Test
+	public void pathPatternIndex() throws Exception {
+		List<String> patterns = Arrays.asList("", "/", "/foo", "/foo/", "/foo/bar", "/foo/*", "/foo/{id}",
+				"/foo/{id}/bar", "/foo/**", "/foo/b?r", "/foo/ba*", "/foo/{name}.{ext}", "/foo/**/baz", "/**/*.html",
+				"/bar/{a}/{b}", "/Bar/Baz", "/{x:[a-z]+}/qux", "/a{b");
+		List<String> paths = Arrays.asList("", "/", "/foo", "/foo/", "/foo/bar", "/foo/bar/", "/foo/baz", "/foo/1/bar",
+				"/foo/a.b", "/foo/a.b.c", "/foo/bar.json", "/foo/x/y/baz", "/foo/a/b/c", "/bar/1/2", "/bar/baz",
+				"/bar/1/2/", "/a/qux", "/a/b/c.html", "/a{b", "/a{b.json", "/other");
+
+		IndexedHandlerMethodMapping mapping = new IndexedHandlerMethodMapping();
+		for (String pattern : patterns) {
+			mapping.registerMapping(pattern, this.handler, this.method1);
+		}
+		PathMatcher pathMatcher = new AntPathMatcher();
+		for (String path : paths) {
+			Set<String> candidates = mapping.getMappingRegistry().getMappingsByPathIndex(path);
+			assertNotNull(candidates);
+			for (String pattern : patterns) {
+				if (pathMatcher.match(pattern, path) || pathMatcher.match(pattern + "/", path) ||
+						pathMatcher.match(pattern + ".*", path)) {
+					assertTrue("Pattern '" + pattern + "' should be a candidate for '" + path + "'",
+							candidates.contains(pattern));
+				}
+			}
+		}
+		assertEquals(new HashSet<>(Arrays.asList("/foo/**", "/foo/**/baz", "/**/*.html", "/a{b",
+				"/foo/bar", "/foo/ba*", "/foo/b?r", "/foo/*", "/foo/{id}", "/foo/{name}.{ext}")),
+				mapping.getMappingRegistry().getMappingsByPathIndex("/foo/bar"));
+
+		mapping.unregisterMapping("/foo/bar");
+		assertFalse(mapping.getMappingRegistry().getMappingsByPathIndex("/foo/bar").contains("/foo/bar"));
+		assertNull(mapping.getMappingRegistry().getMappingsByPathIndex("/foo//bar"));
+		assertNull(this.mapping.getMappingRegistry().getMappingsByPathIndex("/foo"));
+	}
+
 	@Test
 	public void getCorsConfigWithBeanNameHandler() throws Exception {
 
@@ -295,6 +334,19 @@ public class HandlerMethodMappingTests {
 
 	}
 
+	private static class IndexedHandlerMethodMapping extends MyHandlerMethodMapping {
+
+		@Override
+		protected Set<String> getMappingPathPatterns(String key) {
+			return Collections.singleton(key);
+		}
+
+		@Override
+		protected boolean usePathPatternIndex() {
+			return true;
+		}
+	}
+
 	private static class SimpleMappingNamingStrategy implements HandlerMethodMappingNamingStrategy<String> {
 
 		@Override
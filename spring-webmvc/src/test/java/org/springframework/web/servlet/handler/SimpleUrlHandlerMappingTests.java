@@ -31,6 +31,7 @@ import org.springframework.web.servlet.HandlerExecutionChain;
 import org.springframework.web.servlet.HandlerInterceptor;
 import org.springframework.web.servlet.HandlerMapping;
 import org.springframework.web.util.WebUtils;
+import org.springframework.web.util.pattern.PathPatternParser;
 
 import static org.junit.Assert.*;
 
@@ -90,6 +91,44 @@ public class SimpleUrlHandlerMappingTests {
 		assertSame(controller, hec.getHandler());
 	}
 
+	@Test
+	public void urlMappingWithPathPatterns() throws Exception {
+		SimpleUrlHandlerMapping handlerMapping = new SimpleUrlHandlerMapping();
+		handlerMapping.setPatternParser(new PathPatternParser());
+		Object mainController = new Object();
+		Object resourceController = new Object();
+		Map<String, Object> urlMap = new LinkedHashMap<>();
+		urlMap.put("/welcome.html", mainController);
+		urlMap.put("/users/{id}", mainController);
+		urlMap.put("/resources/**", resourceController);
+		handlerMapping.setUrlMap(urlMap);
+		handlerMapping.setApplicationContext(new StaticApplicationContext());
+		assertTrue(handlerMapping.usesPathPatterns());
+
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/app/welcome.html");
+		request.setContextPath("/app");
+		HandlerExecutionChain hec = getHandler(handlerMapping, request);
+		assertNotNull(hec);
+		assertSame(mainController, hec.getHandler());
+		assertEquals("/welcome.html", request.getAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE));
+
+		request = new MockHttpServletRequest("GET", "/users/42");
+		hec = getHandler(handlerMapping, request);
+		assertNotNull(hec);
+		assertSame(mainController, hec.getHandler());
+		Map<?, ?> uriVariables = (Map<?, ?>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+		assertEquals("42", uriVariables.get("id"));
+
+		request = new MockHttpServletRequest("GET", "/resources/css/main%20file.css");
+		hec = getHandler(handlerMapping, request);
+		assertNotNull(hec);
+		assertSame(resourceController, hec.getHandler());
+		assertEquals("/resources/**", request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE));
+		assertEquals("css/main file.css", request.getAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE));
+
+		assertNull(handlerMapping.getHandler(new MockHttpServletRequest("GET", "/other")));
+	}
+
 	@SuppressWarnings("resource")
 	private void checkMappings(String beanName) throws Exception {
 		MockServletContext sc = new MockServletContext("");
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.servlet.mvc.condition;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.junit.Test;
+
+import org.springframework.mock.web.test.MockHttpServletRequest;
+import org.springframework.web.util.ServletRequestPathUtils;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link PathPatternsRequestCondition}.
+ *
+ * @author agent
+ */
+public class PathPatternsRequestConditionTests {
+
+	private static final PathPatternParser parser = new PathPatternParser();
+
+
+	@Test
+	public void prependSlash() {
+		assertEquals("/foo", createCondition("foo").getFirstPattern().getPatternString());
+	}
+
+	@Test
+	public void prependNonEmptyPatternsOnly() {
+		assertEquals("Do not prepend empty patterns (SPR-8255)", "",
+				createCondition("").getFirstPattern().getPatternString());
+	}
+
+	@Test
+	public void combineEmptySets() {
+		PathPatternsRequestCondition c1 = createCondition();
+		PathPatternsRequestCondition c2 = createCondition();
+		PathPatternsRequestCondition result = c1.combine(c2);
+
+		assertTrue(result.isEmptyPathMapping());
+		assertEquals(createCondition(""), result);
+	}
+
+	@Test
+	public void combineOnePatternWithEmptySet() {
+		PathPatternsRequestCondition c1 = createCondition("/type1", "/type2");
+		PathPatternsRequestCondition c2 = createCondition();
+
+		assertEquals(createCondition("/type1", "/type2"), c1.combine(c2));
+
+		c1 = createCondition();
+		c2 = createCondition("/method1", "/method2");
+
+		assertEquals(createCondition("/method1", "/method2"), c1.combine(c2));
+	}
+
+	@Test
+	public void combineMultiplePatterns() {
+		PathPatternsRequestCondition c1 = createCondition("/t1", "/t2");
+		PathPatternsRequestCondition c2 = createCondition("/m1", "/m2");
+
+		assertEquals(createCondition("/t1/m1", "/t1/m2", "/t2/m1", "/t2/m2"), c1.combine(c2));
+	}
+
+	@Test
+	public void matchDirectPath() {
+		PathPatternsRequestCondition condition = createCondition("/foo");
+		PathPatternsRequestCondition match = condition.getMatchingCondition(createRequest("/foo"));
+
+		assertNotNull(match);
+	}
+
+	@Test
+	public void matchPattern() {
+		PathPatternsRequestCondition condition = createCondition("/foo/*");
+		PathPatternsRequestCondition match = condition.getMatchingCondition(createRequest("/foo/bar"));
+
+		assertNotNull(match);
+	}
+
+	@Test
+	public void matchSortPatterns() {
+		PathPatternsRequestCondition condition = createCondition("/*/*", "/foo/bar", "/foo/*");
+		PathPatternsRequestCondition match = condition.getMatchingCondition(createRequest("/foo/bar"));
+
+		assertNotNull(match);
+		assertEquals(new LinkedHashSet<>(Arrays.asList("/foo/bar", "/foo/*", "/*/*")), match.getPatternValues());
+	}
+
+	@Test
+	public void matchTrailingSlash() {
+		HttpServletRequest request = createRequest("/foo/");
+		PathPatternsRequestCondition condition = createCondition("/foo");
+		PathPatternsRequestCondition match = condition.getMatchingCondition(request);
+
+		assertNotNull(match);
+		assertEquals("Should match by default", "/foo", match.getFirstPattern().getPatternString());
+
+		PathPatternParser strictParser = new PathPatternParser();
+		strictParser.setMatchOptionalTrailingSeparator(false);
+		condition = new PathPatternsRequestCondition(strictParser, "/foo");
+		assertNull(condition.getMatchingCondition(request));
+	}
+
+	@Test
+	public void matchEncodedAndContextPath() {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/app/foo%20bar;a=b/baz");
+		request.setContextPath("/app");
+		ServletRequestPathUtils.parseAndCache(request);
+
+		assertNotNull(createCondition("/foo bar/{id}").getMatchingCondition(request));
+		assertNull(createCondition("/app/foo bar/{id}").getMatchingCondition(request));
+	}
+
+	@Test
+	public void matchEmptyPathMapping() {
+		PathPatternsRequestCondition condition = createCondition();
+
+		assertNotNull(condition.getMatchingCondition(createRequest("")));
+		assertNotNull(condition.getMatchingCondition(createRequest("/")));
+		assertNull(condition.getMatchingCondition(createRequest("/foo")));
+	}
+
+	@Test
+	public void compareEqualPatterns() {
+		PathPatternsRequestCondition c1 = createCondition("/foo*");
+		PathPatternsRequestCondition c2 = createCondition("/foo*");
+
+		assertEquals(0, c1.compareTo(c2, createRequest("/foo")));
+	}
+
+	@Test
+	public void comparePatternSpecificity() {
+		PathPatternsRequestCondition c1 = createCondition("/fo*");
+		PathPatternsRequestCondition c2 = createCondition("/foo");
+
+		assertEquals(1, c1.compareTo(c2, createRequest("/foo")));
+	}
+
+	@Test
+	public void compareNumberOfMatchingPatterns() {
+		HttpServletRequest request = createRequest("/foo");
+
+		PathPatternsRequestCondition c1 = createCondition("/foo", "/bar");
+		PathPatternsRequestCondition c2 = createCondition("/foo", "/f*");
+
+		PathPatternsRequestCondition match1 = c1.getMatchingCondition(request);
+		PathPatternsRequestCondition match2 = c2.getMatchingCondition(request);
+
+		assertNotNull(match1);
+		assertNotNull(match2);
+		assertEquals(1, match1.compareTo(match2, request));
+	}
+
+
+	private static PathPatternsRequestCondition createCondition(String... patterns) {
+		return new PathPatternsRequestCondition(parser, patterns);
+	}
+
+	private static HttpServletRequest createRequest(String requestUri) {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", requestUri);
+		ServletRequestPathUtils.parseAndCache(request);
+		return request;
+	}
+
+}
@@ -23,6 +23,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.servlet.http.HttpServletRequest;
 
@@ -34,6 +35,7 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.test.MockHttpServletRequest;
 import org.springframework.stereotype.Controller;
+import org.springframework.util.AntPathMatcher;
 import org.springframework.util.MultiValueMap;
 import org.springframework.web.HttpMediaTypeNotAcceptableException;
 import org.springframework.web.HttpMediaTypeNotSupportedException;
@@ -44,6 +46,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.context.support.StaticWebApplicationContext;
+import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.method.HandlerMethod;
 import org.springframework.web.method.support.InvocableHandlerMethod;
 import org.springframework.web.method.support.ModelAndViewContainer;
@@ -58,7 +61,9 @@ import org.springframework.web.servlet.mvc.condition.ParamsRequestCondition;
 import org.springframework.web.servlet.mvc.condition.PatternsRequestCondition;
 import org.springframework.web.servlet.mvc.condition.ProducesRequestCondition;
 import org.springframework.web.servlet.mvc.condition.RequestMethodsRequestCondition;
+import org.springframework.web.util.ServletRequestPathUtils;
 import org.springframework.web.util.UrlPathHelper;
+import org.springframework.web.util.pattern.PathPatternParser;
 
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.*;
@@ -134,6 +139,113 @@ public class RequestMappingInfoHandlerMappingTests {
 		assertEquals(this.emptyMethod.getMethod(), handlerMethod.getMethod());
 	}
 
+	@Test
+	public void getHandlerSuffixAndTrailingSlashMatch() throws Exception {
+		assertEquals(this.fooMethod.getMethod(), getHandler(new MockHttpServletRequest("GET", "/foo.json")).getMethod());
+		assertEquals(this.fooMethod.getMethod(), getHandler(new MockHttpServletRequest("GET", "/foo/")).getMethod());
+		assertEquals(this.barMethod.getMethod(), getHandler(new MockHttpServletRequest("GET", "/bar.json")).getMethod());
+		assertEquals(this.barMethod.getMethod(), getHandler(new MockHttpServletRequest("GET", "/bar/")).getMethod());
+		assertNull(this.handlerMapping.getHandler(new MockHttpServletRequest("GET", "/foo/bar")));
+	}
+
+	@Test
+	public void getHandlerWithCaseInsensitivePathMatcher() throws Exception {
+		AntPathMatcher pathMatcher = new AntPathMatcher();
+		pathMatcher.setCaseSensitive(false);
+		this.handlerMapping = new TestRequestMappingInfoHandlerMapping();
+		this.handlerMapping.setPathMatcher(pathMatcher);
+		this.handlerMapping.registerHandler(new TestController());
+
+		assertEquals(this.fooMethod.getMethod(), getHandler(new MockHttpServletRequest("GET", "/FOO")).getMethod());
+		assertEquals(this.barMethod.getMethod(), getHandler(new MockHttpServletRequest("GET", "/Bar")).getMethod());
+	}
+
+	@Test
+	public void getHandlerWithTrimmingPathMatcher() throws Exception {
+		AntPathMatcher pathMatcher = new AntPathMatcher();
+		pathMatcher.setTrimTokens(true);
+		this.handlerMapping = new TestRequestMappingInfoHandlerMapping();
+		this.handlerMapping.setPathMatcher(pathMatcher);
+		this.handlerMapping.registerHandler(new TestController());
+
+		assertEquals(this.fooMethod.getMethod(), getHandler(new MockHttpServletRequest("GET", "/ foo")).getMethod());
+	}
+
+	@Test
+	public void getHandlerRestoresCachedLookupPath() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/foo");
+		getHandler(request);
+		assertNull(request.getAttribute(UrlPathHelper.PATH_ATTRIBUTE));
+
+		request.setAttribute(UrlPathHelper.PATH_ATTRIBUTE, "/outer");
+		getHandler(request);
+		assertEquals("/outer", request.getAttribute(UrlPathHelper.PATH_ATTRIBUTE));
+	}
+
+	@Test
+	public void getHandlerResolvesLookupPathOnce() throws Exception {
+		AtomicInteger count = new AtomicInteger();
+		UrlPathHelper pathHelper = new UrlPathHelper() {
+			@Override
+			public String getLookupPathForRequest(HttpServletRequest request) {
+				count.incrementAndGet();
+				return super.getLookupPathForRequest(request);
+			}
+		};
+		HandlerInterceptor interceptor = new HandlerInterceptorAdapter() {};
+
+		TestRequestMappingInfoHandlerMapping mapping = new TestRequestMappingInfoHandlerMapping();
+		mapping.registerHandler(new TestController());
+		mapping.setUrlPathHelper(pathHelper);
+		mapping.setCorsConfigurations(Collections.singletonMap("/foo", new CorsConfiguration()));
+		mapping.setInterceptors(new Object[] {new MappedInterceptor(new String[] {"/foo"}, interceptor)});
+		mapping.setApplicationContext(new StaticWebApplicationContext());
+
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/foo");
+		request.addHeader(HttpHeaders.ORIGIN, "https://domain.com");
+		HandlerExecutionChain chain = mapping.getHandler(request);
+
+		assertNotNull(chain);
+		assertThat(Arrays.asList(chain.getInterceptors()), hasItem(interceptor));
+		assertEquals(1, count.get());
+		assertNull(request.getAttribute(UrlPathHelper.PATH_ATTRIBUTE));
+	}
+
+	@Test
+	public void getHandlerWithPathPatterns() throws Exception {
+		this.handlerMapping = new TestRequestMappingInfoHandlerMapping();
+		this.handlerMapping.setPatternParser(new PathPatternParser());
+		this.handlerMapping.registerHandler(new TestController());
+
+		assertEquals(this.fooMethod.getMethod(), getHandler(new MockHttpServletRequest("GET", "/foo")).getMethod());
+		assertEquals(this.fooMethod.getMethod(), getHandler(new MockHttpServletRequest("GET", "/foo/")).getMethod());
+		assertEquals(this.fooMethod.getMethod(), getHandler(new MockHttpServletRequest("GET", "/foo;a=b")).getMethod());
+		assertEquals(this.barMethod.getMethod(), getHandler(new MockHttpServletRequest("GET", "/bar")).getMethod());
+		assertEquals(this.emptyMethod.getMethod(), getHandler(new MockHttpServletRequest("GET", "/")).getMethod());
+		assertNull("No suffix pattern matching with PathPatterns",
+				this.handlerMapping.getHandler(new MockHttpServletRequest("GET", "/foo.json")));
+
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/app/foo");
+		request.setContextPath("/app");
+		request.setParameter("p", "anything");
+		assertEquals(this.fooParamMethod.getMethod(), getHandler(request).getMethod());
+		assertEquals("/foo", request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE));
+	}
+
+	@Test
+	public void getHandlerWithPathPatternsRequestMethodNotAllowed() throws Exception {
+		this.handlerMapping = new TestRequestMappingInfoHandlerMapping();
+		this.handlerMapping.setPatternParser(new PathPatternParser());
+		this.handlerMapping.registerHandler(new TestController());
+		try {
+			this.handlerMapping.getHandler(new MockHttpServletRequest("POST", "/bar"));
+			fail("HttpRequestMethodNotSupportedException expected");
+		}
+		catch (HttpRequestMethodNotSupportedException ex) {
+			assertArrayEquals(new String[]{"GET", "HEAD"}, ex.getSupportedMethods());
+		}
+	}
+
 	@Test
 	public void getHandlerBestMatch() throws Exception {
 		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/foo");
@@ -306,6 +418,27 @@ public class RequestMappingInfoHandlerMappingTests {
 		assertEquals("/1/2", request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE));
 	}
 
+	@Test
+	public void handleMatchWithPathPatterns() {
+		RequestMappingInfo.BuilderConfiguration options = new RequestMappingInfo.BuilderConfiguration();
+		options.setPatternParser(new PathPatternParser());
+		RequestMappingInfo info = RequestMappingInfo.paths("/{group}/{identifier}").options(options).build();
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/group;a=1;b=2/a%2Fb");
+		ServletRequestPathUtils.parseAndCache(request);
+
+		RequestMappingInfo match = info.getMatchingCondition(request);
+		assertNotNull(match);
+		this.handlerMapping.handleMatch(match, "/group/a%2Fb", request);
+
+		Map<String, String> uriVariables = getUriTemplateVariables(request);
+		assertEquals("group", uriVariables.get("group"));
+		assertEquals("a/b", uriVariables.get("identifier"));
+		assertEquals("/{group}/{identifier}", request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE));
+		MultiValueMap<String, String> matrixVariables = getMatrixVariables(request, "group");
+		assertEquals(Collections.singletonList("1"), matrixVariables.get("a"));
+		assertEquals(Collections.singletonList("2"), matrixVariables.get("b"));
+	}
+
 	@Test
 	public void handleMatchMatrixVariables() {
 		MockHttpServletRequest request;
@@ -536,7 +669,14 @@ public class RequestMappingInfoHandlerMappingTests {
 		@Override
 		protected RequestMappingInfo getMappingForMethod(Method method, Class<?> handlerType) {
 			RequestMapping annot = AnnotationUtils.findAnnotation(method, RequestMapping.class);
-			if (annot != null) {
+			if (annot != null && getPatternParser() != null) {
+				RequestMappingInfo.BuilderConfiguration options = new RequestMappingInfo.BuilderConfiguration();
+				options.setPatternParser(getPatternParser());
+				return RequestMappingInfo.paths(annot.value()).methods(annot.method()).params(annot.params())
+						.headers(annot.headers()).consumes(annot.consumes()).produces(annot.produces())
+						.options(options).build();
+			}
+			else if (annot != null) {
 				return new RequestMappingInfo(
 					new PatternsRequestCondition(annot.value(), getUrlPathHelper(), getPathMatcher(), true, true),
 					new RequestMethodsRequestCondition(annot.method()),
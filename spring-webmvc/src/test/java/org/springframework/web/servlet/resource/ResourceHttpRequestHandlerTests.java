@@ -16,7 +16,10 @@
 
 package org.springframework.web.servlet.resource;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -30,6 +33,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.UrlResource;
 import org.springframework.http.HttpMethod;
@@ -38,6 +42,8 @@ import org.springframework.http.MediaType;
 import org.springframework.mock.web.test.MockHttpServletRequest;
 import org.springframework.mock.web.test.MockHttpServletResponse;
 import org.springframework.mock.web.test.MockServletContext;
+import org.springframework.util.FileCopyUtils;
+import org.springframework.util.FileSystemUtils;
 import org.springframework.util.StringUtils;
 import org.springframework.web.HttpRequestMethodNotSupportedException;
 import org.springframework.web.accept.ContentNegotiationManager;
@@ -703,6 +709,94 @@ public class ResourceHttpRequestHandlerTests {
 		assertEquals("max-age=3600", this.response.getHeader("Cache-Control"));
 	}
 
+	@Test
+	public void sendfile() throws Exception {
+		File dir = Files.createTempDirectory("resources").toFile();
+		try {
+			File file = new File(dir, "large.txt");
+			byte[] content = new byte[64 * 1024];
+			Arrays.fill(content, (byte) 'a');
+			FileCopyUtils.copy(content, file);
+			this.handler.setLocations(Collections.singletonList(new FileSystemResource(dir.getPath() + "/")));
+			this.handler.afterPropertiesSet();
+			assertFalse(this.handler.isUseSendfile());
+			this.handler.setUseSendfile(true);
+
+			this.request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+			this.request.setAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE, "large.txt");
+			this.handler.handleRequest(this.request, this.response);
+
+			assertEquals(content.length, this.response.getContentLength());
+			assertEquals(0, this.response.getContentAsByteArray().length);
+			assertEquals(file.getCanonicalPath(), this.request.getAttribute("org.apache.tomcat.sendfile.filename"));
+			assertEquals(0L, this.request.getAttribute("org.apache.tomcat.sendfile.start"));
+			assertEquals((long) content.length, this.request.getAttribute("org.apache.tomcat.sendfile.end"));
+
+			this.request.addHeader("Range", "bytes=1000-60999");
+			this.response = new MockHttpServletResponse();
+			this.handler.handleRequest(this.request, this.response);
+
+			assertEquals(206, this.response.getStatus());
+			assertEquals("bytes 1000-60999/" + content.length, this.response.getHeader("Content-Range"));
+			assertEquals(60000, this.response.getContentLength());
+			assertEquals(0, this.response.getContentAsByteArray().length);
+			assertEquals(1000L, this.request.getAttribute("org.apache.tomcat.sendfile.start"));
+			assertEquals(61000L, this.request.getAttribute("org.apache.tomcat.sendfile.end"));
+
+			this.handler.setUseSendfile(false);
+			this.request.removeHeader("Range");
+			this.request.removeAttribute("org.apache.tomcat.sendfile.filename");
+			this.response = new MockHttpServletResponse();
+			this.handler.handleRequest(this.request, this.response);
+
+			assertNull(this.request.getAttribute("org.apache.tomcat.sendfile.filename"));
+			assertArrayEquals(content, this.response.getContentAsByteArray());
+		}
+		finally {
+			FileSystemUtils.deleteRecursively(dir);
+		}
+	}
+
+	@Test
+	public void contentCache() throws Exception {
+		File dir = Files.createTempDirectory("resources").toFile();
+		try {
+			File file = new File(dir, "foo.txt");
+			FileCopyUtils.copy("Some text".getBytes(StandardCharsets.UTF_8), file);
+			long lastModified = file.lastModified();
+			this.handler.setLocations(Collections.singletonList(new FileSystemResource(dir.getPath() + "/")));
+			this.handler.setContentCacheLimit(10);
+			this.handler.afterPropertiesSet();
+
+			this.request.setAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE, "foo.txt");
+			this.handler.handleRequest(this.request, this.response);
+			assertEquals("Some text", this.response.getContentAsString());
+
+			// Same length and timestamp: served from the cache
+			FileCopyUtils.copy("Some TEXT".getBytes(StandardCharsets.UTF_8), file);
+			assertTrue(file.setLastModified(lastModified));
+			this.response = new MockHttpServletResponse();
+			this.handler.handleRequest(this.request, this.response);
+			assertEquals("Some text", this.response.getContentAsString());
+
+			this.request.addHeader("Range", "bytes=5-8");
+			this.response = new MockHttpServletResponse();
+			this.handler.handleRequest(this.request, this.response);
+			assertEquals(206, this.response.getStatus());
+			assertEquals("text", this.response.getContentAsString());
+
+			// Modified: content read again
+			assertTrue(file.setLastModified(lastModified + 10000));
+			this.request.removeHeader("Range");
+			this.response = new MockHttpServletResponse();
+			this.handler.handleRequest(this.request, this.response);
+			assertEquals("Some TEXT", this.response.getContentAsString());
+		}
+		finally {
+			FileSystemUtils.deleteRecursively(dir);
+		}
+	}
+
 
 	private long resourceLastModified(String resourceName) throws IOException {
 		return new ClassPathResource(resourceName, getClass()).getFile().lastModified();
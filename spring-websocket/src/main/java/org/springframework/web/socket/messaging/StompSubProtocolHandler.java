@@ -19,7 +19,9 @@ package org.springframework.web.socket.messaging;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.security.Principal;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -50,7 +52,9 @@ import org.springframework.messaging.support.ImmutableMessageChannelInterceptor;
 import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.messaging.support.MessageHeaderAccessor;
 import org.springframework.messaging.support.MessageHeaderInitializer;
+import org.springframework.messaging.support.NativeMessageHeaderAccessor;
 import org.springframework.util.Assert;
+import org.springframework.util.ConcurrentReferenceHashMap;
 import org.springframework.util.MimeTypeUtils;
 import org.springframework.web.socket.BinaryMessage;
 import org.springframework.web.socket.CloseStatus;
@@ -91,6 +95,9 @@ public class StompSubProtocolHandler implements SubProtocolHandler, ApplicationE
 
 	private static final byte[] EMPTY_PAYLOAD = new byte[0];
 
+	private static final List<String> RECIPIENT_HEADER_NAMES = Arrays.asList(
+			StompHeaderAccessor.STOMP_SUBSCRIPTION_HEADER, StompHeaderAccessor.STOMP_MESSAGE_ID_HEADER);
+
 
 	@Nullable
 	private StompSubProtocolErrorHandler errorHandler;
@@ -116,6 +123,13 @@ public class StompSubProtocolHandler implements SubProtocolHandler, ApplicationE
 
 	private final Stats stats = new Stats();
 
+	/**
+	 * MESSAGE frames shared by the recipients of a broadcast, weakly keyed by
+	 * the broadcast id that the broker sets on all of their messages.
+	 */
+	private final Map<Object, BroadcastFrame> broadcastFrames =
+			new ConcurrentReferenceHashMap<>(64, ConcurrentReferenceHashMap.ReferenceType.WEAK);
+
 
 	/**
 	 * Configure a handler for error messages sent to clients which allows
@@ -458,7 +472,7 @@ public class StompSubProtocolHandler implements SubProtocolHandler, ApplicationE
 	private void sendToClient(WebSocketSession session, StompHeaderAccessor stompAccessor, byte[] payload) {
 		StompCommand command = stompAccessor.getCommand();
 		try {
-			byte[] bytes = this.stompEncoder.encode(stompAccessor.getMessageHeaders(), payload);
+			byte[] bytes = encode(stompAccessor, payload);
 			boolean useBinary = (payload.length > 0 && !(session instanceof SockJsSession) &&
 					MimeTypeUtils.APPLICATION_OCTET_STREAM.isCompatibleWith(stompAccessor.getContentType()));
 			if (useBinary) {
@@ -491,6 +505,63 @@ public class StompSubProtocolHandler implements SubProtocolHandler, ApplicationE
 		}
 	}
 
+	private byte[] encode(StompHeaderAccessor accessor, byte[] payload) {
+		if (StompCommand.MESSAGE.equals(accessor.getCommand()) && this.stompEncoder.getClass() == StompEncoder.class) {
+			byte[] bytes = encodeBroadcastFrame(accessor, payload);
+			if (bytes != null) {
+				return bytes;
+			}
+		}
+		return this.stompEncoder.encode(accessor.getMessageHeaders(), payload);
+	}
+
+	/**
+	 * Encode a MESSAGE frame by splicing the "subscription" and "message-id"
+	 * headers of the recipient into a frame encoded once for all recipients of
+	 * the same broadcast, as marked by the broker through the
+	 * {@link SimpMessageHeaderAccessor#BROADCAST_ID_HEADER broadcast id} header.
+	 * Messages without a broadcast id are not looked up at all.
+	 * @return the encoded frame, or {@code null} if it must be encoded in full
+	 */
+	@Nullable
+	private byte[] encodeBroadcastFrame(StompHeaderAccessor accessor, byte[] payload) {
+		Object broadcastId = accessor.getHeader(SimpMessageHeaderAccessor.BROADCAST_ID_HEADER);
+		Map<String, List<String>> nativeHeaders = getNativeHeaders(accessor);
+		if (broadcastId == null || nativeHeaders == null) {
+			return null;
+		}
+		Map<String, String> recipientHeaders = new LinkedHashMap<>(4);
+		for (String name : RECIPIENT_HEADER_NAMES) {
+			List<String> values = nativeHeaders.get(name);
+			if (values != null) {
+				if (values.size() != 1) {
+					return null;
+				}
+				recipientHeaders.put(name, values.get(0));
+			}
+		}
+		BroadcastFrame frame = this.broadcastFrames.get(broadcastId);
+		if (frame == null) {
+			frame = new BroadcastFrame(nativeHeaders, payload,
+					this.stompEncoder.encodeShared(accessor.getMessageHeaders(), payload, RECIPIENT_HEADER_NAMES));
+			BroadcastFrame existing = this.broadcastFrames.putIfAbsent(broadcastId, frame);
+			if (existing != null) {
+				frame = existing;
+			}
+		}
+		// An outbound interceptor may have changed the message for this recipient
+		if (frame.getPayload() != payload || !frame.hasSharedHeaders(nativeHeaders)) {
+			return null;
+		}
+		return frame.getSharedFrame().encode(recipientHeaders);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Nullable
+	private static Map<String, List<String>> getNativeHeaders(StompHeaderAccessor accessor) {
+		return (Map<String, List<String>>) accessor.getHeader(NativeMessageHeaderAccessor.NATIVE_HEADERS);
+	}
+
 	private StompHeaderAccessor getStompHeaderAccessor(Message<?> message) {
 		MessageHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, MessageHeaderAccessor.class);
 		if (accessor instanceof StompHeaderAccessor) {
@@ -653,6 +724,54 @@ public class StompSubProtocolHandler implements SubProtocolHandler, ApplicationE
 	}
 
 
+	/**
+	 * A {@link StompEncoder.SharedFrame} along with the payload and the native
+	 * headers it was encoded from, other than those specific to each recipient.
+	 */
+	private static class BroadcastFrame {
+
+		private final Map<String, List<String>> sharedHeaders = new LinkedHashMap<>();
+
+		private final byte[] payload;
+
+		private final StompEncoder.SharedFrame sharedFrame;
+
+		public BroadcastFrame(Map<String, List<String>> nativeHeaders, byte[] payload,
+				StompEncoder.SharedFrame sharedFrame) {
+
+			nativeHeaders.forEach((name, values) -> {
+				if (!RECIPIENT_HEADER_NAMES.contains(name)) {
+					this.sharedHeaders.put(name, new ArrayList<>(values));
+				}
+			});
+			this.payload = payload;
+			this.sharedFrame = sharedFrame;
+		}
+
+		public byte[] getPayload() {
+			return this.payload;
+		}
+
+		public StompEncoder.SharedFrame getSharedFrame() {
+			return this.sharedFrame;
+		}
+
+		public boolean hasSharedHeaders(Map<String, List<String>> nativeHeaders) {
+			int count = 0;
+			for (Map.Entry<String, List<String>> entry : nativeHeaders.entrySet()) {
+				if (RECIPIENT_HEADER_NAMES.contains(entry.getKey())) {
+					continue;
+				}
+				if (!entry.getValue().equals(this.sharedHeaders.get(entry.getKey()))) {
+					return false;
+				}
+				count++;
+			}
+			return (count == this.sharedHeaders.size());
+		}
+	}
+
+
 	private static class Stats {
 
 		private final AtomicInteger connect = new AtomicInteger();
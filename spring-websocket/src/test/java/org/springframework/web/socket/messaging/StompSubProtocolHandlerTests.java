@@ -17,6 +17,8 @@
 package org.springframework.web.socket.messaging;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.security.Principal;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -43,6 +45,7 @@ import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.messaging.simp.SimpMessageType;
 import org.springframework.messaging.simp.TestPrincipal;
 import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompDecoder;
 import org.springframework.messaging.simp.stomp.StompEncoder;
 import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
 import org.springframework.messaging.simp.user.DestinationUserNameProvider;
@@ -286,6 +289,70 @@ public class StompSubProtocolHandlerTests {
 		assertTrue(webSocketMessage instanceof TextMessage);
 	}
 
+	@Test
+	public void handleMessageToClientWithBroadcastMessage() {
+
+		byte[] payload = "{\"price\":42}".getBytes(StandardCharsets.UTF_8);
+		Object broadcastId = new Object();
+		StompDecoder decoder = new StompDecoder();
+
+		for (int i = 0; i < 3; i++) {
+			SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+			headers.setSessionId("s" + i);
+			headers.setSubscriptionId("sub" + i);
+			headers.setDestination("/topic/prices");
+			headers.setHeader(SimpMessageHeaderAccessor.BROADCAST_ID_HEADER, broadcastId);
+			headers.setContentType(MimeTypeUtils.APPLICATION_JSON);
+			headers.setNativeHeader("x-token", (i < 2 ? "a:b" : "c"));
+			Message<byte[]> message = MessageBuilder.createMessage(payload, headers.getMessageHeaders());
+			this.protocolHandler.handleMessageToClient(this.session, message);
+		}
+
+		assertEquals(3, this.session.getSentMessages().size());
+		for (int i = 0; i < 3; i++) {
+			TextMessage textMessage = (TextMessage) this.session.getSentMessages().get(i);
+			Message<byte[]> frame = decoder.decode(ByteBuffer.wrap(textMessage.asBytes())).get(0);
+			StompHeaderAccessor accessor = StompHeaderAccessor.wrap(frame);
+			assertEquals(StompCommand.MESSAGE, accessor.getCommand());
+			assertEquals("sub" + i, accessor.getSubscriptionId());
+			assertNotNull(accessor.getMessageId());
+			assertEquals("/topic/prices", accessor.getDestination());
+			assertEquals(MimeTypeUtils.APPLICATION_JSON, accessor.getContentType());
+			assertEquals((i < 2 ? "a:b" : "c"), accessor.getFirstNativeHeader("x-token"));
+			assertEquals(Integer.valueOf(payload.length), accessor.getContentLength());
+			assertArrayEquals(payload, frame.getPayload());
+		}
+	}
+
+	@Test
+	public void handleMessageToClientWithReusedPayloadAcrossBroadcasts() {
+
+		byte[] payload = "{\"price\":42}".getBytes(StandardCharsets.UTF_8);
+		Object[] broadcastIds = {new Object(), new Object()};
+		StompDecoder decoder = new StompDecoder();
+
+		for (int i = 0; i < 3; i++) {
+			if (i == 2) {
+				payload[payload.length - 2] = '3';
+			}
+			SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+			headers.setSessionId("s" + i);
+			headers.setSubscriptionId("sub" + i);
+			headers.setDestination("/topic/prices");
+			headers.setHeader(SimpMessageHeaderAccessor.BROADCAST_ID_HEADER, broadcastIds[i / 2]);
+			Message<byte[]> message = MessageBuilder.createMessage(payload, headers.getMessageHeaders());
+			this.protocolHandler.handleMessageToClient(this.session, message);
+		}
+
+		assertEquals(3, this.session.getSentMessages().size());
+		for (int i = 0; i < 3; i++) {
+			TextMessage textMessage = (TextMessage) this.session.getSentMessages().get(i);
+			Message<byte[]> frame = decoder.decode(ByteBuffer.wrap(textMessage.asBytes())).get(0);
+			String expected = (i < 2 ? "{\"price\":42}" : "{\"price\":43}");
+			assertEquals(expected, new String(frame.getPayload(), StandardCharsets.UTF_8));
+		}
+	}
+
 	@Test
 	public void handleMessageFromClient() {
 